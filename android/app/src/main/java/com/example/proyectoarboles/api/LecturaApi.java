@@ -3,8 +3,10 @@ package com.example.proyectoarboles.api;
 import com.example.proyectoarboles.dto.LecturaMuestraProjection;
 import com.example.proyectoarboles.model.Lectura;
 import com.example.proyectoarboles.model.PageResponse;
+import com.example.proyectoarboles.model.PaginaCursor;
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Headers;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
 import java.util.List;
@@ -35,6 +37,21 @@ public interface LecturaApi {
             @Query("size") int size
     );
 
+    /**
+     * Obtiene lecturas en un rango de fechas con paginación por cursor (más recientes primero).
+     * Para la primera página cursor = null; las siguientes usan siguienteCursor de la anterior.
+     * GET /api/lecturas/dispositivo/{dispositivoId}/rango/cursor?desde=...&hasta=...&cursor=...&size=20&total=true
+     */
+    @GET("api/lecturas/dispositivo/{dispositivoId}/rango/cursor")
+    Call<PaginaCursor<Lectura>> obtenerLecturasEnRangoPorCursor(
+            @Path("dispositivoId") Long dispositivoId,
+            @Query("desde") String desde,
+            @Query("hasta") String hasta,
+            @Query("cursor") String cursor,
+            @Query("size") int size,
+            @Query("total") boolean total
+    );
+
     /**
      * Obtiene lecturas muestreadas para gráficas (stride sampling, máximo ~400 puntos).
      * Períodos: DIA, SEMANA, MES, SEMESTRE, ANIO
@@ -45,4 +62,16 @@ public interface LecturaApi {
             @Path("dispositivoId") Long dispositivoId,
             @Query("periodo") String periodo
     );
+
+    /**
+     * Igual que obtenerLecturasParaGrafica, pero en la serie binaria compacta del backend
+     * (decodificada por SerieBinariaConverterFactory): varias veces menos bytes que el JSON.
+     * Los puntos de SEMESTRE y ANIO solo traen la media de cada intervalo.
+     */
+    @Headers("Accept: " + SerieBinariaDecoder.TIPO_CONTENIDO)
+    @GET("api/lecturas/dispositivo/{dispositivoId}/grafica")
+    Call<List<LecturaMuestraProjection>> obtenerLecturasParaGraficaBinaria(
+            @Path("dispositivoId") Long dispositivoId,
+            @Query("periodo") String periodo
+    );
 }
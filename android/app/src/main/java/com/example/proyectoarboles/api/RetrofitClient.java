@@ -7,8 +7,10 @@ import com.example.proyectoarboles.adapter.BigDecimalStringAdapter;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
+import java.io.File;
 import java.util.concurrent.TimeUnit;
 
+import okhttp3.Cache;
 import okhttp3.OkHttpClient;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
@@ -18,6 +20,9 @@ public class RetrofitClient {
     // URL configurada automáticamente según el Build Flavor seleccionado
     private static final String BASE_URL = BuildConfig.BASE_URL;
 
+    // Caché HTTP: las consultas periódicas se revalidan con el ETag y el servidor responde 304 sin cuerpo
+    private static final long TAMANO_CACHE = 10L * 1024 * 1024;
+
     private static Retrofit retrofit = null;
     private static ArbolApi arbolApi = null;
     private static CentroEducativoApi centroEducativoApi = null;
@@ -32,6 +37,7 @@ public class RetrofitClient {
 
         OkHttpClient okHttpClient = new OkHttpClient.Builder()
                 .addInterceptor(authInterceptor)
+                .cache(new Cache(new File(context.getCacheDir(), "http"), TAMANO_CACHE))
                 .connectTimeout(60, TimeUnit.SECONDS)
                 .readTimeout(60, TimeUnit.SECONDS)
                 .writeTimeout(60, TimeUnit.SECONDS)
@@ -45,6 +51,7 @@ public class RetrofitClient {
         retrofit = new Retrofit.Builder()
                 .baseUrl(BASE_URL)
                 .client(okHttpClient)
+                .addConverterFactory(new SerieBinariaConverterFactory())
                 .addConverterFactory(GsonConverterFactory.create(gson))
                 .build();
 
@@ -77,6 +84,7 @@ public class RetrofitClient {
             retrofit = new Retrofit.Builder()
                     .baseUrl(BASE_URL)
                     .client(okHttpClient)                     // ← IMPORTANTE
+                    .addConverterFactory(new SerieBinariaConverterFactory())  // antes que Gson
                     .addConverterFactory(GsonConverterFactory.create(gson))
                     .build();
         }
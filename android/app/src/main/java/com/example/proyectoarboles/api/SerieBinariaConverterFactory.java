@@ -0,0 +1,37 @@
+package com.example.proyectoarboles.api;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.http.Headers;
+
+/**
+ * Convierte con SerieBinariaDecoder las respuestas de los métodos de la API que piden
+ * la serie binaria (@Headers("Accept: application/vnd.gardenmonitor.serie")).
+ * El resto de métodos siguen pasando por Gson.
+ */
+public class SerieBinariaConverterFactory extends Converter.Factory {
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Headers) {
+                for (String header : ((Headers) annotation).value()) {
+                    if (header.replace(" ", "").equalsIgnoreCase("Accept:" + SerieBinariaDecoder.TIPO_CONTENIDO)) {
+                        return body -> {
+                            try {
+                                return SerieBinariaDecoder.decodificar(body.bytes());
+                            } finally {
+                                body.close();
+                            }
+                        };
+                    }
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.proyectoarboles.api;
+
+import com.example.proyectoarboles.dto.LecturaMuestraProjection;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Decodifica la serie binaria de lecturas del backend (Accept: application/vnd.gardenmonitor.serie).
+ * Formato (versión 1), ver SerieBinariaHttpMessageConverter en el backend:
+ *   'G' 'M' 0x01, varint n,
+ *   timestamps: zigzag t0, zigzag (t1 - t0), zigzag de las diferencias de segundo orden,
+ *   7 columnas (id, temperatura, humedadAmbiente, humedadSuelo, co2, luz1, luz2):
+ *   bitmap de presencia de ceil(n/8) bytes + zigzag de la diferencia con el valor presente anterior.
+ * Los sensores vienen escalados x100. Los timestamps son segundos epoch de la hora local del
+ * servidor tomada como UTC, así que se formatean en UTC para obtener el mismo texto que el JSON.
+ */
+public final class SerieBinariaDecoder {
+
+    public static final String TIPO_CONTENIDO = "application/vnd.gardenmonitor.serie";
+
+    private static final int VERSION = 1;
+    private static final int COLUMNAS_SENSORES = 6;
+
+    private final byte[] datos;
+    private int pos;
+
+    private SerieBinariaDecoder(byte[] datos) {
+        this.datos = datos;
+    }
+
+    public static List<LecturaMuestraProjection> decodificar(byte[] datos) throws IOException {
+        return new SerieBinariaDecoder(datos).leer();
+    }
+
+    private List<LecturaMuestraProjection> leer() throws IOException {
+        if (datos.length < 3 || datos[0] != 'G' || datos[1] != 'M' || datos[2] != VERSION) {
+            throw new IOException("Serie binaria no reconocida");
+        }
+        pos = 3;
+        int n = (int) leerVarint();
+
+        // SimpleDateFormat y no java.time: minSdk 24
+        SimpleDateFormat formato = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
+        formato.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        List<LecturaMuestraProjection> lecturas = new ArrayList<>(n);
+        long t = 0;
+        long delta = 0;
+        for (int i = 0; i < n; i++) {
+            long v = zigzag(leerVarint());
+            if (i == 0) {
+                t = v;
+            } else {
+                delta = i == 1 ? v : delta + v;
+                t += delta;
+            }
+            LecturaMuestraProjection l = new LecturaMuestraProjection();
+            l.setTimestamp(formato.format(new Date(t * 1000)));
+            lecturas.add(l);
+        }
+
+        long[] valores = new long[n];
+        boolean[] presentes = new boolean[n];
+        leerColumna(n, valores, presentes);
+        for (int i = 0; i < n; i++) {
+            if (presentes[i]) lecturas.get(i).setId(valores[i]);
+        }
+        for (int c = 0; c < COLUMNAS_SENSORES; c++) {
+            leerColumna(n, valores, presentes);
+            for (int i = 0; i < n; i++) {
+                if (!presentes[i]) continue;
+                Double valor = valores[i] / 100.0;
+                LecturaMuestraProjection l = lecturas.get(i);
+                switch (c) {
+                    case 0: l.setTemperatura(valor); break;
+                    case 1: l.setHumedadAmbiente(valor); break;
+                    case 2: l.setHumedadSuelo(valor); break;
+                    case 3: l.setCo2(valor); break;
+                    case 4: l.setLuz1(valor); break;
+                    default: l.setLuz2(valor); break;
+                }
+            }
+        }
+        return lecturas;
+    }
+
+    private void leerColumna(int n, long[] valores, boolean[] presentes) throws IOException {
+        int inicioBitmap = pos;
+        pos += (n + 7) / 8;
+        if (pos > datos.length) throw new IOException("Serie binaria truncada");
+        long anterior = 0;
+        for (int i = 0; i < n; i++) {
+            presentes[i] = (datos[inicioBitmap + i / 8] & (1 << (i % 8))) != 0;
+            if (presentes[i]) {
+                anterior += zigzag(leerVarint());
+                valores[i] = anterior;
+            }
+        }
+    }
+
+    private long leerVarint() throws IOException {
+        long resultado = 0;
+        int desplazamiento = 0;
+        while (true) {
+            if (pos >= datos.length) throw new IOException("Serie binaria truncada");
+            byte b = datos[pos++];
+            resultado |= (long) (b & 0x7F) << desplazamiento;
+            if ((b & 0x80) == 0) return resultado;
+            desplazamiento += 7;
+        }
+    }
+
+    private static long zigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
@@ -21,7 +21,7 @@ import com.example.proyectoarboles.api.RetrofitClient;
 import com.example.proyectoarboles.dto.LecturaMuestraProjection;
 import com.example.proyectoarboles.model.DispositivoEsp32;
 import com.example.proyectoarboles.model.Lectura;
-import com.example.proyectoarboles.model.PageResponse;
+import com.example.proyectoarboles.model.PaginaCursor;
 import com.github.mikephil.charting.charts.LineChart;
 import com.github.mikephil.charting.components.XAxis;
 import com.github.mikephil.charting.data.Entry;
@@ -51,6 +51,10 @@ public class HistoricoDispositivoFragment extends Fragment {
     private String periodoActivo = "SEMANA";
     private int paginaActual = 0;
     private int totalPaginas = 0;
+    // Cursor con el que se pide cada página ya visitada (índice = página; la 0 es null)
+    private final List<String> cursores = new ArrayList<>();
+    private String siguienteCursor;
+    private String desdeTabla, hastaTabla;
 
     private TextView tvInfoDispositivo, tvInfoGrafica1, tvInfoGraficaCO2;
     private TextView tvTituloTabla, tvPaginaInfo, tvNoLecturas;
@@ -150,7 +154,8 @@ public class HistoricoDispositivoFragment extends Fragment {
         });
 
         btnPaginaSiguiente.setOnClickListener(v -> {
-            if (paginaActual < totalPaginas - 1) {
+            if (siguienteCursor != null) {
+                if (cursores.size() == paginaActual + 1) cursores.add(siguienteCursor);
                 paginaActual++;
                 cargarTabla();
             }
@@ -198,7 +203,7 @@ public class HistoricoDispositivoFragment extends Fragment {
         lineChartCO2.invalidate();
 
         Call<List<LecturaMuestraProjection>> call = RetrofitClient.getLecturaApi()
-                .obtenerLecturasParaGrafica(dispositivoId, periodoActivo);
+                .obtenerLecturasParaGraficaBinaria(dispositivoId, periodoActivo);
         call.enqueue(new Callback<List<LecturaMuestraProjection>>() {
             @Override
             public void onResponse(Call<List<LecturaMuestraProjection>> call, Response<List<LecturaMuestraProjection>> response) {
@@ -301,29 +306,40 @@ public class HistoricoDispositivoFragment extends Fragment {
         btnPaginaAnterior.setEnabled(false);
         btnPaginaSiguiente.setEnabled(false);
 
-        int dias = getDias(periodoActivo);
-        String hasta = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.getDefault()).format(new Date());
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_YEAR, -dias);
-        String desde = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.getDefault()).format(cal.getTime());
+        // El rango se fija al pedir la primera página para que los cursores sigan siendo válidos
+        if (paginaActual == 0) {
+            int dias = getDias(periodoActivo);
+            hastaTabla = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.getDefault()).format(new Date());
+            Calendar cal = Calendar.getInstance();
+            cal.add(Calendar.DAY_OF_YEAR, -dias);
+            desdeTabla = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.getDefault()).format(cal.getTime());
+            cursores.clear();
+            cursores.add(null);
+        }
+        final int pagina = paginaActual;
 
-        Call<PageResponse<Lectura>> call = RetrofitClient.getLecturaApi()
-                .obtenerLecturasEnRango(dispositivoId, desde, hasta, paginaActual, PAGE_SIZE);
-        call.enqueue(new Callback<PageResponse<Lectura>>() {
+        Call<PaginaCursor<Lectura>> call = RetrofitClient.getLecturaApi()
+                .obtenerLecturasEnRangoPorCursor(dispositivoId, desdeTabla, hastaTabla,
+                        cursores.get(pagina), PAGE_SIZE, pagina == 0);
+        call.enqueue(new Callback<PaginaCursor<Lectura>>() {
             @Override
-            public void onResponse(Call<PageResponse<Lectura>> call, Response<PageResponse<Lectura>> response) {
-                if (!isAdded()) return;
+            public void onResponse(Call<PaginaCursor<Lectura>> call, Response<PaginaCursor<Lectura>> response) {
+                if (!isAdded() || pagina != paginaActual) return;
                 if (response.isSuccessful() && response.body() != null) {
-                    PageResponse<Lectura> page = response.body();
-                    totalPaginas = page.getTotalPages();
-                    int total = page.getTotalElements();
-                    List<Lectura> lecturas = page.getContent();
-
-                    tvTituloTabla.setText("Lecturas individuales (" + total + " en este periodo)");
-                    tvPaginaInfo.setText("Pág. " + (paginaActual + 1) + "/" + Math.max(1, totalPaginas));
+                    PaginaCursor<Lectura> page = response.body();
+                    siguienteCursor = page.getSiguienteCursor();
+                    List<Lectura> lecturas = page.getContenido();
+
+                    // El total es aproximado (agregados diarios) y solo llega con la primera página
+                    if (page.getTotalAproximado() != null) {
+                        long total = page.getTotalAproximado();
+                        totalPaginas = (int) Math.max(1, (total + PAGE_SIZE - 1) / PAGE_SIZE);
+                        tvTituloTabla.setText("Lecturas individuales (~" + total + " en este periodo)");
+                    }
+                    tvPaginaInfo.setText("Pág. " + (paginaActual + 1) + "/~" + Math.max(totalPaginas, paginaActual + 1));
 
                     btnPaginaAnterior.setEnabled(paginaActual > 0);
-                    btnPaginaSiguiente.setEnabled(paginaActual < totalPaginas - 1);
+                    btnPaginaSiguiente.setEnabled(siguienteCursor != null);
 
                     layoutTablaLecturas.removeAllViews();
                     if (lecturas == null || lecturas.isEmpty()) {
@@ -338,7 +354,7 @@ public class HistoricoDispositivoFragment extends Fragment {
             }
 
             @Override
-            public void onFailure(Call<PageResponse<Lectura>> call, Throwable t) {
+            public void onFailure(Call<PaginaCursor<Lectura>> call, Throwable t) {
                 if (!isAdded()) return;
                 Log.e(TAG, "Error de conexión tabla: " + t.getMessage());
             }
@@ -0,0 +1,20 @@
+package com.example.proyectoarboles.model;
+
+import com.google.gson.annotations.SerializedName;
+import java.util.List;
+
+public class PaginaCursor<T> {
+
+    @SerializedName("contenido")
+    private List<T> contenido;
+
+    @SerializedName("siguienteCursor")
+    private String siguienteCursor;
+
+    @SerializedName("totalAproximado")
+    private Long totalAproximado;
+
+    public List<T> getContenido() { return contenido; }
+    public String getSiguienteCursor() { return siguienteCursor; }
+    public Long getTotalAproximado() { return totalAproximado; }
+}
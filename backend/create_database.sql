@@ -122,9 +122,11 @@ CREATE TABLE lectura (
 );
 
 -- Convertir a hypertable (TimescaleDB)
+-- Sin TimescaleDB, usar migrations/002_particionado_lectura.sql (particiones mensuales nativas)
 SELECT create_hypertable('lectura', 'timestamp');
 
-CREATE INDEX idx_lectura_dispositivo_timestamp ON lectura(dispositivo_id, timestamp DESC);
+-- Incluye id para la paginación keyset del histórico: (timestamp, id) < (cursor)
+CREATE INDEX idx_lectura_dispositivo_timestamp_id ON lectura(dispositivo_id, timestamp DESC, id DESC);
 
 -- ============================================
 -- 6. TABLA: alerta
@@ -151,9 +153,13 @@ CREATE TABLE alerta (
     CONSTRAINT chk_alerta_estado CHECK (estado IN ('ACTIVA', 'RESUELTA', 'IGNORADA'))
 );
 
-CREATE INDEX idx_alerta_dispositivo ON alerta(dispositivo_id);
-CREATE INDEX idx_alerta_estado ON alerta(estado);
-CREATE INDEX idx_alerta_timestamp ON alerta(timestamp DESC);
+-- Búsqueda paginada (GET /api/alertas/buscar): orden (timestamp DESC, id DESC) filtrando
+-- por dispositivo, por dispositivo y estado, por estado o sin filtro; cada página es un rango
+-- de uno de estos índices. El primero sirve también a la FK y a las consultas por dispositivo.
+CREATE INDEX idx_alerta_dispositivo_timestamp_id ON alerta(dispositivo_id, timestamp DESC, id DESC);
+CREATE INDEX idx_alerta_dispositivo_estado_timestamp_id ON alerta(dispositivo_id, estado, timestamp DESC, id DESC);
+CREATE INDEX idx_alerta_estado_timestamp_id ON alerta(estado, timestamp DESC, id DESC);
+CREATE INDEX idx_alerta_timestamp_id ON alerta(timestamp DESC, id DESC);
 
 -- ============================================
 -- 7. TABLA: usuario_centro (N:M)
@@ -183,6 +189,8 @@ CREATE TABLE notificacion (
     leida BOOLEAN NOT NULL DEFAULT FALSE,
     fecha_envio TIMESTAMPTZ NOT NULL DEFAULT NOW(),
     CONSTRAINT pk_notificacion PRIMARY KEY (id),
+    -- Una notificación por usuario y alerta: el reparto automático usa ON CONFLICT DO NOTHING
+    CONSTRAINT uq_notificacion_usuario_alerta UNIQUE (usuario_id, alerta_id),
     CONSTRAINT fk_notificacion_usuario FOREIGN KEY (usuario_id) REFERENCES usuario(id) ON DELETE CASCADE,
     CONSTRAINT fk_notificacion_alerta FOREIGN KEY (alerta_id) REFERENCES alerta(id) ON DELETE CASCADE
 );
@@ -190,6 +198,127 @@ CREATE TABLE notificacion (
 CREATE INDEX idx_notificacion_usuario_leida ON notificacion(usuario_id, leida);
 CREATE INDEX idx_notificacion_fecha ON notificacion(fecha_envio DESC);
 
+-- ============================================
+-- 9. TABLAS: lectura_hora y lectura_dia (agregados)
+-- ============================================
+-- Lecturas agregadas por dispositivo y hora/día. Se guardan suma, mínimo y
+-- máximo de cada sensor (media = suma / num) para poder acumular lecturas nuevas
+-- con un UPSERT en cada volcado de la ingesta. Las usa la gráfica de SEMESTRE y ANIO.
+CREATE TABLE lectura_hora (
+    dispositivo_id BIGINT NOT NULL,
+    bucket TIMESTAMPTZ NOT NULL,
+    num_lecturas INTEGER NOT NULL,
+    temperatura_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    temperatura_min DECIMAL(7, 2),
+    temperatura_max DECIMAL(7, 2),
+    humedad_ambiente_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    humedad_ambiente_min DECIMAL(7, 2),
+    humedad_ambiente_max DECIMAL(7, 2),
+    humedad_suelo_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    humedad_suelo_min DECIMAL(7, 2),
+    humedad_suelo_max DECIMAL(7, 2),
+    co2_num INTEGER NOT NULL DEFAULT 0,
+    co2_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    co2_min DECIMAL(9, 2),
+    co2_max DECIMAL(9, 2),
+    luz1_num INTEGER NOT NULL DEFAULT 0,
+    luz1_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    luz1_min DECIMAL(7, 2),
+    luz1_max DECIMAL(7, 2),
+    luz2_num INTEGER NOT NULL DEFAULT 0,
+    luz2_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    luz2_min DECIMAL(7, 2),
+    luz2_max DECIMAL(7, 2),
+    CONSTRAINT pk_lectura_hora PRIMARY KEY (dispositivo_id, bucket),
+    CONSTRAINT fk_lectura_hora_dispositivo FOREIGN KEY (dispositivo_id) REFERENCES dispositivo_esp32(id) ON DELETE CASCADE
+);
+
+CREATE TABLE lectura_dia (
+    dispositivo_id BIGINT NOT NULL,
+    bucket TIMESTAMPTZ NOT NULL,
+    num_lecturas INTEGER NOT NULL,
+    temperatura_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    temperatura_min DECIMAL(7, 2),
+    temperatura_max DECIMAL(7, 2),
+    humedad_ambiente_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    humedad_ambiente_min DECIMAL(7, 2),
+    humedad_ambiente_max DECIMAL(7, 2),
+    humedad_suelo_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    humedad_suelo_min DECIMAL(7, 2),
+    humedad_suelo_max DECIMAL(7, 2),
+    co2_num INTEGER NOT NULL DEFAULT 0,
+    co2_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    co2_min DECIMAL(9, 2),
+    co2_max DECIMAL(9, 2),
+    luz1_num INTEGER NOT NULL DEFAULT 0,
+    luz1_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    luz1_min DECIMAL(7, 2),
+    luz1_max DECIMAL(7, 2),
+    luz2_num INTEGER NOT NULL DEFAULT 0,
+    luz2_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    luz2_min DECIMAL(7, 2),
+    luz2_max DECIMAL(7, 2),
+    CONSTRAINT pk_lectura_dia PRIMARY KEY (dispositivo_id, bucket),
+    CONSTRAINT fk_lectura_dia_dispositivo FOREIGN KEY (dispositivo_id) REFERENCES dispositivo_esp32(id) ON DELETE CASCADE
+);
+
+-- ============================================
+-- 10. TABLA: lectura_ultima
+-- ============================================
+-- Copia de la lectura más reciente de cada dispositivo. La ingesta la actualiza
+-- con un UPSERT en cada volcado; la usa GET /api/centros/{id}/lecturas/ultimas.
+CREATE TABLE lectura_ultima (
+    dispositivo_id BIGINT NOT NULL,
+    lectura_id BIGINT NOT NULL,
+    timestamp TIMESTAMPTZ NOT NULL,
+    temperatura DECIMAL(5, 2) NOT NULL,
+    humedad_ambiente DECIMAL(5, 2) NOT NULL,
+    humedad_suelo DECIMAL(5, 2) NOT NULL,
+    co2 DECIMAL(7, 2),
+    luz1 DECIMAL(5, 2),
+    luz2 DECIMAL(5, 2),
+    CONSTRAINT pk_lectura_ultima PRIMARY KEY (dispositivo_id),
+    CONSTRAINT fk_lectura_ultima_dispositivo FOREIGN KEY (dispositivo_id) REFERENCES dispositivo_esp32(id) ON DELETE CASCADE
+);
+
+-- ============================================
+-- 11. TABLA: lectura_anomalia
+-- ============================================
+-- Lecturas marcadas como anómalas por la ingesta (una fila por lectura y sensor). La
+-- escribe AnomaliasService tras guardar cada lote; la usa GET /api/lecturas/anomalias.
+-- lectura_id no tiene FK: la PK de lectura es compuesta y la retención puede borrarla.
+CREATE TABLE lectura_anomalia (
+    id BIGSERIAL,
+    dispositivo_id BIGINT NOT NULL,
+    lectura_id BIGINT NOT NULL,
+    timestamp TIMESTAMPTZ NOT NULL,
+    canal VARCHAR(20) NOT NULL,
+    valor DOUBLE PRECISION NOT NULL,
+    media DOUBLE PRECISION NOT NULL,
+    desviacion DOUBLE PRECISION NOT NULL,
+    puntuacion_z DOUBLE PRECISION NOT NULL,
+    CONSTRAINT pk_lectura_anomalia PRIMARY KEY (id),
+    CONSTRAINT fk_lectura_anomalia_dispositivo FOREIGN KEY (dispositivo_id) REFERENCES dispositivo_esp32(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_lectura_anomalia_dispositivo_id ON lectura_anomalia(dispositivo_id, id DESC);
+CREATE INDEX idx_lectura_anomalia_lectura ON lectura_anomalia(lectura_id);
+
+-- ============================================
+-- SECUENCIAS: incremento 50 (ids pooled de Hibernate)
+-- ============================================
+-- Las entidades JPA usan @SequenceGenerator con allocationSize = 50:
+-- cada nextval reserva 50 ids y Hibernate puede agrupar los INSERT en batches.
+ALTER SEQUENCE usuario_id_seq INCREMENT BY 50;
+ALTER SEQUENCE centro_educativo_id_seq INCREMENT BY 50;
+ALTER SEQUENCE dispositivo_esp32_id_seq INCREMENT BY 50;
+ALTER SEQUENCE arbol_id_seq INCREMENT BY 50;
+ALTER SEQUENCE lectura_id_seq INCREMENT BY 50;
+ALTER SEQUENCE alerta_id_seq INCREMENT BY 50;
+ALTER SEQUENCE usuario_centro_id_seq INCREMENT BY 50;
+ALTER SEQUENCE notificacion_id_seq INCREMENT BY 50;
+ALTER SEQUENCE lectura_anomalia_id_seq INCREMENT BY 50;
+
 -- ============================================
 -- FIN DEL SCRIPT
 -- ============================================
@@ -6,6 +6,9 @@
 -- ============================================
 
 -- Eliminar tablas en orden inverso (respetando foreign keys)
+DROP TABLE IF EXISTS lectura_ultima CASCADE;
+DROP TABLE IF EXISTS lectura_dia CASCADE;
+DROP TABLE IF EXISTS lectura_hora CASCADE;
 DROP TABLE IF EXISTS notificacion CASCADE;
 DROP TABLE IF EXISTS usuario_centro CASCADE;
 DROP TABLE IF EXISTS alerta CASCADE;
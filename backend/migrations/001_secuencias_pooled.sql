@@ -0,0 +1,58 @@
+-- ============================================
+-- MIGRACIÓN 001: secuencias con incremento 50
+-- Proyecto Árboles
+-- ============================================
+-- Las entidades JPA pasan de GenerationType.IDENTITY a SEQUENCE con
+-- allocationSize = 50 (optimizador pooled de Hibernate). Con IDENTITY Hibernate
+-- necesita el id generado tras cada INSERT y desactiva el batching JDBC.
+--
+-- Hibernate valida al arrancar que el incremento de cada secuencia coincide con
+-- el allocationSize, así que hay que ajustar las secuencias existentes:
+-- - Tablas de create_database.sql (BIGSERIAL): ALTER SEQUENCE.
+-- - Tablas creadas por Hibernate con IDENTITY: ALTER TABLE ... SET INCREMENT BY.
+--
+-- El valor actual de cada secuencia no cambia, así que los ids ya asignados no
+-- se repiten. Los INSERT que usan el DEFAULT (nextval) siguen funcionando.
+--
+-- Ejecutar una vez: psql -d <bd> -f migrations/001_secuencias_pooled.sql
+-- ============================================
+
+DO $$
+DECLARE
+    tabla TEXT;
+    secuencia TEXT;
+BEGIN
+    FOREACH tabla IN ARRAY ARRAY[
+        'usuario', 'centro_educativo', 'dispositivo_esp32', 'arbol',
+        'lectura', 'alerta', 'usuario_centro', 'notificacion'
+    ] LOOP
+        IF to_regclass(tabla) IS NULL THEN
+            RAISE NOTICE 'Tabla % no existe, se omite', tabla;
+            CONTINUE;
+        END IF;
+
+        IF EXISTS (
+            SELECT 1 FROM information_schema.columns
+            WHERE table_schema = current_schema()
+              AND table_name = tabla
+              AND column_name = 'id'
+              AND is_identity = 'YES'
+        ) THEN
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id SET INCREMENT BY 50', tabla);
+        ELSE
+            secuencia := pg_get_serial_sequence(tabla, 'id');
+            IF secuencia IS NULL THEN
+                -- Sin secuencia asociada: se crea la que espera Hibernate. El primer
+                -- nextval debe ser MAX(id) + 50, porque el optimizador pooled usa
+                -- el rango (valor - 49 .. valor).
+                secuencia := tabla || '_id_seq';
+                EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I INCREMENT BY 50', secuencia);
+                EXECUTE format('SELECT setval(%L, COALESCE((SELECT MAX(id) FROM %I), 0) + 50, false)',
+                               secuencia, tabla);
+            ELSE
+                EXECUTE format('ALTER SEQUENCE %s INCREMENT BY 50', secuencia);
+            END IF;
+        END IF;
+        RAISE NOTICE 'Secuencia de % ajustada a INCREMENT BY 50', tabla;
+    END LOOP;
+END $$;
@@ -0,0 +1,122 @@
+-- ============================================
+-- MIGRACIÓN 002: particionado mensual de lectura
+-- Proyecto Árboles
+-- ============================================
+-- Convierte la tabla lectura en una tabla particionada de forma declarativa
+-- (PARTITION BY RANGE (timestamp)) con una partición por mes. Las consultas por
+-- rango de fechas de LecturaRepository solo recorren las particiones del rango
+-- (partition pruning) y el índice (dispositivo_id, timestamp DESC) queda dividido
+-- por mes.
+--
+-- - Si lectura ya es una hypertable de TimescaleDB (create_database.sql), no se
+--   hace nada: TimescaleDB ya particiona por timestamp en chunks.
+-- - Si lectura ya está particionada, no se hace nada.
+-- - Si no, se crea la tabla particionada, las particiones mensuales desde la
+--   lectura más antigua hasta 3 meses vista, una partición DEFAULT de seguridad,
+--   y se copian los datos.
+--
+-- Las particiones futuras las crea ParticionLecturaService (tarea diaria).
+-- Requiere haber aplicado antes 001_secuencias_pooled.sql.
+--
+-- Ejecutar una vez, con la aplicación parada:
+--   psql -d <bd> -f migrations/002_particionado_lectura.sql
+-- ============================================
+
+BEGIN;
+
+DO $$
+DECLARE
+    mes DATE;
+    ultimo_mes DATE;
+BEGIN
+    IF to_regclass('lectura') IS NULL THEN
+        RAISE EXCEPTION 'La tabla lectura no existe';
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'timescaledb') THEN
+        IF EXISTS (SELECT 1 FROM timescaledb_information.hypertables WHERE hypertable_name = 'lectura') THEN
+            RAISE NOTICE 'lectura es una hypertable de TimescaleDB, no se modifica';
+            RETURN;
+        END IF;
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = 'lectura'::regclass) THEN
+        RAISE NOTICE 'lectura ya está particionada, no se modifica';
+        RETURN;
+    END IF;
+
+    IF EXISTS (
+        SELECT 1 FROM information_schema.columns
+        WHERE table_schema = current_schema() AND table_name = 'lectura'
+          AND column_name = 'id' AND is_identity = 'YES'
+    ) THEN
+        -- Columna IDENTITY (tabla creada por Hibernate): su secuencia no se puede
+        -- reutilizar, se crea lectura_id_seq a continuación del id máximo
+        ALTER TABLE lectura ALTER COLUMN id DROP IDENTITY;
+    ELSIF pg_get_serial_sequence('lectura', 'id') IS NOT NULL THEN
+        -- BIGSERIAL: la secuencia pertenece a la columna antigua; se desvincula para
+        -- que no se borre con la tabla y se reasigna a la nueva
+        EXECUTE format('ALTER SEQUENCE %s OWNED BY NONE', pg_get_serial_sequence('lectura', 'id'));
+    END IF;
+    CREATE SEQUENCE IF NOT EXISTS lectura_id_seq INCREMENT BY 50;
+    PERFORM setval('lectura_id_seq',
+                   GREATEST((SELECT COALESCE(MAX(id), 0) FROM lectura),
+                            (SELECT last_value FROM lectura_id_seq)) + 50,
+                   false);
+
+    -- Se liberan los nombres de índices (la PK es un índice) para la tabla nueva
+    ALTER TABLE lectura RENAME TO lectura_antigua;
+    ALTER INDEX IF EXISTS pk_lectura RENAME TO pk_lectura_antigua;
+    ALTER INDEX IF EXISTS idx_lectura_dispositivo_timestamp RENAME TO idx_lectura_antigua_dispositivo_timestamp;
+
+    CREATE TABLE lectura (
+        id BIGINT NOT NULL DEFAULT nextval('lectura_id_seq'),
+        timestamp TIMESTAMPTZ NOT NULL,
+        dispositivo_id BIGINT NOT NULL,
+        temperatura DECIMAL(5, 2) NOT NULL,
+        humedad_ambiente DECIMAL(5, 2) NOT NULL,
+        humedad_suelo DECIMAL(5, 2) NOT NULL,
+        co2 DECIMAL(7, 2),
+        luz1 DECIMAL(5, 2),
+        luz2 DECIMAL(5, 2),
+        CONSTRAINT pk_lectura PRIMARY KEY (id, timestamp),
+        CONSTRAINT fk_lectura_dispositivo FOREIGN KEY (dispositivo_id) REFERENCES dispositivo_esp32(id) ON DELETE CASCADE,
+        CONSTRAINT chk_temperatura CHECK (temperatura BETWEEN -50.00 AND 80.00),
+        CONSTRAINT chk_humedad_ambiente CHECK (humedad_ambiente BETWEEN 0.00 AND 100.00),
+        CONSTRAINT chk_humedad_suelo CHECK (humedad_suelo BETWEEN 0.00 AND 100.00),
+        CONSTRAINT chk_co2 CHECK (co2 IS NULL OR co2 BETWEEN 0.00 AND 10000.00),
+        CONSTRAINT chk_luz1 CHECK (luz1 IS NULL OR luz1 BETWEEN 0.00 AND 100.00),
+        CONSTRAINT chk_luz2 CHECK (luz2 IS NULL OR luz2 BETWEEN 0.00 AND 100.00)
+    ) PARTITION BY RANGE (timestamp);
+
+    ALTER SEQUENCE lectura_id_seq OWNED BY lectura.id;
+
+    CREATE INDEX idx_lectura_dispositivo_timestamp ON lectura(dispositivo_id, timestamp DESC);
+
+    -- Particiones mensuales (lectura_yYYYYmMM) desde la lectura más antigua hasta 3 meses vista
+    mes := date_trunc('month', COALESCE((SELECT MIN(timestamp) FROM lectura_antigua), NOW()))::date;
+    ultimo_mes := (date_trunc('month', NOW()) + INTERVAL '3 months')::date;
+    WHILE mes <= ultimo_mes LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF lectura FOR VALUES FROM (%L) TO (%L)',
+                       'lectura_' || to_char(mes, '"y"YYYY"m"MM'), mes, (mes + INTERVAL '1 month')::date);
+        mes := (mes + INTERVAL '1 month')::date;
+    END LOOP;
+
+    -- Red de seguridad para lecturas fuera de las particiones creadas
+    -- (p. ej. un ESP32 con el reloj muy adelantado). Debe quedar vacía.
+    CREATE TABLE lectura_default PARTITION OF lectura DEFAULT;
+
+    INSERT INTO lectura (id, timestamp, dispositivo_id, temperatura, humedad_ambiente,
+                         humedad_suelo, co2, luz1, luz2)
+    SELECT id, timestamp, dispositivo_id, temperatura, humedad_ambiente,
+           humedad_suelo, co2, luz1, luz2
+    FROM lectura_antigua;
+
+    DROP TABLE lectura_antigua;
+
+    RAISE NOTICE 'lectura particionada por mes';
+END $$;
+
+COMMIT;
+
+ANALYZE lectura;
@@ -0,0 +1,186 @@
+-- ============================================
+-- MIGRACIÓN 003: tablas agregadas de lecturas
+-- Proyecto Árboles
+-- ============================================
+-- Crea lectura_hora y lectura_dia (lecturas agregadas por dispositivo y hora/día:
+-- número de lecturas y suma, mínimo y máximo de cada sensor) y las rellena con
+-- las lecturas existentes. A partir de aquí, la ingesta las mantiene al día en
+-- cada volcado y la gráfica las usa para SEMESTRE y ANIO.
+--
+-- Si Hibernate ya creó las tablas (ddl-auto=update), solo se rellenan.
+-- Recalcula cada intervalo desde cero, así que se puede volver a ejecutar.
+--
+-- Los intervalos se truncan en la zona horaria de la sesión: debe coincidir con
+-- la de la aplicación (SET TIME ZONE 'Atlantic/Canary'; si hace falta).
+--
+-- Ejecutar con la aplicación parada (si no, las lecturas que se vuelquen
+-- mientras tanto se contarían dos veces):
+--   psql -d <bd> -f migrations/003_lecturas_agregadas.sql
+-- ============================================
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS lectura_hora (
+    dispositivo_id BIGINT NOT NULL,
+    bucket TIMESTAMPTZ NOT NULL,
+    num_lecturas INTEGER NOT NULL,
+    temperatura_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    temperatura_min DECIMAL(7, 2),
+    temperatura_max DECIMAL(7, 2),
+    humedad_ambiente_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    humedad_ambiente_min DECIMAL(7, 2),
+    humedad_ambiente_max DECIMAL(7, 2),
+    humedad_suelo_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    humedad_suelo_min DECIMAL(7, 2),
+    humedad_suelo_max DECIMAL(7, 2),
+    co2_num INTEGER NOT NULL DEFAULT 0,
+    co2_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    co2_min DECIMAL(9, 2),
+    co2_max DECIMAL(9, 2),
+    luz1_num INTEGER NOT NULL DEFAULT 0,
+    luz1_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    luz1_min DECIMAL(7, 2),
+    luz1_max DECIMAL(7, 2),
+    luz2_num INTEGER NOT NULL DEFAULT 0,
+    luz2_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    luz2_min DECIMAL(7, 2),
+    luz2_max DECIMAL(7, 2),
+    CONSTRAINT pk_lectura_hora PRIMARY KEY (dispositivo_id, bucket),
+    CONSTRAINT fk_lectura_hora_dispositivo FOREIGN KEY (dispositivo_id) REFERENCES dispositivo_esp32(id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS lectura_dia (
+    dispositivo_id BIGINT NOT NULL,
+    bucket TIMESTAMPTZ NOT NULL,
+    num_lecturas INTEGER NOT NULL,
+    temperatura_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    temperatura_min DECIMAL(7, 2),
+    temperatura_max DECIMAL(7, 2),
+    humedad_ambiente_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    humedad_ambiente_min DECIMAL(7, 2),
+    humedad_ambiente_max DECIMAL(7, 2),
+    humedad_suelo_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    humedad_suelo_min DECIMAL(7, 2),
+    humedad_suelo_max DECIMAL(7, 2),
+    co2_num INTEGER NOT NULL DEFAULT 0,
+    co2_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    co2_min DECIMAL(9, 2),
+    co2_max DECIMAL(9, 2),
+    luz1_num INTEGER NOT NULL DEFAULT 0,
+    luz1_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    luz1_min DECIMAL(7, 2),
+    luz1_max DECIMAL(7, 2),
+    luz2_num INTEGER NOT NULL DEFAULT 0,
+    luz2_suma DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    luz2_min DECIMAL(7, 2),
+    luz2_max DECIMAL(7, 2),
+    CONSTRAINT pk_lectura_dia PRIMARY KEY (dispositivo_id, bucket),
+    CONSTRAINT fk_lectura_dia_dispositivo FOREIGN KEY (dispositivo_id) REFERENCES dispositivo_esp32(id) ON DELETE CASCADE
+);
+
+INSERT INTO lectura_hora (dispositivo_id, bucket, num_lecturas, temperatura_suma, temperatura_min, temperatura_max, humedad_ambiente_suma, humedad_ambiente_min, humedad_ambiente_max, humedad_suelo_suma, humedad_suelo_min, humedad_suelo_max, co2_num, co2_suma, co2_min, co2_max, luz1_num, luz1_suma, luz1_min, luz1_max, luz2_num, luz2_suma, luz2_min, luz2_max)
+SELECT dispositivo_id,
+       date_trunc('hour', timestamp),
+       COUNT(*),
+       COALESCE(SUM(temperatura), 0),
+       MIN(temperatura),
+       MAX(temperatura),
+       COALESCE(SUM(humedad_ambiente), 0),
+       MIN(humedad_ambiente),
+       MAX(humedad_ambiente),
+       COALESCE(SUM(humedad_suelo), 0),
+       MIN(humedad_suelo),
+       MAX(humedad_suelo),
+       COUNT(co2),
+       COALESCE(SUM(co2), 0),
+       MIN(co2),
+       MAX(co2),
+       COUNT(luz1),
+       COALESCE(SUM(luz1), 0),
+       MIN(luz1),
+       MAX(luz1),
+       COUNT(luz2),
+       COALESCE(SUM(luz2), 0),
+       MIN(luz2),
+       MAX(luz2)
+FROM lectura
+GROUP BY dispositivo_id, date_trunc('hour', timestamp)
+ON CONFLICT (dispositivo_id, bucket) DO UPDATE SET
+    num_lecturas = EXCLUDED.num_lecturas,
+    temperatura_suma = EXCLUDED.temperatura_suma,
+    temperatura_min = EXCLUDED.temperatura_min,
+    temperatura_max = EXCLUDED.temperatura_max,
+    humedad_ambiente_suma = EXCLUDED.humedad_ambiente_suma,
+    humedad_ambiente_min = EXCLUDED.humedad_ambiente_min,
+    humedad_ambiente_max = EXCLUDED.humedad_ambiente_max,
+    humedad_suelo_suma = EXCLUDED.humedad_suelo_suma,
+    humedad_suelo_min = EXCLUDED.humedad_suelo_min,
+    humedad_suelo_max = EXCLUDED.humedad_suelo_max,
+    co2_num = EXCLUDED.co2_num,
+    co2_suma = EXCLUDED.co2_suma,
+    co2_min = EXCLUDED.co2_min,
+    co2_max = EXCLUDED.co2_max,
+    luz1_num = EXCLUDED.luz1_num,
+    luz1_suma = EXCLUDED.luz1_suma,
+    luz1_min = EXCLUDED.luz1_min,
+    luz1_max = EXCLUDED.luz1_max,
+    luz2_num = EXCLUDED.luz2_num,
+    luz2_suma = EXCLUDED.luz2_suma,
+    luz2_min = EXCLUDED.luz2_min,
+    luz2_max = EXCLUDED.luz2_max;
+
+INSERT INTO lectura_dia (dispositivo_id, bucket, num_lecturas, temperatura_suma, temperatura_min, temperatura_max, humedad_ambiente_suma, humedad_ambiente_min, humedad_ambiente_max, humedad_suelo_suma, humedad_suelo_min, humedad_suelo_max, co2_num, co2_suma, co2_min, co2_max, luz1_num, luz1_suma, luz1_min, luz1_max, luz2_num, luz2_suma, luz2_min, luz2_max)
+SELECT dispositivo_id,
+       date_trunc('day', timestamp),
+       COUNT(*),
+       COALESCE(SUM(temperatura), 0),
+       MIN(temperatura),
+       MAX(temperatura),
+       COALESCE(SUM(humedad_ambiente), 0),
+       MIN(humedad_ambiente),
+       MAX(humedad_ambiente),
+       COALESCE(SUM(humedad_suelo), 0),
+       MIN(humedad_suelo),
+       MAX(humedad_suelo),
+       COUNT(co2),
+       COALESCE(SUM(co2), 0),
+       MIN(co2),
+       MAX(co2),
+       COUNT(luz1),
+       COALESCE(SUM(luz1), 0),
+       MIN(luz1),
+       MAX(luz1),
+       COUNT(luz2),
+       COALESCE(SUM(luz2), 0),
+       MIN(luz2),
+       MAX(luz2)
+FROM lectura
+GROUP BY dispositivo_id, date_trunc('day', timestamp)
+ON CONFLICT (dispositivo_id, bucket) DO UPDATE SET
+    num_lecturas = EXCLUDED.num_lecturas,
+    temperatura_suma = EXCLUDED.temperatura_suma,
+    temperatura_min = EXCLUDED.temperatura_min,
+    temperatura_max = EXCLUDED.temperatura_max,
+    humedad_ambiente_suma = EXCLUDED.humedad_ambiente_suma,
+    humedad_ambiente_min = EXCLUDED.humedad_ambiente_min,
+    humedad_ambiente_max = EXCLUDED.humedad_ambiente_max,
+    humedad_suelo_suma = EXCLUDED.humedad_suelo_suma,
+    humedad_suelo_min = EXCLUDED.humedad_suelo_min,
+    humedad_suelo_max = EXCLUDED.humedad_suelo_max,
+    co2_num = EXCLUDED.co2_num,
+    co2_suma = EXCLUDED.co2_suma,
+    co2_min = EXCLUDED.co2_min,
+    co2_max = EXCLUDED.co2_max,
+    luz1_num = EXCLUDED.luz1_num,
+    luz1_suma = EXCLUDED.luz1_suma,
+    luz1_min = EXCLUDED.luz1_min,
+    luz1_max = EXCLUDED.luz1_max,
+    luz2_num = EXCLUDED.luz2_num,
+    luz2_suma = EXCLUDED.luz2_suma,
+    luz2_min = EXCLUDED.luz2_min,
+    luz2_max = EXCLUDED.luz2_max;
+
+COMMIT;
+
+ANALYZE lectura_hora;
+ANALYZE lectura_dia;
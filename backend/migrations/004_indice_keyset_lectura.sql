@@ -0,0 +1,24 @@
+-- ============================================
+-- MIGRACIÓN 004: índice para la paginación keyset de lecturas
+-- Proyecto Árboles
+-- ============================================
+-- Sustituye idx_lectura_dispositivo_timestamp (dispositivo_id, timestamp DESC)
+-- por idx_lectura_dispositivo_timestamp_id (dispositivo_id, timestamp DESC, id DESC).
+--
+-- Los endpoints /cursor del histórico ordenan por (timestamp DESC, id DESC) y
+-- filtran con (timestamp, id) < (cursor): con id en el índice, cada página es un
+-- rango del índice sin ordenación adicional. El índice nuevo cubre también todas
+-- las consultas que usaban el antiguo, que se elimina.
+--
+-- Sobre una tabla particionada o una hypertable el índice se crea en cada
+-- partición/chunk. Se puede volver a ejecutar.
+--
+--   psql -d <bd> -f migrations/004_indice_keyset_lectura.sql
+-- ============================================
+
+BEGIN;
+
+CREATE INDEX IF NOT EXISTS idx_lectura_dispositivo_timestamp_id ON lectura(dispositivo_id, timestamp DESC, id DESC);
+DROP INDEX IF EXISTS idx_lectura_dispositivo_timestamp;
+
+COMMIT;
@@ -0,0 +1,50 @@
+-- ============================================
+-- MIGRACIÓN 005: tabla lectura_ultima
+-- Proyecto Árboles
+-- ============================================
+-- Crea lectura_ultima (una fila por dispositivo con su lectura más reciente) y la
+-- rellena con las lecturas existentes. A partir de aquí, la ingesta la mantiene al
+-- día en cada volcado y GET /api/centros/{id}/lecturas/ultimas la lee con una sola
+-- consulta.
+--
+-- Si Hibernate ya creó la tabla (ddl-auto=update), solo se rellena. Se puede volver
+-- a ejecutar, también con la aplicación en marcha: una fila solo se sustituye por
+-- una lectura posterior.
+--
+--   psql -d <bd> -f migrations/005_lectura_ultima.sql
+-- ============================================
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS lectura_ultima (
+    dispositivo_id BIGINT NOT NULL,
+    lectura_id BIGINT NOT NULL,
+    timestamp TIMESTAMPTZ NOT NULL,
+    temperatura DECIMAL(5, 2) NOT NULL,
+    humedad_ambiente DECIMAL(5, 2) NOT NULL,
+    humedad_suelo DECIMAL(5, 2) NOT NULL,
+    co2 DECIMAL(7, 2),
+    luz1 DECIMAL(5, 2),
+    luz2 DECIMAL(5, 2),
+    CONSTRAINT pk_lectura_ultima PRIMARY KEY (dispositivo_id),
+    CONSTRAINT fk_lectura_ultima_dispositivo FOREIGN KEY (dispositivo_id) REFERENCES dispositivo_esp32(id) ON DELETE CASCADE
+);
+
+-- DISTINCT ON recorre idx_lectura_dispositivo_timestamp_id: la primera fila de cada dispositivo
+INSERT INTO lectura_ultima (dispositivo_id, lectura_id, timestamp, temperatura, humedad_ambiente, humedad_suelo, co2, luz1, luz2)
+SELECT DISTINCT ON (dispositivo_id)
+       dispositivo_id, id, timestamp, temperatura, humedad_ambiente, humedad_suelo, co2, luz1, luz2
+FROM lectura
+ORDER BY dispositivo_id, timestamp DESC, id DESC
+ON CONFLICT (dispositivo_id) DO UPDATE SET
+    lectura_id = EXCLUDED.lectura_id,
+    timestamp = EXCLUDED.timestamp,
+    temperatura = EXCLUDED.temperatura,
+    humedad_ambiente = EXCLUDED.humedad_ambiente,
+    humedad_suelo = EXCLUDED.humedad_suelo,
+    co2 = EXCLUDED.co2,
+    luz1 = EXCLUDED.luz1,
+    luz2 = EXCLUDED.luz2
+WHERE (lectura_ultima.timestamp, lectura_ultima.lectura_id) < (EXCLUDED.timestamp, EXCLUDED.lectura_id);
+
+COMMIT;
@@ -0,0 +1,38 @@
+-- ============================================
+-- MIGRACIÓN 006: una notificación por usuario y alerta
+-- Proyecto Árboles
+-- ============================================
+-- Añade la restricción única uq_notificacion_usuario_alerta, que necesita el reparto
+-- automático de alertas (INSERT ... ON CONFLICT (usuario_id, alerta_id) DO NOTHING).
+-- Antes borra las notificaciones repetidas que hubieran creado los clientes, dejando
+-- la más antigua de cada par y marcándola como leída si alguna de las copias lo estaba.
+--
+-- Si Hibernate ya creó la restricción (ddl-auto=update), no hace nada. Se puede volver
+-- a ejecutar.
+--
+--   psql -d <bd> -f migrations/006_notificacion_unica.sql
+-- ============================================
+
+BEGIN;
+
+UPDATE notificacion n
+SET leida = TRUE
+WHERE NOT n.leida
+  AND EXISTS (SELECT 1 FROM notificacion o
+              WHERE o.usuario_id = n.usuario_id AND o.alerta_id = n.alerta_id AND o.leida);
+
+DELETE FROM notificacion n
+USING notificacion o
+WHERE o.usuario_id = n.usuario_id
+  AND o.alerta_id = n.alerta_id
+  AND o.id < n.id;
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uq_notificacion_usuario_alerta') THEN
+        ALTER TABLE notificacion
+            ADD CONSTRAINT uq_notificacion_usuario_alerta UNIQUE (usuario_id, alerta_id);
+    END IF;
+END $$;
+
+COMMIT;
@@ -0,0 +1,38 @@
+-- ============================================
+-- MIGRACIÓN 007: índices compuestos de alerta
+-- Proyecto Árboles
+-- ============================================
+-- Sustituye los índices de una columna de alerta (dispositivo_id, estado, timestamp)
+-- por índices compuestos que terminan en (timestamp DESC, id DESC):
+--
+--   idx_alerta_dispositivo_timestamp_id        (dispositivo_id, timestamp DESC, id DESC)
+--   idx_alerta_dispositivo_estado_timestamp_id (dispositivo_id, estado, timestamp DESC, id DESC)
+--   idx_alerta_estado_timestamp_id             (estado, timestamp DESC, id DESC)
+--   idx_alerta_timestamp_id                    (timestamp DESC, id DESC)
+--
+-- GET /api/alertas/buscar ordena por (timestamp DESC, id DESC) y filtra con
+-- (timestamp, id) < (cursor): con estos índices cada página es un rango del índice
+-- al filtrar por dispositivo, por dispositivo y estado, por estado o sin filtro. Solo
+-- con dispositivo no basta el índice (dispositivo_id, estado, ...): estado queda entre
+-- medias y habría que ordenar. El filtro por centro (varios dispositivos) tampoco es un
+-- rango: se recorre idx_alerta_timestamp_id descartando otros centros, o se ordenan las
+-- alertas de sus dispositivos.
+--
+-- Los nuevos cubren todas las consultas que usaban los antiguos (el primero sustituye a
+-- idx_alerta_dispositivo también para la FK), que se eliminan después de crearlos.
+-- Se puede volver a ejecutar.
+--
+--   psql -d <bd> -f migrations/007_indices_alerta.sql
+-- ============================================
+
+BEGIN;
+
+CREATE INDEX IF NOT EXISTS idx_alerta_dispositivo_timestamp_id ON alerta(dispositivo_id, timestamp DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_alerta_dispositivo_estado_timestamp_id ON alerta(dispositivo_id, estado, timestamp DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_alerta_estado_timestamp_id ON alerta(estado, timestamp DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_alerta_timestamp_id ON alerta(timestamp DESC, id DESC);
+DROP INDEX IF EXISTS idx_alerta_dispositivo;
+DROP INDEX IF EXISTS idx_alerta_estado;
+DROP INDEX IF EXISTS idx_alerta_timestamp;
+
+COMMIT;
@@ -0,0 +1,37 @@
+-- ============================================
+-- MIGRACIÓN 008: tabla lectura_anomalia
+-- Proyecto Árboles
+-- ============================================
+-- Crea lectura_anomalia, donde la ingesta guarda las lecturas que marca como anómalas
+-- (una fila por lectura y sensor, con el valor y la media y desviación esperadas). Hasta
+-- ahora las detecciones solo se guardaban en memoria y se perdían al reiniciar; las
+-- anteriores a esta migración no se recuperan.
+--
+-- Si Hibernate ya creó la tabla (ddl-auto=update), no hace nada. Se puede volver a
+-- ejecutar.
+--
+--   psql -d <bd> -f migrations/008_lectura_anomalia.sql
+-- ============================================
+
+BEGIN;
+
+CREATE SEQUENCE IF NOT EXISTS lectura_anomalia_id_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS lectura_anomalia (
+    id BIGINT NOT NULL DEFAULT nextval('lectura_anomalia_id_seq'),
+    dispositivo_id BIGINT NOT NULL,
+    lectura_id BIGINT NOT NULL,
+    timestamp TIMESTAMPTZ NOT NULL,
+    canal VARCHAR(20) NOT NULL,
+    valor DOUBLE PRECISION NOT NULL,
+    media DOUBLE PRECISION NOT NULL,
+    desviacion DOUBLE PRECISION NOT NULL,
+    puntuacion_z DOUBLE PRECISION NOT NULL,
+    CONSTRAINT pk_lectura_anomalia PRIMARY KEY (id),
+    CONSTRAINT fk_lectura_anomalia_dispositivo FOREIGN KEY (dispositivo_id) REFERENCES dispositivo_esp32(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_lectura_anomalia_dispositivo_id ON lectura_anomalia(dispositivo_id, id DESC);
+CREATE INDEX IF NOT EXISTS idx_lectura_anomalia_lectura ON lectura_anomalia(lectura_id);
+
+COMMIT;
@@ -0,0 +1,38 @@
+package com.example.gardenmonitor.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Ejecutor acotado para calcular en paralelo las gráficas de varios dispositivos
+ * ({@code GraficaService#obtenerGraficas}).
+ * <p>
+ * Cada tarea ocupa una conexión del pool de Hikari mientras consulta, así que el número
+ * de hilos debe quedar por debajo del tamaño del pool (10 por defecto) para no dejar sin
+ * conexiones a la ingesta ni al resto de peticiones. Si la cola se llena, la tarea se
+ * ejecuta en el hilo de la petición: se frena a quien pide, sin rechazar nada.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Configuration
+public class GraficaConfig {
+
+    @Bean
+    public ThreadPoolTaskExecutor graficaExecutor(@Value("${lecturas.grafica.hilos:4}") int hilos,
+                                                  @Value("${lecturas.grafica.cola:100}") int cola) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(cola);
+        executor.setThreadNamePrefix("grafica-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.gardenmonitor.config;
+
+import com.example.gardenmonitor.dto.LecturaMuestraProjection;
+import com.example.gardenmonitor.dto.PaginaCursor;
+import org.springframework.core.ResolvableType;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Codificación binaria compacta de series de lecturas.
+ * <p>
+ * Se elige por negociación de contenido, con {@code Accept: application/vnd.gardenmonitor.serie},
+ * en los endpoints que devuelven lecturas: la gráfica ({@code List<LecturaMuestraProjection>}),
+ * el rango paginado ({@code Page<LecturaResponse>}) y el rango por cursor
+ * ({@code PaginaCursor<LecturaResponse>}). Sin esa cabecera se sigue devolviendo JSON.
+ * </p>
+ * <p>
+ * Formato (versión 1). Los enteros son varints LEB128 sin signo; los que pueden ser
+ * negativos se codifican antes en zigzag ({@code (v << 1) ^ (v >> 63)}):
+ * </p>
+ * <pre>
+ * 'G' 'M' 0x01            cabecera y versión
+ * varint n                número de lecturas
+ * timestamps              segundos epoch del timestamp tomado como UTC (hora local del servidor):
+ *                         zigzag t0, zigzag (t1 - t0) y zigzag de las diferencias de
+ *                         segundo orden (t[i] - t[i-1]) - (t[i-1] - t[i-2])
+ * 7 columnas              id, temperatura, humedadAmbiente, humedadSuelo, co2, luz1, luz2:
+ *                         bitmap de presencia de ceil(n / 8) bytes (bit i % 8 del byte i / 8 = 1
+ *                         si la lectura i tiene valor) y, para los valores presentes, zigzag
+ *                         de la diferencia con el anterior presente (el primero respecto a 0).
+ *                         Los sensores van como enteros escalados x100 (todas las columnas
+ *                         son DECIMAL(_, 2)), el id sin escalar.
+ * </pre>
+ * <p>
+ * Con lecturas a intervalos regulares las diferencias de segundo orden son casi siempre 0
+ * y los sensores cambian poco entre lecturas, así que cada valor ocupa 1 o 2 bytes frente
+ * a los ~20 del JSON. Se pierde la parte de segundo del timestamp, y de los agregados de
+ * SEMESTRE/ANIO solo se envía la media (mínimo, máximo y número de lecturas van solo en JSON).
+ * Los datos de paginación van en cabeceras: {@code X-Total-Elementos} y {@code X-Total-Paginas}
+ * para {@code Page}; {@code X-Siguiente-Cursor} y {@code X-Total-Aproximado} para {@code PaginaCursor}.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+public class SerieBinariaHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final String TIPO_CONTENIDO = "application/vnd.gardenmonitor.serie";
+
+    private static final byte VERSION = 1;
+
+    private static final List<Function<LecturaMuestraProjection, BigDecimal>> SENSORES = List.of(
+            LecturaMuestraProjection::getTemperatura,
+            LecturaMuestraProjection::getHumedadAmbiente,
+            LecturaMuestraProjection::getHumedadSuelo,
+            LecturaMuestraProjection::getCo2,
+            LecturaMuestraProjection::getLuz1,
+            LecturaMuestraProjection::getLuz2);
+
+    public SerieBinariaHttpMessageConverter() {
+        super(MediaType.parseMediaType(TIPO_CONTENIDO));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return List.class.isAssignableFrom(clazz) || Page.class.isAssignableFrom(clazz)
+                || PaginaCursor.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (!supports(clazz) || !canWrite(mediaType)) {
+            return false;
+        }
+        // Solo colecciones de lecturas, no cualquier List de otro controlador
+        Class<?> elemento = ResolvableType.forType(type != null ? type : clazz).getGeneric(0).resolve();
+        return elemento != null && LecturaMuestraProjection.class.isAssignableFrom(elemento);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected void writeInternal(Object valor, Type type, HttpOutputMessage salida) throws IOException {
+        List<?> lecturas;
+        HttpHeaders cabeceras = salida.getHeaders();
+        if (valor instanceof Page<?> pagina) {
+            lecturas = pagina.getContent();
+            cabeceras.set("X-Total-Elementos", String.valueOf(pagina.getTotalElements()));
+            cabeceras.set("X-Total-Paginas", String.valueOf(pagina.getTotalPages()));
+        } else if (valor instanceof PaginaCursor<?> pagina) {
+            lecturas = pagina.getContenido();
+            if (pagina.getSiguienteCursor() != null) {
+                cabeceras.set("X-Siguiente-Cursor", pagina.getSiguienteCursor());
+            }
+            if (pagina.getTotalAproximado() != null) {
+                cabeceras.set("X-Total-Aproximado", String.valueOf(pagina.getTotalAproximado()));
+            }
+        } else {
+            lecturas = (List<?>) valor;
+        }
+        byte[] cuerpo = codificar(lecturas);
+        cabeceras.setContentLength(cuerpo.length);
+        salida.getBody().write(cuerpo);
+    }
+
+    /**
+     * Codifica una lista de lecturas en el formato descrito en la clase.
+     *
+     * @param lecturas lecturas ({@link LecturaMuestraProjection}) en el orden en que se envían
+     * @return bytes de la serie
+     */
+    public static byte[] codificar(List<?> lecturas) {
+        int n = lecturas.size();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + n * 12);
+        out.write('G');
+        out.write('M');
+        out.write(VERSION);
+        escribirVarint(out, n);
+
+        long anterior = 0;
+        long deltaAnterior = 0;
+        for (int i = 0; i < n; i++) {
+            LocalDateTime timestamp = ((LecturaMuestraProjection) lecturas.get(i)).getTimestamp();
+            long t = timestamp.toEpochSecond(ZoneOffset.UTC);
+            if (i == 0) {
+                escribirVarint(out, zigzag(t));
+            } else {
+                long delta = t - anterior;
+                escribirVarint(out, zigzag(i == 1 ? delta : delta - deltaAnterior));
+                deltaAnterior = delta;
+            }
+            anterior = t;
+        }
+
+        escribirColumna(out, lecturas, l -> l.getId() != null ? BigDecimal.valueOf(l.getId()) : null, 0);
+        for (Function<LecturaMuestraProjection, BigDecimal> sensor : SENSORES) {
+            escribirColumna(out, lecturas, sensor, 2);
+        }
+        return out.toByteArray();
+    }
+
+    private static void escribirColumna(ByteArrayOutputStream out, List<?> lecturas,
+                                        Function<LecturaMuestraProjection, BigDecimal> columna, int escala) {
+        int n = lecturas.size();
+        byte[] presentes = new byte[(n + 7) / 8];
+        long[] valores = new long[n];
+        for (int i = 0; i < n; i++) {
+            BigDecimal valor = columna.apply((LecturaMuestraProjection) lecturas.get(i));
+            if (valor != null) {
+                presentes[i / 8] |= (byte) (1 << (i % 8));
+                valores[i] = valor.setScale(escala, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+            }
+        }
+        out.writeBytes(presentes);
+        long anterior = 0;
+        for (int i = 0; i < n; i++) {
+            if ((presentes[i / 8] & (1 << (i % 8))) != 0) {
+                escribirVarint(out, zigzag(valores[i] - anterior));
+                anterior = valores[i];
+            }
+        }
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static void escribirVarint(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Formato solo de salida", inputMessage);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Formato solo de salida", inputMessage);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.gardenmonitor.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    /**
+     * Añade la codificación binaria de series al final: con {@code Accept: *}{@code /*}
+     * o sin cabecera sigue ganando Jackson, y solo se usa si se pide explícitamente.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new SerieBinariaHttpMessageConverter());
+    }
+}
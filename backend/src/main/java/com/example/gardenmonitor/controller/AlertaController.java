@@ -1,25 +1,43 @@
 package com.example.gardenmonitor.controller;
 
+import com.example.gardenmonitor.dto.AlertaResponse;
+import com.example.gardenmonitor.dto.PaginaCursor;
 import com.example.gardenmonitor.model.Alerta;
 import com.example.gardenmonitor.model.DispositivoEsp32;
 import com.example.gardenmonitor.model.EstadoAlerta;
+import com.example.gardenmonitor.model.TipoAlerta;
+import com.example.gardenmonitor.repository.AlertaJdbcRepository;
 import com.example.gardenmonitor.repository.AlertaRepository;
 import com.example.gardenmonitor.repository.DispositivoEsp32Repository;
+import com.example.gardenmonitor.service.AlertasUmbralService;
+import com.example.gardenmonitor.service.DesconexionService;
+import com.example.gardenmonitor.service.HistoricoAlertasService;
+import com.example.gardenmonitor.service.NotificacionesNoLeidasService;
+import com.example.gardenmonitor.service.NotificacionesService;
+import com.example.gardenmonitor.service.VersionDatosService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
  * Controlador REST para gestionar alertas del sistema de monitorización.
  * <p>
  * Proporciona endpoints para operaciones CRUD de alertas, así como
- * consultas filtradas por dispositivo y por estado.
+ * consultas filtradas por dispositivo y por estado y una búsqueda paginada por cursor.
  * Las alertas se generan cuando los valores de sensores superan los umbrales
- * configurados en cada dispositivo.
+ * configurados en cada dispositivo (ver {@link AlertasUmbralService}).
+ * </p>
+ * <p>
+ * Los GET llevan un ETag con la versión en memoria de las alertas y de los dispositivos
+ * ({@link VersionDatosService}), ya que cada alerta incluye su dispositivo: si el cliente
+ * envía {@code If-None-Match} y no ha cambiado se responde 304 sin consultar la BD.
  * </p>
  *
  * @author Richard Ortiz y Enrique Pérez
@@ -35,16 +53,79 @@ public class AlertaController {
     @Autowired
     private DispositivoEsp32Repository dispositivoRepository;
 
+    @Autowired
+    private VersionDatosService versionDatosService;
+
+    @Autowired
+    private AlertasUmbralService alertasUmbralService;
+
+    @Autowired
+    private DesconexionService desconexionService;
+
+    @Autowired
+    private NotificacionesService notificacionesService;
+
+    @Autowired
+    private NotificacionesNoLeidasService notificacionesNoLeidasService;
+
+    @Autowired
+    private HistoricoAlertasService historicoAlertasService;
+
     /**
      * Obtiene todas las alertas del sistema.
+     * <p>
+     * Devuelve la tabla completa sin paginar; para listados que pueden crecer usar
+     * {@link #buscarAlertas}.
+     * </p>
      *
      * @return lista de todas las alertas
      */
     @GetMapping
-    public List<Alerta> obtenerTodasLasAlertas() {
+    public List<Alerta> obtenerTodasLasAlertas(WebRequest request) {
+        if (noModificado(request)) {
+            return null;
+        }
         return alertaRepository.findAll();
     }
 
+    /**
+     * Busca alertas con filtros opcionales y paginación por cursor, más recientes primero.
+     * <p>
+     * Cada alerta se devuelve como {@link AlertaResponse} (el dispositivo es solo su id).
+     * La página siguiente se pide con {@code siguienteCursor}; no se ejecuta {@code COUNT(*)}
+     * y cualquier página cuesta lo mismo que la primera (ver {@link HistoricoAlertasService}).
+     * </p>
+     *
+     * @param centroId      centro del dispositivo (opcional)
+     * @param dispositivoId dispositivo (opcional)
+     * @param tipo          tipo de alerta (opcional)
+     * @param estado        estado de la alerta (opcional)
+     * @param desde         inicio del rango de fechas, incluido (opcional)
+     * @param hasta         fin del rango de fechas, incluido (opcional)
+     * @param cursor        {@code siguienteCursor} de la página anterior (vacío para la primera)
+     * @param size          tamaño de página (por defecto 20, máximo 500)
+     * @return página de alertas con el cursor de la siguiente
+     * @throws ResponseStatusException si el cursor, el tamaño o el rango son inválidos (400)
+     */
+    @GetMapping("/buscar")
+    public PaginaCursor<AlertaResponse> buscarAlertas(
+            @RequestParam(required = false) Long centroId,
+            @RequestParam(required = false) Long dispositivoId,
+            @RequestParam(required = false) TipoAlerta tipo,
+            @RequestParam(required = false) EstadoAlerta estado,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            WebRequest request) {
+        if (dispositivoId != null ? noModificado(request, dispositivoId) : noModificado(request)) {
+            return null;
+        }
+        return historicoAlertasService.buscarPagina(
+                new AlertaJdbcRepository.FiltroAlertas(centroId, dispositivoId, tipo, estado, desde, hasta),
+                cursor, size);
+    }
+
     /**
      * Obtiene una alerta por su ID.
      *
@@ -53,7 +134,11 @@ public class AlertaController {
      * @throws ResponseStatusException si no se encuentra la alerta (404)
      */
     @GetMapping("/{id}")
-    public Alerta obtenerAlertaPorId(@PathVariable("id") Long id) {
+    public Alerta obtenerAlertaPorId(@PathVariable("id") Long id, WebRequest request) {
+        // Sin consultar la BD no se sabe de qué dispositivo es: versión global
+        if (noModificado(request)) {
+            return null;
+        }
         return alertaRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "Alerta no encontrada"));
@@ -67,7 +152,11 @@ public class AlertaController {
      * @throws ResponseStatusException si no se encuentra el dispositivo (404)
      */
     @GetMapping("/dispositivo/{dispositivoId}")
-    public List<Alerta> obtenerAlertasPorDispositivo(@PathVariable("dispositivoId") Long dispositivoId) {
+    public List<Alerta> obtenerAlertasPorDispositivo(@PathVariable("dispositivoId") Long dispositivoId,
+                                                     WebRequest request) {
+        if (noModificado(request, dispositivoId)) {
+            return null;
+        }
         if (!dispositivoRepository.existsById(dispositivoId)) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Dispositivo no encontrado");
         }
@@ -76,12 +165,18 @@ public class AlertaController {
 
     /**
      * Obtiene todas las alertas con un estado determinado.
+     * <p>
+     * Sin paginar; para estados con muchas alertas (RESUELTA) usar {@link #buscarAlertas}.
+     * </p>
      *
      * @param estado estado de las alertas a filtrar (ACTIVA, RESUELTA, IGNORADA)
      * @return lista de alertas con el estado indicado
      */
     @GetMapping("/estado/{estado}")
-    public List<Alerta> obtenerAlertasPorEstado(@PathVariable("estado") EstadoAlerta estado) {
+    public List<Alerta> obtenerAlertasPorEstado(@PathVariable("estado") EstadoAlerta estado, WebRequest request) {
+        if (noModificado(request)) {
+            return null;
+        }
         return alertaRepository.findByEstado(estado);
     }
 
@@ -96,7 +191,11 @@ public class AlertaController {
     @GetMapping("/dispositivo/{dispositivoId}/estado/{estado}")
     public List<Alerta> obtenerAlertasPorDispositivoYEstado(
             @PathVariable("dispositivoId") Long dispositivoId,
-            @PathVariable("estado") EstadoAlerta estado) {
+            @PathVariable("estado") EstadoAlerta estado,
+            WebRequest request) {
+        if (noModificado(request, dispositivoId)) {
+            return null;
+        }
         if (!dispositivoRepository.existsById(dispositivoId)) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Dispositivo no encontrado");
         }
@@ -108,6 +207,8 @@ public class AlertaController {
      * <p>
      * Verifica que el dispositivo indicado exista antes de crear la alerta.
      * El estado inicial es ACTIVA y el timestamp se establece automáticamente.
+     * Los usuarios del centro del dispositivo se notifican en segundo plano
+     * ({@link NotificacionesService}).
      * </p>
      *
      * @param alerta datos de la alerta a crear (validado con @Valid)
@@ -123,7 +224,10 @@ public class AlertaController {
         }
         DispositivoEsp32 dispositivo = dispositivoRepository.findById(dispositivoId).get();
         alerta.setDispositivo(dispositivo);
-        return alertaRepository.save(alerta);
+        Alerta guardada = alertaRepository.save(alerta);
+        versionDatosService.incrementar(VersionDatosService.Ambito.ALERTAS, dispositivoId);
+        notificacionesService.notificar(guardada.getId());
+        return guardada;
     }
 
     /**
@@ -146,13 +250,17 @@ public class AlertaController {
         Alerta alerta = alertaRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "Alerta no encontrada"));
+        TipoAlerta tipoAnterior = alerta.getTipoAlerta();
 
         alerta.setTipoAlerta(detalles.getTipoAlerta());
         alerta.setMensaje(detalles.getMensaje());
         alerta.setEstado(detalles.getEstado());
         alerta.setFechaResolucion(detalles.getFechaResolucion());
 
-        return alertaRepository.save(alerta);
+        Alerta guardada = alertaRepository.save(alerta);
+        notificarCambio(guardada, tipoAnterior,
+                guardada.getEstado() != EstadoAlerta.ACTIVA || guardada.getTipoAlerta() != tipoAnterior);
+        return guardada;
     }
 
     /**
@@ -172,6 +280,56 @@ public class AlertaController {
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "Alerta no encontrada"));
         alertaRepository.deleteById(id);
+        notificacionesNoLeidasService.invalidarTodo();
+        notificarCambio(alerta, alerta.getTipoAlerta(), true);
         return alerta;
     }
+
+    /**
+     * Avisa del cambio de una alerta a los ETag y, si la alerta deja de estar ACTIVA
+     * (o cambia de tipo), a {@link AlertasUmbralService} o {@link DesconexionService}
+     * para que no la sigan.
+     *
+     * @param alerta  alerta modificada o eliminada
+     * @param tipo    tipo de la alerta antes del cambio
+     * @param cerrada si ya no es la alerta ACTIVA de ese tipo
+     */
+    private void notificarCambio(Alerta alerta, TipoAlerta tipo, boolean cerrada) {
+        if (alerta.getDispositivo() == null) {
+            return;
+        }
+        Long dispositivoId = alerta.getDispositivo().getId();
+        versionDatosService.incrementar(VersionDatosService.Ambito.ALERTAS, dispositivoId);
+        if (cerrada && tipo == TipoAlerta.DISPOSITIVO_DESCONECTADO) {
+            desconexionService.cerrada(dispositivoId, alerta.getId());
+        } else if (cerrada) {
+            alertasUmbralService.cerrada(dispositivoId, tipo, alerta.getId());
+        }
+    }
+
+    /**
+     * Responde 304 si el cliente ya tiene la versión actual de todas las alertas. Las alertas
+     * incluyen el dispositivo sin su última conexión, así que solo dependen de su configuración.
+     *
+     * @param request petición actual
+     * @return true si se ha respondido 304
+     */
+    private boolean noModificado(WebRequest request) {
+        return RespuestaCondicional.noModificado(request, versionDatosService.etag("alertas",
+                versionDatosService.version(VersionDatosService.Ambito.ALERTAS),
+                versionDatosService.version(VersionDatosService.Ambito.DISPOSITIVO)));
+    }
+
+    /**
+     * Responde 304 si el cliente ya tiene la versión actual de las alertas de un dispositivo.
+     *
+     * @param request       petición actual
+     * @param dispositivoId identificador del dispositivo
+     * @return true si se ha respondido 304
+     */
+    private boolean noModificado(WebRequest request, Long dispositivoId) {
+        return RespuestaCondicional.noModificado(request, versionDatosService.etag("alertas",
+                versionDatosService.version(VersionDatosService.Ambito.ALERTAS, dispositivoId),
+                versionDatosService.version(VersionDatosService.Ambito.DISPOSITIVO, dispositivoId)));
+    }
 }
@@ -1,10 +1,16 @@
 package com.example.gardenmonitor.controller;
 
+import com.example.gardenmonitor.dto.LecturaResponse;
 import com.example.gardenmonitor.model.Arbol;
 import com.example.gardenmonitor.model.CentroEducativo;
 import com.example.gardenmonitor.repository.CentroEducativoRepository;
+import com.example.gardenmonitor.repository.DispositivoEsp32Repository;
+import com.example.gardenmonitor.repository.LecturaUltimaJdbcRepository;
+import com.example.gardenmonitor.service.DispositivosEliminados;
+import com.example.gardenmonitor.service.VersionDatosService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
@@ -28,6 +34,18 @@ public class CentroEducativoController {
     @Autowired
     private CentroEducativoRepository centroEducativoRepository;
 
+    @Autowired
+    private DispositivoEsp32Repository dispositivoEsp32Repository;
+
+    @Autowired
+    private LecturaUltimaJdbcRepository lecturaUltimaJdbcRepository;
+
+    @Autowired
+    private VersionDatosService versionDatosService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * Obtiene todos los centros educativos.
      *
@@ -108,7 +126,11 @@ public class CentroEducativoController {
         centro.setTelefono(detallesCentro.getTelefono());
         centro.setEmail(detallesCentro.getEmail());
 
-        return centroEducativoRepository.save(centro);
+        CentroEducativo guardado = centroEducativoRepository.save(centro);
+        // Los dispositivos se devuelven con su centro: cambia su ETag
+        versionDatosService.incrementar(VersionDatosService.Ambito.DISPOSITIVO,
+                dispositivoEsp32Repository.findIdsByCentroEducativoId(id));
+        return guardado;
     }
 
     /**
@@ -116,6 +138,9 @@ public class CentroEducativoController {
      * <p>
      * IMPORTANTE: Al eliminar un centro, se eliminan también todos sus árboles
      * debido a la configuración cascade = CascadeType.ALL en la relación.
+     * Sus dispositivos se eliminan en cascada en la BD; se publica
+     * {@link DispositivosEliminados} con todos ellos para que los servicios descarten lo que
+     * guardan en memoria de cada uno, igual que al eliminar un solo dispositivo.
      * </p>
      *
      * @param id identificador del centro a eliminar
@@ -127,7 +152,9 @@ public class CentroEducativoController {
         CentroEducativo centro = centroEducativoRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "Centro educativo no encontrado"));
+        List<Long> dispositivoIds = dispositivoEsp32Repository.findIdsByCentroEducativoId(id);
         centroEducativoRepository.deleteById(id);
+        eventPublisher.publishEvent(new DispositivosEliminados(dispositivoIds));
         return centro;
     }
 
@@ -149,4 +176,24 @@ public class CentroEducativoController {
                         HttpStatus.NOT_FOUND, "Centro educativo no encontrado"));
         return centro.getArboles();
     }
+
+    /**
+     * Obtiene la última lectura de cada dispositivo de un centro educativo.
+     * <p>
+     * Sustituye a pedir el histórico de cada dispositivo por separado: las lecturas salen
+     * de la tabla {@code lectura_ultima}, que la ingesta mantiene al día, con una sola consulta.
+     * Los dispositivos que aún no han enviado ninguna lectura no aparecen.
+     * </p>
+     *
+     * @param id identificador del centro educativo
+     * @return una lectura por dispositivo (con {@code dispositivoId}), ordenadas por dispositivo
+     * @throws ResponseStatusException si no se encuentra el centro (404)
+     */
+    @GetMapping("/{id}/lecturas/ultimas")
+    public List<LecturaResponse> obtenerUltimasLecturasPorCentro(@PathVariable("id") Long id) {
+        if (!centroEducativoRepository.existsById(id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Centro educativo no encontrado");
+        }
+        return lecturaUltimaJdbcRepository.buscarPorCentro(id);
+    }
 }
@@ -3,10 +3,17 @@ package com.example.gardenmonitor.controller;
 import com.example.gardenmonitor.model.DispositivoEsp32;
 import com.example.gardenmonitor.repository.DispositivoEsp32Repository;
 import com.example.gardenmonitor.repository.CentroEducativoRepository;
+import com.example.gardenmonitor.service.DesconexionService;
+import com.example.gardenmonitor.service.DispositivoCacheService;
+import com.example.gardenmonitor.service.DispositivosEliminados;
+import com.example.gardenmonitor.service.UltimaConexionService;
+import com.example.gardenmonitor.service.VersionDatosService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
@@ -17,6 +24,12 @@ import java.util.List;
  * Proporciona endpoints para operaciones CRUD de dispositivos ESP32,
  * que son los sensores IoT encargados de monitorizar los árboles.
  * </p>
+ * <p>
+ * Los GET llevan un ETag con la versión en memoria de los dispositivos
+ * ({@link VersionDatosService}), que cambia con su configuración, su centro y su última
+ * conexión: si el cliente envía {@code If-None-Match} y no ha cambiado se responde 304
+ * sin consultar la BD.
+ * </p>
  *
  * @author Richard Ortiz y Enrique Pérez
  * @version 1.0
@@ -31,14 +44,32 @@ public class DispositivoEsp32Controller {
     @Autowired
     private CentroEducativoRepository centroRepository;
 
+    @Autowired
+    private DispositivoCacheService dispositivoCacheService;
+
+    @Autowired
+    private UltimaConexionService ultimaConexionService;
+
+    @Autowired
+    private VersionDatosService versionDatosService;
+
+    @Autowired
+    private DesconexionService desconexionService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * Obtiene todos los dispositivos ESP32 registrados.
      *
      * @return lista de todos los dispositivos
      */
     @GetMapping
-    public List<DispositivoEsp32> obtenerTodosLosDispositivos() {
-        return dispositivoRepository.findAll();
+    public List<DispositivoEsp32> obtenerTodosLosDispositivos(WebRequest request) {
+        if (noModificado(request)) {
+            return null;
+        }
+        return aplicarUltimaConexion(dispositivoRepository.findAll());
     }
 
     /**
@@ -49,8 +80,15 @@ public class DispositivoEsp32Controller {
      * @throws ResponseStatusException si no se encuentra el dispositivo (404)
      */
     @GetMapping("/{id}")
-    public DispositivoEsp32 obtenerDispositivoPorId(@PathVariable("id") Long id) {
+    public DispositivoEsp32 obtenerDispositivoPorId(@PathVariable("id") Long id, WebRequest request) {
+        String etag = versionDatosService.etag("dispositivo",
+                versionDatosService.version(VersionDatosService.Ambito.DISPOSITIVO, id),
+                versionDatosService.version(VersionDatosService.Ambito.CONEXION, id));
+        if (RespuestaCondicional.noModificado(request, etag)) {
+            return null;
+        }
         return dispositivoRepository.findById(id)
+                .map(ultimaConexionService::aplicar)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "Dispositivo no encontrado"));
     }
@@ -61,8 +99,11 @@ public class DispositivoEsp32Controller {
      * @return lista de dispositivos con estado activo = true
      */
     @GetMapping("/activos")
-    public List<DispositivoEsp32> obtenerDispositivosActivos() {
-        return dispositivoRepository.findByActivo(true);
+    public List<DispositivoEsp32> obtenerDispositivosActivos(WebRequest request) {
+        if (noModificado(request)) {
+            return null;
+        }
+        return aplicarUltimaConexion(dispositivoRepository.findByActivo(true));
     }
 
     /**
@@ -73,11 +114,15 @@ public class DispositivoEsp32Controller {
      * @throws ResponseStatusException si no se encuentra el centro (404)
      */
     @GetMapping("/centro/{centroId}")
-    public List<DispositivoEsp32> obtenerDispositivosPorCentro(@PathVariable("centroId") Long centroId) {
+    public List<DispositivoEsp32> obtenerDispositivosPorCentro(@PathVariable("centroId") Long centroId,
+                                                               WebRequest request) {
+        if (noModificado(request)) {
+            return null;
+        }
         if (!centroRepository.existsById(centroId)) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Centro educativo no encontrado");
         }
-        return dispositivoRepository.findByCentroEducativo_Id(centroId);
+        return aplicarUltimaConexion(dispositivoRepository.findByCentroEducativo_Id(centroId));
     }
 
     /**
@@ -97,7 +142,10 @@ public class DispositivoEsp32Controller {
             throw new ResponseStatusException(
                     HttpStatus.CONFLICT, "Ya existe un dispositivo con esa dirección MAC");
         }
-        return dispositivoRepository.save(dispositivo);
+        DispositivoEsp32 guardado = dispositivoRepository.save(dispositivo);
+        dispositivoCacheService.invalidarMac(guardado.getMacAddress());
+        versionDatosService.incrementar(VersionDatosService.Ambito.DISPOSITIVO, guardado.getId());
+        return guardado;
     }
 
     /**
@@ -138,7 +186,14 @@ public class DispositivoEsp32Controller {
         dispositivo.setUmbralHumedadSueloMin(detalles.getUmbralHumedadSueloMin());
         dispositivo.setUmbralCO2Max(detalles.getUmbralCO2Max());
 
-        return dispositivoRepository.save(dispositivo);
+        DispositivoEsp32 guardado = dispositivoRepository.save(dispositivo);
+        dispositivoCacheService.invalidarDispositivo(id);
+        versionDatosService.incrementar(VersionDatosService.Ambito.DISPOSITIVO, id);
+        if (!guardado.isActivo()) {
+            // Un dispositivo desactivado no debe generar alertas de desconexión
+            desconexionService.olvidar(id);
+        }
+        return ultimaConexionService.aplicar(guardado);
     }
 
     /**
@@ -178,14 +233,18 @@ public class DispositivoEsp32Controller {
             dispositivo.setUmbralCO2Max(umbrales.getUmbralCO2Max());
         }
 
-        return dispositivoRepository.save(dispositivo);
+        DispositivoEsp32 guardado = dispositivoRepository.save(dispositivo);
+        dispositivoCacheService.invalidarDispositivo(id);
+        versionDatosService.incrementar(VersionDatosService.Ambito.DISPOSITIVO, id);
+        return ultimaConexionService.aplicar(guardado);
     }
 
     /**
      * Elimina un dispositivo ESP32 por su ID.
      * <p>
      * IMPORTANTE: Al eliminar un dispositivo, se eliminan en cascada todas sus
-     * lecturas y alertas asociadas (ON DELETE CASCADE).
+     * lecturas y alertas asociadas (ON DELETE CASCADE). Los servicios con estado en
+     * memoria del dispositivo lo descartan al recibir {@link DispositivosEliminados}.
      * </p>
      *
      * @param id identificador del dispositivo a eliminar
@@ -198,6 +257,31 @@ public class DispositivoEsp32Controller {
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "Dispositivo no encontrado"));
         dispositivoRepository.deleteById(id);
+        eventPublisher.publishEvent(new DispositivosEliminados(List.of(id)));
         return dispositivo;
     }
+
+    /**
+     * Responde 304 a los listados si el cliente ya tiene la versión actual de todos los dispositivos.
+     *
+     * @param request petición actual
+     * @return true si se ha respondido 304
+     */
+    private boolean noModificado(WebRequest request) {
+        return RespuestaCondicional.noModificado(request, versionDatosService.etag("dispositivos",
+                versionDatosService.version(VersionDatosService.Ambito.DISPOSITIVO),
+                versionDatosService.version(VersionDatosService.Ambito.CONEXION)));
+    }
+
+    /**
+     * Completa la última conexión de cada dispositivo con el valor en memoria,
+     * que puede ser más reciente que el guardado en la BD.
+     *
+     * @param dispositivos dispositivos a devolver
+     * @return la misma lista
+     */
+    private List<DispositivoEsp32> aplicarUltimaConexion(List<DispositivoEsp32> dispositivos) {
+        dispositivos.forEach(ultimaConexionService::aplicar);
+        return dispositivos;
+    }
 }
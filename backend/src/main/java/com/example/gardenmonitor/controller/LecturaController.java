@@ -1,22 +1,50 @@
 package com.example.gardenmonitor.controller;
 
 import com.example.gardenmonitor.dto.LecturaRequest;
-import com.example.gardenmonitor.model.DispositivoEsp32;
 import com.example.gardenmonitor.model.Lectura;
+import com.example.gardenmonitor.repository.CentroEducativoRepository;
 import com.example.gardenmonitor.repository.DispositivoEsp32Repository;
 import com.example.gardenmonitor.repository.LecturaRepository;
 import com.example.gardenmonitor.dto.LecturaMuestraProjection;
+import com.example.gardenmonitor.dto.EstadoIngesta;
+import com.example.gardenmonitor.dto.EstadoCacheGrafica;
+import com.example.gardenmonitor.dto.AnomaliaLectura;
+import com.example.gardenmonitor.dto.DispositivoResumen;
+import com.example.gardenmonitor.dto.LecturaResponse;
+import com.example.gardenmonitor.dto.PaginaCursor;
+import com.example.gardenmonitor.repository.LecturaAgregadaJdbcRepository;
+import com.example.gardenmonitor.repository.LecturaUltimaJdbcRepository;
+import com.example.gardenmonitor.service.AnomaliasService;
+import com.example.gardenmonitor.service.DispositivoCacheService;
+import com.example.gardenmonitor.service.ExportacionLecturasService;
+import com.example.gardenmonitor.service.GraficaCacheService;
+import com.example.gardenmonitor.service.GraficaService;
+import com.example.gardenmonitor.service.HistoricoLecturasService;
+import com.example.gardenmonitor.service.IngestaLecturasService;
+import com.example.gardenmonitor.service.LecturasRecientesService;
+import com.example.gardenmonitor.service.VersionDatosService;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Controlador REST para gestionar lecturas de sensores IoT.
@@ -25,6 +53,16 @@ import java.util.List;
  * y para consultar el histórico de lecturas de un dispositivo. Soporta paginación
  * server-side y stride sampling para optimizar la carga de datos en gráficas.
  * </p>
+ * <p>
+ * Los GET devuelven DTO planos ({@link LecturaResponse}, {@link LecturaMuestraProjection})
+ * en lugar de la entidad {@link Lectura}, que arrastraría el dispositivo y su centro en
+ * cada fila.
+ * </p>
+ * <p>
+ * Los GET de lecturas y gráficas llevan un ETag con la versión en memoria de las lecturas
+ * del dispositivo ({@link VersionDatosService}): si el cliente envía {@code If-None-Match}
+ * y no hay lecturas nuevas se responde 304 sin consultar la BD.
+ * </p>
  *
  * @author Richard Ortiz y Enrique Pérez
  * @version 1.0
@@ -33,62 +71,242 @@ import java.util.List;
 @RequestMapping("/api/lecturas")
 public class LecturaController {
 
+    /** Número máximo de lecturas aceptadas en una petición de lote. */
+    private static final int MAX_LECTURAS_LOTE = 1000;
+
+    /** Número máximo de dispositivos en una petición de gráfica múltiple. */
+    private static final int MAX_DISPOSITIVOS_GRAFICA = 50;
+
+    /** Número máximo de anomalías devueltas en una petición. */
+    private static final int MAX_ANOMALIAS = 1000;
+
+    /** Segundos que el reloj del ESP32 puede ir adelantado respecto al servidor. */
+    @Value("${lecturas.ingesta.adelanto-max-seg:300}")
+    private long adelantoMaximoSeg;
+
+    /** Antigüedad máxima, en días, de una lectura enviada en un lote. */
+    @Value("${lecturas.ingesta.antiguedad-max-dias:30}")
+    private long antiguedadMaximaDias;
+
     @Autowired
     private LecturaRepository lecturaRepository;
 
+    @Autowired
+    private IngestaLecturasService ingestaLecturasService;
+
+    @Autowired
+    private DispositivoCacheService dispositivoCacheService;
+
     @Autowired
     private DispositivoEsp32Repository dispositivoEsp32Repository;
 
+    @Autowired
+    private CentroEducativoRepository centroEducativoRepository;
+
+    @Autowired
+    private GraficaService graficaService;
+
+    @Autowired
+    private LecturaAgregadaJdbcRepository lecturaAgregadaJdbcRepository;
+
+    @Autowired
+    private LecturaUltimaJdbcRepository lecturaUltimaJdbcRepository;
+
+    @Autowired
+    private HistoricoLecturasService historicoLecturasService;
+
+    @Autowired
+    private ExportacionLecturasService exportacionLecturasService;
+
+    @Autowired
+    private LecturasRecientesService lecturasRecientesService;
+
+    @Autowired
+    private VersionDatosService versionDatosService;
+
+    @Autowired
+    private GraficaCacheService graficaCacheService;
+
+    @Autowired
+    private AnomaliasService anomaliasService;
+
     /**
      * Recibe una lectura enviada por un dispositivo ESP32.
      * <p>
      * Flujo:
      * </p>
      * <ol>
-     *   <li>Busca el dispositivo por dirección MAC</li>
+     *   <li>Busca el dispositivo por dirección MAC (en {@link DispositivoCacheService};
+     *       solo consulta la BD la primera vez)</li>
      *   <li>Verifica que el dispositivo tiene un centro asignado</li>
      *   <li>Crea la lectura con timestamp actual</li>
-     *   <li>Actualiza la fecha de última conexión del dispositivo</li>
+     *   <li>La encola en {@link IngestaLecturasService}, que la inserta y actualiza
+     *       la última conexión del dispositivo de forma asíncrona</li>
      * </ol>
+     * <p>
+     * Se mantiene 201 Created porque es el código que espera el firmware del ESP32:
+     * la lectura ya está validada y aceptada, aunque todavía no tenga id.
+     * </p>
      *
      * @param request datos de la lectura enviada por el ESP32 (validado con @Valid)
-     * @return la lectura registrada
-     * @throws ResponseStatusException si el dispositivo no está registrado (404)
-     *                                 o no tiene centro asignado (422)
+     * @return id del dispositivo y timestamp asignado a la lectura aceptada
+     * @throws ResponseStatusException si el dispositivo no está registrado (404),
+     *                                 no tiene centro asignado (422)
+     *                                 o la cola de ingesta está llena (503)
      */
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public Lectura recibirLectura(@Valid @RequestBody LecturaRequest request) {
+    public Map<String, Object> recibirLectura(@Valid @RequestBody LecturaRequest request) {
         // 1. Buscar dispositivo por MAC
-        DispositivoEsp32 dispositivo = dispositivoEsp32Repository
-                .findByMacAddress(request.getMacAddress())
+        DispositivoResumen dispositivo = dispositivoCacheService
+                .buscarPorMac(request.getMacAddress())
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND,
                         "Dispositivo no registrado: " + request.getMacAddress()));
 
         // 2. Verificar que tiene centro asignado
-        if (dispositivo.getCentroEducativo() == null) {
+        if (dispositivo.getCentroId() == null) {
             throw new ResponseStatusException(
                     HttpStatus.UNPROCESSABLE_ENTITY,
                     "Dispositivo sin centro asignado: " + request.getMacAddress());
         }
 
         // 3. Crear lectura
-        Lectura lectura = new Lectura();
-        lectura.setTimestamp(LocalDateTime.now());
-        lectura.setDispositivo(dispositivo);
-        lectura.setTemperatura(request.getTemperatura());
-        lectura.setHumedadAmbiente(request.getHumedadAmbiente());
-        lectura.setHumedadSuelo(request.getHumedadSuelo());
-        lectura.setCo2(request.getCo2());
-        lectura.setLuz1(request.getLuz1());
-        lectura.setLuz2(request.getLuz2());
+        Lectura lectura = crearLectura(request, dispositivo, LocalDateTime.now());
 
-        // 4. Actualizar última conexión del dispositivo
-        dispositivo.setUltimaConexion(LocalDateTime.now());
-        dispositivoEsp32Repository.save(dispositivo);
+        // 4. Encolar para inserción asíncrona
+        if (!ingestaLecturasService.encolar(lectura)) {
+            throw new ResponseStatusException(
+                    HttpStatus.SERVICE_UNAVAILABLE, "Cola de ingesta llena, reintente más tarde");
+        }
+        return Map.of("dispositivoId", dispositivo.getId(), "timestamp", lectura.getTimestamp());
+    }
+
+    /**
+     * Recibe un lote de lecturas enviadas por uno o varios dispositivos ESP32.
+     * <p>
+     * Pensado para ESP32 que acumulan lecturas y las envían juntas. Frente a
+     * {@link #recibirLectura(LecturaRequest)}, el coste por petición se reparte entre todo el lote:
+     * </p>
+     * <ol>
+     *   <li>Resuelve todas las MAC del lote en caché (una única consulta para las que falten)</li>
+     *   <li>Encola el lote completo en {@link IngestaLecturasService}, que lo inserta
+     *       en batches JDBC multi-fila y actualiza la última conexión una vez por dispositivo</li>
+     * </ol>
+     * <p>
+     * Cada lectura conserva el timestamp enviado por el dispositivo; si no lo trae,
+     * se usa la hora de recepción. El timestamp debe estar entre
+     * {@code lecturas.ingesta.antiguedad-max-dias} días atrás y
+     * {@code lecturas.ingesta.adelanto-max-seg} segundos en el futuro: un reloj del ESP32
+     * sin sincronizar (1970, o una fecha futura) acabaría en la partición DEFAULT, fijaría
+     * para siempre la última lectura del dispositivo y falsearía los agregados.
+     * El lote es atómico: si alguna MAC no está registrada, algún timestamp está fuera
+     * de ese margen o el lote no cabe en la cola, no se acepta ninguna lectura.
+     * </p>
+     *
+     * @param requests lecturas del lote (cada una validada con @Valid)
+     * @return número de lecturas aceptadas, con la clave {@code aceptadas}
+     * @throws ResponseStatusException si algún timestamp está fuera del margen permitido (400),
+     *                                 el lote supera el tamaño máximo (413),
+     *                                 algún dispositivo no está registrado (404),
+     *                                 no tiene centro asignado (422)
+     *                                 o la cola de ingesta está llena (503)
+     */
+    @PostMapping("/batch")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public Map<String, Integer> recibirLoteLecturas(
+            @RequestBody @NotEmpty List<@Valid LecturaRequest> requests) {
+        if (requests.size() > MAX_LECTURAS_LOTE) {
+            throw new ResponseStatusException(
+                    HttpStatus.PAYLOAD_TOO_LARGE,
+                    "El lote supera el máximo de " + MAX_LECTURAS_LOTE + " lecturas");
+        }
+
+        // 1. Resolver todas las MAC del lote en una sola consulta
+        Set<String> macs = requests.stream()
+                .map(LecturaRequest::getMacAddress)
+                .collect(Collectors.toSet());
+        Map<String, DispositivoResumen> dispositivos = dispositivoCacheService.buscarPorMacs(macs);
 
-        return lecturaRepository.save(lectura);
+        for (String mac : macs) {
+            DispositivoResumen dispositivo = dispositivos.get(mac);
+            if (dispositivo == null) {
+                throw new ResponseStatusException(
+                        HttpStatus.NOT_FOUND, "Dispositivo no registrado: " + mac);
+            }
+            if (dispositivo.getCentroId() == null) {
+                throw new ResponseStatusException(
+                        HttpStatus.UNPROCESSABLE_ENTITY, "Dispositivo sin centro asignado: " + mac);
+            }
+        }
+
+        // 2. Comprobar que los timestamps del dispositivo son plausibles
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime minimo = ahora.minusDays(antiguedadMaximaDias);
+        LocalDateTime maximo = ahora.plusSeconds(adelantoMaximoSeg);
+        for (int i = 0; i < requests.size(); i++) {
+            LocalDateTime timestamp = requests.get(i).getTimestamp();
+            if (timestamp != null && (timestamp.isBefore(minimo) || timestamp.isAfter(maximo))) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Timestamp fuera de rango en la lectura " + i + ": " + timestamp
+                                + " (debe estar entre " + minimo + " y " + maximo + ")");
+            }
+        }
+
+        // 3. Crear las lecturas con el timestamp del dispositivo
+        List<Lectura> lecturas = requests.stream().map(request -> {
+            DispositivoResumen dispositivo = dispositivos.get(request.getMacAddress());
+            LocalDateTime timestamp = request.getTimestamp() != null ? request.getTimestamp() : ahora;
+            return crearLectura(request, dispositivo, timestamp);
+        }).toList();
+
+        // 4. Encolar el lote completo para inserción asíncrona
+        if (!ingestaLecturasService.encolarLote(lecturas)) {
+            throw new ResponseStatusException(
+                    HttpStatus.SERVICE_UNAVAILABLE, "Cola de ingesta llena, reintente más tarde");
+        }
+        return Map.of("aceptadas", lecturas.size());
+    }
+
+    /**
+     * Devuelve las métricas del pipeline de ingesta: profundidad de la cola,
+     * lecturas aceptadas/rechazadas/guardadas y latencia de los volcados.
+     *
+     * @return estado actual de la ingesta
+     */
+    @GetMapping("/ingesta/estado")
+    public EstadoIngesta obtenerEstadoIngesta() {
+        return ingestaLecturasService.obtenerEstado();
+    }
+
+    /**
+     * Devuelve las métricas de la caché de gráficas: entradas, memoria estimada,
+     * aciertos, fallos y expulsiones.
+     *
+     * @return estado actual de la caché
+     */
+    @GetMapping("/grafica/cache")
+    public EstadoCacheGrafica obtenerEstadoCacheGrafica() {
+        return graficaCacheService.obtenerEstado();
+    }
+
+    /**
+     * Devuelve las últimas lecturas anómalas detectadas en la ingesta (ver {@link AnomaliasService}),
+     * más recientes primero. Se leen de la tabla {@code lectura_anomalia}.
+     *
+     * @param dispositivoId si se indica, solo las de este dispositivo
+     * @param limite        número máximo de anomalías, entre 1 y {@value #MAX_ANOMALIAS} (100 por defecto)
+     * @return lecturas anómalas con el sensor, el valor y la media esperada
+     * @throws ResponseStatusException si el límite está fuera de rango (400)
+     */
+    @GetMapping("/anomalias")
+    public List<AnomaliaLectura> obtenerAnomalias(@RequestParam(required = false) Long dispositivoId,
+                                                  @RequestParam(defaultValue = "100") int limite) {
+        if (limite < 1 || limite > MAX_ANOMALIAS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "El límite debe estar entre 1 y " + MAX_ANOMALIAS);
+        }
+        return anomaliasService.buscarRecientes(dispositivoId, limite);
     }
 
     /**
@@ -101,15 +319,41 @@ public class LecturaController {
      * @throws ResponseStatusException si no se encuentra el dispositivo (404)
      */
     @GetMapping("/dispositivo/{dispositivoId}")
-    public Page<Lectura> obtenerLecturasPorDispositivo(
+    public Page<LecturaResponse> obtenerLecturasPorDispositivo(
             @PathVariable("dispositivoId") Long dispositivoId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
-        DispositivoEsp32 dispositivo = dispositivoEsp32Repository.findById(dispositivoId)
+            @RequestParam(defaultValue = "20") int size,
+            WebRequest request) {
+        if (noModificado(request, dispositivoId)) {
+            return null;
+        }
+        if (!dispositivoEsp32Repository.existsById(dispositivoId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Dispositivo no encontrado");
+        }
+        return lecturaRepository.findResponseByDispositivoId(dispositivoId, PageRequest.of(page, size));
+    }
+
+    /**
+     * Obtiene la última lectura de un dispositivo.
+     * <p>
+     * Se sirve desde {@link LecturasRecientesService} sin consultar la BD cuando el
+     * dispositivo tiene lecturas recientes en memoria.
+     * </p>
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @return la lectura más reciente del dispositivo
+     * @throws ResponseStatusException si no se encuentra el dispositivo o no tiene lecturas (404)
+     */
+    @GetMapping("/dispositivo/{dispositivoId}/ultima")
+    public LecturaResponse obtenerUltimaLectura(@PathVariable("dispositivoId") Long dispositivoId,
+                                                WebRequest request) {
+        if (noModificado(request, dispositivoId)) {
+            return null;
+        }
+        comprobarDispositivo(dispositivoId);
+        return lecturasRecientesService.buscarUltima(dispositivoId)
                 .orElseThrow(() -> new ResponseStatusException(
-                        HttpStatus.NOT_FOUND, "Dispositivo no encontrado"));
-        return lecturaRepository.findByDispositivoOrderByTimestampDesc(
-                dispositivo, PageRequest.of(page, size));
+                        HttpStatus.NOT_FOUND, "El dispositivo no tiene lecturas"));
     }
 
     /**
@@ -124,24 +368,139 @@ public class LecturaController {
      * @throws ResponseStatusException si no se encuentra el dispositivo (404)
      */
     @GetMapping("/dispositivo/{dispositivoId}/rango")
-    public Page<Lectura> obtenerLecturasPorRango(
+    public Page<LecturaResponse> obtenerLecturasPorRango(
             @PathVariable("dispositivoId") Long dispositivoId,
             @RequestParam("desde") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
             @RequestParam("hasta") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
-        DispositivoEsp32 dispositivo = dispositivoEsp32Repository.findById(dispositivoId)
-                .orElseThrow(() -> new ResponseStatusException(
-                        HttpStatus.NOT_FOUND, "Dispositivo no encontrado"));
-        return lecturaRepository.findByDispositivoAndTimestampBetweenOrderByTimestampDesc(
-                dispositivo, desde, hasta, PageRequest.of(page, size));
+            @RequestParam(defaultValue = "20") int size,
+            WebRequest request) {
+        if (noModificado(request, dispositivoId)) {
+            return null;
+        }
+        if (!dispositivoEsp32Repository.existsById(dispositivoId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Dispositivo no encontrado");
+        }
+        return lecturaRepository.findResponseByDispositivoIdAndRango(
+                dispositivoId, desde, hasta, PageRequest.of(page, size));
+    }
+
+    /**
+     * Obtiene las lecturas de un dispositivo con paginación por cursor, más recientes primero.
+     * <p>
+     * Alternativa a {@link #obtenerLecturasPorDispositivo} para históricos largos: no
+     * ejecuta {@code COUNT(*)} y cualquier página cuesta lo mismo que la primera
+     * (ver {@link HistoricoLecturasService}).
+     * </p>
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @param cursor        {@code siguienteCursor} de la página anterior (vacío para la primera)
+     * @param size          tamaño de página (por defecto 20, máximo 500)
+     * @param total         si se incluye el total aproximado de lecturas (por defecto false)
+     * @return página de lecturas con el cursor de la siguiente
+     * @throws ResponseStatusException si no se encuentra el dispositivo (404) o el cursor o el tamaño son inválidos (400)
+     */
+    @GetMapping("/dispositivo/{dispositivoId}/cursor")
+    public PaginaCursor<LecturaResponse> obtenerLecturasPorCursor(
+            @PathVariable("dispositivoId") Long dispositivoId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean total,
+            WebRequest request) {
+        if (noModificado(request, dispositivoId)) {
+            return null;
+        }
+        if (!dispositivoEsp32Repository.existsById(dispositivoId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Dispositivo no encontrado");
+        }
+        return historicoLecturasService.buscarPagina(dispositivoId, cursor, size, total);
+    }
+
+    /**
+     * Obtiene las lecturas de un dispositivo en un rango de fechas con paginación por cursor,
+     * más recientes primero.
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @param desde         inicio del rango temporal (ISO 8601)
+     * @param hasta         fin del rango temporal (ISO 8601)
+     * @param cursor        {@code siguienteCursor} de la página anterior (vacío para la primera)
+     * @param size          tamaño de página (por defecto 20, máximo 500)
+     * @param total         si se incluye el total aproximado de lecturas del rango (por defecto false)
+     * @return página de lecturas con el cursor de la siguiente
+     * @throws ResponseStatusException si no se encuentra el dispositivo (404) o el cursor o el tamaño son inválidos (400)
+     */
+    @GetMapping("/dispositivo/{dispositivoId}/rango/cursor")
+    public PaginaCursor<LecturaResponse> obtenerLecturasPorRangoYCursor(
+            @PathVariable("dispositivoId") Long dispositivoId,
+            @RequestParam("desde") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam("hasta") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean total,
+            WebRequest request) {
+        if (noModificado(request, dispositivoId)) {
+            return null;
+        }
+        if (!dispositivoEsp32Repository.existsById(dispositivoId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Dispositivo no encontrado");
+        }
+        return historicoLecturasService.buscarPaginaEnRango(dispositivoId, desde, hasta, cursor, size, total);
+    }
+
+    /**
+     * Exporta el histórico de lecturas de un dispositivo como descarga en streaming.
+     * <p>
+     * Las lecturas se escriben en la respuesta según se leen de la BD con un cursor
+     * (ver {@link ExportacionLecturasService}), en orden cronológico, así que la memoria
+     * usada no depende del número de lecturas. Sin {@code desde}/{@code hasta} se exporta
+     * todo el histórico.
+     * </p>
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @param formato       NDJSON (por defecto) o CSV
+     * @param desde         inicio del rango temporal (ISO 8601, opcional)
+     * @param hasta         fin del rango temporal (ISO 8601, opcional; por defecto ahora)
+     * @return descarga con las lecturas
+     * @throws ResponseStatusException si no se encuentra el dispositivo (404) o el formato es inválido (400)
+     */
+    @GetMapping("/dispositivo/{dispositivoId}/export")
+    public ResponseEntity<StreamingResponseBody> exportarLecturas(
+            @PathVariable("dispositivoId") Long dispositivoId,
+            @RequestParam(defaultValue = "NDJSON") String formato,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta) {
+        if (!dispositivoEsp32Repository.existsById(dispositivoId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Dispositivo no encontrado");
+        }
+        ExportacionLecturasService.Formato f;
+        try {
+            f = ExportacionLecturasService.Formato.valueOf(formato.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST, "Formato inválido: " + formato + ". Valores aceptados: NDJSON, CSV");
+        }
+        LocalDateTime inicio = desde != null ? desde : LocalDateTime.of(2000, 1, 1, 0, 0);
+        LocalDateTime fin = hasta != null ? hasta : LocalDateTime.now();
+
+        StreamingResponseBody cuerpo = salida ->
+                exportacionLecturasService.exportar(dispositivoId, inicio, fin, f, salida);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(f.getTipoContenido() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("lecturas_dispositivo_" + dispositivoId + "." + f.getExtension())
+                        .build().toString())
+                .body(cuerpo);
     }
 
     /**
-     * Devuelve lecturas reales muestreadas (stride sampling) para la gráfica del frontend.
+     * Devuelve los puntos de la gráfica del frontend (ver {@link GraficaService}).
      * <p>
-     * Garantiza siempre ≤ ~400 puntos independientemente del volumen de datos,
-     * preservando los picos y valles reales (a diferencia de promedios con time_bucket).
+     * Garantiza siempre ≤ ~{@code puntos} puntos (400 por defecto) independientemente del
+     * volumen de datos. Hasta MES son lecturas reales muestreadas con el algoritmo elegido:
+     * STRIDE (una de cada k lecturas, por defecto), LTTB (conserva la forma de la curva del
+     * canal indicado) o M4 (conserva primera, última, mínima y máxima lectura de cada
+     * intervalo del canal). SEMESTRE y ANIO salen de las tablas agregadas e incluyen media,
+     * mínimo y máximo de cada intervalo; solo admiten STRIDE.
      * </p>
      * <p>
      * Periodos aceptados:
@@ -150,43 +509,117 @@ public class LecturaController {
      *   <li>DIA — últimas 24 horas</li>
      *   <li>SEMANA — últimos 7 días</li>
      *   <li>MES — últimos 30 días</li>
-     *   <li>SEMESTRE — últimos 180 días</li>
-     *   <li>ANIO — últimos 365 días</li>
+     *   <li>SEMESTRE — últimos 180 días (con 400 puntos, uno cada 12 horas)</li>
+     *   <li>ANIO — últimos 365 días (con 400 puntos, uno por día)</li>
      * </ul>
      *
      * @param dispositivoId identificador del dispositivo
      * @param periodo       período de tiempo a consultar
+     * @param algoritmo     algoritmo de muestreo: STRIDE (por defecto), LTTB o M4
+     * @param puntos        número aproximado de puntos, entre 10 y 5000 (400 por defecto)
+     * @param canal         sensor que guía LTTB y M4 (TEMPERATURA por defecto)
      * @return lista de lecturas muestreadas para la gráfica
-     * @throws ResponseStatusException si no se encuentra el dispositivo (404) o el período es inválido (400)
+     * @throws ResponseStatusException si no se encuentra el dispositivo (404) o algún parámetro es inválido (400)
      */
     @GetMapping("/dispositivo/{dispositivoId}/grafica")
-    public List<LecturaMuestraProjection> obtenerLecturasParaGrafica(
+    public List<? extends LecturaMuestraProjection> obtenerLecturasParaGrafica(
             @PathVariable("dispositivoId") Long dispositivoId,
-            @RequestParam("periodo") String periodo) {
+            @RequestParam("periodo") String periodo,
+            @RequestParam(defaultValue = "STRIDE") String algoritmo,
+            @RequestParam(defaultValue = "400") int puntos,
+            @RequestParam(defaultValue = "TEMPERATURA") String canal,
+            WebRequest request) {
 
-        DispositivoEsp32 dispositivo = dispositivoEsp32Repository.findById(dispositivoId)
-                .orElseThrow(() -> new ResponseStatusException(
-                        HttpStatus.NOT_FOUND, "Dispositivo no encontrado"));
+        // Como las alertas de un dispositivo: sus lecturas y el propio dispositivo (alta, baja, cambios)
+        String etag = versionDatosService.etag("grafica",
+                versionDatosService.version(VersionDatosService.Ambito.LECTURAS, dispositivoId),
+                versionDatosService.version(VersionDatosService.Ambito.DISPOSITIVO, dispositivoId),
+                GraficaService.intervalo(periodo, puntos));
+        if (RespuestaCondicional.noModificado(request, etag)) {
+            return null;
+        }
+        comprobarDispositivo(dispositivoId);
+        return graficaService.obtenerGrafica(dispositivoId, periodo, algoritmo, puntos, canal);
+    }
 
-        LocalDateTime hasta = LocalDateTime.now();
-        LocalDateTime desde = switch (periodo.toUpperCase()) {
-            case "DIA"      -> hasta.minusDays(1);
-            case "SEMANA"   -> hasta.minusDays(7);
-            case "MES"      -> hasta.minusDays(30);
-            case "SEMESTRE" -> hasta.minusDays(180);
-            case "ANIO"     -> hasta.minusDays(365);
-            default -> throw new ResponseStatusException(
-                    HttpStatus.BAD_REQUEST, "Periodo inválido: " + periodo +
-                    ". Valores aceptados: DIA, SEMANA, MES, SEMESTRE, ANIO");
-        };
+    /**
+     * Obtiene en una sola petición las gráficas de varios dispositivos, indicados por
+     * lista de ids o por centro educativo (todos sus dispositivos).
+     * <p>
+     * Las gráficas se calculan en paralelo en un ejecutor acotado (ver
+     * {@link GraficaService#obtenerGraficas}), con los mismos parámetros que
+     * {@link #obtenerLecturasParaGrafica}.
+     * </p>
+     *
+     * @param dispositivoIds identificadores de los dispositivos (separados por comas)
+     * @param centroId       centro educativo, como alternativa a {@code dispositivoIds}
+     * @param periodo        período de tiempo a consultar
+     * @param algoritmo      algoritmo de muestreo: STRIDE (por defecto), LTTB o M4
+     * @param puntos         número aproximado de puntos por dispositivo (400 por defecto)
+     * @param canal          sensor que guía LTTB y M4 (TEMPERATURA por defecto)
+     * @return puntos de la gráfica de cada dispositivo, por id de dispositivo
+     * @throws ResponseStatusException si no se indica exactamente uno de {@code dispositivoIds} y
+     *                                 {@code centroId} o algún parámetro es inválido (400), no se
+     *                                 encuentra algún dispositivo o el centro (404) o se piden más de
+     *                                 {@value #MAX_DISPOSITIVOS_GRAFICA} dispositivos (413)
+     */
+    @GetMapping("/grafica")
+    public Map<Long, List<? extends LecturaMuestraProjection>> obtenerGraficasMultiples(
+            @RequestParam(required = false) List<Long> dispositivoIds,
+            @RequestParam(required = false) Long centroId,
+            @RequestParam("periodo") String periodo,
+            @RequestParam(defaultValue = "STRIDE") String algoritmo,
+            @RequestParam(defaultValue = "400") int puntos,
+            @RequestParam(defaultValue = "TEMPERATURA") String canal,
+            WebRequest request) {
 
-        return lecturaRepository.findMuestraByDispositivoAndRango(dispositivo.getId(), desde, hasta);
+        if ((dispositivoIds == null) == (centroId == null)) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST, "Indique dispositivoIds o centroId (solo uno de los dos)");
+        }
+        // Las versiones solo crecen: con los ids fijos en la URL, su suma cambia si cambia alguna.
+        // Los dispositivos de un centro no se conocen sin consultar la BD, así que se usan las
+        // versiones globales (lecturas y altas/bajas de dispositivos)
+        long version = centroId != null
+                ? versionDatosService.version(VersionDatosService.Ambito.LECTURAS)
+                        + versionDatosService.version(VersionDatosService.Ambito.DISPOSITIVO)
+                : dispositivoIds.stream().distinct()
+                        .mapToLong(id -> versionDatosService.version(VersionDatosService.Ambito.LECTURAS, id)
+                                + versionDatosService.version(VersionDatosService.Ambito.DISPOSITIVO, id)).sum();
+        String etag = versionDatosService.etag("graficas", version, GraficaService.intervalo(periodo, puntos));
+        if (RespuestaCondicional.noModificado(request, etag)) {
+            return null;
+        }
+        List<Long> ids;
+        if (centroId != null) {
+            if (!centroEducativoRepository.existsById(centroId)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Centro educativo no encontrado");
+            }
+            ids = dispositivoEsp32Repository.findIdsByCentroEducativoId(centroId);
+        } else {
+            ids = dispositivoIds.stream().distinct().toList();
+        }
+        if (ids.size() > MAX_DISPOSITIVOS_GRAFICA) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Se pueden pedir como máximo " + MAX_DISPOSITIVOS_GRAFICA + " dispositivos");
+        }
+        if (centroId == null && !ids.isEmpty()) {
+            Set<Long> existentes = Set.copyOf(dispositivoEsp32Repository.findIdsByIdIn(ids));
+            List<Long> noEncontrados = ids.stream().filter(id -> !existentes.contains(id)).toList();
+            if (!noEncontrados.isEmpty()) {
+                throw new ResponseStatusException(
+                        HttpStatus.NOT_FOUND, "Dispositivos no encontrados: " + noEncontrados);
+            }
+        }
+        return graficaService.obtenerGraficas(ids, periodo, algoritmo, puntos, canal);
     }
 
     /**
      * Elimina una lectura por su identificador.
      * <p>
      * Permite borrar lecturas erróneas o corruptas registradas por un dispositivo.
+     * Después recalcula la hora y el día agregados que contenían la lectura y, si era
+     * la última del dispositivo, su fila de {@code lectura_ultima}.
      * </p>
      *
      * @param id identificador de la lectura a eliminar
@@ -199,6 +632,55 @@ public class LecturaController {
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "Lectura no encontrada"));
         lecturaRepository.deleteById(id);
+        lecturaAgregadaJdbcRepository.recalcular(lectura.getDispositivo().getId(), lectura.getTimestamp());
+        lecturaUltimaJdbcRepository.recalcularSiEsUltima(lectura.getDispositivo().getId(), id);
+        lecturasRecientesService.eliminar(lectura.getDispositivo().getId(), id);
+        versionDatosService.incrementar(VersionDatosService.Ambito.LECTURAS, lectura.getDispositivo().getId());
+        return lectura;
+    }
+
+    /**
+     * Responde 304 si el cliente ya tiene la versión actual de las lecturas del dispositivo.
+     *
+     * @param request       petición actual
+     * @param dispositivoId identificador del dispositivo
+     * @return true si se ha respondido 304
+     */
+    private boolean noModificado(WebRequest request, Long dispositivoId) {
+        return RespuestaCondicional.noModificado(request, versionDatosService.etag(
+                "lecturas", versionDatosService.version(VersionDatosService.Ambito.LECTURAS, dispositivoId)));
+    }
+
+    /**
+     * Comprueba que el dispositivo existe. Si tiene lecturas en memoria no consulta la BD.
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @throws ResponseStatusException si no se encuentra el dispositivo (404)
+     */
+    private void comprobarDispositivo(Long dispositivoId) {
+        if (!lecturasRecientesService.conoce(dispositivoId) && !dispositivoEsp32Repository.existsById(dispositivoId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Dispositivo no encontrado");
+        }
+    }
+
+    /**
+     * Construye una lectura a partir de la petición del ESP32.
+     *
+     * @param request     datos enviados por el dispositivo
+     * @param dispositivo dispositivo que envía la lectura
+     * @param timestamp   momento de la medición
+     * @return la lectura sin persistir
+     */
+    private Lectura crearLectura(LecturaRequest request, DispositivoResumen dispositivo, LocalDateTime timestamp) {
+        Lectura lectura = new Lectura();
+        lectura.setTimestamp(timestamp);
+        lectura.setDispositivo(dispositivo.comoReferencia());
+        lectura.setTemperatura(request.getTemperatura());
+        lectura.setHumedadAmbiente(request.getHumedadAmbiente());
+        lectura.setHumedadSuelo(request.getHumedadSuelo());
+        lectura.setCo2(request.getCo2());
+        lectura.setLuz1(request.getLuz1());
+        lectura.setLuz2(request.getLuz2());
         return lectura;
     }
 }
@@ -4,13 +4,18 @@ import com.example.gardenmonitor.model.Alerta;
 import com.example.gardenmonitor.model.Notificacion;
 import com.example.gardenmonitor.model.Usuario;
 import com.example.gardenmonitor.repository.AlertaRepository;
+import com.example.gardenmonitor.repository.NotificacionJdbcRepository;
 import com.example.gardenmonitor.repository.NotificacionRepository;
 import com.example.gardenmonitor.repository.UsuarioRepository;
+import com.example.gardenmonitor.service.NotificacionesNoLeidasService;
+import com.example.gardenmonitor.service.NotificacionesService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -22,6 +27,10 @@ import java.util.Map;
  * permitiendo rastrear qué usuarios han sido informados de cada alerta
  * y si la han leído.
  * </p>
+ * <p>
+ * Las notificaciones de una alerta nueva se crean solas para todos los usuarios de su
+ * centro ({@link NotificacionesService}); el alta manual queda para casos sueltos.
+ * </p>
  *
  * @author Richard Ortiz y Enrique Pérez
  * @version 1.0
@@ -39,6 +48,15 @@ public class NotificacionController {
     @Autowired
     private AlertaRepository alertaRepository;
 
+    @Autowired
+    private NotificacionJdbcRepository notificacionJdbcRepository;
+
+    @Autowired
+    private NotificacionesService notificacionesService;
+
+    @Autowired
+    private NotificacionesNoLeidasService notificacionesNoLeidasService;
+
     /**
      * Obtiene todas las notificaciones del sistema.
      *
@@ -93,6 +111,25 @@ public class NotificacionController {
         return notificacionRepository.findByUsuario_IdAndLeida(usuarioId, false);
     }
 
+    /**
+     * Cuenta las notificaciones no leídas de un usuario.
+     * <p>
+     * Pensado para el sondeo del contador del icono de notificaciones: se responde con
+     * el contador en memoria ({@link NotificacionesNoLeidasService}), sin cargar las
+     * notificaciones ni, normalmente, consultar la BD.
+     * </p>
+     *
+     * @param usuarioId identificador del usuario
+     * @return mapa con el campo noLeidas
+     * @throws ResponseStatusException si no se encuentra el usuario (404)
+     */
+    @GetMapping("/usuario/{usuarioId}/no-leidas/count")
+    public Map<String, Long> contarNoLeidasPorUsuario(@PathVariable("usuarioId") Long usuarioId) {
+        long noLeidas = notificacionesNoLeidasService.contar(usuarioId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Usuario no encontrado"));
+        return Map.of("noLeidas", noLeidas);
+    }
+
     /**
      * Crea una nueva notificación vinculando un usuario con una alerta.
      * <p>
@@ -102,8 +139,9 @@ public class NotificacionController {
      *
      * @param body mapa con los campos usuarioId y alertaId
      * @return la notificación creada
-     * @throws ResponseStatusException si faltan campos (400), o no se encuentra
-     *                                 el usuario (404) o la alerta (404)
+     * @throws ResponseStatusException si faltan campos (400), no se encuentra
+     *                                 el usuario (404) o la alerta (404), o el usuario
+     *                                 ya tiene una notificación de la alerta (409)
      */
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -124,7 +162,33 @@ public class NotificacionController {
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "Alerta no encontrada"));
 
-        return notificacionRepository.save(new Notificacion(usuario, alerta));
+        if (notificacionRepository.existsByUsuario_IdAndAlerta_Id(usuarioId, alertaId)) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT, "El usuario ya tiene una notificación de esta alerta");
+        }
+
+        return notificacionesNoLeidasService.escribir(
+                () -> notificacionRepository.save(new Notificacion(usuario, alerta)),
+                guardada -> notificacionesNoLeidasService.sumar(usuarioId, 1));
+    }
+
+    /**
+     * Notifica una alerta a todos los usuarios asignados al centro de su dispositivo.
+     * <p>
+     * Las notificaciones se crean en segundo plano y sin repetir las que ya existen,
+     * así que se puede llamar de nuevo sin riesgo (p. ej. tras asignar usuarios al centro).
+     * </p>
+     *
+     * @param alertaId identificador de la alerta
+     * @throws ResponseStatusException si no se encuentra la alerta (404)
+     */
+    @PostMapping("/alerta/{alertaId}")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void notificarAlerta(@PathVariable("alertaId") Long alertaId) {
+        if (!alertaRepository.existsById(alertaId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Alerta no encontrada");
+        }
+        notificacionesService.notificar(alertaId);
     }
 
     /**
@@ -132,6 +196,8 @@ public class NotificacionController {
      * <p>
      * Actualmente solo permite modificar el campo {@code leida}.
      * El usuario y la alerta asociados no son modificables una vez creada la notificación.
+     * El cambio se hace con un UPDATE condicional, de modo que el contador de no leídas
+     * solo se ajusta si la notificación ha cambiado de verdad.
      * </p>
      *
      * @param id   identificador de la notificación a actualizar
@@ -154,10 +220,45 @@ public class NotificacionController {
                 throw new ResponseStatusException(
                         HttpStatus.BAD_REQUEST, "El campo 'leida' debe ser true o false");
             }
-            notificacion.setLeida((Boolean) body.get("leida"));
+            boolean leida = (Boolean) body.get("leida");
+            Long usuarioId = notificacion.getUsuario().getId();
+            notificacionesNoLeidasService.escribir(() -> notificacionJdbcRepository.marcarLeida(id, leida),
+                    cambiada -> {
+                        if (cambiada) {
+                            notificacionesNoLeidasService.sumar(usuarioId, leida ? -1 : 1);
+                        }
+                    });
+            notificacion.setLeida(leida);
         }
 
-        return notificacionRepository.save(notificacion);
+        return notificacion;
+    }
+
+    /**
+     * Marca como leídas todas las notificaciones de un usuario o solo las indicadas.
+     * <p>
+     * Se hace con un único UPDATE, en lugar de una petición {@code PUT /{id}} por
+     * notificación. El cuerpo es opcional: sin él (o sin el campo {@code ids}) se marcan
+     * todas; con {@code {"ids": [...]}} solo esas, ignorando las de otros usuarios.
+     * </p>
+     *
+     * @param usuarioId identificador del usuario
+     * @param body      mapa opcional con el campo ids
+     * @return mapa con el campo marcadas (notificaciones que han pasado a leídas)
+     * @throws ResponseStatusException si no se encuentra el usuario (404)
+     */
+    @PutMapping("/usuario/{usuarioId}/leidas")
+    public Map<String, Integer> marcarLeidasPorUsuario(
+            @PathVariable("usuarioId") Long usuarioId,
+            @RequestBody(required = false) Map<String, List<Long>> body) {
+        if (!usuarioRepository.existsById(usuarioId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Usuario no encontrado");
+        }
+        List<Long> ids = body != null ? body.get("ids") : null;
+        int marcadas = notificacionesNoLeidasService.escribir(
+                () -> notificacionJdbcRepository.marcarLeidas(usuarioId, ids),
+                n -> notificacionesNoLeidasService.sumar(usuarioId, -n));
+        return Map.of("marcadas", marcadas);
     }
 
     /**
@@ -172,7 +273,29 @@ public class NotificacionController {
         Notificacion notificacion = notificacionRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "Notificación no encontrada"));
-        notificacionRepository.deleteById(id);
+        Long usuarioId = notificacion.getUsuario().getId();
+        notificacionesNoLeidasService.escribir(() -> notificacionJdbcRepository.eliminar(id),
+                eliminada -> eliminada.filter(leida -> !leida)
+                        .ifPresent(leida -> notificacionesNoLeidasService.sumar(usuarioId, -1)));
         return notificacion;
     }
+
+    /**
+     * Elimina las notificaciones leídas enviadas antes de una fecha, de todos los
+     * usuarios o de uno, con un único DELETE.
+     *
+     * @param antesDe   fecha de envío límite (exclusiva), en formato ISO
+     * @param usuarioId identificador del usuario (opcional)
+     * @return mapa con el campo eliminadas
+     * @throws ResponseStatusException si se indica un usuario que no existe (404)
+     */
+    @DeleteMapping("/leidas")
+    public Map<String, Integer> eliminarLeidas(
+            @RequestParam("antesDe") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime antesDe,
+            @RequestParam(required = false) Long usuarioId) {
+        if (usuarioId != null && !usuarioRepository.existsById(usuarioId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Usuario no encontrado");
+        }
+        return Map.of("eliminadas", notificacionJdbcRepository.eliminarLeidas(usuarioId, antesDe));
+    }
 }
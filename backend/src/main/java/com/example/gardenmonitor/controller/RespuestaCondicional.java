@@ -0,0 +1,89 @@
+package com.example.gardenmonitor.controller;
+
+import com.example.gardenmonitor.config.SerieBinariaHttpMessageConverter;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Respuestas condicionales con ETag para los endpoints que consultan el dashboard y la app.
+ * <p>
+ * El ETag se calcula con las versiones en memoria de {@code VersionDatosService}, antes
+ * de consultar la BD: si coincide con {@code If-None-Match} se responde 304 Not Modified
+ * sin cuerpo. Se envía {@code Cache-Control: no-cache, private} para que el navegador y
+ * OkHttp guarden la respuesta y la revaliden en cada petición (por defecto Spring
+ * Security envía {@code no-store} y no se guardaría).
+ * </p>
+ * <p>
+ * Las lecturas se pueden pedir en JSON o en la serie binaria de
+ * {@link SerieBinariaHttpMessageConverter} según {@code Accept}, con la misma URL. Por eso
+ * se envía {@code Vary: Accept} y el ETag de la serie binaria lleva el sufijo {@code -serie}:
+ * un cliente que guarde una representación no recibe 304 al pedir la otra.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+final class RespuestaCondicional {
+
+    private static final String CACHE_CONTROL = CacheControl.noCache().cachePrivate().getHeaderValue();
+
+    private static final MediaType SERIE_BINARIA = MediaType.parseMediaType(SerieBinariaHttpMessageConverter.TIPO_CONTENIDO);
+
+    private RespuestaCondicional() {}
+
+    /**
+     * Añade el ETag a la respuesta y comprueba si el cliente ya tiene esa versión.
+     *
+     * @param request petición actual
+     * @param etag    ETag de la respuesta
+     * @return true si se ha respondido 304 y el controlador debe devolver {@code null}
+     */
+    static boolean noModificado(WebRequest request, String etag) {
+        if (request instanceof ServletWebRequest servlet && servlet.getResponse() != null) {
+            servlet.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+            servlet.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        if (pideSerieBinaria(request)) {
+            etag = etag.substring(0, etag.length() - 1) + "-serie\"";
+        }
+        return request.checkNotModified(etag);
+    }
+
+    /**
+     * Decide como la negociación de contenido si la respuesta irá en la serie binaria: el
+     * conversor JSON va antes, así que gana también con los comodines de tipo o subtipo.
+     *
+     * @param request petición actual
+     * @return true si el tipo preferido de {@code Accept} solo lo acepta la serie binaria
+     */
+    private static boolean pideSerieBinaria(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || !accept.contains(SerieBinariaHttpMessageConverter.TIPO_CONTENIDO)) {
+            return false;
+        }
+        List<MediaType> aceptados;
+        try {
+            aceptados = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        MimeTypeUtils.sortBySpecificity(aceptados);
+        for (MediaType aceptado : aceptados) {
+            if (aceptado.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return false;
+            }
+            if (aceptado.isCompatibleWith(SERIE_BINARIA)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -4,6 +4,7 @@ import com.example.gardenmonitor.model.Rol;
 import com.example.gardenmonitor.model.Usuario;
 import com.example.gardenmonitor.repository.UsuarioCentroRepository;
 import com.example.gardenmonitor.repository.UsuarioRepository;
+import com.example.gardenmonitor.service.NotificacionesNoLeidasService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -39,6 +40,9 @@ public class UsuarioController {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private NotificacionesNoLeidasService notificacionesNoLeidasService;
+
     /**
      * Obtiene todos los usuarios registrados en el sistema.
      *
@@ -196,6 +200,7 @@ public class UsuarioController {
                         HttpStatus.NOT_FOUND, "Usuario no encontrado"));
         usuarioCentroRepository.deleteByUsuarioId(id);
         usuarioRepository.deleteById(id);
+        notificacionesNoLeidasService.olvidar(id);
         return usuario;
     }
 
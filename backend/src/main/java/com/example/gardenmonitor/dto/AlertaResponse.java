@@ -0,0 +1,53 @@
+package com.example.gardenmonitor.dto;
+
+import com.example.gardenmonitor.model.EstadoAlerta;
+import com.example.gardenmonitor.model.TipoAlerta;
+
+import java.time.LocalDateTime;
+
+/**
+ * Vista plana de una alerta para la búsqueda paginada {@code GET /api/alertas/buscar}.
+ * <p>
+ * Igual que {@link LecturaResponse}: la entidad {@code Alerta} se serializa con su
+ * {@code DispositivoEsp32} completo (y este con su centro), que hay que cargar para cada
+ * fila. Aquí el dispositivo es solo su id y la consulta no hace JOIN con otras tablas.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+public class AlertaResponse {
+
+    private final Long id;
+    private final Long dispositivoId;
+    private final TipoAlerta tipoAlerta;
+    private final LocalDateTime timestamp;
+    private final String mensaje;
+    private final EstadoAlerta estado;
+    private final LocalDateTime fechaResolucion;
+
+    public AlertaResponse(Long id, Long dispositivoId, TipoAlerta tipoAlerta, LocalDateTime timestamp,
+                          String mensaje, EstadoAlerta estado, LocalDateTime fechaResolucion) {
+        this.id = id;
+        this.dispositivoId = dispositivoId;
+        this.tipoAlerta = tipoAlerta;
+        this.timestamp = timestamp;
+        this.mensaje = mensaje;
+        this.estado = estado;
+        this.fechaResolucion = fechaResolucion;
+    }
+
+    public Long getId() { return id; }
+
+    public Long getDispositivoId() { return dispositivoId; }
+
+    public TipoAlerta getTipoAlerta() { return tipoAlerta; }
+
+    public LocalDateTime getTimestamp() { return timestamp; }
+
+    public String getMensaje() { return mensaje; }
+
+    public EstadoAlerta getEstado() { return estado; }
+
+    public LocalDateTime getFechaResolucion() { return fechaResolucion; }
+}
@@ -0,0 +1,48 @@
+package com.example.gardenmonitor.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO con una lectura marcada como anómala por {@code AnomaliasService}.
+ * <p>
+ * Expuesto en {@code GET /api/lecturas/anomalias}. Indica el sensor, el valor recibido
+ * y la media y desviación típica que se esperaban para el dispositivo en ese momento.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+public class AnomaliaLectura {
+
+    private Long dispositivoId;
+    private Long lecturaId;
+    private LocalDateTime timestamp;
+    private String canal;
+    private double valor;
+    private double media;
+    private double desviacion;
+    private double puntuacionZ;
+
+    public AnomaliaLectura() {}
+
+    public AnomaliaLectura(Long dispositivoId, Long lecturaId, LocalDateTime timestamp, String canal,
+                           double valor, double media, double desviacion, double puntuacionZ) {
+        this.dispositivoId = dispositivoId;
+        this.lecturaId = lecturaId;
+        this.timestamp = timestamp;
+        this.canal = canal;
+        this.valor = valor;
+        this.media = media;
+        this.desviacion = desviacion;
+        this.puntuacionZ = puntuacionZ;
+    }
+
+    public Long getDispositivoId() { return dispositivoId; }
+    public Long getLecturaId() { return lecturaId; }
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public String getCanal() { return canal; }
+    public double getValor() { return valor; }
+    public double getMedia() { return media; }
+    public double getDesviacion() { return desviacion; }
+    public double getPuntuacionZ() { return puntuacionZ; }
+}
@@ -0,0 +1,74 @@
+package com.example.gardenmonitor.dto;
+
+import com.example.gardenmonitor.model.DispositivoEsp32;
+
+import java.math.BigDecimal;
+
+/**
+ * Vista inmutable y plana de un dispositivo ESP32 para la ruta de ingesta.
+ * <p>
+ * Contiene solo lo que necesita el procesamiento de una lectura (id, centro,
+ * estado, frecuencia y umbrales). Se carga con una consulta JPQL de constructor
+ * que no hace JOIN con {@code centro_educativo}, por lo que evita también la
+ * subconsulta {@code numDispositivos} del centro.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+public class DispositivoResumen {
+
+    private final Long id;
+    private final String macAddress;
+    private final Long centroId;
+    private final boolean activo;
+    private final int frecuenciaLecturaSeg;
+    private final BigDecimal umbralTempMin;
+    private final BigDecimal umbralTempMax;
+    private final BigDecimal umbralHumedadAmbienteMin;
+    private final BigDecimal umbralHumedadAmbienteMax;
+    private final BigDecimal umbralHumedadSueloMin;
+    private final BigDecimal umbralCO2Max;
+
+    public DispositivoResumen(Long id, String macAddress, Long centroId, boolean activo,
+                              int frecuenciaLecturaSeg, BigDecimal umbralTempMin, BigDecimal umbralTempMax,
+                              BigDecimal umbralHumedadAmbienteMin, BigDecimal umbralHumedadAmbienteMax,
+                              BigDecimal umbralHumedadSueloMin, BigDecimal umbralCO2Max) {
+        this.id = id;
+        this.macAddress = macAddress;
+        this.centroId = centroId;
+        this.activo = activo;
+        this.frecuenciaLecturaSeg = frecuenciaLecturaSeg;
+        this.umbralTempMin = umbralTempMin;
+        this.umbralTempMax = umbralTempMax;
+        this.umbralHumedadAmbienteMin = umbralHumedadAmbienteMin;
+        this.umbralHumedadAmbienteMax = umbralHumedadAmbienteMax;
+        this.umbralHumedadSueloMin = umbralHumedadSueloMin;
+        this.umbralCO2Max = umbralCO2Max;
+    }
+
+    public Long getId() { return id; }
+    public String getMacAddress() { return macAddress; }
+    public Long getCentroId() { return centroId; }
+    public boolean isActivo() { return activo; }
+    public int getFrecuenciaLecturaSeg() { return frecuenciaLecturaSeg; }
+    public BigDecimal getUmbralTempMin() { return umbralTempMin; }
+    public BigDecimal getUmbralTempMax() { return umbralTempMax; }
+    public BigDecimal getUmbralHumedadAmbienteMin() { return umbralHumedadAmbienteMin; }
+    public BigDecimal getUmbralHumedadAmbienteMax() { return umbralHumedadAmbienteMax; }
+    public BigDecimal getUmbralHumedadSueloMin() { return umbralHumedadSueloMin; }
+    public BigDecimal getUmbralCO2Max() { return umbralCO2Max; }
+
+    /**
+     * Crea una referencia ligera al dispositivo (solo id y MAC) para asociarla
+     * a una lectura sin cargar la entidad completa desde la BD.
+     *
+     * @return entidad no gestionada con id y MAC
+     */
+    public DispositivoEsp32 comoReferencia() {
+        DispositivoEsp32 referencia = new DispositivoEsp32();
+        referencia.setId(id);
+        referencia.setMacAddress(macAddress);
+        return referencia;
+    }
+}
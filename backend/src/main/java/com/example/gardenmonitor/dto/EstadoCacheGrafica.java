@@ -0,0 +1,46 @@
+package com.example.gardenmonitor.dto;
+
+/**
+ * DTO con las métricas de la caché de gráficas.
+ * <p>
+ * Expuesto en {@code GET /api/lecturas/grafica/cache} para vigilar la tasa de aciertos
+ * y la memoria usada por {@code GraficaCacheService}.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+public class EstadoCacheGrafica {
+
+    private int entradas;
+    private long bytesEstimados;
+    private long bytesMaximos;
+    private long aciertos;
+    private long fallos;
+    private long obsoletas;
+    private long expulsadas;
+    private double tasaAciertos;
+
+    public EstadoCacheGrafica() {}
+
+    public EstadoCacheGrafica(int entradas, long bytesEstimados, long bytesMaximos, long aciertos,
+                              long fallos, long obsoletas, long expulsadas) {
+        this.entradas = entradas;
+        this.bytesEstimados = bytesEstimados;
+        this.bytesMaximos = bytesMaximos;
+        this.aciertos = aciertos;
+        this.fallos = fallos;
+        this.obsoletas = obsoletas;
+        this.expulsadas = expulsadas;
+        this.tasaAciertos = aciertos + fallos > 0 ? (double) aciertos / (aciertos + fallos) : 0;
+    }
+
+    public int getEntradas() { return entradas; }
+    public long getBytesEstimados() { return bytesEstimados; }
+    public long getBytesMaximos() { return bytesMaximos; }
+    public long getAciertos() { return aciertos; }
+    public long getFallos() { return fallos; }
+    public long getObsoletas() { return obsoletas; }
+    public long getExpulsadas() { return expulsadas; }
+    public double getTasaAciertos() { return tasaAciertos; }
+}
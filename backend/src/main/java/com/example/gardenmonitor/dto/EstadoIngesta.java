@@ -0,0 +1,57 @@
+package com.example.gardenmonitor.dto;
+
+/**
+ * DTO con las métricas del pipeline de ingesta de lecturas.
+ * <p>
+ * Expuesto en {@code GET /api/lecturas/ingesta/estado} para vigilar
+ * la profundidad de la cola y la latencia de los volcados a la BD.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+public class EstadoIngesta {
+
+    private int profundidadCola;
+    private int capacidadCola;
+    private long lecturasEncoladas;
+    private long lecturasRechazadas;
+    private long lecturasGuardadas;
+    private long lecturasDescartadas;
+    private long lotesVolcados;
+    private int tamanoUltimoLote;
+    private long ultimoVolcadoMs;
+    private long mediaVolcadoMs;
+    private long maxVolcadoMs;
+
+    public EstadoIngesta() {}
+
+    public EstadoIngesta(int profundidadCola, int capacidadCola, long lecturasEncoladas,
+                         long lecturasRechazadas, long lecturasGuardadas, long lecturasDescartadas,
+                         long lotesVolcados, int tamanoUltimoLote, long ultimoVolcadoMs,
+                         long mediaVolcadoMs, long maxVolcadoMs) {
+        this.profundidadCola = profundidadCola;
+        this.capacidadCola = capacidadCola;
+        this.lecturasEncoladas = lecturasEncoladas;
+        this.lecturasRechazadas = lecturasRechazadas;
+        this.lecturasGuardadas = lecturasGuardadas;
+        this.lecturasDescartadas = lecturasDescartadas;
+        this.lotesVolcados = lotesVolcados;
+        this.tamanoUltimoLote = tamanoUltimoLote;
+        this.ultimoVolcadoMs = ultimoVolcadoMs;
+        this.mediaVolcadoMs = mediaVolcadoMs;
+        this.maxVolcadoMs = maxVolcadoMs;
+    }
+
+    public int getProfundidadCola() { return profundidadCola; }
+    public int getCapacidadCola() { return capacidadCola; }
+    public long getLecturasEncoladas() { return lecturasEncoladas; }
+    public long getLecturasRechazadas() { return lecturasRechazadas; }
+    public long getLecturasGuardadas() { return lecturasGuardadas; }
+    public long getLecturasDescartadas() { return lecturasDescartadas; }
+    public long getLotesVolcados() { return lotesVolcados; }
+    public int getTamanoUltimoLote() { return tamanoUltimoLote; }
+    public long getUltimoVolcadoMs() { return ultimoVolcadoMs; }
+    public long getMediaVolcadoMs() { return mediaVolcadoMs; }
+    public long getMaxVolcadoMs() { return maxVolcadoMs; }
+}
@@ -0,0 +1,45 @@
+package com.example.gardenmonitor.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Proyección de un punto de gráfica calculado a partir de las tablas agregadas
+ * ({@code lectura_hora} / {@code lectura_dia}).
+ * <p>
+ * Mantiene la forma de {@link LecturaMuestraProjection}: los getters heredados
+ * devuelven la MEDIA de cada sensor en el intervalo, {@code getTimestamp()} el inicio
+ * del intervalo y {@code getId()} es siempre null (no corresponde a una lectura concreta).
+ * Añade el mínimo y el máximo de cada sensor para no perder picos y valles,
+ * y el número de lecturas agregadas.
+ * </p>
+ *
+ * Los nombres de los getters mapean con los alias entre comillas de la query nativa.
+ */
+public interface LecturaAgregadaProjection extends LecturaMuestraProjection {
+
+    Long getNumLecturas();
+
+    BigDecimal getTemperaturaMin();
+
+    BigDecimal getTemperaturaMax();
+
+    BigDecimal getHumedadAmbienteMin();
+
+    BigDecimal getHumedadAmbienteMax();
+
+    BigDecimal getHumedadSueloMin();
+
+    BigDecimal getHumedadSueloMax();
+
+    BigDecimal getCo2Min();
+
+    BigDecimal getCo2Max();
+
+    BigDecimal getLuz1Min();
+
+    BigDecimal getLuz1Max();
+
+    BigDecimal getLuz2Min();
+
+    BigDecimal getLuz2Max();
+}
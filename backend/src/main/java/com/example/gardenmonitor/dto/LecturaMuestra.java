@@ -0,0 +1,63 @@
+package com.example.gardenmonitor.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Lectura real seleccionada por un algoritmo de muestreo en Java (LTTB o M4).
+ * <p>
+ * Implementa {@link LecturaMuestraProjection} para que la gráfica devuelva la misma
+ * forma de JSON tanto si los puntos salen de la query de stride sampling como si
+ * salen de {@code MuestreoService}.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+public class LecturaMuestra implements LecturaMuestraProjection {
+
+    private final Long id;
+    private final LocalDateTime timestamp;
+    private final BigDecimal temperatura;
+    private final BigDecimal humedadAmbiente;
+    private final BigDecimal humedadSuelo;
+    private final BigDecimal co2;
+    private final BigDecimal luz1;
+    private final BigDecimal luz2;
+
+    public LecturaMuestra(Long id, LocalDateTime timestamp, BigDecimal temperatura, BigDecimal humedadAmbiente,
+                          BigDecimal humedadSuelo, BigDecimal co2, BigDecimal luz1, BigDecimal luz2) {
+        this.id = id;
+        this.timestamp = timestamp;
+        this.temperatura = temperatura;
+        this.humedadAmbiente = humedadAmbiente;
+        this.humedadSuelo = humedadSuelo;
+        this.co2 = co2;
+        this.luz1 = luz1;
+        this.luz2 = luz2;
+    }
+
+    @Override
+    public Long getId() { return id; }
+
+    @Override
+    public LocalDateTime getTimestamp() { return timestamp; }
+
+    @Override
+    public BigDecimal getTemperatura() { return temperatura; }
+
+    @Override
+    public BigDecimal getHumedadAmbiente() { return humedadAmbiente; }
+
+    @Override
+    public BigDecimal getHumedadSuelo() { return humedadSuelo; }
+
+    @Override
+    public BigDecimal getCo2() { return co2; }
+
+    @Override
+    public BigDecimal getLuz1() { return luz1; }
+
+    @Override
+    public BigDecimal getLuz2() { return luz2; }
+}
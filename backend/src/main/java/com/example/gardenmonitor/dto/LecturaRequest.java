@@ -5,6 +5,7 @@ import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 /**
  * DTO que representa la petición de lectura enviada por un dispositivo ESP32.
@@ -12,6 +13,15 @@ import java.math.BigDecimal;
  * El ESP32 se identifica mediante su MAC address. El backend resuelve
  * el dispositivo y el árbol asociado a partir de ella.
  * </p>
+ * <p>
+ * El campo {@code timestamp} es opcional: el ESP32 lo envía en los lotes
+ * ({@code POST /api/lecturas/batch}) para conservar el momento real de cada medición.
+ * Si no se indica, el backend asigna la hora de recepción. Si se indica, debe estar entre
+ * {@code lecturas.ingesta.antiguedad-max-dias} días atrás y {@code lecturas.ingesta.adelanto-max-seg}
+ * segundos en el futuro respecto a la hora del servidor; si no, se rechaza el lote (400).
+ * El endpoint de una sola lectura ({@code POST /api/lecturas}) ignora el campo y usa siempre
+ * la hora de recepción.
+ * </p>
  *
  * @author Richard Ortiz y Enrique Pérez
  * @version 1.0
@@ -23,6 +33,8 @@ public class LecturaRequest {
             message = "MAC address debe tener formato XX:XX:XX:XX:XX:XX")
     private String macAddress;
 
+    private LocalDateTime timestamp;
+
     @NotNull
     @DecimalMin(value = "-50.00")
     @DecimalMax(value = "80.00")
@@ -53,6 +65,7 @@ public class LecturaRequest {
     public LecturaRequest() {}
 
     public String getMacAddress() { return macAddress; }
+    public LocalDateTime getTimestamp() { return timestamp; }
     public BigDecimal getTemperatura() { return temperatura; }
     public BigDecimal getHumedadAmbiente() { return humedadAmbiente; }
     public BigDecimal getHumedadSuelo() { return humedadSuelo; }
@@ -61,6 +74,7 @@ public class LecturaRequest {
     public BigDecimal getLuz2() { return luz2; }
 
     public void setMacAddress(String macAddress) { this.macAddress = macAddress; }
+    public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
     public void setTemperatura(BigDecimal temperatura) { this.temperatura = temperatura; }
     public void setHumedadAmbiente(BigDecimal humedadAmbiente) { this.humedadAmbiente = humedadAmbiente; }
     public void setHumedadSuelo(BigDecimal humedadSuelo) { this.humedadSuelo = humedadSuelo; }
@@ -0,0 +1,73 @@
+package com.example.gardenmonitor.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Vista plana de una lectura para las respuestas de {@code GET /api/lecturas/...}.
+ * <p>
+ * Serializar la entidad {@code Lectura} incluía en cada fila el {@code DispositivoEsp32}
+ * completo (umbrales, última conexión) y su {@code CentroEducativo} con la subconsulta
+ * {@code numDispositivos}, y obligaba a cargarlos. Aquí el dispositivo es solo su id, y
+ * las consultas que construyen este DTO no hacen JOIN con ninguna otra tabla.
+ * </p>
+ * <p>
+ * Implementa {@link LecturaMuestraProjection} para compartir con la gráfica la
+ * codificación binaria de series ({@code SerieBinariaHttpMessageConverter}).
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+public class LecturaResponse implements LecturaMuestraProjection {
+
+    private final Long id;
+    private final LocalDateTime timestamp;
+    private final Long dispositivoId;
+    private final BigDecimal temperatura;
+    private final BigDecimal humedadAmbiente;
+    private final BigDecimal humedadSuelo;
+    private final BigDecimal co2;
+    private final BigDecimal luz1;
+    private final BigDecimal luz2;
+
+    public LecturaResponse(Long id, LocalDateTime timestamp, Long dispositivoId, BigDecimal temperatura,
+                           BigDecimal humedadAmbiente, BigDecimal humedadSuelo, BigDecimal co2,
+                           BigDecimal luz1, BigDecimal luz2) {
+        this.id = id;
+        this.timestamp = timestamp;
+        this.dispositivoId = dispositivoId;
+        this.temperatura = temperatura;
+        this.humedadAmbiente = humedadAmbiente;
+        this.humedadSuelo = humedadSuelo;
+        this.co2 = co2;
+        this.luz1 = luz1;
+        this.luz2 = luz2;
+    }
+
+    @Override
+    public Long getId() { return id; }
+
+    @Override
+    public LocalDateTime getTimestamp() { return timestamp; }
+
+    public Long getDispositivoId() { return dispositivoId; }
+
+    @Override
+    public BigDecimal getTemperatura() { return temperatura; }
+
+    @Override
+    public BigDecimal getHumedadAmbiente() { return humedadAmbiente; }
+
+    @Override
+    public BigDecimal getHumedadSuelo() { return humedadSuelo; }
+
+    @Override
+    public BigDecimal getCo2() { return co2; }
+
+    @Override
+    public BigDecimal getLuz1() { return luz1; }
+
+    @Override
+    public BigDecimal getLuz2() { return luz2; }
+}
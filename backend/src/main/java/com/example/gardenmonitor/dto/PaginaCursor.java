@@ -0,0 +1,41 @@
+package com.example.gardenmonitor.dto;
+
+import java.util.List;
+
+/**
+ * Página de resultados con paginación keyset (por cursor).
+ * <p>
+ * A diferencia de {@code Page}, no incluye número de página ni total exacto: la
+ * página siguiente se pide con {@code siguienteCursor}, que es opaco para el cliente
+ * y vale {@code null} en la última página. {@code totalAproximado} solo se calcula
+ * si se pide, y sale de los agregados, no de un {@code COUNT(*)}.
+ * </p>
+ *
+ * @param <T> tipo de los elementos
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+public class PaginaCursor<T> {
+
+    private final List<T> contenido;
+    private final String siguienteCursor;
+    private final Long totalAproximado;
+
+    public PaginaCursor(List<T> contenido, String siguienteCursor, Long totalAproximado) {
+        this.contenido = contenido;
+        this.siguienteCursor = siguienteCursor;
+        this.totalAproximado = totalAproximado;
+    }
+
+    public List<T> getContenido() {
+        return contenido;
+    }
+
+    public String getSiguienteCursor() {
+        return siguienteCursor;
+    }
+
+    public Long getTotalAproximado() {
+        return totalAproximado;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.gardenmonitor.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -21,14 +22,16 @@ import java.time.LocalDateTime;
  */
 @Entity
 @Table(name = "alerta", indexes = {
-        @Index(name = "idx_alerta_dispositivo", columnList = "dispositivo_id"),
-        @Index(name = "idx_alerta_estado", columnList = "estado"),
-        @Index(name = "idx_alerta_timestamp", columnList = "timestamp")
+        @Index(name = "idx_alerta_dispositivo_timestamp_id", columnList = "dispositivo_id, timestamp DESC, id DESC"),
+        @Index(name = "idx_alerta_dispositivo_estado_timestamp_id", columnList = "dispositivo_id, estado, timestamp DESC, id DESC"),
+        @Index(name = "idx_alerta_estado_timestamp_id", columnList = "estado, timestamp DESC, id DESC"),
+        @Index(name = "idx_alerta_timestamp_id", columnList = "timestamp DESC, id DESC")
 })
 public class Alerta {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "alerta_seq")
+    @SequenceGenerator(name = "alerta_seq", sequenceName = "alerta_id_seq", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
@@ -38,8 +41,11 @@ public class Alerta {
      * Relación Many-to-One: un dispositivo puede generar múltiples alertas.
      * Si se elimina el dispositivo, se eliminan en cascada todas sus alertas.
      * Nullable para preservar alertas históricas sin dispositivo asignado.
+     * En el JSON de la alerta no va su última conexión, que cambia con cada lectura y
+     * haría cambiar el ETag de las alertas sin que cambien ellas.
      * </p>
      */
+    @JsonIgnoreProperties("ultimaConexion")
     @ManyToOne
     @JoinColumn(name = "dispositivo_id")
     @OnDelete(action = OnDeleteAction.CASCADE)
@@ -33,7 +33,8 @@ import jakarta.validation.constraints.Past;
 public class Arbol {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "arbol_seq")
+    @SequenceGenerator(name = "arbol_seq", sequenceName = "arbol_id_seq", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
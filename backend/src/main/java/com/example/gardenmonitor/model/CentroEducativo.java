@@ -30,7 +30,8 @@ import java.util.List;
 public class CentroEducativo {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "centro_educativo_seq")
+    @SequenceGenerator(name = "centro_educativo_seq", sequenceName = "centro_educativo_id_seq", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
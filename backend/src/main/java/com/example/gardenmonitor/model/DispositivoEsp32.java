@@ -30,7 +30,8 @@ import java.time.LocalDateTime;
 public class DispositivoEsp32 {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "dispositivo_esp32_seq")
+    @SequenceGenerator(name = "dispositivo_esp32_seq", sequenceName = "dispositivo_esp32_id_seq", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
@@ -65,7 +66,9 @@ public class DispositivoEsp32 {
      * Fecha y hora de la última conexión del dispositivo.
      * <p>
      * Se establece automáticamente al crear el dispositivo mediante @PrePersist.
-     * Se actualiza cada vez que el dispositivo envía datos al sistema.
+     * Se actualiza cada vez que el dispositivo envía datos al sistema: la ingesta
+     * la registra en memoria y se vuelca a la BD periódicamente en un único UPDATE
+     * (ver {@code UltimaConexionService}).
      * </p>
      */
     @Column(name = "ultima_conexion", columnDefinition = "TIMESTAMPTZ")
@@ -19,22 +19,29 @@ import jakarta.validation.constraints.NotNull;
  * </p>
  * <p>
  * La PK en la BD es compuesta (id, timestamp) por requisito de TimescaleDB,
- * pero JPA usa solo id como @Id ya que BIGSERIAL garantiza unicidad.
+ * pero JPA usa solo id como @Id ya que la secuencia garantiza unicidad.
  * Hibernate no soporta @GeneratedValue en PKs compuestas (@IdClass),
  * por lo que se mantiene el mapping simplificado.
  * </p>
+ * <p>
+ * Los ids salen de la secuencia {@code lectura_id_seq} con incremento 50
+ * (optimizador pooled de Hibernate): una llamada a {@code nextval} reserva 50 ids,
+ * lo que permite agrupar los INSERT en batches JDBC. Con IDENTITY Hibernate tenía
+ * que insertar fila a fila para conocer el id generado.
+ * </p>
  *
  * @author Richard Ortiz y Enrique Pérez
  * @version 1.0
  */
 @Entity
 @Table(name = "lectura", indexes = {
-        @Index(name = "idx_lectura_dispositivo_timestamp", columnList = "dispositivo_id, timestamp DESC")
+        @Index(name = "idx_lectura_dispositivo_timestamp_id", columnList = "dispositivo_id, timestamp DESC, id DESC")
 })
 public class Lectura {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "lectura_seq")
+    @SequenceGenerator(name = "lectura_seq", sequenceName = "lectura_id_seq", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
@@ -0,0 +1,141 @@
+package com.example.gardenmonitor.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import jakarta.persistence.*;
+
+/**
+ * Campos comunes de las tablas de lecturas agregadas ({@code lectura_hora} y {@code lectura_dia}).
+ * <p>
+ * Cada fila resume las lecturas de un dispositivo en un intervalo ({@code bucket}):
+ * número de lecturas y, por sensor, suma, mínimo y máximo. Se guarda la suma en lugar
+ * de la media para poder acumular lecturas nuevas con un simple UPSERT
+ * (ver {@code LecturaAgregadaJdbcRepository}); la media es {@code suma / num}.
+ * Los sensores opcionales llevan su propio contador porque pueden faltar en algunas lecturas.
+ * </p>
+ * <p>
+ * Las filas solo se escriben desde SQL; la entidad sirve para que Hibernate cree las tablas
+ * y para las consultas de las gráficas.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@MappedSuperclass
+public abstract class LecturaAgregada {
+
+    @Id
+    @Column(name = "dispositivo_id")
+    private Long dispositivoId;
+
+    /**
+     * Inicio del intervalo agregado (hora o día truncado).
+     */
+    @Id
+    @Column(name = "bucket", nullable = false, columnDefinition = "TIMESTAMPTZ")
+    private LocalDateTime bucket;
+
+    /**
+     * Dispositivo al que pertenece el agregado. Solo se mapea para generar la FK
+     * con borrado en cascada; el valor se escribe a través de {@code dispositivoId}.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "dispositivo_id", insertable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private DispositivoEsp32 dispositivo;
+
+    @Column(name = "num_lecturas", nullable = false)
+    private int numLecturas;
+
+    @Column(name = "temperatura_suma", nullable = false, precision = 14, scale = 2)
+    private BigDecimal temperaturaSuma;
+
+    @Column(name = "temperatura_min", precision = 7, scale = 2)
+    private BigDecimal temperaturaMin;
+
+    @Column(name = "temperatura_max", precision = 7, scale = 2)
+    private BigDecimal temperaturaMax;
+
+    @Column(name = "humedad_ambiente_suma", nullable = false, precision = 14, scale = 2)
+    private BigDecimal humedadAmbienteSuma;
+
+    @Column(name = "humedad_ambiente_min", precision = 7, scale = 2)
+    private BigDecimal humedadAmbienteMin;
+
+    @Column(name = "humedad_ambiente_max", precision = 7, scale = 2)
+    private BigDecimal humedadAmbienteMax;
+
+    @Column(name = "humedad_suelo_suma", nullable = false, precision = 14, scale = 2)
+    private BigDecimal humedadSueloSuma;
+
+    @Column(name = "humedad_suelo_min", precision = 7, scale = 2)
+    private BigDecimal humedadSueloMin;
+
+    @Column(name = "humedad_suelo_max", precision = 7, scale = 2)
+    private BigDecimal humedadSueloMax;
+
+    @Column(name = "co2_num", nullable = false)
+    private int co2Num;
+
+    @Column(name = "co2_suma", nullable = false, precision = 14, scale = 2)
+    private BigDecimal co2Suma;
+
+    @Column(name = "co2_min", precision = 9, scale = 2)
+    private BigDecimal co2Min;
+
+    @Column(name = "co2_max", precision = 9, scale = 2)
+    private BigDecimal co2Max;
+
+    @Column(name = "luz1_num", nullable = false)
+    private int luz1Num;
+
+    @Column(name = "luz1_suma", nullable = false, precision = 14, scale = 2)
+    private BigDecimal luz1Suma;
+
+    @Column(name = "luz1_min", precision = 7, scale = 2)
+    private BigDecimal luz1Min;
+
+    @Column(name = "luz1_max", precision = 7, scale = 2)
+    private BigDecimal luz1Max;
+
+    @Column(name = "luz2_num", nullable = false)
+    private int luz2Num;
+
+    @Column(name = "luz2_suma", nullable = false, precision = 14, scale = 2)
+    private BigDecimal luz2Suma;
+
+    @Column(name = "luz2_min", precision = 7, scale = 2)
+    private BigDecimal luz2Min;
+
+    @Column(name = "luz2_max", precision = 7, scale = 2)
+    private BigDecimal luz2Max;
+
+    public Long getDispositivoId() { return dispositivoId; }
+    public LocalDateTime getBucket() { return bucket; }
+    public int getNumLecturas() { return numLecturas; }
+    public BigDecimal getTemperaturaSuma() { return temperaturaSuma; }
+    public BigDecimal getTemperaturaMin() { return temperaturaMin; }
+    public BigDecimal getTemperaturaMax() { return temperaturaMax; }
+    public BigDecimal getHumedadAmbienteSuma() { return humedadAmbienteSuma; }
+    public BigDecimal getHumedadAmbienteMin() { return humedadAmbienteMin; }
+    public BigDecimal getHumedadAmbienteMax() { return humedadAmbienteMax; }
+    public BigDecimal getHumedadSueloSuma() { return humedadSueloSuma; }
+    public BigDecimal getHumedadSueloMin() { return humedadSueloMin; }
+    public BigDecimal getHumedadSueloMax() { return humedadSueloMax; }
+    public int getCo2Num() { return co2Num; }
+    public BigDecimal getCo2Suma() { return co2Suma; }
+    public BigDecimal getCo2Min() { return co2Min; }
+    public BigDecimal getCo2Max() { return co2Max; }
+    public int getLuz1Num() { return luz1Num; }
+    public BigDecimal getLuz1Suma() { return luz1Suma; }
+    public BigDecimal getLuz1Min() { return luz1Min; }
+    public BigDecimal getLuz1Max() { return luz1Max; }
+    public int getLuz2Num() { return luz2Num; }
+    public BigDecimal getLuz2Suma() { return luz2Suma; }
+    public BigDecimal getLuz2Min() { return luz2Min; }
+    public BigDecimal getLuz2Max() { return luz2Max; }
+}
@@ -0,0 +1,42 @@
+package com.example.gardenmonitor.model;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Clave compuesta (dispositivo, intervalo) de {@link LecturaHora} y {@link LecturaDia}.
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+public class LecturaAgregadaId implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long dispositivoId;
+    private LocalDateTime bucket;
+
+    public LecturaAgregadaId() {}
+
+    public LecturaAgregadaId(Long dispositivoId, LocalDateTime bucket) {
+        this.dispositivoId = dispositivoId;
+        this.bucket = bucket;
+    }
+
+    public Long getDispositivoId() { return dispositivoId; }
+    public LocalDateTime getBucket() { return bucket; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LecturaAgregadaId)) return false;
+        LecturaAgregadaId otro = (LecturaAgregadaId) o;
+        return Objects.equals(dispositivoId, otro.dispositivoId) && Objects.equals(bucket, otro.bucket);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(dispositivoId, bucket);
+    }
+}
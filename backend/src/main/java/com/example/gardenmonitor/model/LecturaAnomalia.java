@@ -0,0 +1,84 @@
+package com.example.gardenmonitor.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lectura marcada como anómala por la ingesta (tabla {@code lectura_anomalia}).
+ * <p>
+ * Una fila por lectura y sensor anómalo, con el valor recibido y la media y desviación
+ * que se esperaban. La escribe {@code AnomaliasService} después de guardar cada lote,
+ * así que la marca sobrevive a un reinicio y se puede cruzar con {@code lectura} por
+ * {@code lectura_id} para descartar o revisar los picos.
+ * </p>
+ * <p>
+ * Las filas solo se escriben desde SQL; la entidad sirve para que Hibernate cree la tabla.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Entity
+@Table(name = "lectura_anomalia", indexes = {
+        @Index(name = "idx_lectura_anomalia_dispositivo_id", columnList = "dispositivo_id, id DESC"),
+        @Index(name = "idx_lectura_anomalia_lectura", columnList = "lectura_id")
+})
+public class LecturaAnomalia {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "lectura_anomalia_seq")
+    @SequenceGenerator(name = "lectura_anomalia_seq", sequenceName = "lectura_anomalia_id_seq", allocationSize = 50)
+    @Column(name = "id")
+    private Long id;
+
+    /**
+     * Dispositivo de la lectura. Si se elimina, se eliminan en cascada sus anomalías.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "dispositivo_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private DispositivoEsp32 dispositivo;
+
+    /**
+     * Id de la lectura en {@code lectura} (sin FK: la PK de {@code lectura} es compuesta
+     * y la retención puede borrar la lectura sin borrar su anomalía).
+     */
+    @Column(name = "lectura_id", nullable = false)
+    private Long lecturaId;
+
+    @Column(name = "timestamp", nullable = false, columnDefinition = "TIMESTAMPTZ")
+    private LocalDateTime timestamp;
+
+    /** Sensor anómalo, con los nombres de {@code MuestreoService.Canal}. */
+    @Column(name = "canal", nullable = false, length = 20)
+    private String canal;
+
+    @Column(name = "valor", nullable = false)
+    private double valor;
+
+    @Column(name = "media", nullable = false)
+    private double media;
+
+    @Column(name = "desviacion", nullable = false)
+    private double desviacion;
+
+    @Column(name = "puntuacion_z", nullable = false)
+    private double puntuacionZ;
+
+    /**
+     * Constructor vacío requerido por JPA.
+     */
+    public LecturaAnomalia() {}
+
+    public Long getId() { return id; }
+    public Long getLecturaId() { return lecturaId; }
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public String getCanal() { return canal; }
+    public double getValor() { return valor; }
+    public double getMedia() { return media; }
+    public double getDesviacion() { return desviacion; }
+    public double getPuntuacionZ() { return puntuacionZ; }
+}
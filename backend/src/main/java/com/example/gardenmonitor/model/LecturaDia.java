@@ -0,0 +1,25 @@
+package com.example.gardenmonitor.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+/**
+ * Lecturas de un dispositivo agregadas por día (tabla {@code lectura_dia}).
+ * <p>
+ * Se actualiza de forma incremental en cada volcado de la ingesta de lecturas.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Entity
+@Table(name = "lectura_dia")
+@IdClass(LecturaAgregadaId.class)
+public class LecturaDia extends LecturaAgregada {
+
+    /**
+     * Constructor vacío requerido por JPA.
+     */
+    public LecturaDia() {}
+}
@@ -0,0 +1,25 @@
+package com.example.gardenmonitor.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+/**
+ * Lecturas de un dispositivo agregadas por hora (tabla {@code lectura_hora}).
+ * <p>
+ * Se actualiza de forma incremental en cada volcado de la ingesta de lecturas.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Entity
+@Table(name = "lectura_hora")
+@IdClass(LecturaAgregadaId.class)
+public class LecturaHora extends LecturaAgregada {
+
+    /**
+     * Constructor vacío requerido por JPA.
+     */
+    public LecturaHora() {}
+}
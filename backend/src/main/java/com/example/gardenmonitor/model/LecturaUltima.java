@@ -0,0 +1,85 @@
+package com.example.gardenmonitor.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import jakarta.persistence.*;
+
+/**
+ * Última lectura de cada dispositivo (tabla {@code lectura_ultima}).
+ * <p>
+ * Una fila por dispositivo con una copia de su lectura más reciente. La ingesta la
+ * mantiene al día con un UPSERT en la misma transacción que inserta las lecturas
+ * (ver {@code LecturaUltimaJdbcRepository}), de modo que las condiciones actuales de
+ * todos los dispositivos de un centro se obtienen con una sola consulta por clave
+ * primaria, sin recorrer {@code lectura}.
+ * </p>
+ * <p>
+ * Las filas solo se escriben desde SQL; la entidad sirve para que Hibernate cree la tabla.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Entity
+@Table(name = "lectura_ultima")
+public class LecturaUltima {
+
+    @Id
+    @Column(name = "dispositivo_id")
+    private Long dispositivoId;
+
+    /**
+     * Dispositivo de la lectura. Solo se mapea para generar la FK con borrado en
+     * cascada; el valor se escribe a través de {@code dispositivoId}.
+     */
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "dispositivo_id", insertable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private DispositivoEsp32 dispositivo;
+
+    /**
+     * Id de la lectura en {@code lectura} (sin FK: la PK de {@code lectura} es compuesta).
+     */
+    @Column(name = "lectura_id", nullable = false)
+    private Long lecturaId;
+
+    @Column(name = "timestamp", nullable = false, columnDefinition = "TIMESTAMPTZ")
+    private LocalDateTime timestamp;
+
+    @Column(name = "temperatura", nullable = false, precision = 5, scale = 2)
+    private BigDecimal temperatura;
+
+    @Column(name = "humedad_ambiente", nullable = false, precision = 5, scale = 2)
+    private BigDecimal humedadAmbiente;
+
+    @Column(name = "humedad_suelo", nullable = false, precision = 5, scale = 2)
+    private BigDecimal humedadSuelo;
+
+    @Column(name = "co2", precision = 7, scale = 2)
+    private BigDecimal co2;
+
+    @Column(name = "luz1", precision = 5, scale = 2)
+    private BigDecimal luz1;
+
+    @Column(name = "luz2", precision = 5, scale = 2)
+    private BigDecimal luz2;
+
+    /**
+     * Constructor vacío requerido por JPA.
+     */
+    public LecturaUltima() {}
+
+    public Long getDispositivoId() { return dispositivoId; }
+    public Long getLecturaId() { return lecturaId; }
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public BigDecimal getTemperatura() { return temperatura; }
+    public BigDecimal getHumedadAmbiente() { return humedadAmbiente; }
+    public BigDecimal getHumedadSuelo() { return humedadSuelo; }
+    public BigDecimal getCo2() { return co2; }
+    public BigDecimal getLuz1() { return luz1; }
+    public BigDecimal getLuz2() { return luz2; }
+}
@@ -19,14 +19,17 @@ import java.time.LocalDateTime;
  * @version 1.0
  */
 @Entity
-@Table(name = "notificacion", indexes = {
+@Table(name = "notificacion", uniqueConstraints = {
+        @UniqueConstraint(name = "uq_notificacion_usuario_alerta", columnNames = {"usuario_id", "alerta_id"})
+}, indexes = {
         @Index(name = "idx_notificacion_usuario_leida", columnList = "usuario_id, leida"),
         @Index(name = "idx_notificacion_fecha", columnList = "fecha_envio")
 })
 public class Notificacion {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notificacion_seq")
+    @SequenceGenerator(name = "notificacion_seq", sequenceName = "notificacion_id_seq", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
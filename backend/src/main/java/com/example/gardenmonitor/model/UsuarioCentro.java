@@ -25,7 +25,8 @@ import java.time.LocalDateTime;
 public class UsuarioCentro {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "usuario_centro_seq")
+    @SequenceGenerator(name = "usuario_centro_seq", sequenceName = "usuario_centro_id_seq", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
@@ -0,0 +1,181 @@
+package com.example.gardenmonitor.repository;
+
+import com.example.gardenmonitor.dto.AlertaResponse;
+import com.example.gardenmonitor.model.EstadoAlerta;
+import com.example.gardenmonitor.model.TipoAlerta;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Repositorio JDBC para las alertas que genera el sistema automáticamente.
+ * <p>
+ * Lo usa el hilo de volcado de la ingesta: cada alta o resolución es una sola
+ * sentencia, sin cargar la entidad {@code Alerta} ni su dispositivo. El id se toma de
+ * {@code alerta_id_seq}, la misma secuencia que usa la entidad (ver
+ * {@link LecturaJdbcRepository} para el mismo caso con las lecturas).
+ * </p>
+ * <p>
+ * También sirve la búsqueda paginada de alertas ({@link #buscarPagina}), que devuelve
+ * {@link AlertaResponse} sin cargar entidades.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Repository
+public class AlertaJdbcRepository {
+
+    /**
+     * Alerta activa de un dispositivo.
+     *
+     * @param id            identificador de la alerta
+     * @param dispositivoId identificador del dispositivo
+     * @param tipo          tipo de alerta
+     */
+    public record AlertaActiva(Long id, Long dispositivoId, TipoAlerta tipo) {}
+
+    /**
+     * Filtros de la búsqueda de alertas; los que son null no se aplican.
+     *
+     * @param centroId      centro del dispositivo de la alerta
+     * @param dispositivoId dispositivo de la alerta
+     * @param tipo          tipo de alerta
+     * @param estado        estado de la alerta
+     * @param desde         inicio del rango de timestamp (incluido)
+     * @param hasta         fin del rango de timestamp (incluido)
+     */
+    public record FiltroAlertas(Long centroId, Long dispositivoId, TipoAlerta tipo, EstadoAlerta estado,
+                                LocalDateTime desde, LocalDateTime hasta) {}
+
+    private static final String INSERTAR = """
+            INSERT INTO alerta (id, dispositivo_id, tipo_alerta, timestamp, mensaje, estado)
+            VALUES (nextval('alerta_id_seq'), ?, ?, ?, ?, 'ACTIVA')
+            RETURNING id
+            """;
+
+    private static final String RESOLVER = """
+            UPDATE alerta SET estado = 'RESUELTA', fecha_resolucion = ?
+            WHERE id = ? AND estado = 'ACTIVA'
+            """;
+
+    private static final String BUSCAR_ACTIVAS = """
+            SELECT id, dispositivo_id, tipo_alerta FROM alerta
+            WHERE estado = 'ACTIVA' AND dispositivo_id IS NOT NULL
+            ORDER BY id
+            """;
+
+    private static final String SELECT_RESPONSE = """
+            SELECT id, dispositivo_id, tipo_alerta, timestamp, mensaje, estado, fecha_resolucion
+            FROM alerta
+            WHERE true""";
+
+    private static final RowMapper<AlertaResponse> RESPONSE_MAPPER = (rs, i) -> {
+        Timestamp fechaResolucion = rs.getTimestamp(7);
+        return new AlertaResponse(
+                rs.getLong(1),
+                rs.getObject(2, Long.class),
+                TipoAlerta.valueOf(rs.getString(3)),
+                rs.getTimestamp(4).toLocalDateTime(),
+                rs.getString(5),
+                EstadoAlerta.valueOf(rs.getString(6)),
+                fechaResolucion != null ? fechaResolucion.toLocalDateTime() : null);
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Crea una alerta en estado ACTIVA.
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @param tipo          tipo de alerta
+     * @param mensaje       descripción de la alerta
+     * @param timestamp     momento de la lectura que la ha disparado
+     * @return id de la alerta creada
+     */
+    public Long insertar(Long dispositivoId, TipoAlerta tipo, String mensaje, LocalDateTime timestamp) {
+        return jdbcTemplate.queryForObject(INSERTAR, Long.class, dispositivoId, tipo.name(), timestamp, mensaje);
+    }
+
+    /**
+     * Marca una alerta como RESUELTA si sigue ACTIVA (no pisa una alerta ignorada a mano).
+     *
+     * @param alertaId        identificador de la alerta
+     * @param fechaResolucion momento de la resolución
+     * @return true si la alerta estaba activa y se ha resuelto
+     */
+    public boolean resolver(Long alertaId, LocalDateTime fechaResolucion) {
+        return jdbcTemplate.update(RESOLVER, fechaResolucion, alertaId) > 0;
+    }
+
+    /**
+     * @return alertas activas con dispositivo, de la más antigua a la más reciente
+     */
+    public List<AlertaActiva> buscarActivas() {
+        return jdbcTemplate.query(BUSCAR_ACTIVAS, (rs, i) -> new AlertaActiva(
+                rs.getLong(1), rs.getLong(2), TipoAlerta.valueOf(rs.getString(3))));
+    }
+
+    /**
+     * Página de alertas ordenadas por {@code (timestamp DESC, id DESC)}, empezando justo
+     * después de {@code (timestamp, id)} si se indica.
+     * <p>
+     * La página es un rango de {@code idx_alerta_dispositivo_timestamp_id} (solo dispositivo),
+     * {@code idx_alerta_dispositivo_estado_timestamp_id} (dispositivo y estado),
+     * {@code idx_alerta_estado_timestamp_id} (solo estado) o {@code idx_alerta_timestamp_id}
+     * (sin ellos); tipo y fechas se comprueban sobre ese rango. El filtro por centro abarca
+     * varios dispositivos y no es un rango: PostgreSQL recorre {@code idx_alerta_timestamp_id}
+     * descartando las de otros centros, u ordena las alertas de los dispositivos del centro,
+     * así que su coste crece con las alertas del centro.
+     * </p>
+     *
+     * @param filtro    filtros de la búsqueda
+     * @param timestamp timestamp de la última alerta de la página anterior, o null
+     * @param id        id de la última alerta de la página anterior (si hay timestamp)
+     * @param limite    número máximo de alertas
+     * @return alertas de la página
+     */
+    public List<AlertaResponse> buscarPagina(FiltroAlertas filtro, LocalDateTime timestamp, Long id, int limite) {
+        StringBuilder sql = new StringBuilder(SELECT_RESPONSE);
+        List<Object> parametros = new ArrayList<>();
+        if (filtro.centroId() != null) {
+            sql.append(" AND dispositivo_id IN (SELECT id FROM dispositivo_esp32 WHERE centro_id = ?)");
+            parametros.add(filtro.centroId());
+        }
+        if (filtro.dispositivoId() != null) {
+            sql.append(" AND dispositivo_id = ?");
+            parametros.add(filtro.dispositivoId());
+        }
+        if (filtro.estado() != null) {
+            sql.append(" AND estado = ?");
+            parametros.add(filtro.estado().name());
+        }
+        if (filtro.tipo() != null) {
+            sql.append(" AND tipo_alerta = ?");
+            parametros.add(filtro.tipo().name());
+        }
+        if (filtro.desde() != null) {
+            sql.append(" AND timestamp >= ?");
+            parametros.add(filtro.desde());
+        }
+        if (filtro.hasta() != null) {
+            sql.append(" AND timestamp <= ?");
+            parametros.add(filtro.hasta());
+        }
+        if (timestamp != null) {
+            sql.append(" AND (timestamp, id) < (?, ?)");
+            parametros.add(timestamp);
+            parametros.add(id);
+        }
+        sql.append(" ORDER BY timestamp DESC, id DESC LIMIT ?");
+        parametros.add(limite);
+        return jdbcTemplate.query(sql.toString(), RESPONSE_MAPPER, parametros.toArray());
+    }
+}
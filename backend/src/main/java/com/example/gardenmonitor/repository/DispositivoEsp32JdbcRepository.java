@@ -0,0 +1,81 @@
+package com.example.gardenmonitor.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repositorio JDBC para actualizaciones masivas sobre {@code dispositivo_esp32}.
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Repository
+public class DispositivoEsp32JdbcRepository {
+
+    /**
+     * Última conexión conocida de un dispositivo activo.
+     *
+     * @param id                   identificador del dispositivo
+     * @param ultimaConexion       última conexión guardada en la BD
+     * @param frecuenciaLecturaSeg segundos entre lecturas del dispositivo
+     */
+    public record ConexionDispositivo(Long id, LocalDateTime ultimaConexion, int frecuenciaLecturaSeg) {}
+
+    private static final String SELECT_CONEXIONES_ACTIVOS = """
+            SELECT id, ultima_conexion, frecuencia_lectura_seg FROM dispositivo_esp32
+            WHERE activo AND ultima_conexion IS NOT NULL
+            """;
+
+    /**
+     * Un único UPDATE para todos los dispositivos: los pares (id, última conexión)
+     * llegan como dos arrays y se cruzan con {@code unnest}. Solo avanza la fecha,
+     * nunca la retrocede.
+     */
+    private static final String UPDATE_ULTIMAS_CONEXIONES = """
+            UPDATE dispositivo_esp32 d
+            SET ultima_conexion = v.ultima_conexion
+            FROM unnest(?::bigint[], ?::timestamp[]) AS v(id, ultima_conexion)
+            WHERE d.id = v.id
+              AND (d.ultima_conexion IS NULL OR d.ultima_conexion < v.ultima_conexion)
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Actualiza la última conexión de varios dispositivos con una sola sentencia.
+     *
+     * @param ultimasConexiones mapa id de dispositivo → última conexión observada
+     * @return número de filas actualizadas
+     */
+    public int actualizarUltimasConexiones(Map<Long, LocalDateTime> ultimasConexiones) {
+        Long[] ids = new Long[ultimasConexiones.size()];
+        String[] fechas = new String[ultimasConexiones.size()];
+        int i = 0;
+        for (Map.Entry<Long, LocalDateTime> entrada : ultimasConexiones.entrySet()) {
+            ids[i] = entrada.getKey();
+            fechas[i] = entrada.getValue().toString();
+            i++;
+        }
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(UPDATE_ULTIMAS_CONEXIONES);
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            ps.setArray(2, con.createArrayOf("text", fechas));
+            return ps;
+        });
+    }
+
+    /**
+     * @return última conexión y frecuencia de los dispositivos activos que se han conectado alguna vez
+     */
+    public List<ConexionDispositivo> buscarConexionesActivos() {
+        return jdbcTemplate.query(SELECT_CONEXIONES_ACTIVOS, (rs, i) -> new ConexionDispositivo(
+                rs.getLong(1), rs.getTimestamp(2).toLocalDateTime(), rs.getInt(3)));
+    }
+}
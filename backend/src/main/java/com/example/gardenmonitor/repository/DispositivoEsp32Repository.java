@@ -1,18 +1,50 @@
 package com.example.gardenmonitor.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.example.gardenmonitor.dto.DispositivoResumen;
 import com.example.gardenmonitor.model.DispositivoEsp32;
 
 
 @Repository
 public interface DispositivoEsp32Repository extends JpaRepository<DispositivoEsp32, Long>{
+
+    String SELECT_RESUMEN = """
+            SELECT new com.example.gardenmonitor.dto.DispositivoResumen(
+                d.id, d.macAddress, d.centroEducativo.id, d.activo, d.frecuenciaLecturaSeg,
+                d.umbralTempMin, d.umbralTempMax, d.umbralHumedadAmbienteMin,
+                d.umbralHumedadAmbienteMax, d.umbralHumedadSueloMin, d.umbralCO2Max)
+            FROM DispositivoEsp32 d
+            """;
+
     Optional<DispositivoEsp32> findByMacAddress(String macAddress);
     boolean existsByMacAddress(String macAddress);
     List<DispositivoEsp32> findByActivo(boolean activo);
     List<DispositivoEsp32> findByCentroEducativo_Id(Long centroId);
+
+    @Query("SELECT d.id FROM DispositivoEsp32 d ORDER BY d.id")
+    List<Long> findAllIds();
+
+    @Query("SELECT d.id FROM DispositivoEsp32 d WHERE d.centroEducativo.id = :centroId ORDER BY d.id")
+    List<Long> findIdsByCentroEducativoId(@Param("centroId") Long centroId);
+
+    @Query("SELECT d.id FROM DispositivoEsp32 d WHERE d.id IN :ids")
+    List<Long> findIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Carga la vista de ingesta de un dispositivo sin hacer JOIN con el centro
+     * (evita cargar {@code CentroEducativo} y su subconsulta {@code numDispositivos}).
+     */
+    @Query(SELECT_RESUMEN + " WHERE d.macAddress = :macAddress")
+    Optional<DispositivoResumen> findResumenByMacAddress(@Param("macAddress") String macAddress);
+
+    @Query(SELECT_RESUMEN + " WHERE d.macAddress IN :macAddresses")
+    List<DispositivoResumen> findResumenByMacAddressIn(@Param("macAddresses") Collection<String> macAddresses);
 }
@@ -0,0 +1,252 @@
+package com.example.gardenmonitor.repository;
+
+import com.example.gardenmonitor.model.Lectura;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Repositorio JDBC que mantiene las tablas agregadas {@code lectura_hora} y {@code lectura_dia}.
+ * <p>
+ * En cada volcado de la ingesta, las lecturas del lote se agrupan en memoria por
+ * (dispositivo, hora) y (dispositivo, día) y se suman a las filas existentes con un
+ * {@code INSERT ... ON CONFLICT DO UPDATE} por batch. Así las gráficas de periodos largos
+ * leen unas pocas filas agregadas en lugar de recorrer todas las lecturas.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Repository
+public class LecturaAgregadaJdbcRepository {
+
+    /** Sensores agregados: columna en {@code lectura} y si es opcional (lleva contador propio). */
+    private enum Sensor {
+        TEMPERATURA("temperatura", false, Lectura::getTemperatura),
+        HUMEDAD_AMBIENTE("humedad_ambiente", false, Lectura::getHumedadAmbiente),
+        HUMEDAD_SUELO("humedad_suelo", false, Lectura::getHumedadSuelo),
+        CO2("co2", true, Lectura::getCo2),
+        LUZ1("luz1", true, Lectura::getLuz1),
+        LUZ2("luz2", true, Lectura::getLuz2);
+
+        private final String columna;
+        private final boolean opcional;
+        private final Function<Lectura, BigDecimal> valor;
+
+        Sensor(String columna, boolean opcional, Function<Lectura, BigDecimal> valor) {
+            this.columna = columna;
+            this.opcional = opcional;
+            this.valor = valor;
+        }
+    }
+
+    /** Nivel de agregación: tabla, cómo se trunca el timestamp al inicio del intervalo. */
+    private enum Nivel {
+        HORA("lectura_hora", "hour", t -> t.truncatedTo(ChronoUnit.HOURS), 1, ChronoUnit.HOURS),
+        DIA("lectura_dia", "day", t -> t.truncatedTo(ChronoUnit.DAYS), 1, ChronoUnit.DAYS);
+
+        private final UnaryOperator<LocalDateTime> truncar;
+        private final long duracion;
+        private final ChronoUnit unidad;
+        private final String upsert;
+        private final String recalculo;
+        private final String completado;
+        private final String borrado;
+
+        Nivel(String tabla, String unidadSql, UnaryOperator<LocalDateTime> truncar, long duracion, ChronoUnit unidad) {
+            this.truncar = truncar;
+            this.duracion = duracion;
+            this.unidad = unidad;
+            this.upsert = sqlUpsert(tabla);
+            this.recalculo = sqlAgregacion(tabla, "CAST(? AS TIMESTAMP)", "dispositivo_id", "");
+            this.completado = sqlAgregacion(tabla, "date_trunc('" + unidadSql + "', timestamp)", "1, 2",
+                    " ON CONFLICT (dispositivo_id, bucket) DO NOTHING");
+            this.borrado = "DELETE FROM " + tabla + " WHERE dispositivo_id = ? AND bucket = ?";
+        }
+    }
+
+    /** Número de filas por batch JDBC. */
+    private static final int TAMANO_BATCH = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Suma un lote de lecturas a los agregados por hora y por día.
+     * <p>
+     * Debe ejecutarse en la misma transacción que la inserción de las lecturas,
+     * para que un reintento del volcado no cuente dos veces el mismo lote.
+     * </p>
+     *
+     * @param lecturas lecturas recién insertadas
+     */
+    @Transactional
+    public void acumular(List<Lectura> lecturas) {
+        for (Nivel nivel : Nivel.values()) {
+            Map<Clave, Acumulador> acumulados = new HashMap<>();
+            for (Lectura lectura : lecturas) {
+                Clave clave = new Clave(lectura.getDispositivo().getId(), nivel.truncar.apply(lectura.getTimestamp()));
+                acumulados.computeIfAbsent(clave, c -> new Acumulador()).sumar(lectura);
+            }
+            // Orden estable de las filas para que dos transacciones no se bloqueen mutuamente
+            List<Map.Entry<Clave, Acumulador>> filas = acumulados.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey(Clave.ORDEN))
+                    .collect(Collectors.toCollection(ArrayList::new));
+            jdbcTemplate.batchUpdate(nivel.upsert, filas, TAMANO_BATCH,
+                    (ps, fila) -> fila.getValue().rellenar(ps, fila.getKey()));
+        }
+    }
+
+    /**
+     * Recalcula desde {@code lectura} la hora y el día que contienen un instante,
+     * p. ej. después de borrar una lectura.
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @param timestamp     instante dentro de los intervalos a recalcular
+     */
+    @Transactional
+    public void recalcular(Long dispositivoId, LocalDateTime timestamp) {
+        for (Nivel nivel : Nivel.values()) {
+            LocalDateTime inicio = nivel.truncar.apply(timestamp);
+            LocalDateTime fin = inicio.plus(nivel.duracion, nivel.unidad);
+            jdbcTemplate.update(nivel.borrado, dispositivoId, inicio);
+            jdbcTemplate.update(nivel.recalculo, inicio, dispositivoId, inicio, fin);
+        }
+    }
+
+    private static String sqlUpsert(String tabla) {
+        List<String> columnas = new ArrayList<>(List.of("dispositivo_id", "bucket", "num_lecturas"));
+        List<String> actualizaciones = new ArrayList<>(List.of(
+                "num_lecturas = t.num_lecturas + EXCLUDED.num_lecturas"));
+        for (Sensor sensor : Sensor.values()) {
+            String c = sensor.columna;
+            if (sensor.opcional) {
+                columnas.add(c + "_num");
+                actualizaciones.add(c + "_num = t." + c + "_num + EXCLUDED." + c + "_num");
+            }
+            columnas.addAll(List.of(c + "_suma", c + "_min", c + "_max"));
+            actualizaciones.add(c + "_suma = t." + c + "_suma + EXCLUDED." + c + "_suma");
+            // LEAST/GREATEST ignoran los NULL de los sensores opcionales
+            actualizaciones.add(c + "_min = LEAST(t." + c + "_min, EXCLUDED." + c + "_min)");
+            actualizaciones.add(c + "_max = GREATEST(t." + c + "_max, EXCLUDED." + c + "_max)");
+        }
+        return "INSERT INTO " + tabla + " AS t (" + String.join(", ", columnas) + ") VALUES ("
+                + columnas.stream().map(c -> "?").collect(Collectors.joining(", ")) + ") "
+                + "ON CONFLICT (dispositivo_id, bucket) DO UPDATE SET " + String.join(", ", actualizaciones);
+    }
+
+    /**
+     * Completa los agregados de un dispositivo en un rango con los intervalos que falten,
+     * calculados desde {@code lectura}. Los intervalos que ya existen no se tocan.
+     * <p>
+     * Lo usa la retención antes de borrar lecturas antiguas, para no perder datos que
+     * nunca pasaron por la ingesta (p. ej. anteriores a la creación de las tablas agregadas).
+     * </p>
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @param desde         inicio del rango (incluido)
+     * @param hasta         fin del rango (excluido), alineado al inicio de un día
+     * @return número de intervalos creados (horas + días)
+     */
+    public int completar(Long dispositivoId, LocalDateTime desde, LocalDateTime hasta) {
+        int creados = 0;
+        for (Nivel nivel : Nivel.values()) {
+            creados += jdbcTemplate.update(nivel.completado, dispositivoId, desde, hasta);
+        }
+        return creados;
+    }
+
+    /**
+     * Borra los agregados por hora anteriores a una fecha (los diarios se conservan siempre).
+     *
+     * @param limite fecha límite (excluida)
+     * @return número de filas borradas
+     */
+    public int eliminarHorasAnterioresA(LocalDateTime limite) {
+        return jdbcTemplate.update("DELETE FROM lectura_hora WHERE bucket < ?", limite);
+    }
+
+    private static String sqlAgregacion(String tabla, String bucket, String agrupacion, String conflicto) {
+        List<String> columnas = new ArrayList<>(List.of("dispositivo_id", "bucket", "num_lecturas"));
+        List<String> valores = new ArrayList<>(List.of("dispositivo_id", bucket, "COUNT(*)"));
+        for (Sensor sensor : Sensor.values()) {
+            String c = sensor.columna;
+            if (sensor.opcional) {
+                columnas.add(c + "_num");
+                valores.add("COUNT(" + c + ")");
+            }
+            columnas.addAll(List.of(c + "_suma", c + "_min", c + "_max"));
+            valores.addAll(List.of("COALESCE(SUM(" + c + "), 0)", "MIN(" + c + ")", "MAX(" + c + ")"));
+        }
+        return "INSERT INTO " + tabla + " (" + String.join(", ", columnas) + ") SELECT "
+                + String.join(", ", valores)
+                + " FROM lectura WHERE dispositivo_id = ? AND timestamp >= ? AND timestamp < ?"
+                + " GROUP BY " + agrupacion + conflicto;
+    }
+
+    private record Clave(Long dispositivoId, LocalDateTime bucket) {
+        static final Comparator<Clave> ORDEN = Comparator.comparing(Clave::dispositivoId)
+                .thenComparing(Clave::bucket);
+    }
+
+    /** Suma, mínimo y máximo de cada sensor para un (dispositivo, intervalo). */
+    private static final class Acumulador {
+        private int numLecturas;
+        private final int[] num = new int[Sensor.values().length];
+        private final BigDecimal[] suma = new BigDecimal[Sensor.values().length];
+        private final BigDecimal[] min = new BigDecimal[Sensor.values().length];
+        private final BigDecimal[] max = new BigDecimal[Sensor.values().length];
+
+        Acumulador() {
+            Arrays.fill(suma, BigDecimal.ZERO);
+        }
+
+        void sumar(Lectura lectura) {
+            numLecturas++;
+            for (Sensor sensor : Sensor.values()) {
+                BigDecimal valor = sensor.valor.apply(lectura);
+                if (valor == null) {
+                    continue;
+                }
+                int i = sensor.ordinal();
+                num[i]++;
+                suma[i] = suma[i].add(valor);
+                min[i] = min[i] == null || valor.compareTo(min[i]) < 0 ? valor : min[i];
+                max[i] = max[i] == null || valor.compareTo(max[i]) > 0 ? valor : max[i];
+            }
+        }
+
+        void rellenar(PreparedStatement ps, Clave clave) throws SQLException {
+            int p = 1;
+            ps.setLong(p++, clave.dispositivoId());
+            ps.setObject(p++, clave.bucket());
+            ps.setInt(p++, numLecturas);
+            for (Sensor sensor : Sensor.values()) {
+                int i = sensor.ordinal();
+                if (sensor.opcional) {
+                    ps.setInt(p++, num[i]);
+                }
+                ps.setBigDecimal(p++, suma[i]);
+                ps.setObject(p++, min[i], Types.NUMERIC);
+                ps.setObject(p++, max[i], Types.NUMERIC);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.gardenmonitor.repository;
+
+import com.example.gardenmonitor.dto.AnomaliaLectura;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repositorio JDBC de la tabla {@code lectura_anomalia} (lecturas marcadas como anómalas).
+ * <p>
+ * Las detecciones de cada lote de la ingesta se insertan con un único batch. El id se toma
+ * de {@code lectura_anomalia_id_seq}, la misma secuencia que usa la entidad (ver
+ * {@link NotificacionJdbcRepository} para el mismo caso).
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Repository
+public class LecturaAnomaliaJdbcRepository {
+
+    private static final String INSERTAR = """
+            INSERT INTO lectura_anomalia (id, dispositivo_id, lectura_id, timestamp, canal, valor, media,
+                                          desviacion, puntuacion_z)
+            VALUES (nextval('lectura_anomalia_id_seq'), ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String COLUMNAS = """
+            SELECT dispositivo_id, lectura_id, timestamp, canal, valor, media, desviacion, puntuacion_z
+            FROM lectura_anomalia
+            """;
+
+    /** Recorre la PK hacia atrás: las últimas detecciones de todos los dispositivos. */
+    private static final String BUSCAR_RECIENTES = COLUMNAS + """
+            ORDER BY id DESC
+            LIMIT ?
+            """;
+
+    /** Rango de idx_lectura_anomalia_dispositivo_id. */
+    private static final String BUSCAR_RECIENTES_DISPOSITIVO = COLUMNAS + """
+            WHERE dispositivo_id = ?
+            ORDER BY id DESC
+            LIMIT ?
+            """;
+
+    private static final RowMapper<AnomaliaLectura> MAPPER = (rs, n) -> new AnomaliaLectura(
+            rs.getLong("dispositivo_id"),
+            rs.getLong("lectura_id"),
+            rs.getObject("timestamp", LocalDateTime.class),
+            rs.getString("canal"),
+            rs.getDouble("valor"),
+            rs.getDouble("media"),
+            rs.getDouble("desviacion"),
+            rs.getDouble("puntuacion_z"));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Guarda las anomalías detectadas en un lote de lecturas ya insertado.
+     *
+     * @param anomalias anomalías con el id de su lectura
+     */
+    public void insertar(List<AnomaliaLectura> anomalias) {
+        jdbcTemplate.batchUpdate(INSERTAR, anomalias, anomalias.size(), (ps, anomalia) -> {
+            ps.setLong(1, anomalia.getDispositivoId());
+            ps.setLong(2, anomalia.getLecturaId());
+            ps.setObject(3, anomalia.getTimestamp());
+            ps.setString(4, anomalia.getCanal());
+            ps.setDouble(5, anomalia.getValor());
+            ps.setDouble(6, anomalia.getMedia());
+            ps.setDouble(7, anomalia.getDesviacion());
+            ps.setDouble(8, anomalia.getPuntuacionZ());
+        });
+    }
+
+    /**
+     * @param dispositivoId si no es null, solo las de este dispositivo
+     * @param limite        número máximo de anomalías
+     * @return últimas anomalías guardadas, más recientes primero
+     */
+    public List<AnomaliaLectura> buscarRecientes(Long dispositivoId, int limite) {
+        return dispositivoId == null
+                ? jdbcTemplate.query(BUSCAR_RECIENTES, MAPPER, limite)
+                : jdbcTemplate.query(BUSCAR_RECIENTES_DISPOSITIVO, MAPPER, dispositivoId, limite);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.gardenmonitor.repository;
+
+import com.example.gardenmonitor.dto.LecturaAgregadaProjection;
+import com.example.gardenmonitor.model.LecturaDia;
+import com.example.gardenmonitor.model.LecturaAgregadaId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface LecturaDiaRepository extends JpaRepository<LecturaDia, LecturaAgregadaId> {
+
+    /**
+     * Curva de la gráfica a partir de los agregados por día, reagrupados en intervalos
+     * de {@code intervalo} (p. ej. '1 day') con {@code date_bin}.
+     * Media = suma / número de lecturas; mínimo y máximo del intervalo completo.
+     */
+    @Query(value = """
+            SELECT CAST(NULL AS BIGINT) AS "id",
+                   date_bin(CAST(:intervalo AS INTERVAL), bucket, TIMESTAMPTZ '2000-01-01') AS "timestamp",
+                   SUM(num_lecturas) AS "numLecturas",
+                   ROUND(SUM(temperatura_suma) / SUM(num_lecturas), 2) AS "temperatura",
+                   MIN(temperatura_min) AS "temperaturaMin", MAX(temperatura_max) AS "temperaturaMax",
+                   ROUND(SUM(humedad_ambiente_suma) / SUM(num_lecturas), 2) AS "humedadAmbiente",
+                   MIN(humedad_ambiente_min) AS "humedadAmbienteMin", MAX(humedad_ambiente_max) AS "humedadAmbienteMax",
+                   ROUND(SUM(humedad_suelo_suma) / SUM(num_lecturas), 2) AS "humedadSuelo",
+                   MIN(humedad_suelo_min) AS "humedadSueloMin", MAX(humedad_suelo_max) AS "humedadSueloMax",
+                   ROUND(SUM(co2_suma) / NULLIF(SUM(co2_num), 0), 2) AS "co2",
+                   MIN(co2_min) AS "co2Min", MAX(co2_max) AS "co2Max",
+                   ROUND(SUM(luz1_suma) / NULLIF(SUM(luz1_num), 0), 2) AS "luz1",
+                   MIN(luz1_min) AS "luz1Min", MAX(luz1_max) AS "luz1Max",
+                   ROUND(SUM(luz2_suma) / NULLIF(SUM(luz2_num), 0), 2) AS "luz2",
+                   MIN(luz2_min) AS "luz2Min", MAX(luz2_max) AS "luz2Max"
+            FROM lectura_dia
+            WHERE dispositivo_id = :dispositivoId
+              AND bucket >= :desde
+              AND bucket <= :hasta
+            GROUP BY 2
+            ORDER BY 2
+            """, nativeQuery = true)
+    List<LecturaAgregadaProjection> findCurvaByDispositivoAndRango(
+            @Param("dispositivoId") Long dispositivoId,
+            @Param("desde") LocalDateTime desde,
+            @Param("hasta") LocalDateTime hasta,
+            @Param("intervalo") String intervalo);
+
+    /**
+     * Número aproximado de lecturas de un dispositivo en un rango, sumando los agregados
+     * diarios. Cuenta los días completos que tocan el rango, así que puede incluir lecturas
+     * de antes de {@code desde} del mismo día; a cambio lee como mucho una fila por día.
+     */
+    @Query(value = """
+            SELECT COALESCE(SUM(num_lecturas), 0)
+            FROM lectura_dia
+            WHERE dispositivo_id = :dispositivoId
+              AND bucket >= date_trunc('day', CAST(:desde AS TIMESTAMPTZ))
+              AND bucket <= :hasta
+            """, nativeQuery = true)
+    long countAproximadoByDispositivoAndRango(
+            @Param("dispositivoId") Long dispositivoId,
+            @Param("desde") LocalDateTime desde,
+            @Param("hasta") LocalDateTime hasta);
+
+    /**
+     * Número aproximado de lecturas de un dispositivo (suma de sus agregados diarios).
+     */
+    @Query(value = "SELECT COALESCE(SUM(num_lecturas), 0) FROM lectura_dia WHERE dispositivo_id = :dispositivoId",
+            nativeQuery = true)
+    long countAproximadoByDispositivo(@Param("dispositivoId") Long dispositivoId);
+}
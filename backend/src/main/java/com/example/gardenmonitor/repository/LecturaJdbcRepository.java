@@ -0,0 +1,337 @@
+package com.example.gardenmonitor.repository;
+
+import com.example.gardenmonitor.dto.LecturaMuestra;
+import com.example.gardenmonitor.dto.LecturaResponse;
+import com.example.gardenmonitor.model.Lectura;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Repositorio JDBC para la inserción y la lectura masiva de lecturas.
+ * <p>
+ * Spring Data JPA inserta las lecturas de una en una (una sentencia y un
+ * round-trip por fila). Este repositorio agrupa las filas en batches JDBC que,
+ * con {@code reWriteBatchedInserts=true} en el driver de PostgreSQL, se envían
+ * como INSERT multi-fila.
+ * </p>
+ * <p>
+ * El id se toma explícitamente de {@code lectura_id_seq}, la misma secuencia que
+ * usa la entidad {@link Lectura}, para no depender de que la columna tenga un DEFAULT
+ * (las tablas creadas por Hibernate con SEQUENCE no lo tienen). Los ids de un lote se
+ * reservan con una sola consulta antes del INSERT y se asignan a cada {@link Lectura},
+ * de modo que quien la guarde después en memoria conoce su id. Como la secuencia avanza
+ * de 50 en 50, se piden solo {@code ceil(n/50)} valores y cada uno se expande a sus 50 ids,
+ * igual que el optimizador pooled de Hibernate; así ambos nunca se solapan.
+ * </p>
+ * <p>
+ * Los recorridos de rangos grandes (muestreo de la gráfica, exportación) usan un
+ * cursor de servidor en lugar de cargar todas las filas en memoria.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Repository
+public class LecturaJdbcRepository {
+
+    /** Número de filas por batch JDBC. */
+    private static final int TAMANO_BATCH = 500;
+
+    /** Filas que el driver trae de cada vez al recorrer un rango con cursor. */
+    private static final int TAMANO_FETCH = 1000;
+
+    /** Filas por viaje al exportar: más grande porque cada fila se escribe directamente a la respuesta. */
+    private static final int TAMANO_FETCH_EXPORTACION = 5000;
+
+    private static final String SELECT_RANGO = """
+            SELECT id, timestamp, temperatura, humedad_ambiente, humedad_suelo, co2, luz1, luz2
+            FROM lectura
+            WHERE dispositivo_id = ? AND timestamp >= ? AND timestamp <= ?
+            ORDER BY timestamp
+            """;
+
+    private static final String SELECT_RESPONSE = """
+            SELECT id, timestamp, dispositivo_id, temperatura, humedad_ambiente, humedad_suelo, co2, luz1, luz2
+            FROM lectura
+            WHERE dispositivo_id = ?
+            """;
+
+    /** Columnas: id, timestamp, dispositivo_id y los seis sensores (también en {@link LecturaUltimaJdbcRepository}). */
+    static final RowMapper<LecturaResponse> RESPONSE_MAPPER = (rs, i) -> new LecturaResponse(
+            rs.getLong(1),
+            rs.getTimestamp(2).toLocalDateTime(),
+            rs.getLong(3),
+            rs.getBigDecimal(4),
+            rs.getBigDecimal(5),
+            rs.getBigDecimal(6),
+            rs.getBigDecimal(7),
+            rs.getBigDecimal(8),
+            rs.getBigDecimal(9));
+
+    private static final String INSERT_LECTURA = """
+            INSERT INTO lectura (id, timestamp, dispositivo_id, temperatura, humedad_ambiente,
+                                 humedad_suelo, co2, luz1, luz2)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    /**
+     * Incremento de {@code lectura_id_seq}, igual al {@code allocationSize} de {@link Lectura}:
+     * cada valor {@code v} de la secuencia reserva los ids {@code v-49..v}.
+     */
+    private static final int INCREMENTO_SECUENCIA = 50;
+
+    private static final String RESERVAR_IDS = "SELECT nextval('lectura_id_seq') FROM generate_series(1, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Fecha de la lectura más antigua de un dispositivo (usa el índice
+     * {@code (dispositivo_id, timestamp)}, no recorre la tabla).
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @return timestamp de la lectura más antigua, o null si no tiene lecturas
+     */
+    public LocalDateTime buscarPrimeraLectura(Long dispositivoId) {
+        Timestamp primera = jdbcTemplate.queryForObject(
+                "SELECT MIN(timestamp) FROM lectura WHERE dispositivo_id = ?", Timestamp.class, dispositivoId);
+        return primera != null ? primera.toLocalDateTime() : null;
+    }
+
+    /**
+     * Borra como máximo {@code maximo} lecturas de un dispositivo anteriores a una fecha.
+     * <p>
+     * No es transaccional: cada llamada es una transacción corta propia, de modo que la
+     * retención borra por tandas sin mantener bloqueos largos sobre {@code lectura}.
+     * </p>
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @param limite        fecha límite (excluida)
+     * @param maximo        número máximo de filas a borrar
+     * @return número de filas borradas (menor que {@code maximo} cuando ya no quedan)
+     */
+    public int eliminarLoteAnteriorA(Long dispositivoId, LocalDateTime limite, int maximo) {
+        return jdbcTemplate.update("""
+                DELETE FROM lectura
+                WHERE (id, timestamp) IN (
+                    SELECT id, timestamp FROM lectura
+                    WHERE dispositivo_id = ? AND timestamp < ?
+                    LIMIT ?)
+                """, dispositivoId, limite, maximo);
+    }
+
+    /**
+     * Inserta un lote de lecturas en una única transacción.
+     * <p>
+     * Solo se usa el id del dispositivo de cada lectura, por lo que basta con
+     * una referencia (no hace falta cargar la entidad completa). Al terminar, cada
+     * lectura tiene asignado su id.
+     * </p>
+     *
+     * @param lecturas lecturas a insertar
+     * @return número de lecturas insertadas
+     */
+    @Transactional
+    public int insertarLote(List<Lectura> lecturas) {
+        List<Long> valores = jdbcTemplate.queryForList(RESERVAR_IDS, Long.class,
+                (lecturas.size() + INCREMENTO_SECUENCIA - 1) / INCREMENTO_SECUENCIA);
+        for (int i = 0; i < lecturas.size(); i++) {
+            long valor = valores.get(i / INCREMENTO_SECUENCIA);
+            lecturas.get(i).setId(valor - INCREMENTO_SECUENCIA + 1 + i % INCREMENTO_SECUENCIA);
+        }
+        jdbcTemplate.batchUpdate(INSERT_LECTURA, lecturas, TAMANO_BATCH, (ps, lectura) -> {
+            ps.setLong(1, lectura.getId());
+            ps.setObject(2, lectura.getTimestamp());
+            ps.setLong(3, lectura.getDispositivo().getId());
+            ps.setBigDecimal(4, lectura.getTemperatura());
+            ps.setBigDecimal(5, lectura.getHumedadAmbiente());
+            ps.setBigDecimal(6, lectura.getHumedadSuelo());
+            ps.setObject(7, lectura.getCo2(), Types.NUMERIC);
+            ps.setObject(8, lectura.getLuz1(), Types.NUMERIC);
+            ps.setObject(9, lectura.getLuz2(), Types.NUMERIC);
+        });
+        return lecturas.size();
+    }
+
+    /**
+     * Página del histórico de un dispositivo con paginación keyset, más recientes primero.
+     * <p>
+     * La comparación de filas {@code (timestamp, id) < (?, ?)} se resuelve como un rango
+     * sobre el índice {@code idx_lectura_dispositivo_timestamp_id}: el coste es el mismo en
+     * la página 0 que en la 500, a diferencia de OFFSET, que tiene que recorrer y descartar
+     * todas las filas anteriores. No ejecuta {@code COUNT(*)}.
+     * </p>
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @param desde         inicio del rango (incluido), o null para todo el histórico
+     * @param timestamp     timestamp del cursor (excluido), o null para la primera página
+     * @param id            id del cursor (se ignora si {@code timestamp} es null)
+     * @param limite        número máximo de lecturas
+     * @return lecturas ordenadas por {@code (timestamp DESC, id DESC)}
+     */
+    public List<LecturaResponse> buscarPaginaHistorico(Long dispositivoId, LocalDateTime desde,
+                                                        LocalDateTime timestamp, Long id, int limite) {
+        StringBuilder sql = new StringBuilder(SELECT_RESPONSE);
+        List<Object> parametros = new ArrayList<>(List.of(dispositivoId));
+        if (desde != null) {
+            sql.append(" AND timestamp >= ?");
+            parametros.add(desde);
+        }
+        if (timestamp != null) {
+            sql.append(" AND (timestamp, id) < (?, ?)");
+            parametros.add(timestamp);
+            parametros.add(id);
+        }
+        sql.append(" ORDER BY timestamp DESC, id DESC LIMIT ?");
+        parametros.add(limite);
+        return jdbcTemplate.query(sql.toString(), RESPONSE_MAPPER, parametros.toArray());
+    }
+
+    /**
+     * Recorre en orden cronológico las lecturas de un dispositivo en un rango, sin
+     * cargarlas todas en memoria.
+     * <p>
+     * Dentro de una transacción, el driver de PostgreSQL usa un cursor de servidor y
+     * trae {@value #TAMANO_FETCH} filas cada vez, así que la memoria usada no depende
+     * del tamaño del rango.
+     * </p>
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @param desde         inicio del rango (incluido)
+     * @param hasta         fin del rango (incluido)
+     * @param consumidor    recibe cada lectura en orden
+     */
+    @Transactional(readOnly = true)
+    public void recorrerRango(Long dispositivoId, LocalDateTime desde, LocalDateTime hasta,
+                              Consumer<LecturaMuestra> consumidor) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_RANGO,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(TAMANO_FETCH);
+            ps.setLong(1, dispositivoId);
+            ps.setObject(2, desde);
+            ps.setObject(3, hasta);
+            return ps;
+        }, rs -> {
+            consumidor.accept(new LecturaMuestra(
+                    rs.getLong(1),
+                    rs.getTimestamp(2).toLocalDateTime(),
+                    rs.getBigDecimal(3),
+                    rs.getBigDecimal(4),
+                    rs.getBigDecimal(5),
+                    rs.getBigDecimal(6),
+                    rs.getBigDecimal(7),
+                    rs.getBigDecimal(8)));
+        });
+    }
+
+    /**
+     * Recorre las lecturas de todos los dispositivos desde una fecha, ordenadas por
+     * dispositivo y timestamp, con un cursor de servidor como {@link #recorrerRango}.
+     * Se usa para cargar {@code LecturasRecientesService} al arrancar.
+     *
+     * @param desde      inicio del rango (incluido)
+     * @param consumidor recibe cada lectura en orden
+     */
+    @Transactional(readOnly = true)
+    public void recorrerDesde(LocalDateTime desde, Consumer<LecturaResponse> consumidor) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                    SELECT id, timestamp, dispositivo_id, temperatura, humedad_ambiente, humedad_suelo, co2, luz1, luz2
+                    FROM lectura
+                    WHERE timestamp >= ?
+                    ORDER BY dispositivo_id, timestamp
+                    """, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(TAMANO_FETCH);
+            ps.setObject(1, desde);
+            return ps;
+        }, rs -> {
+            consumidor.accept(RESPONSE_MAPPER.mapRow(rs, 0));
+        });
+    }
+
+    /**
+     * Recorre en orden cronológico las lecturas de un dispositivo en un rango para
+     * exportarlas, pasando cada fila del {@code ResultSet} tal cual al manejador.
+     * <p>
+     * Como {@link #recorrerRango}, usa un cursor de servidor (aquí de
+     * {@value #TAMANO_FETCH_EXPORTACION} filas) y no crea objetos por fila: el manejador
+     * puede leer los decimales como texto y escribirlos sin convertirlos.
+     * Columnas: id, timestamp, temperatura, humedad_ambiente, humedad_suelo, co2, luz1, luz2.
+     * </p>
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @param desde         inicio del rango (incluido)
+     * @param hasta         fin del rango (incluido)
+     * @param manejador     recibe el {@code ResultSet} posicionado en cada fila
+     */
+    @Transactional(readOnly = true)
+    public void exportarRango(Long dispositivoId, LocalDateTime desde, LocalDateTime hasta,
+                              RowCallbackHandler manejador) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_RANGO,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(TAMANO_FETCH_EXPORTACION);
+            ps.setLong(1, dispositivoId);
+            ps.setObject(2, desde);
+            ps.setObject(3, hasta);
+            return ps;
+        }, manejador);
+    }
+
+    /**
+     * Media de tiempo y de valor de una columna en intervalos de tiempo iguales.
+     * <p>
+     * Es la primera pasada del muestreo LTTB: el intervalo de cada lectura es
+     * {@code floor((epoch(timestamp) - epochDesde) / anchoSeg)}, limitado a
+     * {@code [0, intervalos - 1]}. Solo cuentan las lecturas con valor en la columna.
+     * </p>
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @param desde         inicio del rango (incluido)
+     * @param hasta         fin del rango (incluido)
+     * @param columna       columna de {@code lectura} (nunca un valor del usuario)
+     * @param epochDesde    {@code desde} en segundos epoch
+     * @param anchoSeg      ancho de cada intervalo en segundos
+     * @param intervalos    número de intervalos
+     * @return medias de los intervalos con lecturas, ordenadas por intervalo
+     */
+    public List<MediaIntervalo> calcularMediasPorIntervalo(Long dispositivoId, LocalDateTime desde, LocalDateTime hasta,
+                                                           String columna, double epochDesde, double anchoSeg,
+                                                           int intervalos) {
+        String sql = """
+                SELECT LEAST(GREATEST(FLOOR((EXTRACT(EPOCH FROM timestamp) - ?) / ?)::int, 0), ?) AS intervalo,
+                       AVG(EXTRACT(EPOCH FROM timestamp)) AS epoch_medio,
+                       AVG(%1$s) AS valor_medio
+                FROM lectura
+                WHERE dispositivo_id = ? AND timestamp >= ? AND timestamp <= ? AND %1$s IS NOT NULL
+                GROUP BY 1
+                ORDER BY 1
+                """.formatted(columna);
+        return jdbcTemplate.query(sql,
+                (rs, i) -> new MediaIntervalo(rs.getInt(1), rs.getDouble(2), rs.getDouble(3)),
+                epochDesde, anchoSeg, intervalos - 1, dispositivoId, desde, hasta);
+    }
+
+    /**
+     * Media de un intervalo de tiempo (ver {@link #calcularMediasPorIntervalo}).
+     *
+     * @param intervalo  índice del intervalo
+     * @param epochMedio instante medio de sus lecturas, en segundos epoch
+     * @param valorMedio valor medio de la columna
+     */
+    public record MediaIntervalo(int intervalo, double epochMedio, double valorMedio) {}
+}
@@ -0,0 +1,145 @@
+package com.example.gardenmonitor.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Repositorio JDBC para gestionar las particiones mensuales de {@code lectura}.
+ * <p>
+ * La creación de particiones solo tiene efecto cuando {@code lectura} es una tabla
+ * particionada de forma declarativa (ver {@code migrations/002_particionado_lectura.sql}).
+ * Si es una hypertable de TimescaleDB, TimescaleDB gestiona sus propios chunks; aquí
+ * solo se eliminan los antiguos para la retención.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Repository
+public class LecturaParticionJdbcRepository {
+
+    private static final DateTimeFormatter SUFIJO = DateTimeFormatter.ofPattern("'y'yyyy'm'MM");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return true si {@code lectura} es una tabla con particionado declarativo
+     */
+    public boolean esTablaParticionada() {
+        Boolean particionada = jdbcTemplate.queryForObject("""
+                SELECT EXISTS (SELECT 1 FROM pg_partitioned_table
+                               WHERE partrelid = to_regclass('lectura'))
+                """, Boolean.class);
+        return Boolean.TRUE.equals(particionada);
+    }
+
+    /**
+     * @return true si {@code lectura} es una hypertable de TimescaleDB
+     */
+    public boolean esHypertable() {
+        Boolean extension = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'timescaledb')", Boolean.class);
+        if (!Boolean.TRUE.equals(extension)) {
+            return false;
+        }
+        Boolean hypertable = jdbcTemplate.queryForObject("""
+                SELECT EXISTS (SELECT 1 FROM timescaledb_information.hypertables
+                               WHERE hypertable_name = 'lectura')
+                """, Boolean.class);
+        return Boolean.TRUE.equals(hypertable);
+    }
+
+    /**
+     * Meses con partición creada cuyas lecturas son todas anteriores a una fecha
+     * (el mes termina antes de {@code limite} o justo en él).
+     *
+     * @param limite fecha límite
+     * @return meses de las particiones, de más antiguo a más reciente
+     */
+    public List<YearMonth> buscarParticionesAnterioresA(LocalDateTime limite) {
+        List<String> nombres = jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = to_regclass('lectura')
+                """, String.class);
+        return nombres.stream()
+                .filter(nombre -> nombre.matches("lectura_y\\d{4}m\\d{2}"))
+                .map(nombre -> YearMonth.parse(nombre.substring("lectura_".length()), SUFIJO))
+                .filter(mes -> !mes.plusMonths(1).atDay(1).atStartOfDay().isAfter(limite))
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Separa y elimina la partición de un mes. Es instantáneo frente a un DELETE,
+     * pero toma un bloqueo exclusivo breve sobre {@code lectura}.
+     * <p>
+     * El DETACH espera a que terminen las consultas en curso sobre {@code lectura}, y
+     * mientras espera bloquea todas las que llegan detrás (ingesta incluida). Con
+     * {@code lock_timeout} la espera queda acotada: si no consigue el bloqueo a tiempo,
+     * la transacción se deshace sin haber tocado nada y el llamador decide si reintenta.
+     * </p>
+     *
+     * @param mes           mes de la partición
+     * @param lockTimeoutMs espera máxima por el bloqueo, en milisegundos
+     * @throws org.springframework.dao.PessimisticLockingFailureException si no se consigue el bloqueo a tiempo
+     */
+    @Transactional
+    public void eliminarParticion(YearMonth mes, long lockTimeoutMs) {
+        String nombre = nombreParticion(mes);
+        // SET no admite parámetros; el valor es un long, no viene del usuario
+        jdbcTemplate.execute("SET LOCAL lock_timeout = " + lockTimeoutMs);
+        jdbcTemplate.execute("ALTER TABLE lectura DETACH PARTITION " + nombre);
+        jdbcTemplate.execute("DROP TABLE " + nombre);
+    }
+
+    /**
+     * Elimina los chunks de la hypertable cuyas lecturas son todas anteriores a una fecha.
+     *
+     * @param limite fecha límite
+     * @return número de chunks eliminados
+     */
+    public int eliminarChunksAnterioresA(LocalDateTime limite) {
+        return jdbcTemplate.queryForList("SELECT drop_chunks('lectura', older_than => CAST(? AS TIMESTAMPTZ))",
+                String.class, limite).size();
+    }
+
+    /**
+     * Crea la partición de un mes si no existe.
+     *
+     * @param mes mes de la partición
+     * @return true si se ha creado, false si ya existía
+     */
+    public boolean crearParticionMensual(YearMonth mes) {
+        String nombre = nombreParticion(mes);
+        if (existeTabla(nombre)) {
+            return false;
+        }
+        // Nombre y límites se generan aquí, no vienen del usuario
+        jdbcTemplate.execute("CREATE TABLE " + nombre + " PARTITION OF lectura FOR VALUES FROM ('"
+                + mes.atDay(1) + "') TO ('" + mes.plusMonths(1).atDay(1) + "')");
+        return true;
+    }
+
+    /**
+     * @param mes mes de la partición
+     * @return nombre de la partición, p. ej. {@code lectura_y2025m03}
+     */
+    public static String nombreParticion(YearMonth mes) {
+        return "lectura_" + mes.format(SUFIJO);
+    }
+
+    private boolean existeTabla(String nombre) {
+        Boolean existe = jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, nombre);
+        return Boolean.TRUE.equals(existe);
+    }
+}
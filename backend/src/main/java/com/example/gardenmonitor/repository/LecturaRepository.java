@@ -1,7 +1,7 @@
 package com.example.gardenmonitor.repository;
 
 import com.example.gardenmonitor.dto.LecturaMuestraProjection;
-import com.example.gardenmonitor.model.DispositivoEsp32;
+import com.example.gardenmonitor.dto.LecturaResponse;
 import com.example.gardenmonitor.model.Lectura;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -14,21 +14,49 @@ import java.util.List;
 
 public interface LecturaRepository extends JpaRepository<Lectura, Long> {
 
-    Page<Lectura> findByDispositivoOrderByTimestampDesc(DispositivoEsp32 dispositivo, Pageable pageable);
+    String SELECT_RESPONSE = """
+            SELECT new com.example.gardenmonitor.dto.LecturaResponse(
+                l.id, l.timestamp, l.dispositivo.id, l.temperatura, l.humedadAmbiente,
+                l.humedadSuelo, l.co2, l.luz1, l.luz2)
+            FROM Lectura l
+            """;
 
-    Page<Lectura> findByDispositivoAndTimestampBetweenOrderByTimestampDesc(
-            DispositivoEsp32 dispositivo, LocalDateTime desde, LocalDateTime hasta, Pageable pageable);
+    /**
+     * Lecturas de un dispositivo paginadas, más recientes primero, como DTO plano
+     * ({@code l.dispositivo.id} es la FK: no hace JOIN con el dispositivo ni con el centro).
+     */
+    @Query(value = SELECT_RESPONSE + " WHERE l.dispositivo.id = :dispositivoId ORDER BY l.timestamp DESC",
+            countQuery = "SELECT COUNT(l) FROM Lectura l WHERE l.dispositivo.id = :dispositivoId")
+    Page<LecturaResponse> findResponseByDispositivoId(
+            @Param("dispositivoId") Long dispositivoId, Pageable pageable);
+
+    /**
+     * Lecturas de un dispositivo en un rango de fechas paginadas, más recientes primero, como DTO plano.
+     */
+    @Query(value = SELECT_RESPONSE + """
+             WHERE l.dispositivo.id = :dispositivoId AND l.timestamp BETWEEN :desde AND :hasta
+             ORDER BY l.timestamp DESC
+            """,
+            countQuery = """
+            SELECT COUNT(l) FROM Lectura l
+            WHERE l.dispositivo.id = :dispositivoId AND l.timestamp BETWEEN :desde AND :hasta
+            """)
+    Page<LecturaResponse> findResponseByDispositivoIdAndRango(
+            @Param("dispositivoId") Long dispositivoId,
+            @Param("desde") LocalDateTime desde,
+            @Param("hasta") LocalDateTime hasta,
+            Pageable pageable);
 
     /**
      * Stride sampling: devuelve lecturas REALES (sin promedios) garantizando
-     * un máximo de ~400 puntos independientemente del volumen de datos.
+     * un máximo de ~{@code puntos} puntos independientemente del volumen de datos.
      *
      * Algoritmo:
      *   1. Numera todas las lecturas del rango cronológicamente (ROW_NUMBER).
-     *   2. Calcula el paso: stride = MAX(1, CEIL(total / 400)).
+     *   2. Calcula el paso: stride = MAX(1, CEIL(total / puntos)).
      *   3. Selecciona la lectura 1, 1+stride, 1+2·stride, … más siempre la última.
      *
-     * Así con 10.000 lecturas el stride es 25 y se devuelven ~400 puntos reales;
+     * Así con 10.000 lecturas y 400 puntos el stride es 25 y se devuelven ~400 puntos reales;
      * con 200 lecturas el stride es 1 y se devuelven todas sin pérdida.
      */
     @Query(value = """
@@ -51,12 +79,13 @@ public interface LecturaRepository extends JpaRepository<Lectura, Long> {
             SELECT id, timestamp, temperatura, humedad_ambiente,
                    humedad_suelo, co2, luz1, luz2
             FROM numbered
-            WHERE MOD(rn - 1, GREATEST(1, CEIL(total_count::float / 400)::int)) = 0
+            WHERE MOD(rn - 1, GREATEST(1, CEIL(total_count::float / :puntos)::int)) = 0
                OR rn = total_count
             ORDER BY timestamp ASC
             """, nativeQuery = true)
     List<LecturaMuestraProjection> findMuestraByDispositivoAndRango(
             @Param("dispositivoId") Long dispositivoId,
             @Param("desde") LocalDateTime desde,
-            @Param("hasta") LocalDateTime hasta);
+            @Param("hasta") LocalDateTime hasta,
+            @Param("puntos") int puntos);
 }
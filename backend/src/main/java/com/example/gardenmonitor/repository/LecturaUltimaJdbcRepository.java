@@ -0,0 +1,126 @@
+package com.example.gardenmonitor.repository;
+
+import com.example.gardenmonitor.dto.LecturaResponse;
+import com.example.gardenmonitor.model.Lectura;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Types;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Repositorio JDBC que mantiene la tabla {@code lectura_ultima} (última lectura de cada dispositivo).
+ * <p>
+ * En cada volcado de la ingesta se queda en memoria con la lectura más reciente de cada
+ * dispositivo del lote y la escribe con un {@code INSERT ... ON CONFLICT DO UPDATE}. El
+ * UPDATE solo se aplica si la lectura es posterior a la guardada, por lo que un lote con
+ * lecturas atrasadas (un ESP32 que envía lo acumulado sin conexión) no retrocede el valor.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Repository
+public class LecturaUltimaJdbcRepository {
+
+    /** Orden de las lecturas: el mismo que el histórico, (timestamp, id). */
+    private static final Comparator<Lectura> POR_ANTIGUEDAD =
+            Comparator.comparing(Lectura::getTimestamp).thenComparing(Lectura::getId);
+
+    private static final String CONFLICTO = """
+            ON CONFLICT (dispositivo_id) DO UPDATE SET
+                lectura_id = EXCLUDED.lectura_id,
+                timestamp = EXCLUDED.timestamp,
+                temperatura = EXCLUDED.temperatura,
+                humedad_ambiente = EXCLUDED.humedad_ambiente,
+                humedad_suelo = EXCLUDED.humedad_suelo,
+                co2 = EXCLUDED.co2,
+                luz1 = EXCLUDED.luz1,
+                luz2 = EXCLUDED.luz2
+            WHERE (lectura_ultima.timestamp, lectura_ultima.lectura_id) < (EXCLUDED.timestamp, EXCLUDED.lectura_id)
+            """;
+
+    private static final String UPSERT = """
+            INSERT INTO lectura_ultima (dispositivo_id, lectura_id, timestamp, temperatura, humedad_ambiente,
+                                        humedad_suelo, co2, luz1, luz2)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """ + CONFLICTO;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Actualiza la última lectura de los dispositivos de un lote ya insertado (con id asignado).
+     *
+     * @param lecturas lecturas del lote
+     */
+    @Transactional
+    public void actualizar(List<Lectura> lecturas) {
+        Map<Long, Lectura> ultimas = lecturas.stream().collect(Collectors.toMap(
+                l -> l.getDispositivo().getId(), l -> l, BinaryOperator.maxBy(POR_ANTIGUEDAD)));
+        // Siempre en el mismo orden de dispositivo para no bloquear filas en orden distinto
+        List<Lectura> ordenadas = ultimas.values().stream()
+                .sorted(Comparator.comparing(l -> l.getDispositivo().getId()))
+                .toList();
+        jdbcTemplate.batchUpdate(UPSERT, ordenadas, ordenadas.size(), (ps, lectura) -> {
+            ps.setLong(1, lectura.getDispositivo().getId());
+            ps.setLong(2, lectura.getId());
+            ps.setObject(3, lectura.getTimestamp());
+            ps.setBigDecimal(4, lectura.getTemperatura());
+            ps.setBigDecimal(5, lectura.getHumedadAmbiente());
+            ps.setBigDecimal(6, lectura.getHumedadSuelo());
+            ps.setObject(7, lectura.getCo2(), Types.NUMERIC);
+            ps.setObject(8, lectura.getLuz1(), Types.NUMERIC);
+            ps.setObject(9, lectura.getLuz2(), Types.NUMERIC);
+        });
+    }
+
+    /**
+     * Tras borrar una lectura, si era la última de su dispositivo, vuelve a tomar la
+     * más reciente que quede en {@code lectura}.
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @param lecturaId     identificador de la lectura borrada
+     */
+    @Transactional
+    public void recalcularSiEsUltima(Long dispositivoId, Long lecturaId) {
+        int borradas = jdbcTemplate.update(
+                "DELETE FROM lectura_ultima WHERE dispositivo_id = ? AND lectura_id = ?", dispositivoId, lecturaId);
+        if (borradas > 0) {
+            jdbcTemplate.update("""
+                    INSERT INTO lectura_ultima (dispositivo_id, lectura_id, timestamp, temperatura, humedad_ambiente,
+                                                humedad_suelo, co2, luz1, luz2)
+                    SELECT dispositivo_id, id, timestamp, temperatura, humedad_ambiente, humedad_suelo, co2, luz1, luz2
+                    FROM lectura
+                    WHERE dispositivo_id = ?
+                    ORDER BY timestamp DESC, id DESC
+                    LIMIT 1
+                    """ + CONFLICTO, dispositivoId);
+        }
+    }
+
+    /**
+     * Última lectura de cada dispositivo de un centro, en una sola consulta
+     * (índice {@code idx_dispositivo_centro} y PK de {@code lectura_ultima}).
+     * Los dispositivos sin lecturas no aparecen.
+     *
+     * @param centroId identificador del centro educativo
+     * @return una lectura por dispositivo, ordenadas por id de dispositivo
+     */
+    public List<LecturaResponse> buscarPorCentro(Long centroId) {
+        return jdbcTemplate.query("""
+                SELECT lu.lectura_id, lu.timestamp, lu.dispositivo_id, lu.temperatura, lu.humedad_ambiente,
+                       lu.humedad_suelo, lu.co2, lu.luz1, lu.luz2
+                FROM lectura_ultima lu
+                JOIN dispositivo_esp32 d ON d.id = lu.dispositivo_id
+                WHERE d.centro_id = ?
+                ORDER BY lu.dispositivo_id
+                """, LecturaJdbcRepository.RESPONSE_MAPPER, centroId);
+    }
+}
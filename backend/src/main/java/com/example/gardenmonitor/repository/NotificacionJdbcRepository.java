@@ -0,0 +1,153 @@
+package com.example.gardenmonitor.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repositorio JDBC para repartir las alertas entre los usuarios de su centro y
+ * modificar notificaciones.
+ * <p>
+ * Un único INSERT ... SELECT crea las notificaciones de varias alertas a la vez: cada
+ * alerta se cruza con su dispositivo y con los usuarios asignados (activos) al centro del
+ * dispositivo, sin cargar entidades. La restricción única {@code (usuario_id, alerta_id)}
+ * y {@code ON CONFLICT DO NOTHING} evitan duplicados si una alerta se reparte dos veces.
+ * El id se toma de {@code notificacion_id_seq}, la misma secuencia que usa la entidad
+ * (ver {@link LecturaJdbcRepository} para el mismo caso con las lecturas).
+ * </p>
+ * <p>
+ * Las sentencias devuelven exactamente qué han cambiado (usuarios notificados, si una
+ * notificación pasó a leída...) para mantener los contadores de no leídas de
+ * {@code NotificacionesNoLeidasService}.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Repository
+public class NotificacionJdbcRepository {
+
+    private static final String INSERTAR_PARA_ALERTAS = """
+            INSERT INTO notificacion (id, usuario_id, alerta_id, leida, fecha_envio)
+            SELECT nextval('notificacion_id_seq'), uc.usuario_id, a.id, false, now()
+            FROM alerta a
+            JOIN dispositivo_esp32 d ON d.id = a.dispositivo_id
+            JOIN usuario_centro uc ON uc.centro_id = d.centro_id AND uc.activo
+            WHERE a.id = ANY(?::bigint[])
+            ON CONFLICT (usuario_id, alerta_id) DO NOTHING
+            RETURNING usuario_id
+            """;
+
+    private static final String MARCAR_LEIDA = """
+            UPDATE notificacion SET leida = ?
+            WHERE id = ? AND leida <> ?
+            """;
+
+    private static final String ELIMINAR = """
+            DELETE FROM notificacion WHERE id = ?
+            RETURNING leida
+            """;
+
+    /** Recorre idx_notificacion_usuario_leida: solo toca las no leídas del usuario. */
+    private static final String MARCAR_LEIDAS_USUARIO = """
+            UPDATE notificacion SET leida = true
+            WHERE usuario_id = ? AND NOT leida
+            """;
+
+    private static final String MARCAR_LEIDAS_IDS = """
+            UPDATE notificacion SET leida = true
+            WHERE usuario_id = ? AND NOT leida AND id = ANY(?::bigint[])
+            """;
+
+    private static final String ELIMINAR_LEIDAS = """
+            DELETE FROM notificacion
+            WHERE leida AND fecha_envio < ?
+            """;
+
+    private static final String ELIMINAR_LEIDAS_USUARIO = """
+            DELETE FROM notificacion
+            WHERE usuario_id = ? AND leida AND fecha_envio < ?
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Crea una notificación por cada usuario activo del centro de cada alerta, con una
+     * sola sentencia. Las que ya existían no se repiten.
+     *
+     * @param alertaIds identificadores de las alertas
+     * @return usuario de cada notificación creada (repetido si recibe varias)
+     */
+    public List<Long> insertarParaAlertas(Collection<Long> alertaIds) {
+        Long[] ids = alertaIds.toArray(new Long[0]);
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERTAR_PARA_ALERTAS);
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            return ps;
+        }, (rs, i) -> rs.getLong(1));
+    }
+
+    /**
+     * Marca una notificación como leída o no leída solo si no lo estaba ya, para saber
+     * con certeza si ha cambiado aunque llegue la misma petición dos veces a la vez.
+     *
+     * @param id    identificador de la notificación
+     * @param leida nuevo valor
+     * @return true si la notificación ha cambiado
+     */
+    public boolean marcarLeida(Long id, boolean leida) {
+        return jdbcTemplate.update(MARCAR_LEIDA, leida, id, leida) > 0;
+    }
+
+    /**
+     * Elimina una notificación.
+     *
+     * @param id identificador de la notificación
+     * @return si estaba leída, o vacío si ya no existía
+     */
+    public Optional<Boolean> eliminar(Long id) {
+        return jdbcTemplate.query(ELIMINAR, (rs, i) -> rs.getBoolean(1), id).stream().findFirst();
+    }
+
+    /**
+     * Marca como leídas todas las notificaciones no leídas de un usuario, o solo las
+     * indicadas, con una sola sentencia.
+     *
+     * @param usuarioId identificador del usuario
+     * @param ids       notificaciones a marcar, o null para todas (las de otros usuarios se ignoran)
+     * @return número de notificaciones que han pasado a leídas
+     */
+    public int marcarLeidas(Long usuarioId, Collection<Long> ids) {
+        if (ids == null) {
+            return jdbcTemplate.update(MARCAR_LEIDAS_USUARIO, usuarioId);
+        }
+        Long[] array = ids.toArray(new Long[0]);
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(MARCAR_LEIDAS_IDS);
+            ps.setLong(1, usuarioId);
+            ps.setArray(2, con.createArrayOf("bigint", array));
+            return ps;
+        });
+    }
+
+    /**
+     * Elimina con una sola sentencia las notificaciones leídas enviadas antes de una fecha.
+     * No cambia ningún contador de no leídas.
+     *
+     * @param usuarioId identificador del usuario, o null para las de todos los usuarios
+     * @param antesDe   fecha de envío límite (exclusiva)
+     * @return número de notificaciones eliminadas
+     */
+    public int eliminarLeidas(Long usuarioId, LocalDateTime antesDe) {
+        return usuarioId == null
+                ? jdbcTemplate.update(ELIMINAR_LEIDAS, antesDe)
+                : jdbcTemplate.update(ELIMINAR_LEIDAS_USUARIO, usuarioId, antesDe);
+    }
+}
@@ -11,4 +11,6 @@ public interface NotificacionRepository extends JpaRepository<Notificacion, Long
     List<Notificacion> findByUsuario_Id(Long usuarioId);
     List<Notificacion> findByUsuario_IdAndLeida(Long usuarioId, boolean leida);
     List<Notificacion> findByAlerta_Id(Long alertaId);
+    boolean existsByUsuario_IdAndAlerta_Id(Long usuarioId, Long alertaId);
+    long countByUsuario_IdAndLeida(Long usuarioId, boolean leida);
 }
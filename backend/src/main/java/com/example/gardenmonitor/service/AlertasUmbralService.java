@@ -0,0 +1,274 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.dto.DispositivoResumen;
+import com.example.gardenmonitor.model.Lectura;
+import com.example.gardenmonitor.model.TipoAlerta;
+import com.example.gardenmonitor.repository.AlertaJdbcRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Generación automática de alertas a partir de los umbrales de cada dispositivo.
+ * <p>
+ * El hilo de volcado de {@link IngestaLecturasService} pasa aquí cada lote ya guardado.
+ * Cada lectura se compara con los umbrales del dispositivo, que se leen de
+ * {@link DispositivoCacheService} (en memoria; se recargan cuando se editan). Mientras
+ * no cambia el estado de ninguna alerta no se accede a la BD.
+ * </p>
+ * <p>
+ * Para evitar alertas repetidas y que un valor que oscila junto al umbral abra y cierre
+ * alertas sin parar:
+ * </p>
+ * <ul>
+ *   <li>Una alerta se crea cuando {@code lecturas.alertas.lecturas-consecutivas} lecturas
+ *       seguidas están fuera del umbral, y se resuelve (RESUELTA) cuando otras tantas
+ *       vuelven dentro con un margen de histéresis ({@link Regla}).</li>
+ *   <li>Mientras la condición dura no se crea otra alerta del mismo tipo para el
+ *       dispositivo, aunque se haya resuelto o ignorado a mano.</li>
+ *   <li>Al arrancar se cargan las alertas ACTIVA de la BD para no duplicarlas.</li>
+ * </ul>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Service
+public class AlertasUmbralService {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertasUmbralService.class);
+
+    /** Condición que genera cada tipo de alerta. */
+    enum Regla {
+        TEMPERATURA_ALTA(TipoAlerta.TEMPERATURA_ALTA, "Temperatura", "°C", true, new BigDecimal("1.00"),
+                Lectura::getTemperatura, DispositivoResumen::getUmbralTempMax),
+        TEMPERATURA_BAJA(TipoAlerta.TEMPERATURA_BAJA, "Temperatura", "°C", false, new BigDecimal("1.00"),
+                Lectura::getTemperatura, DispositivoResumen::getUmbralTempMin),
+        HUMEDAD_AMBIENTE_ALTA(TipoAlerta.HUMEDAD_AMBIENTE_ALTA, "Humedad ambiente", "%", true, new BigDecimal("3.00"),
+                Lectura::getHumedadAmbiente, DispositivoResumen::getUmbralHumedadAmbienteMax),
+        HUMEDAD_AMBIENTE_BAJA(TipoAlerta.HUMEDAD_AMBIENTE_BAJA, "Humedad ambiente", "%", false, new BigDecimal("3.00"),
+                Lectura::getHumedadAmbiente, DispositivoResumen::getUmbralHumedadAmbienteMin),
+        HUMEDAD_SUELO_BAJA(TipoAlerta.HUMEDAD_SUELO_BAJA, "Humedad del suelo", "%", false, new BigDecimal("3.00"),
+                Lectura::getHumedadSuelo, DispositivoResumen::getUmbralHumedadSueloMin),
+        CO2_ALTO(TipoAlerta.CO2_ALTO, "CO2", "ppm", true, new BigDecimal("50.00"),
+                Lectura::getCo2, DispositivoResumen::getUmbralCO2Max);
+
+        final TipoAlerta tipo;
+        final String sensor;
+        final String unidad;
+        /** true si el umbral es un máximo, false si es un mínimo. */
+        final boolean maximo;
+        /** Distancia al umbral que debe recuperar el valor para resolver la alerta. */
+        final BigDecimal histeresis;
+        final Function<Lectura, BigDecimal> valor;
+        final Function<DispositivoResumen, BigDecimal> umbral;
+
+        Regla(TipoAlerta tipo, String sensor, String unidad, boolean maximo, BigDecimal histeresis,
+              Function<Lectura, BigDecimal> valor, Function<DispositivoResumen, BigDecimal> umbral) {
+            this.tipo = tipo;
+            this.sensor = sensor;
+            this.unidad = unidad;
+            this.maximo = maximo;
+            this.histeresis = histeresis;
+            this.valor = valor;
+            this.umbral = umbral;
+        }
+
+        boolean fuera(BigDecimal v, BigDecimal u) {
+            return maximo ? v.compareTo(u) > 0 : v.compareTo(u) < 0;
+        }
+
+        boolean recuperado(BigDecimal v, BigDecimal u) {
+            return maximo ? v.compareTo(u.subtract(histeresis)) <= 0 : v.compareTo(u.add(histeresis)) >= 0;
+        }
+
+        String mensaje(BigDecimal v, BigDecimal u) {
+            return sensor + " de " + v.toPlainString() + " " + unidad + (maximo ? " por encima del umbral máximo ("
+                    : " por debajo del umbral mínimo (") + u.toPlainString() + " " + unidad + ")";
+        }
+
+        static Optional<Regla> de(TipoAlerta tipo) {
+            for (Regla regla : values()) {
+                if (regla.tipo == tipo) {
+                    return Optional.of(regla);
+                }
+            }
+            return Optional.empty();
+        }
+    }
+
+    private static final Regla[] REGLAS = Regla.values();
+
+    /** Estado de las reglas de un dispositivo. Se accede sincronizando sobre el objeto. */
+    private static final class Estado {
+        /** Si la condición se considera en curso (con histéresis). */
+        final boolean[] enAlarma = new boolean[REGLAS.length];
+        /** Lecturas seguidas que apuntan a cambiar {@code enAlarma}. */
+        final int[] consecutivas = new int[REGLAS.length];
+        /** Alerta ACTIVA abierta por la condición en curso, o null. */
+        final Long[] alertaId = new Long[REGLAS.length];
+    }
+
+    @Autowired
+    private AlertaJdbcRepository alertaJdbcRepository;
+
+    @Autowired
+    private DispositivoCacheService dispositivoCacheService;
+
+    @Autowired
+    private VersionDatosService versionDatosService;
+
+    @Autowired
+    private NotificacionesService notificacionesService;
+
+    @Value("${lecturas.alertas.habilitadas:true}")
+    private boolean habilitadas;
+
+    @Value("${lecturas.alertas.lecturas-consecutivas:2}")
+    private int lecturasConsecutivas;
+
+    private final Map<Long, Estado> estados = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void cargar() {
+        try {
+            List<AlertaJdbcRepository.AlertaActiva> activas = alertaJdbcRepository.buscarActivas();
+            // Si hay varias del mismo tipo (creadas a mano) se sigue la más reciente
+            activas.forEach(a -> Regla.de(a.tipo()).ifPresent(regla -> {
+                Estado estado = estados.computeIfAbsent(a.dispositivoId(), id -> new Estado());
+                estado.enAlarma[regla.ordinal()] = true;
+                estado.alertaId[regla.ordinal()] = a.id();
+            }));
+            log.info("Alertas activas cargadas: {}", activas.size());
+        } catch (DataAccessException e) {
+            log.warn("No se pudieron cargar las alertas activas; se podrían repetir alertas ya abiertas", e);
+        }
+    }
+
+    /**
+     * Evalúa un lote de lecturas ya guardadas contra los umbrales de sus dispositivos.
+     * Los errores de la BD se registran y no se propagan: el lote ya está guardado.
+     *
+     * @param lote lecturas en orden de llegada
+     */
+    public void evaluar(List<Lectura> lote) {
+        if (!habilitadas) {
+            return;
+        }
+        for (Lectura lectura : lote) {
+            Optional<DispositivoResumen> dispositivo;
+            try {
+                dispositivo = dispositivoCacheService.buscarPorMac(lectura.getDispositivo().getMacAddress());
+            } catch (DataAccessException e) {
+                // Umbrales no disponibles (la caché se vació y la BD no responde): no se evalúa
+                log.warn("No se pudieron leer los umbrales del dispositivo {}", lectura.getDispositivo().getId(), e);
+                continue;
+            }
+            dispositivo.ifPresent(d -> evaluar(lectura, d));
+        }
+    }
+
+    private void evaluar(Lectura lectura, DispositivoResumen dispositivo) {
+        Estado estado = estados.computeIfAbsent(dispositivo.getId(), id -> new Estado());
+        synchronized (estado) {
+            for (Regla regla : REGLAS) {
+                int i = regla.ordinal();
+                BigDecimal valor = regla.valor.apply(lectura);
+                BigDecimal umbral = regla.umbral.apply(dispositivo);
+                boolean cambia = valor != null && umbral != null && (estado.enAlarma[i]
+                        ? regla.recuperado(valor, umbral) : regla.fuera(valor, umbral));
+                if (!cambia) {
+                    estado.consecutivas[i] = 0;
+                } else if (++estado.consecutivas[i] >= lecturasConsecutivas) {
+                    if (estado.enAlarma[i] ? resolver(estado, i, lectura)
+                            : abrir(estado, regla, dispositivo.getId(), lectura, valor, umbral)) {
+                        estado.enAlarma[i] = !estado.enAlarma[i];
+                        estado.consecutivas[i] = 0;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean abrir(Estado estado, Regla regla, Long dispositivoId, Lectura lectura,
+                          BigDecimal valor, BigDecimal umbral) {
+        try {
+            estado.alertaId[regla.ordinal()] = alertaJdbcRepository.insertar(
+                    dispositivoId, regla.tipo, regla.mensaje(valor, umbral), lectura.getTimestamp());
+        } catch (DataAccessException e) {
+            log.warn("No se pudo crear la alerta {} del dispositivo {}, se reintentará", regla.tipo, dispositivoId, e);
+            return false;
+        }
+        versionDatosService.incrementar(VersionDatosService.Ambito.ALERTAS, dispositivoId);
+        notificacionesService.notificar(estado.alertaId[regla.ordinal()]);
+        return true;
+    }
+
+    private boolean resolver(Estado estado, int i, Lectura lectura) {
+        Long alertaId = estado.alertaId[i];
+        if (alertaId != null) {
+            try {
+                alertaJdbcRepository.resolver(alertaId, LocalDateTime.now());
+            } catch (DataAccessException e) {
+                log.warn("No se pudo resolver la alerta {}, se reintentará", alertaId, e);
+                return false;
+            }
+            versionDatosService.incrementar(VersionDatosService.Ambito.ALERTAS, lectura.getDispositivo().getId());
+            estado.alertaId[i] = null;
+        }
+        return true;
+    }
+
+    /**
+     * Avisa de que una alerta ya no está ACTIVA por una acción manual (resuelta, ignorada
+     * o eliminada). No se vuelve a crear otra hasta que la condición termine y se repita.
+     *
+     * @param dispositivoId identificador del dispositivo de la alerta
+     * @param tipo          tipo de la alerta
+     * @param alertaId      identificador de la alerta
+     */
+    public void cerrada(Long dispositivoId, TipoAlerta tipo, Long alertaId) {
+        Estado estado = estados.get(dispositivoId);
+        if (estado == null) {
+            return;
+        }
+        Regla.de(tipo).ifPresent(regla -> {
+            synchronized (estado) {
+                if (alertaId.equals(estado.alertaId[regla.ordinal()])) {
+                    estado.alertaId[regla.ordinal()] = null;
+                }
+            }
+        });
+    }
+
+    /**
+     * Descarta el estado de un dispositivo eliminado (sus alertas se borran en cascada).
+     *
+     * @param dispositivoId identificador del dispositivo
+     */
+    public void olvidar(Long dispositivoId) {
+        estados.remove(dispositivoId);
+    }
+
+    /**
+     * Descarta el estado de los dispositivos borrados.
+     *
+     * @param evento dispositivos borrados
+     */
+    @EventListener
+    void alEliminarDispositivos(DispositivosEliminados evento) {
+        evento.dispositivoIds().forEach(this::olvidar);
+    }
+}
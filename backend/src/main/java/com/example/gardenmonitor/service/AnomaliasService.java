@@ -0,0 +1,166 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.dto.AnomaliaLectura;
+import com.example.gardenmonitor.model.Lectura;
+import com.example.gardenmonitor.repository.LecturaAnomaliaJdbcRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Detección en streaming de lecturas anómalas (picos y fallos de sensor).
+ * <p>
+ * Para cada dispositivo y sensor mantiene una media y una varianza con media móvil
+ * exponencial (EWMA) de factor {@code lecturas.anomalias.alfa}: memoria y coste
+ * constantes por lectura, sin consultar la BD. Una lectura es anómala si su puntuación
+ * z respecto a la media anterior ({@code |valor - media| / desviación}) supera
+ * {@code lecturas.anomalias.z-max}. No se marca nada hasta que el dispositivo ha enviado
+ * {@code lecturas.anomalias.calentamiento} lecturas.
+ * </p>
+ * <p>
+ * Para que un pico aislado no desplace el modelo, el valor anómalo se recorta a
+ * {@code media ± z-max · desviación} antes de actualizarlo; un cambio real de nivel se
+ * va incorporando en las lecturas siguientes. Cada sensor tiene una desviación mínima
+ * ({@link #DESVIACION_MINIMA}) para no marcar variaciones pequeñas de sensores que
+ * llevan tiempo estables.
+ * </p>
+ * <p>
+ * Lo llama solo el hilo de volcado de {@link IngestaLecturasService} con cada lote ya
+ * guardado, así que el estado de cada dispositivo no necesita sincronización. Las
+ * detecciones de cada lote se guardan con un batch en {@code lectura_anomalia}, que marca
+ * la lectura por su id y se consulta en {@code GET /api/lecturas/anomalias}. La lectura se
+ * guarda igualmente: la detección va después del commit del lote y solo la señala. Los
+ * modelos empiezan vacíos al arrancar (vuelven a pasar el calentamiento).
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Service
+public class AnomaliasService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnomaliasService.class);
+
+    /** Sensores en el orden de {@link MuestreoService.Canal}. */
+    private static final List<Function<Lectura, BigDecimal>> SENSORES = List.of(
+            Lectura::getTemperatura,
+            Lectura::getHumedadAmbiente,
+            Lectura::getHumedadSuelo,
+            Lectura::getCo2,
+            Lectura::getLuz1,
+            Lectura::getLuz2);
+
+    /** Desviación típica mínima de cada sensor (°C, %, %, ppm, %, %). */
+    private static final double[] DESVIACION_MINIMA = {0.5, 2, 2, 25, 10, 10};
+
+    private static final MuestreoService.Canal[] CANALES = MuestreoService.Canal.values();
+
+    /** Media y varianza EWMA de los sensores de un dispositivo. */
+    private static final class Modelo {
+        final double[] media = new double[SENSORES.size()];
+        final double[] varianza = new double[SENSORES.size()];
+        final int[] lecturas = new int[SENSORES.size()];
+    }
+
+    private final double alfa;
+    private final double zMaxima;
+    private final int calentamiento;
+
+    private final LecturaAnomaliaJdbcRepository lecturaAnomaliaJdbcRepository;
+
+    private final Map<Long, Modelo> modelos = new ConcurrentHashMap<>();
+
+    public AnomaliasService(@Value("${lecturas.anomalias.alfa:0.05}") double alfa,
+                            @Value("${lecturas.anomalias.z-max:4.0}") double zMaxima,
+                            @Value("${lecturas.anomalias.calentamiento:20}") int calentamiento,
+                            LecturaAnomaliaJdbcRepository lecturaAnomaliaJdbcRepository) {
+        this.alfa = alfa;
+        this.zMaxima = zMaxima;
+        this.calentamiento = calentamiento;
+        this.lecturaAnomaliaJdbcRepository = lecturaAnomaliaJdbcRepository;
+    }
+
+    /**
+     * Evalúa un lote de lecturas ya guardadas, actualiza los modelos de sus dispositivos y
+     * guarda las anomalías detectadas.
+     *
+     * @param lote lecturas en orden de llegada, con id
+     */
+    public void evaluar(List<Lectura> lote) {
+        List<AnomaliaLectura> anomalias = new ArrayList<>();
+        for (Lectura lectura : lote) {
+            Long dispositivoId = lectura.getDispositivo().getId();
+            Modelo modelo = modelos.computeIfAbsent(dispositivoId, id -> new Modelo());
+            for (int canal = 0; canal < SENSORES.size(); canal++) {
+                BigDecimal valor = SENSORES.get(canal).apply(lectura);
+                if (valor != null) {
+                    evaluar(modelo, canal, valor.doubleValue(), lectura, anomalias);
+                }
+            }
+        }
+        if (!anomalias.isEmpty()) {
+            lecturaAnomaliaJdbcRepository.insertar(anomalias);
+        }
+    }
+
+    private void evaluar(Modelo modelo, int canal, double valor, Lectura lectura, List<AnomaliaLectura> anomalias) {
+        if (modelo.lecturas[canal]++ == 0) {
+            modelo.media[canal] = valor;
+            return;
+        }
+        double media = modelo.media[canal];
+        double desviacion = Math.max(Math.sqrt(modelo.varianza[canal]), DESVIACION_MINIMA[canal]);
+        double z = Math.abs(valor - media) / desviacion;
+        if (z > zMaxima && modelo.lecturas[canal] > calentamiento) {
+            AnomaliaLectura anomalia = new AnomaliaLectura(lectura.getDispositivo().getId(), lectura.getId(),
+                    lectura.getTimestamp(), CANALES[canal].name(), valor, media, desviacion, z);
+            log.debug("Lectura anómala del dispositivo {}: {} = {} (media {}, z {})", anomalia.getDispositivoId(),
+                    anomalia.getCanal(), valor, media, z);
+            anomalias.add(anomalia);
+            valor = media + Math.copySign(zMaxima * desviacion, valor - media);
+        }
+        double diferencia = valor - media;
+        double incremento = alfa * diferencia;
+        modelo.media[canal] = media + incremento;
+        modelo.varianza[canal] = (1 - alfa) * (modelo.varianza[canal] + diferencia * incremento);
+    }
+
+    /**
+     * Devuelve las últimas lecturas anómalas detectadas, más recientes primero.
+     *
+     * @param dispositivoId si no es null, solo las de este dispositivo
+     * @param limite        número máximo de detecciones
+     * @return detecciones guardadas en {@code lectura_anomalia}
+     */
+    public List<AnomaliaLectura> buscarRecientes(Long dispositivoId, int limite) {
+        return lecturaAnomaliaJdbcRepository.buscarRecientes(dispositivoId, limite);
+    }
+
+    /**
+     * Descarta el modelo de un dispositivo eliminado.
+     *
+     * @param dispositivoId identificador del dispositivo
+     */
+    public void olvidar(Long dispositivoId) {
+        modelos.remove(dispositivoId);
+    }
+
+    /**
+     * Descarta el modelo de los dispositivos borrados.
+     *
+     * @param evento dispositivos borrados
+     */
+    @EventListener
+    void alEliminarDispositivos(DispositivosEliminados evento) {
+        evento.dispositivoIds().forEach(this::olvidar);
+    }
+}
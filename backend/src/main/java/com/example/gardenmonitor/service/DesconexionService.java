@@ -0,0 +1,351 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.dto.DispositivoResumen;
+import com.example.gardenmonitor.model.Lectura;
+import com.example.gardenmonitor.model.TipoAlerta;
+import com.example.gardenmonitor.repository.AlertaJdbcRepository;
+import com.example.gardenmonitor.repository.DispositivoEsp32JdbcRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Detección de dispositivos desconectados con una rueda de temporizadores (hashed timing wheel).
+ * <p>
+ * Cada dispositivo activo tiene un plazo: la hora de su última lectura más
+ * {@code dispositivos.desconexion.factor} veces su {@code frecuenciaLecturaSeg}. Si vence
+ * sin que llegue otra lectura se crea una alerta DISPOSITIVO_DESCONECTADO, y cuando el
+ * dispositivo vuelve a enviar lecturas se resuelve (RESUELTA).
+ * </p>
+ * <p>
+ * Los plazos se guardan en una rueda de {@code dispositivos.desconexion.ranuras} ranuras
+ * de {@code dispositivos.desconexion.tick-ms} cada una; cada ranura es una lista doblemente
+ * enlazada. Reprogramar un plazo al llegar una lectura es sacar el nodo de una lista y
+ * meterlo en otra, y cada tick solo recorre una ranura, así que el coste es O(1) por lectura
+ * y por vencimiento, en lugar de recorrer toda la tabla {@code dispositivo_esp32} cada cierto
+ * tiempo. Los plazos más largos que una vuelta de la rueda guardan las vueltas que faltan.
+ * </p>
+ * <p>
+ * El plazo se reprograma con la hora de llegada del lote al hilo de volcado de
+ * {@link IngestaLecturasService}, no con el timestamp del ESP32: un lote de lecturas
+ * atrasadas también indica que el dispositivo está conectado. Al arrancar se programan
+ * los dispositivos activos a partir de la {@code ultima_conexion} de la BD, sin repetir
+ * las alertas DISPOSITIVO_DESCONECTADO que ya están ACTIVA.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Service
+public class DesconexionService {
+
+    private static final Logger log = LoggerFactory.getLogger(DesconexionService.class);
+
+    private static final ZoneId ZONA = ZoneId.systemDefault();
+
+    /** Plazo de un dispositivo, nodo de la lista de su ranura. Protegido por el servicio. */
+    private static final class Temporizador {
+        final Long dispositivoId;
+        /** Vueltas completas de la rueda que faltan al llegar a su ranura. */
+        long vueltas;
+        /** Ranura en la que está, o -1 si no está programado. */
+        int ranura = -1;
+        Temporizador anterior;
+        Temporizador siguiente;
+        /** Plazo vencido y sin lecturas nuevas. */
+        boolean desconectado;
+        /** Alerta DISPOSITIVO_DESCONECTADO abierta, o null. */
+        Long alertaId;
+
+        Temporizador(Long dispositivoId) {
+            this.dispositivoId = dispositivoId;
+        }
+    }
+
+    private final AlertaJdbcRepository alertaJdbcRepository;
+    private final DispositivoEsp32JdbcRepository dispositivoEsp32JdbcRepository;
+    private final DispositivoCacheService dispositivoCacheService;
+    private final VersionDatosService versionDatosService;
+    private final NotificacionesService notificacionesService;
+
+    private final boolean habilitada;
+    private final int factor;
+    private final long tickMs;
+    /** Hora de la rueda; las pruebas usan uno que avanzan a mano. */
+    private final Clock reloj;
+
+    /** Primer nodo de cada ranura. */
+    private final Temporizador[] ranuras;
+    private final Map<Long, Temporizador> temporizadores = new HashMap<>();
+    /** Último tick procesado ({@code epochMs / tickMs}). */
+    private long tickActual;
+
+    @Autowired
+    public DesconexionService(AlertaJdbcRepository alertaJdbcRepository,
+                              DispositivoEsp32JdbcRepository dispositivoEsp32JdbcRepository,
+                              DispositivoCacheService dispositivoCacheService,
+                              VersionDatosService versionDatosService,
+                              NotificacionesService notificacionesService,
+                              @Value("${dispositivos.desconexion.habilitada:true}") boolean habilitada,
+                              @Value("${dispositivos.desconexion.factor:3}") int factor,
+                              @Value("${dispositivos.desconexion.tick-ms:10000}") long tickMs,
+                              @Value("${dispositivos.desconexion.ranuras:512}") int ranuras) {
+        this(alertaJdbcRepository, dispositivoEsp32JdbcRepository, dispositivoCacheService, versionDatosService,
+                notificacionesService, habilitada, factor, tickMs, ranuras, Clock.systemDefaultZone());
+    }
+
+    DesconexionService(AlertaJdbcRepository alertaJdbcRepository,
+                       DispositivoEsp32JdbcRepository dispositivoEsp32JdbcRepository,
+                       DispositivoCacheService dispositivoCacheService,
+                       VersionDatosService versionDatosService,
+                       NotificacionesService notificacionesService,
+                       boolean habilitada, int factor, long tickMs, int ranuras, Clock reloj) {
+        this.alertaJdbcRepository = alertaJdbcRepository;
+        this.dispositivoEsp32JdbcRepository = dispositivoEsp32JdbcRepository;
+        this.dispositivoCacheService = dispositivoCacheService;
+        this.versionDatosService = versionDatosService;
+        this.notificacionesService = notificacionesService;
+        this.habilitada = habilitada;
+        this.factor = factor;
+        this.tickMs = tickMs;
+        this.ranuras = new Temporizador[ranuras];
+        this.reloj = reloj;
+        this.tickActual = reloj.millis() / tickMs;
+    }
+
+    @PostConstruct
+    void cargar() {
+        if (!habilitada) {
+            return;
+        }
+        try {
+            Map<Long, Long> abiertas = new HashMap<>();
+            alertaJdbcRepository.buscarActivas().stream()
+                    .filter(a -> a.tipo() == TipoAlerta.DISPOSITIVO_DESCONECTADO)
+                    .forEach(a -> abiertas.put(a.dispositivoId(), a.id()));
+            List<DispositivoEsp32JdbcRepository.ConexionDispositivo> conexiones =
+                    dispositivoEsp32JdbcRepository.buscarConexionesActivos();
+            synchronized (this) {
+                for (DispositivoEsp32JdbcRepository.ConexionDispositivo c : conexiones) {
+                    Temporizador t = temporizador(c.id());
+                    if (abiertas.containsKey(c.id())) {
+                        t.desconectado = true;
+                        t.alertaId = abiertas.get(c.id());
+                    } else {
+                        programar(t, c.ultimaConexion().atZone(ZONA).toInstant().toEpochMilli(),
+                                c.frecuenciaLecturaSeg());
+                    }
+                }
+            }
+            log.info("Plazos de conexión programados: {} dispositivos", conexiones.size());
+        } catch (DataAccessException e) {
+            // Se programarán según lleguen lecturas
+            log.warn("No se pudieron cargar las conexiones de los dispositivos", e);
+        }
+    }
+
+    /**
+     * Reprograma el plazo de los dispositivos de un lote ya guardado y resuelve la alerta
+     * de los que estaban desconectados.
+     *
+     * @param lote lecturas del lote
+     */
+    public void registrar(List<Lectura> lote) {
+        if (!habilitada) {
+            return;
+        }
+        Set<String> macs = new LinkedHashSet<>();
+        lote.forEach(l -> macs.add(l.getDispositivo().getMacAddress()));
+        long ahora = reloj.millis();
+        List<Temporizador> reconectados = new ArrayList<>();
+        for (String mac : macs) {
+            Optional<DispositivoResumen> dispositivo;
+            try {
+                dispositivo = dispositivoCacheService.buscarPorMac(mac);
+            } catch (DataAccessException e) {
+                log.warn("No se pudo leer la frecuencia del dispositivo {}", mac, e);
+                continue;
+            }
+            dispositivo.ifPresent(d -> {
+                synchronized (this) {
+                    Temporizador t = temporizador(d.getId());
+                    if (t.desconectado) {
+                        t.desconectado = false;
+                        reconectados.add(t);
+                    }
+                    if (d.isActivo()) {
+                        programar(t, ahora, d.getFrecuenciaLecturaSeg());
+                    } else {
+                        quitar(t);
+                    }
+                }
+            });
+        }
+        reconectados.forEach(this::resolver);
+    }
+
+    /**
+     * Avanza la rueda hasta la hora actual y abre una alerta por cada plazo vencido.
+     */
+    @Scheduled(fixedDelayString = "${dispositivos.desconexion.tick-ms:10000}")
+    public void avanzar() {
+        if (!habilitada) {
+            return;
+        }
+        List<Temporizador> vencidos = new ArrayList<>();
+        synchronized (this) {
+            long objetivo = reloj.millis() / tickMs;
+            while (tickActual < objetivo) {
+                tickActual++;
+                int ranura = (int) (tickActual % ranuras.length);
+                Temporizador t = ranuras[ranura];
+                while (t != null) {
+                    Temporizador siguiente = t.siguiente;
+                    if (t.vueltas == 0) {
+                        quitar(t);
+                        t.desconectado = true;
+                        vencidos.add(t);
+                    } else {
+                        t.vueltas--;
+                    }
+                    t = siguiente;
+                }
+            }
+        }
+        vencidos.forEach(this::abrir);
+    }
+
+    private void abrir(Temporizador t) {
+        Long alertaId;
+        try {
+            alertaId = alertaJdbcRepository.insertar(t.dispositivoId, TipoAlerta.DISPOSITIVO_DESCONECTADO,
+                    "Sin lecturas del dispositivo en " + factor + " intervalos de lectura", LocalDateTime.now(reloj));
+        } catch (DataAccessException e) {
+            // Sigue marcado como desconectado; la alerta no se reintenta hasta la próxima desconexión
+            log.warn("No se pudo crear la alerta de desconexión del dispositivo {}", t.dispositivoId, e);
+            return;
+        }
+        versionDatosService.incrementar(VersionDatosService.Ambito.ALERTAS, t.dispositivoId);
+        notificacionesService.notificar(alertaId);
+        boolean reconectado;
+        synchronized (this) {
+            reconectado = !t.desconectado || temporizadores.get(t.dispositivoId) != t;
+            if (!reconectado) {
+                t.alertaId = alertaId;
+            }
+        }
+        if (reconectado) {
+            // Llegó una lectura mientras se creaba la alerta
+            resolver(alertaId, t.dispositivoId);
+        }
+    }
+
+    private void resolver(Temporizador t) {
+        Long alertaId;
+        synchronized (this) {
+            alertaId = t.alertaId;
+            t.alertaId = null;
+        }
+        if (alertaId != null) {
+            resolver(alertaId, t.dispositivoId);
+        }
+    }
+
+    private void resolver(Long alertaId, Long dispositivoId) {
+        try {
+            alertaJdbcRepository.resolver(alertaId, LocalDateTime.now(reloj));
+            versionDatosService.incrementar(VersionDatosService.Ambito.ALERTAS, dispositivoId);
+        } catch (DataAccessException e) {
+            log.warn("No se pudo resolver la alerta de desconexión {}", alertaId, e);
+        }
+    }
+
+    /**
+     * Avisa de que una alerta DISPOSITIVO_DESCONECTADO ya no está ACTIVA por una acción
+     * manual. No se abre otra hasta que el dispositivo vuelva a conectarse y a desconectarse.
+     *
+     * @param dispositivoId identificador del dispositivo de la alerta
+     * @param alertaId      identificador de la alerta
+     */
+    public synchronized void cerrada(Long dispositivoId, Long alertaId) {
+        Temporizador t = temporizadores.get(dispositivoId);
+        if (t != null && alertaId.equals(t.alertaId)) {
+            t.alertaId = null;
+        }
+    }
+
+    /**
+     * Deja de vigilar un dispositivo eliminado o desactivado.
+     *
+     * @param dispositivoId identificador del dispositivo
+     */
+    public synchronized void olvidar(Long dispositivoId) {
+        Temporizador t = temporizadores.remove(dispositivoId);
+        if (t != null) {
+            quitar(t);
+        }
+    }
+
+    /**
+     * Deja de vigilar los dispositivos borrados.
+     *
+     * @param evento dispositivos borrados
+     */
+    @EventListener
+    void alEliminarDispositivos(DispositivosEliminados evento) {
+        evento.dispositivoIds().forEach(this::olvidar);
+    }
+
+    private Temporizador temporizador(Long dispositivoId) {
+        return temporizadores.computeIfAbsent(dispositivoId, Temporizador::new);
+    }
+
+    /** Programa el plazo {@code desde + factor · frecuencia} (nunca antes del siguiente tick). */
+    private void programar(Temporizador t, long desdeMs, int frecuenciaSeg) {
+        quitar(t);
+        long vencimiento = desdeMs + factor * Math.max(frecuenciaSeg, 1) * 1000L;
+        long tick = Math.max((vencimiento + tickMs - 1) / tickMs, tickActual + 1);
+        t.vueltas = (tick - tickActual - 1) / ranuras.length;
+        t.ranura = (int) (tick % ranuras.length);
+        t.anterior = null;
+        t.siguiente = ranuras[t.ranura];
+        if (t.siguiente != null) {
+            t.siguiente.anterior = t;
+        }
+        ranuras[t.ranura] = t;
+    }
+
+    private void quitar(Temporizador t) {
+        if (t.ranura < 0) {
+            return;
+        }
+        if (t.anterior != null) {
+            t.anterior.siguiente = t.siguiente;
+        } else {
+            ranuras[t.ranura] = t.siguiente;
+        }
+        if (t.siguiente != null) {
+            t.siguiente.anterior = t.anterior;
+        }
+        t.anterior = null;
+        t.siguiente = null;
+        t.ranura = -1;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.dto.DispositivoResumen;
+import com.example.gardenmonitor.repository.DispositivoEsp32Repository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché en memoria MAC → dispositivo para la ruta de ingesta de lecturas.
+ * <p>
+ * Cada lectura que llega identifica su dispositivo por MAC. Sin caché, eso supone
+ * una consulta a {@code dispositivo_esp32} (con el centro y su {@code @Formula})
+ * por lectura. Aquí se guarda un {@link DispositivoResumen} por MAC y solo se va
+ * a la BD en el primer acceso o tras una invalidación.
+ * </p>
+ * <p>
+ * {@code DispositivoEsp32Controller} invalida la caché al crear o modificar
+ * dispositivos, y los borrados llegan con {@link DispositivosEliminados}. Para que una carga en curso
+ * no vuelva a meter un dato obsoleto tras una invalidación, cada invalidación
+ * incrementa una generación y las cargas solo se guardan si la generación no ha cambiado.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Service
+public class DispositivoCacheService {
+
+    @Autowired
+    private DispositivoEsp32Repository dispositivoEsp32Repository;
+
+    private final Map<String, DispositivoResumen> porMac = new ConcurrentHashMap<>();
+    private final AtomicLong generacion = new AtomicLong();
+
+    /**
+     * Resuelve un dispositivo por su MAC, consultando la BD solo si no está en caché.
+     *
+     * @param macAddress dirección MAC del dispositivo
+     * @return el dispositivo, o vacío si la MAC no está registrada
+     */
+    public Optional<DispositivoResumen> buscarPorMac(String macAddress) {
+        DispositivoResumen resumen = porMac.get(macAddress);
+        if (resumen != null) {
+            return Optional.of(resumen);
+        }
+        long antes = generacion.get();
+        Optional<DispositivoResumen> cargado = dispositivoEsp32Repository.findResumenByMacAddress(macAddress);
+        cargado.ifPresent(r -> guardar(r, antes));
+        return cargado;
+    }
+
+    /**
+     * Resuelve varias MAC a la vez; las que no están en caché se cargan con una única consulta.
+     *
+     * @param macAddresses direcciones MAC a resolver
+     * @return mapa MAC → dispositivo; las MAC no registradas no aparecen
+     */
+    public Map<String, DispositivoResumen> buscarPorMacs(Collection<String> macAddresses) {
+        Map<String, DispositivoResumen> resultado = new HashMap<>();
+        List<String> pendientes = new ArrayList<>();
+        for (String mac : macAddresses) {
+            DispositivoResumen resumen = porMac.get(mac);
+            if (resumen != null) {
+                resultado.put(mac, resumen);
+            } else {
+                pendientes.add(mac);
+            }
+        }
+        if (!pendientes.isEmpty()) {
+            long antes = generacion.get();
+            for (DispositivoResumen r : dispositivoEsp32Repository.findResumenByMacAddressIn(pendientes)) {
+                resultado.put(r.getMacAddress(), r);
+                guardar(r, antes);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Elimina de la caché la entrada de una MAC.
+     *
+     * @param macAddress dirección MAC a invalidar
+     */
+    public void invalidarMac(String macAddress) {
+        generacion.incrementAndGet();
+        if (macAddress != null) {
+            porMac.remove(macAddress);
+        }
+    }
+
+    /**
+     * Elimina de la caché la entrada de un dispositivo, sea cual sea su MAC
+     * (útil cuando la MAC ha cambiado o no se conoce).
+     *
+     * @param dispositivoId identificador del dispositivo
+     */
+    public void invalidarDispositivo(Long dispositivoId) {
+        generacion.incrementAndGet();
+        porMac.values().removeIf(r -> r.getId().equals(dispositivoId));
+    }
+
+    /**
+     * Quita de la caché los dispositivos borrados (todos los de un centro, si se ha
+     * borrado el centro) con una sola pasada.
+     *
+     * @param evento dispositivos borrados
+     */
+    @EventListener
+    void alEliminarDispositivos(DispositivosEliminados evento) {
+        Set<Long> ids = new HashSet<>(evento.dispositivoIds());
+        generacion.incrementAndGet();
+        porMac.values().removeIf(r -> ids.contains(r.getId()));
+    }
+
+    private void guardar(DispositivoResumen resumen, long generacionCarga) {
+        if (generacion.get() == generacionCarga) {
+            porMac.put(resumen.getMacAddress(), resumen);
+        }
+    }
+}
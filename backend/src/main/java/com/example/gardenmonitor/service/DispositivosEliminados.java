@@ -0,0 +1,19 @@
+package com.example.gardenmonitor.service;
+
+import java.util.List;
+
+/**
+ * Evento que se publica después de borrar uno o varios dispositivos, ya sea directamente
+ * o en cascada al borrar su centro.
+ * <p>
+ * Las lecturas, alertas y notificaciones de los dispositivos ya se han borrado en cascada
+ * en la BD. Cada servicio que guarda estado en memoria por dispositivo escucha este evento
+ * ({@code @EventListener}) y descarta el suyo, de modo que los controladores solo tienen
+ * que publicarlo.
+ * </p>
+ *
+ * @param dispositivoIds identificadores de los dispositivos borrados
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+public record DispositivosEliminados(List<Long> dispositivoIds) {}
@@ -0,0 +1,137 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.repository.LecturaJdbcRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Exportación del histórico de lecturas de un dispositivo en NDJSON o CSV.
+ * <p>
+ * Las filas se leen con un cursor de servidor ({@link LecturaJdbcRepository#exportarRango})
+ * y se escriben una a una en la respuesta a través de un buffer, sin pasar por entidades
+ * JPA ni por Jackson: la memoria usada es la misma para mil lecturas que para varios
+ * millones, y no se serializan el dispositivo ni el centro de cada lectura.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Service
+public class ExportacionLecturasService {
+
+    /** Formato de exportación. */
+    public enum Formato {
+        /** Un objeto JSON por línea (application/x-ndjson). */
+        NDJSON("application/x-ndjson", "ndjson"),
+        /** Valores separados por comas con cabecera (text/csv). */
+        CSV("text/csv", "csv");
+
+        private final String tipoContenido;
+        private final String extension;
+
+        Formato(String tipoContenido, String extension) {
+            this.tipoContenido = tipoContenido;
+            this.extension = extension;
+        }
+
+        public String getTipoContenido() {
+            return tipoContenido;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    private static final String[] COLUMNAS = {
+            "id", "timestamp", "temperatura", "humedadAmbiente", "humedadSuelo", "co2", "luz1", "luz2"
+    };
+
+    @Autowired
+    private LecturaJdbcRepository lecturaJdbcRepository;
+
+    /**
+     * Escribe en {@code salida} las lecturas de un dispositivo en un rango, en orden cronológico.
+     *
+     * @param dispositivoId identificador del dispositivo (ya validado)
+     * @param desde         inicio del rango (incluido)
+     * @param hasta         fin del rango (incluido)
+     * @param formato       formato de salida
+     * @param salida        flujo de la respuesta (no se cierra)
+     * @throws IOException si falla la escritura (p. ej. el cliente corta la descarga)
+     */
+    public void exportar(Long dispositivoId, LocalDateTime desde, LocalDateTime hasta,
+                         Formato formato, OutputStream salida) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), TAMANO_BUFFER);
+        if (formato == Formato.CSV) {
+            writer.write(String.join(",", COLUMNAS));
+            writer.write('\n');
+        }
+        try {
+            lecturaJdbcRepository.exportarRango(dispositivoId, desde, hasta, rs -> {
+                try {
+                    if (formato == Formato.CSV) {
+                        escribirCsv(rs, writer);
+                    } else {
+                        escribirNdjson(rs, writer);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private static void escribirCsv(ResultSet rs, Writer writer) throws SQLException, IOException {
+        writer.write(rs.getString(1));
+        writer.write(',');
+        writer.write(formatearTimestamp(rs));
+        // Los decimales se leen como texto: se escriben tal cual los devuelve PostgreSQL
+        for (int i = 3; i <= COLUMNAS.length; i++) {
+            writer.write(',');
+            String valor = rs.getString(i);
+            if (valor != null) {
+                writer.write(valor);
+            }
+        }
+        writer.write('\n');
+    }
+
+    private static void escribirNdjson(ResultSet rs, Writer writer) throws SQLException, IOException {
+        writer.write("{\"id\":");
+        writer.write(rs.getString(1));
+        writer.write(",\"timestamp\":\"");
+        writer.write(formatearTimestamp(rs));
+        writer.write('"');
+        for (int i = 3; i <= COLUMNAS.length; i++) {
+            writer.write(",\"");
+            writer.write(COLUMNAS[i - 1]);
+            writer.write("\":");
+            String valor = rs.getString(i);
+            writer.write(valor != null ? valor : "null");
+        }
+        writer.write("}\n");
+    }
+
+    /** Mismo formato que Jackson usa para {@code LocalDateTime} en el resto de la API. */
+    private static String formatearTimestamp(ResultSet rs) throws SQLException {
+        return rs.getTimestamp(2).toLocalDateTime().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+}
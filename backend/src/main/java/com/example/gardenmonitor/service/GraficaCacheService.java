@@ -0,0 +1,171 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.dto.EstadoCacheGrafica;
+import com.example.gardenmonitor.dto.LecturaMuestraProjection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Caché LRU de los puntos de la gráfica, con límite de memoria.
+ * <p>
+ * Varios usuarios abren a la vez los mismos dispositivos de un centro y cada apertura
+ * repetía la misma consulta de muestreo. La clave de la caché es el dispositivo, los
+ * parámetros de la gráfica y el intervalo de tiempo actual, de ancho igual a la separación
+ * entre puntos ({@code periodo / puntos}): dentro de un mismo intervalo la ventana se ha
+ * desplazado menos de un punto y se devuelve el mismo resultado.
+ * </p>
+ * <p>
+ * Cada entrada guarda la versión de las lecturas del dispositivo ({@link VersionDatosService}, ámbito LECTURAS)
+ * leída antes de calcularla. Cuando llegan lecturas nuevas la versión avanza y la entrada
+ * deja de valer: el muestreo (stride, LTTB, M4) elige otros puntos al cambiar el número de
+ * lecturas, así que no se puede ampliar el resultado anterior y se recalcula.
+ * </p>
+ * <p>
+ * Si varias peticiones piden a la vez la misma clave que no está en caché, solo la primera
+ * la calcula y el resto esperan su resultado. La memoria de cada entrada se estima por
+ * número de puntos; al superar {@code lecturas.grafica.cache.max-mb} se expulsan las
+ * entradas usadas hace más tiempo.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Service
+public class GraficaCacheService {
+
+    /**
+     * Bytes estimados por punto: el objeto, su timestamp y seis {@code BigDecimal}
+     * pequeños (sin {@code BigInteger}).
+     */
+    private static final long BYTES_POR_PUNTO = 320;
+    private static final long BYTES_POR_ENTRADA = 200;
+
+    /**
+     * Clave de una gráfica en caché.
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @param periodo       periodo en mayúsculas
+     * @param algoritmo     algoritmo de muestreo
+     * @param puntos        número de puntos pedido
+     * @param canal         sensor que guía LTTB y M4
+     * @param intervalo     número de intervalo de tiempo ({@code epoch / (periodo / puntos)})
+     */
+    public record Clave(Long dispositivoId, String periodo, MuestreoService.Algoritmo algoritmo,
+                        int puntos, MuestreoService.Canal canal, long intervalo) {}
+
+    private record Entrada(List<? extends LecturaMuestraProjection> puntos, long version, long bytes) {}
+
+    @Autowired
+    private VersionDatosService versionDatosService;
+
+    private final long bytesMaximos;
+
+    /** Orden de acceso: la primera entrada es la usada hace más tiempo. Protegido por {@code this}. */
+    private final LinkedHashMap<Clave, Entrada> entradas = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    private final Map<Clave, CompletableFuture<List<? extends LecturaMuestraProjection>>> enCurso =
+            new ConcurrentHashMap<>();
+
+    // Métricas (protegidas por this)
+    private long aciertos;
+    private long fallos;
+    private long obsoletas;
+    private long expulsadas;
+
+    public GraficaCacheService(@Value("${lecturas.grafica.cache.max-mb:32}") long maxMb) {
+        this.bytesMaximos = maxMb * 1024 * 1024;
+    }
+
+    /**
+     * Devuelve la gráfica en caché para la clave o la calcula y la guarda.
+     *
+     * @param clave   clave de la gráfica
+     * @param calculo cálculo de la gráfica si no está en caché o está obsoleta
+     * @return puntos de la gráfica (lista inmutable)
+     */
+    public List<? extends LecturaMuestraProjection> obtener(Clave clave,
+                                                            Supplier<List<? extends LecturaMuestraProjection>> calculo) {
+        long version = versionDatosService.version(VersionDatosService.Ambito.LECTURAS, clave.dispositivoId());
+        synchronized (this) {
+            Entrada entrada = entradas.get(clave);
+            if (entrada != null && entrada.version() == version) {
+                aciertos++;
+                return entrada.puntos();
+            }
+            if (entrada != null) {
+                obsoletas++;
+                quitar(clave);
+            }
+            fallos++;
+        }
+
+        CompletableFuture<List<? extends LecturaMuestraProjection>> propio = new CompletableFuture<>();
+        CompletableFuture<List<? extends LecturaMuestraProjection>> existente = enCurso.putIfAbsent(clave, propio);
+        if (existente != null) {
+            return esperar(existente);
+        }
+        try {
+            List<? extends LecturaMuestraProjection> puntos = List.copyOf(calculo.get());
+            guardar(clave, new Entrada(puntos, version, BYTES_POR_ENTRADA + puntos.size() * BYTES_POR_PUNTO));
+            propio.complete(puntos);
+            return puntos;
+        } catch (RuntimeException e) {
+            propio.completeExceptionally(e);
+            throw e;
+        } finally {
+            enCurso.remove(clave, propio);
+        }
+    }
+
+    /**
+     * @return instantánea de las métricas de la caché
+     */
+    public synchronized EstadoCacheGrafica obtenerEstado() {
+        return new EstadoCacheGrafica(entradas.size(), bytes, bytesMaximos, aciertos, fallos, obsoletas, expulsadas);
+    }
+
+    private synchronized void guardar(Clave clave, Entrada entrada) {
+        if (entrada.bytes() > bytesMaximos) {
+            return;
+        }
+        quitar(clave);
+        entradas.put(clave, entrada);
+        bytes += entrada.bytes();
+        Iterator<Entrada> antiguas = entradas.values().iterator();
+        while (bytes > bytesMaximos && antiguas.hasNext()) {
+            bytes -= antiguas.next().bytes();
+            antiguas.remove();
+            expulsadas++;
+        }
+    }
+
+    private void quitar(Clave clave) {
+        Entrada anterior = entradas.remove(clave);
+        if (anterior != null) {
+            bytes -= anterior.bytes();
+        }
+    }
+
+    private static List<? extends LecturaMuestraProjection> esperar(
+            CompletableFuture<List<? extends LecturaMuestraProjection>> tarea) {
+        try {
+            return tarea.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+}
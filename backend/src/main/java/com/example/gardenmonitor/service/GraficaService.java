@@ -0,0 +1,254 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.dto.LecturaMuestra;
+import com.example.gardenmonitor.dto.LecturaMuestraProjection;
+import com.example.gardenmonitor.repository.LecturaDiaRepository;
+import com.example.gardenmonitor.repository.LecturaHoraRepository;
+import com.example.gardenmonitor.repository.LecturaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+/**
+ * Calcula los puntos de la gráfica de lecturas de un dispositivo.
+ * <p>
+ * Según el periodo, los puntos salen de una fuente distinta:
+ * </p>
+ * <ul>
+ *   <li>DIA, SEMANA, MES — lecturas reales muestreadas sobre {@code lectura}, con el
+ *       algoritmo elegido: stride sampling en SQL (por defecto), LTTB o M4
+ *       (ver {@link MuestreoService}). DIA se muestrea en memoria sobre
+ *       {@link LecturasRecientesService} sin consultar la BD, salvo que el buffer del
+ *       dispositivo no cubra el día completo</li>
+ *   <li>SEMESTRE — agregados por hora ({@code lectura_hora}) reagrupados en intervalos de
+ *       varias horas (cada 12 horas con los 400 puntos por defecto)</li>
+ *   <li>ANIO — agregados por día ({@code lectura_dia}), reagrupados en intervalos de
+ *       uno o más días (un punto por día con los 400 puntos por defecto)</li>
+ * </ul>
+ * <p>
+ * Para periodos largos los agregados evitan recorrer con funciones de ventana todas las
+ * lecturas del rango; cada punto trae además el mínimo y el máximo del intervalo, por lo
+ * que LTTB y M4 no aplican a SEMESTRE ni ANIO.
+ * </p>
+ * <p>
+ * Las gráficas de varios dispositivos ({@link #obtenerGraficas}) se calculan en paralelo
+ * en el ejecutor acotado {@code graficaExecutor} (ver {@code GraficaConfig}).
+ * </p>
+ * <p>
+ * Los resultados pasan por {@link GraficaCacheService}: una gráfica pedida de nuevo
+ * antes de que avance un punto en el tiempo, y sin lecturas nuevas del dispositivo,
+ * no vuelve a consultar la BD.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Service
+public class GraficaService {
+
+    public static final int PUNTOS_MINIMO = 10;
+    public static final int PUNTOS_MAXIMO = 5000;
+
+    @Autowired
+    private LecturaRepository lecturaRepository;
+
+    @Autowired
+    private LecturaHoraRepository lecturaHoraRepository;
+
+    @Autowired
+    private LecturaDiaRepository lecturaDiaRepository;
+
+    @Autowired
+    private MuestreoService muestreoService;
+
+    @Autowired
+    private LecturasRecientesService lecturasRecientesService;
+
+    @Autowired
+    private GraficaCacheService graficaCacheService;
+
+    @Autowired
+    @Qualifier("graficaExecutor")
+    private TaskExecutor graficaExecutor;
+
+    /**
+     * Devuelve los puntos de la gráfica de un dispositivo para un periodo.
+     *
+     * @param dispositivoId identificador del dispositivo (ya validado)
+     * @param periodo       DIA, SEMANA, MES, SEMESTRE o ANIO (sin distinguir mayúsculas)
+     * @param algoritmo     STRIDE, LTTB o M4 (sin distinguir mayúsculas)
+     * @param puntos        número aproximado de puntos, entre {@value #PUNTOS_MINIMO} y {@value #PUNTOS_MAXIMO}
+     * @param canal         sensor que guía LTTB y M4 (ver {@link MuestreoService.Canal})
+     * @return puntos de la gráfica en orden cronológico
+     * @throws ResponseStatusException si algún parámetro es inválido (400)
+     */
+    public List<? extends LecturaMuestraProjection> obtenerGrafica(Long dispositivoId, String periodo,
+                                                                   String algoritmo, int puntos, String canal) {
+        return calcular(dispositivoId, validar(periodo, algoritmo, puntos, canal));
+    }
+
+    /**
+     * Devuelve los puntos de la gráfica de varios dispositivos, calculados en paralelo.
+     * <p>
+     * Los parámetros se validan una sola vez antes de lanzar las consultas; si alguna
+     * consulta falla, falla la petición completa.
+     * </p>
+     *
+     * @param dispositivoIds identificadores de los dispositivos (ya validados)
+     * @param periodo        DIA, SEMANA, MES, SEMESTRE o ANIO (sin distinguir mayúsculas)
+     * @param algoritmo      STRIDE, LTTB o M4 (sin distinguir mayúsculas)
+     * @param puntos         número aproximado de puntos por dispositivo
+     * @param canal          sensor que guía LTTB y M4
+     * @return puntos de cada dispositivo, en el orden de {@code dispositivoIds}
+     * @throws ResponseStatusException si algún parámetro es inválido (400)
+     */
+    public Map<Long, List<? extends LecturaMuestraProjection>> obtenerGraficas(List<Long> dispositivoIds, String periodo,
+                                                                                String algoritmo, int puntos, String canal) {
+        Parametros parametros = validar(periodo, algoritmo, puntos, canal);
+        Map<Long, CompletableFuture<List<? extends LecturaMuestraProjection>>> tareas = new LinkedHashMap<>();
+        for (Long dispositivoId : dispositivoIds) {
+            tareas.put(dispositivoId, CompletableFuture.supplyAsync(
+                    () -> calcular(dispositivoId, parametros), graficaExecutor));
+        }
+        Map<Long, List<? extends LecturaMuestraProjection>> graficas = new LinkedHashMap<>();
+        try {
+            tareas.forEach((id, tarea) -> graficas.put(id, tarea.join()));
+        } catch (CompletionException e) {
+            tareas.values().forEach(tarea -> tarea.cancel(false));
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+        return graficas;
+    }
+
+    /** Parámetros de la gráfica ya validados. */
+    private record Parametros(String periodo, MuestreoService.Algoritmo algoritmo, int puntos,
+                              MuestreoService.Canal canal) {}
+
+    private static Parametros validar(String periodo, String algoritmo, int puntos, String canal) {
+        if (puntos < PUNTOS_MINIMO || puntos > PUNTOS_MAXIMO) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Puntos inválidos: " + puntos + ". Debe estar entre " + PUNTOS_MINIMO + " y " + PUNTOS_MAXIMO);
+        }
+        MuestreoService.Algoritmo alg = parsear(MuestreoService.Algoritmo.class, algoritmo, "Algoritmo");
+        MuestreoService.Canal can = parsear(MuestreoService.Canal.class, canal, "Canal");
+        String per = periodo.toUpperCase();
+        switch (per) {
+            case "DIA", "SEMANA", "MES" -> { }
+            case "SEMESTRE", "ANIO" -> comprobarStride(alg, per);
+            default -> throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST, "Periodo inválido: " + periodo +
+                    ". Valores aceptados: DIA, SEMANA, MES, SEMESTRE, ANIO");
+        }
+        return new Parametros(per, alg, puntos, can);
+    }
+
+    private List<? extends LecturaMuestraProjection> calcular(Long dispositivoId, Parametros p) {
+        GraficaCacheService.Clave clave = new GraficaCacheService.Clave(dispositivoId, p.periodo(),
+                p.algoritmo(), p.puntos(), p.canal(), intervalo(p.periodo(), p.puntos()));
+        return graficaCacheService.obtener(clave, () -> calcularSinCache(dispositivoId, p));
+    }
+
+    /**
+     * Intervalo de tiempo actual, de ancho igual a la separación entre puntos de la gráfica.
+     * Mientras no cambia, la ventana de la gráfica se ha desplazado menos de un punto.
+     *
+     * @param periodo periodo de la gráfica (sin distinguir mayúsculas)
+     * @param puntos  número de puntos pedido
+     * @return número de intervalo ({@code epoch / (periodo / puntos)})
+     */
+    public static long intervalo(String periodo, int puntos) {
+        long separacion = Math.max(1, segundos(periodo.toUpperCase()) / Math.max(1, puntos));
+        return Instant.now().getEpochSecond() / separacion;
+    }
+
+    private static long segundos(String periodo) {
+        long dias = switch (periodo) {
+            case "DIA"      -> 1;
+            case "SEMANA"   -> 7;
+            case "MES"      -> 30;
+            case "SEMESTRE" -> 180;
+            default         -> 365;
+        };
+        return dias * 86_400;
+    }
+
+    private List<? extends LecturaMuestraProjection> calcularSinCache(Long dispositivoId, Parametros p) {
+        LocalDateTime hasta = LocalDateTime.now();
+        return switch (p.periodo()) {
+            case "DIA"      -> {
+                LocalDateTime desde = hasta.minusDays(1);
+                yield lecturasRecientesService.buscarRango(dispositivoId, desde, hasta)
+                        .<List<? extends LecturaMuestraProjection>>map(
+                                lecturas -> muestrearEnMemoria(lecturas, desde, hasta, p.algoritmo(), p.puntos(), p.canal()))
+                        .orElseGet(() -> muestrear(dispositivoId, desde, hasta, p.algoritmo(), p.puntos(), p.canal()));
+            }
+            case "SEMANA"   -> muestrear(dispositivoId, hasta.minusDays(7), hasta, p.algoritmo(), p.puntos(), p.canal());
+            case "MES"      -> muestrear(dispositivoId, hasta.minusDays(30), hasta, p.algoritmo(), p.puntos(), p.canal());
+            case "SEMESTRE" -> {
+                int horas = (int) Math.ceil(180.0 * 24 / p.puntos());
+                yield lecturaHoraRepository.findCurvaByDispositivoAndRango(
+                        dispositivoId, hasta.minusDays(180).truncatedTo(ChronoUnit.HOURS), hasta, horas + " hours");
+            }
+            default         -> {
+                int dias = (int) Math.ceil(365.0 / p.puntos());
+                yield lecturaDiaRepository.findCurvaByDispositivoAndRango(
+                        dispositivoId, hasta.minusDays(365).truncatedTo(ChronoUnit.DAYS), hasta, dias + " days");
+            }
+        };
+    }
+
+    private List<? extends LecturaMuestraProjection> muestrear(Long dispositivoId, LocalDateTime desde, LocalDateTime hasta,
+                                                               MuestreoService.Algoritmo algoritmo, int puntos,
+                                                               MuestreoService.Canal canal) {
+        return switch (algoritmo) {
+            case STRIDE -> lecturaRepository.findMuestraByDispositivoAndRango(dispositivoId, desde, hasta, puntos);
+            case LTTB   -> muestreoService.lttb(dispositivoId, desde, hasta, puntos, canal);
+            case M4     -> muestreoService.m4(dispositivoId, desde, hasta, puntos, canal);
+        };
+    }
+
+    private List<LecturaMuestra> muestrearEnMemoria(List<LecturaMuestra> lecturas, LocalDateTime desde,
+                                                    LocalDateTime hasta, MuestreoService.Algoritmo algoritmo,
+                                                    int puntos, MuestreoService.Canal canal) {
+        return switch (algoritmo) {
+            case STRIDE -> muestreoService.stride(lecturas, puntos);
+            case LTTB   -> muestreoService.lttb(lecturas, desde, hasta, puntos, canal);
+            case M4     -> muestreoService.m4(lecturas, desde, hasta, puntos, canal);
+        };
+    }
+
+    private static void comprobarStride(MuestreoService.Algoritmo algoritmo, String periodo) {
+        if (algoritmo != MuestreoService.Algoritmo.STRIDE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "El algoritmo " + algoritmo + " solo está disponible para DIA, SEMANA y MES; "
+                    + periodo + " usa las tablas agregadas");
+        }
+    }
+
+    private static <E extends Enum<E>> E parsear(Class<E> tipo, String valor, String nombre) {
+        try {
+            return Enum.valueOf(tipo, valor.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, nombre + " inválido: " + valor
+                    + ". Valores aceptados: " + Arrays.stream(tipo.getEnumConstants())
+                    .map(Enum::name).collect(Collectors.joining(", ")));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.dto.AlertaResponse;
+import com.example.gardenmonitor.dto.PaginaCursor;
+import com.example.gardenmonitor.repository.AlertaJdbcRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * Búsqueda de alertas con filtros y paginación keyset.
+ * <p>
+ * Funciona igual que {@link HistoricoLecturasService}: orden {@code (timestamp DESC, id DESC)},
+ * cursor opaco con el {@code timestamp|id} de la última alerta de la página y una fila
+ * de más para saber si hay página siguiente, sin {@code COUNT(*)}. Con la generación
+ * automática de alertas la tabla crece sin parar, y los listados completos
+ * ({@code findAll}, {@code findByEstado}) dejan de ser viables.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Service
+public class HistoricoAlertasService {
+
+    @Autowired
+    private AlertaJdbcRepository alertaJdbcRepository;
+
+    /**
+     * Página de alertas que cumplen los filtros, más recientes primero.
+     *
+     * @param filtro filtros de la búsqueda
+     * @param cursor cursor de la página anterior, o null para la primera
+     * @param size   número de alertas por página (1 a {@value HistoricoLecturasService#TAMANO_MAXIMO})
+     * @return página de alertas
+     * @throws ResponseStatusException si el cursor, el tamaño o el rango son inválidos (400)
+     */
+    public PaginaCursor<AlertaResponse> buscarPagina(AlertaJdbcRepository.FiltroAlertas filtro, String cursor, int size) {
+        if (size < 1 || size > HistoricoLecturasService.TAMANO_MAXIMO) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Tamaño de página inválido: " + size + ". Debe estar entre 1 y " + HistoricoLecturasService.TAMANO_MAXIMO);
+        }
+        if (filtro.desde() != null && filtro.hasta() != null && filtro.desde().isAfter(filtro.hasta())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'desde' debe ser anterior a 'hasta'");
+        }
+        List<AlertaResponse> alertas;
+        if (cursor == null || cursor.isBlank()) {
+            alertas = alertaJdbcRepository.buscarPagina(filtro, null, null, size + 1);
+        } else {
+            HistoricoLecturasService.Cursor c = HistoricoLecturasService.decodificar(cursor);
+            alertas = alertaJdbcRepository.buscarPagina(filtro, c.timestamp(), c.id(), size + 1);
+        }
+        if (alertas.size() <= size) {
+            return new PaginaCursor<>(alertas, null, null);
+        }
+        List<AlertaResponse> pagina = alertas.subList(0, size);
+        AlertaResponse ultima = pagina.get(size - 1);
+        return new PaginaCursor<>(pagina,
+                HistoricoLecturasService.codificar(ultima.getTimestamp(), ultima.getId()), null);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.dto.LecturaResponse;
+import com.example.gardenmonitor.dto.PaginaCursor;
+import com.example.gardenmonitor.repository.LecturaDiaRepository;
+import com.example.gardenmonitor.repository.LecturaJdbcRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Histórico de lecturas de un dispositivo con paginación keyset.
+ * <p>
+ * Las páginas se ordenan por {@code (timestamp DESC, id DESC)} y cada una empieza justo
+ * después de la última lectura de la anterior, que viaja al cliente como cursor opaco
+ * (Base64 URL de {@code timestamp|id}). Así el coste de una página no depende de lo
+ * lejos que esté del principio ni se ejecuta {@code COUNT(*)} en cada petición.
+ * </p>
+ * <p>
+ * Se lee una fila más de las pedidas para saber si hay página siguiente sin consultar
+ * el total. El total aproximado, si se pide, sale de {@code lectura_dia}.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Service
+public class HistoricoLecturasService {
+
+    public static final int TAMANO_MAXIMO = 500;
+
+    @Autowired
+    private LecturaJdbcRepository lecturaJdbcRepository;
+
+    @Autowired
+    private LecturaDiaRepository lecturaDiaRepository;
+
+    /**
+     * Página de lecturas de un dispositivo, más recientes primero.
+     *
+     * @param dispositivoId identificador del dispositivo (ya validado)
+     * @param cursor        cursor de la página anterior, o null para la primera
+     * @param size          número de lecturas por página (1 a {@value #TAMANO_MAXIMO})
+     * @param total         si se calcula el total aproximado
+     * @return página de lecturas
+     * @throws ResponseStatusException si el cursor o el tamaño son inválidos (400)
+     */
+    public PaginaCursor<LecturaResponse> buscarPagina(Long dispositivoId, String cursor, int size, boolean total) {
+        comprobarTamano(size);
+        List<LecturaResponse> lecturas;
+        if (cursor == null || cursor.isBlank()) {
+            lecturas = lecturaJdbcRepository.buscarPaginaHistorico(dispositivoId, null, null, null, size + 1);
+        } else {
+            Cursor c = decodificar(cursor);
+            lecturas = lecturaJdbcRepository.buscarPaginaHistorico(dispositivoId, null, c.timestamp(), c.id(), size + 1);
+        }
+        Long totalAproximado = total ? lecturaDiaRepository.countAproximadoByDispositivo(dispositivoId) : null;
+        return construirPagina(lecturas, size, totalAproximado);
+    }
+
+    /**
+     * Página de lecturas de un dispositivo en un rango de fechas, más recientes primero.
+     *
+     * @param dispositivoId identificador del dispositivo (ya validado)
+     * @param desde         inicio del rango (incluido)
+     * @param hasta         fin del rango (incluido)
+     * @param cursor        cursor de la página anterior, o null para la primera
+     * @param size          número de lecturas por página (1 a {@value #TAMANO_MAXIMO})
+     * @param total         si se calcula el total aproximado del rango
+     * @return página de lecturas
+     * @throws ResponseStatusException si el cursor o el tamaño son inválidos (400)
+     */
+    public PaginaCursor<LecturaResponse> buscarPaginaEnRango(Long dispositivoId, LocalDateTime desde, LocalDateTime hasta,
+                                                     String cursor, int size, boolean total) {
+        comprobarTamano(size);
+        Cursor c = cursor == null || cursor.isBlank() ? new Cursor(hasta, Long.MAX_VALUE) : decodificar(cursor);
+        List<LecturaResponse> lecturas = lecturaJdbcRepository.buscarPaginaHistorico(
+                dispositivoId, desde, c.timestamp(), c.id(), size + 1);
+        Long totalAproximado = total
+                ? lecturaDiaRepository.countAproximadoByDispositivoAndRango(dispositivoId, desde, hasta)
+                : null;
+        return construirPagina(lecturas, size, totalAproximado);
+    }
+
+    private PaginaCursor<LecturaResponse> construirPagina(List<LecturaResponse> lecturas, int size, Long totalAproximado) {
+        if (lecturas.size() <= size) {
+            return new PaginaCursor<>(lecturas, null, totalAproximado);
+        }
+        List<LecturaResponse> pagina = lecturas.subList(0, size);
+        LecturaResponse ultima = pagina.get(size - 1);
+        return new PaginaCursor<>(pagina, codificar(ultima.getTimestamp(), ultima.getId()), totalAproximado);
+    }
+
+    private static void comprobarTamano(int size) {
+        if (size < 1 || size > TAMANO_MAXIMO) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Tamaño de página inválido: " + size + ". Debe estar entre 1 y " + TAMANO_MAXIMO);
+        }
+    }
+
+    static String codificar(LocalDateTime timestamp, Long id) {
+        String valor = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Cursor decodificar(String cursor) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.indexOf('|');
+            return new Cursor(LocalDateTime.parse(valor.substring(0, separador)),
+                    Long.parseLong(valor.substring(separador + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor inválido");
+        }
+    }
+
+    record Cursor(LocalDateTime timestamp, Long id) {}
+}
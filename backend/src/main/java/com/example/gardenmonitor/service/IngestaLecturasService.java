@@ -0,0 +1,340 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.dto.EstadoIngesta;
+import com.example.gardenmonitor.model.Lectura;
+import com.example.gardenmonitor.repository.LecturaAgregadaJdbcRepository;
+import com.example.gardenmonitor.repository.LecturaJdbcRepository;
+import com.example.gardenmonitor.repository.LecturaUltimaJdbcRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Pipeline de ingesta write-behind para las lecturas de los ESP32.
+ * <p>
+ * Los endpoints de {@code LecturaController} validan la lectura, la encolan en una
+ * cola en memoria acotada y responden sin esperar a PostgreSQL. Un único hilo de
+ * volcado vacía la cola y hace group commit: agrupa las lecturas hasta reunir
+ * {@code lecturas.ingesta.lote-max} filas o hasta que pasan {@code lecturas.ingesta.intervalo-ms}
+ * desde la primera lectura del lote, y las inserta en una sola transacción.
+ * En esa misma transacción se suman a los agregados por hora y por día
+ * ({@link LecturaAgregadaJdbcRepository}) y se actualiza la última lectura de cada dispositivo
+ * ({@link LecturaUltimaJdbcRepository}), de modo que un reintento nunca los cuenta dos veces.
+ * </p>
+ * <p>
+ * Al aceptar una lectura se registra la conexión del dispositivo en
+ * {@link UltimaConexionService}, que la vuelca a la BD de forma periódica.
+ * Cada lote ya guardado se añade a {@link LecturasRecientesService} y se evalúa en
+ * {@link AnomaliasService} para marcar lecturas anómalas y en {@link AlertasUmbralService}
+ * para abrir o resolver alertas según los umbrales del dispositivo; además reprograma el
+ * plazo de desconexión de sus dispositivos en {@link DesconexionService}.
+ * </p>
+ * <p>
+ * Si la cola está llena la lectura se rechaza (el endpoint responde 503 y el ESP32
+ * reintenta), de modo que un problema de la BD nunca bloquea los hilos HTTP.
+ * Si un volcado falla por un error transitorio se reintenta con espera creciente; agotados
+ * los reintentos, el lote se descarta y se registra en el log. Si falla por una lectura que
+ * viola una restricción, el lote se divide para guardar el resto y descartar solo esa.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Service
+public class IngestaLecturasService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestaLecturasService.class);
+
+    @Autowired
+    private LecturaJdbcRepository lecturaJdbcRepository;
+
+    @Autowired
+    private LecturaAgregadaJdbcRepository lecturaAgregadaJdbcRepository;
+
+    @Autowired
+    private LecturaUltimaJdbcRepository lecturaUltimaJdbcRepository;
+
+    @Autowired
+    private UltimaConexionService ultimaConexionService;
+
+    @Autowired
+    private LecturasRecientesService lecturasRecientesService;
+
+    @Autowired
+    private VersionDatosService versionDatosService;
+
+    @Autowired
+    private AnomaliasService anomaliasService;
+
+    @Autowired
+    private AlertasUmbralService alertasUmbralService;
+
+    @Autowired
+    private DesconexionService desconexionService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${lecturas.ingesta.capacidad:10000}")
+    private int capacidad;
+
+    @Value("${lecturas.ingesta.lote-max:500}")
+    private int loteMaximo;
+
+    @Value("${lecturas.ingesta.intervalo-ms:200}")
+    private long intervaloMs;
+
+    @Value("${lecturas.ingesta.reintentos:3}")
+    private int reintentos;
+
+    private BlockingQueue<Lectura> cola;
+    private Thread hiloVolcado;
+    private volatile boolean activo;
+
+    // Métricas
+    private final AtomicLong lecturasEncoladas = new AtomicLong();
+    private final AtomicLong lecturasRechazadas = new AtomicLong();
+    private final AtomicLong lecturasGuardadas = new AtomicLong();
+    private final AtomicLong lecturasDescartadas = new AtomicLong();
+    private final AtomicLong lotesVolcados = new AtomicLong();
+    private final AtomicLong tiempoTotalVolcadoMs = new AtomicLong();
+    private volatile long ultimoVolcadoMs;
+    private volatile long maxVolcadoMs;
+    private volatile int tamanoUltimoLote;
+
+    @PostConstruct
+    void iniciar() {
+        cola = new ArrayBlockingQueue<>(capacidad);
+        activo = true;
+        hiloVolcado = new Thread(this::bucleVolcado, "ingesta-lecturas");
+        hiloVolcado.setDaemon(true);
+        hiloVolcado.start();
+    }
+
+    /**
+     * Detiene el hilo de volcado tras vaciar la cola, para no perder lecturas
+     * aceptadas al apagar la aplicación.
+     */
+    @PreDestroy
+    void detener() throws InterruptedException {
+        activo = false;
+        hiloVolcado.join(TimeUnit.SECONDS.toMillis(30));
+        if (!cola.isEmpty()) {
+            log.warn("Se descartan {} lecturas pendientes al detener la ingesta", cola.size());
+        }
+    }
+
+    /**
+     * Encola una lectura para su inserción asíncrona.
+     *
+     * @param lectura lectura ya validada
+     * @return true si se aceptó, false si la cola está llena
+     */
+    public synchronized boolean encolar(Lectura lectura) {
+        if (!cola.offer(lectura)) {
+            lecturasRechazadas.incrementAndGet();
+            return false;
+        }
+        lecturasEncoladas.incrementAndGet();
+        ultimaConexionService.registrar(lectura.getDispositivo().getId(), lectura.getTimestamp());
+        return true;
+    }
+
+    /**
+     * Encola un lote de lecturas de forma atómica: o se aceptan todas o ninguna.
+     *
+     * @param lecturas lecturas ya validadas
+     * @return true si se aceptó el lote, false si no cabe en la cola
+     */
+    public synchronized boolean encolarLote(List<Lectura> lecturas) {
+        if (cola.remainingCapacity() < lecturas.size()) {
+            lecturasRechazadas.addAndGet(lecturas.size());
+            return false;
+        }
+        cola.addAll(lecturas);
+        lecturasEncoladas.addAndGet(lecturas.size());
+        for (Lectura lectura : lecturas) {
+            ultimaConexionService.registrar(lectura.getDispositivo().getId(), lectura.getTimestamp());
+        }
+        return true;
+    }
+
+    /**
+     * @return instantánea de las métricas de la cola y de los volcados
+     */
+    public EstadoIngesta obtenerEstado() {
+        long lotes = lotesVolcados.get();
+        return new EstadoIngesta(
+                cola.size(),
+                capacidad,
+                lecturasEncoladas.get(),
+                lecturasRechazadas.get(),
+                lecturasGuardadas.get(),
+                lecturasDescartadas.get(),
+                lotes,
+                tamanoUltimoLote,
+                ultimoVolcadoMs,
+                lotes > 0 ? tiempoTotalVolcadoMs.get() / lotes : 0,
+                maxVolcadoMs);
+    }
+
+    private void bucleVolcado() {
+        while (activo || !cola.isEmpty()) {
+            try {
+                List<Lectura> lote = reunirLote();
+                if (!lote.isEmpty()) {
+                    volcar(lote);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Error inesperado en el hilo de ingesta de lecturas", e);
+            }
+        }
+    }
+
+    /**
+     * Espera a la primera lectura y acumula más hasta llenar el lote
+     * o agotar el intervalo de group commit.
+     */
+    private List<Lectura> reunirLote() throws InterruptedException {
+        List<Lectura> lote = new ArrayList<>();
+        Lectura primera = cola.poll(intervaloMs, TimeUnit.MILLISECONDS);
+        if (primera == null) {
+            return lote;
+        }
+        lote.add(primera);
+
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(intervaloMs);
+        while (lote.size() < loteMaximo && activo) {
+            cola.drainTo(lote, loteMaximo - lote.size());
+            long restante = limite - System.nanoTime();
+            if (lote.size() >= loteMaximo || restante <= 0) {
+                break;
+            }
+            Lectura siguiente = cola.poll(restante, TimeUnit.NANOSECONDS);
+            if (siguiente == null) {
+                break;
+            }
+            lote.add(siguiente);
+        }
+        cola.drainTo(lote, loteMaximo - lote.size());
+        return lote;
+    }
+
+    /**
+     * Guarda un lote y, una vez confirmado, se lo pasa a los servicios en memoria.
+     */
+    private void volcar(List<Lectura> lote) throws InterruptedException {
+        long inicio = System.nanoTime();
+        List<Lectura> guardadas = new ArrayList<>(lote.size());
+        guardar(lote, guardadas);
+        if (!guardadas.isEmpty()) {
+            procesarGuardadas(guardadas);
+        }
+
+        long duracionMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        lecturasGuardadas.addAndGet(guardadas.size());
+        lotesVolcados.incrementAndGet();
+        tiempoTotalVolcadoMs.addAndGet(duracionMs);
+        ultimoVolcadoMs = duracionMs;
+        maxVolcadoMs = Math.max(maxVolcadoMs, duracionMs);
+        tamanoUltimoLote = lote.size();
+    }
+
+    /**
+     * Guarda un lote y añade a {@code guardadas} las lecturas confirmadas.
+     * <p>
+     * Si alguna lectura viola una restricción (p. ej. su dispositivo se acaba de borrar y
+     * falla {@code fk_lectura_dispositivo}), reintentar no sirve: el lote se divide en dos
+     * mitades que se guardan por separado, hasta aislar las lecturas que fallan, y solo se
+     * descartan esas. Cualquier otro error que no se resuelva reintentando descarta el lote.
+     * </p>
+     */
+    private void guardar(List<Lectura> lote, List<Lectura> guardadas) throws InterruptedException {
+        try {
+            guardarConReintentos(lote);
+            guardadas.addAll(lote);
+        } catch (DataIntegrityViolationException e) {
+            if (lote.size() == 1) {
+                Lectura lectura = lote.get(0);
+                lecturasDescartadas.incrementAndGet();
+                log.warn("Se descarta la lectura del dispositivo {} de {}: {}", lectura.getDispositivo().getId(),
+                        lectura.getTimestamp(), e.getMostSpecificCause().getMessage());
+                return;
+            }
+            int mitad = lote.size() / 2;
+            guardar(lote.subList(0, mitad), guardadas);
+            guardar(lote.subList(mitad, lote.size()), guardadas);
+        } catch (DataAccessException | TransactionException e) {
+            lecturasDescartadas.addAndGet(lote.size());
+            log.error("Se descartan {} lecturas por un error al volcarlas", lote.size(), e);
+        }
+    }
+
+    /**
+     * Inserta el lote en una transacción, con espera creciente entre intentos. Solo se
+     * reintentan los fallos transitorios y la pérdida de conexión con la BD; el resto
+     * (restricciones, SQL inválido) fallaría igual y se propaga al primer intento.
+     */
+    private void guardarConReintentos(List<Lectura> lote) throws InterruptedException {
+        for (int intento = 1; ; intento++) {
+            try {
+                transactionTemplate.executeWithoutResult(estado -> {
+                    lecturaJdbcRepository.insertarLote(lote);
+                    lecturaAgregadaJdbcRepository.acumular(lote);
+                    lecturaUltimaJdbcRepository.actualizar(lote);
+                });
+                return;
+            } catch (TransientDataAccessException | DataAccessResourceFailureException
+                     | CannotCreateTransactionException e) {
+                if (intento > reintentos) {
+                    throw e;
+                }
+                log.warn("Fallo al volcar {} lecturas (intento {}), se reintenta", lote.size(), intento, e);
+                Thread.sleep(TimeUnit.SECONDS.toMillis(intento));
+            }
+        }
+    }
+
+    /**
+     * Pasos posteriores al commit. Ninguno puede provocar un reintento: el lote ya está
+     * guardado y volver a insertarlo lo duplicaría, así que un error solo se registra.
+     */
+    private void procesarGuardadas(List<Lectura> guardadas) {
+        despuesDeGuardar("lecturas recientes", () -> lecturasRecientesService.registrar(guardadas));
+        despuesDeGuardar("anomalías", () -> anomaliasService.evaluar(guardadas));
+        despuesDeGuardar("alertas de umbral", () -> alertasUmbralService.evaluar(guardadas));
+        despuesDeGuardar("desconexión", () -> desconexionService.registrar(guardadas));
+        versionDatosService.incrementar(VersionDatosService.Ambito.LECTURAS,
+                guardadas.stream().map(l -> l.getDispositivo().getId()).collect(Collectors.toSet()));
+    }
+
+    private static void despuesDeGuardar(String paso, Runnable accion) {
+        try {
+            accion.run();
+        } catch (RuntimeException e) {
+            log.error("Error al procesar ({}) un lote ya guardado", paso, e);
+        }
+    }
+}
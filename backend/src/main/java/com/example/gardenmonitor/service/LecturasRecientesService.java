@@ -0,0 +1,335 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.dto.LecturaMuestra;
+import com.example.gardenmonitor.dto.LecturaResponse;
+import com.example.gardenmonitor.model.Lectura;
+import com.example.gardenmonitor.repository.LecturaJdbcRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Últimas lecturas de cada dispositivo en memoria, para la gráfica DIA y la última lectura.
+ * <p>
+ * Los paneles piden la gráfica del último día mucho más que cualquier otra, y cada
+ * petición recorría en PostgreSQL las lecturas del día. Aquí se guardan, por dispositivo,
+ * las últimas {@code lecturas.recientes.capacidad} lecturas en un buffer circular de
+ * arrays primitivos (timestamp en microsegundos, sensores como enteros x100), unos
+ * 40 bytes por lectura, sin un objeto por fila.
+ * </p>
+ * <p>
+ * Al arrancar se cargan desde la BD las lecturas de las últimas {@code lecturas.recientes.horas}
+ * horas; después, {@link IngestaLecturasService} añade cada lote cuando ya está guardado,
+ * así que el buffer nunca contiene lecturas que no estén en la BD. Cada buffer sabe desde
+ * qué momento tiene todas las lecturas del dispositivo: al descartar la más antigua por
+ * falta de espacio, ese momento avanza. Si un rango empieza antes, se devuelve vacío y
+ * quien llama consulta la BD.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Service
+public class LecturasRecientesService {
+
+    private static final Logger log = LoggerFactory.getLogger(LecturasRecientesService.class);
+
+    @Autowired
+    private LecturaJdbcRepository lecturaJdbcRepository;
+
+    @Value("${lecturas.recientes.capacidad:3072}")
+    private int capacidad;
+
+    @Value("${lecturas.recientes.horas:24}")
+    private int horas;
+
+    /** Frecuencia del dispositivo más rápido: la capacidad tiene que cubrir las horas a esta frecuencia. */
+    @Value("${lecturas.recientes.frecuencia-min-seg:30}")
+    private int frecuenciaMinimaSeg;
+
+    private final Map<Long, Buffer> buffers = new ConcurrentHashMap<>();
+
+    /** Desde este momento (en microsegundos) todas las lecturas guardadas están en los buffers. */
+    private volatile long inicioCobertura;
+
+    /**
+     * Carga las lecturas recientes de la BD. Se ejecuta antes de que arranque el hilo de
+     * volcado de {@link IngestaLecturasService} (que depende de este servicio), así que
+     * ninguna lectura nueva se cruza con la carga.
+     *
+     * @throws IllegalStateException si la capacidad no cubre {@code horas} de lecturas a
+     *                               {@code lecturas.recientes.frecuencia-min-seg}
+     */
+    @PostConstruct
+    void cargar() {
+        long necesaria = (long) horas * 3600 / Math.max(1, frecuenciaMinimaSeg);
+        if (capacidad < necesaria) {
+            // Con menos, la gráfica DIA del dispositivo más rápido iría siempre a la BD
+            throw new IllegalStateException("lecturas.recientes.capacidad=" + capacidad + " no cubre "
+                    + horas + " h de lecturas cada " + frecuenciaMinimaSeg + " s: hacen falta al menos " + necesaria);
+        }
+        LocalDateTime desde = LocalDateTime.now().minusHours(horas);
+        try {
+            long inicio = System.nanoTime();
+            lecturaJdbcRepository.recorrerDesde(desde, lectura -> buffer(lectura.getDispositivoId(), micros(desde))
+                    .anadir(lectura.getId(), micros(lectura.getTimestamp()), lectura.getTemperatura(),
+                            lectura.getHumedadAmbiente(), lectura.getHumedadSuelo(), lectura.getCo2(),
+                            lectura.getLuz1(), lectura.getLuz2()));
+            inicioCobertura = micros(desde);
+            log.info("Lecturas recientes cargadas: {} dispositivos en {} ms", buffers.size(),
+                    (System.nanoTime() - inicio) / 1_000_000);
+        } catch (DataAccessException e) {
+            // Sin la carga, los buffers solo cubren desde ahora y se consulta la BD hasta que se llenen
+            buffers.clear();
+            inicioCobertura = micros(LocalDateTime.now());
+            log.warn("No se pudieron cargar las lecturas recientes", e);
+        }
+    }
+
+    /**
+     * Añade a los buffers un lote de lecturas ya guardadas en la BD (con id asignado).
+     *
+     * @param lecturas lecturas del lote
+     */
+    public void registrar(List<Lectura> lecturas) {
+        for (Lectura lectura : lecturas) {
+            buffer(lectura.getDispositivo().getId(), inicioCobertura)
+                    .anadir(lectura.getId(), micros(lectura.getTimestamp()), lectura.getTemperatura(),
+                            lectura.getHumedadAmbiente(), lectura.getHumedadSuelo(), lectura.getCo2(),
+                            lectura.getLuz1(), lectura.getLuz2());
+        }
+    }
+
+    /**
+     * Lecturas de un dispositivo en un rango, si el buffer cubre el rango completo.
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @param desde         inicio del rango (incluido)
+     * @param hasta         fin del rango (incluido)
+     * @return lecturas en orden cronológico, o vacío si hay que consultar la BD
+     */
+    public Optional<List<LecturaMuestra>> buscarRango(Long dispositivoId, LocalDateTime desde, LocalDateTime hasta) {
+        long desdeMicros = micros(desde);
+        Buffer buffer = buffers.get(dispositivoId);
+        if (buffer == null) {
+            // Sin buffer, el dispositivo no tiene lecturas desde el inicio de la cobertura
+            return desdeMicros >= inicioCobertura ? Optional.of(List.of()) : Optional.empty();
+        }
+        return Optional.ofNullable(buffer.copiar(desdeMicros, micros(hasta)));
+    }
+
+    /**
+     * Última lectura de un dispositivo. Solo consulta la BD si no tiene lecturas en memoria
+     * (dispositivo sin lecturas recientes).
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @return la lectura más reciente, o vacío si el dispositivo no tiene lecturas
+     */
+    public Optional<LecturaResponse> buscarUltima(Long dispositivoId) {
+        Buffer buffer = buffers.get(dispositivoId);
+        LecturaResponse ultima = buffer != null ? buffer.ultima(dispositivoId) : null;
+        if (ultima != null) {
+            return Optional.of(ultima);
+        }
+        return lecturaJdbcRepository.buscarPaginaHistorico(dispositivoId, null, null, null, 1).stream().findFirst();
+    }
+
+    /**
+     * Indica si hay lecturas en memoria del dispositivo, lo que basta para saber que existe
+     * sin consultar la BD (los buffers de dispositivos eliminados se descartan con {@link #olvidar}).
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @return true si el dispositivo tiene buffer
+     */
+    public boolean conoce(Long dispositivoId) {
+        return buffers.containsKey(dispositivoId);
+    }
+
+    /**
+     * Quita una lectura borrada de la BD.
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @param lecturaId     identificador de la lectura
+     */
+    public void eliminar(Long dispositivoId, Long lecturaId) {
+        Buffer buffer = buffers.get(dispositivoId);
+        if (buffer != null) {
+            buffer.eliminar(lecturaId);
+        }
+    }
+
+    /**
+     * Descarta el buffer de un dispositivo eliminado.
+     *
+     * @param dispositivoId identificador del dispositivo
+     */
+    public void olvidar(Long dispositivoId) {
+        buffers.remove(dispositivoId);
+    }
+
+    /**
+     * Descarta el buffer de los dispositivos borrados.
+     *
+     * @param evento dispositivos borrados
+     */
+    @EventListener
+    void alEliminarDispositivos(DispositivosEliminados evento) {
+        evento.dispositivoIds().forEach(this::olvidar);
+    }
+
+    private Buffer buffer(Long dispositivoId, long cubiertoDesde) {
+        return buffers.computeIfAbsent(dispositivoId, id -> new Buffer(capacidad, cubiertoDesde));
+    }
+
+    static long micros(LocalDateTime momento) {
+        return momento.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + momento.getNano() / 1_000;
+    }
+
+    static LocalDateTime momento(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Buffer circular de un dispositivo, ordenado por timestamp. La posición lógica
+     * {@code i} (0 = la más antigua) está en el índice {@code (inicio + i) % capacidad}.
+     */
+    static final class Buffer {
+
+        private static final int SENSORES = 6;
+        /** Marca de sensor sin valor (co2, luz1 y luz2 pueden ser null). */
+        private static final int SIN_VALOR = Integer.MIN_VALUE;
+
+        private final long[] ids;
+        private final long[] timestamps;
+        /** Valores x100, sensor a sensor: {@code valores[s * capacidad + indice]}. */
+        private final int[] valores;
+        private final int capacidad;
+        private int inicio;
+        private int tamano;
+        /** Desde este momento el buffer tiene todas las lecturas del dispositivo. */
+        private long cubiertoDesde;
+
+        Buffer(int capacidad, long cubiertoDesde) {
+            this.capacidad = capacidad;
+            this.ids = new long[capacidad];
+            this.timestamps = new long[capacidad];
+            this.valores = new int[SENSORES * capacidad];
+            this.cubiertoDesde = cubiertoDesde;
+        }
+
+        synchronized void anadir(long id, long timestamp, BigDecimal... sensores) {
+            if (timestamp < cubiertoDesde) {
+                // Lectura antigua (p. ej. de un lote enviado tarde): solo está en la BD
+                return;
+            }
+            // Casi siempre llega la más reciente y no hay que desplazar nada
+            int posicion = tamano;
+            while (posicion > 0 && timestamps[indice(posicion - 1)] > timestamp) {
+                posicion--;
+            }
+            if (tamano == capacidad) {
+                if (posicion == 0) {
+                    cubiertoDesde = Math.max(cubiertoDesde, timestamp + 1);
+                    return;
+                }
+                cubiertoDesde = Math.max(cubiertoDesde, timestamps[inicio] + 1);
+                inicio = (inicio + 1) % capacidad;
+                tamano--;
+                posicion--;
+            }
+            for (int i = tamano; i > posicion; i--) {
+                copiarPosicion(indice(i - 1), indice(i));
+            }
+            int destino = indice(posicion);
+            ids[destino] = id;
+            timestamps[destino] = timestamp;
+            for (int s = 0; s < SENSORES; s++) {
+                valores[s * capacidad + destino] = escalar(sensores[s]);
+            }
+            tamano++;
+        }
+
+        /** @return las lecturas del rango, o null si el buffer no cubre su inicio */
+        synchronized List<LecturaMuestra> copiar(long desde, long hasta) {
+            if (desde < cubiertoDesde) {
+                return null;
+            }
+            int primera = tamano;
+            while (primera > 0 && timestamps[indice(primera - 1)] >= desde) {
+                primera--;
+            }
+            List<LecturaMuestra> lecturas = new ArrayList<>(tamano - primera);
+            for (int i = primera; i < tamano; i++) {
+                int indice = indice(i);
+                if (timestamps[indice] > hasta) {
+                    break;
+                }
+                lecturas.add(new LecturaMuestra(ids[indice], momento(timestamps[indice]),
+                        valor(0, indice), valor(1, indice), valor(2, indice),
+                        valor(3, indice), valor(4, indice), valor(5, indice)));
+            }
+            return lecturas;
+        }
+
+        synchronized LecturaResponse ultima(Long dispositivoId) {
+            if (tamano == 0) {
+                return null;
+            }
+            int indice = indice(tamano - 1);
+            return new LecturaResponse(ids[indice], momento(timestamps[indice]), dispositivoId,
+                    valor(0, indice), valor(1, indice), valor(2, indice),
+                    valor(3, indice), valor(4, indice), valor(5, indice));
+        }
+
+        synchronized void eliminar(long id) {
+            for (int i = 0; i < tamano; i++) {
+                if (ids[indice(i)] == id) {
+                    for (int j = i; j < tamano - 1; j++) {
+                        copiarPosicion(indice(j + 1), indice(j));
+                    }
+                    tamano--;
+                    return;
+                }
+            }
+        }
+
+        private int indice(int posicion) {
+            return (inicio + posicion) % capacidad;
+        }
+
+        private void copiarPosicion(int origen, int destino) {
+            ids[destino] = ids[origen];
+            timestamps[destino] = timestamps[origen];
+            for (int s = 0; s < SENSORES; s++) {
+                valores[s * capacidad + destino] = valores[s * capacidad + origen];
+            }
+        }
+
+        private BigDecimal valor(int sensor, int indice) {
+            int valor = valores[sensor * capacidad + indice];
+            return valor == SIN_VALOR ? null : BigDecimal.valueOf(valor, 2);
+        }
+
+        private static int escalar(BigDecimal valor) {
+            // Todas las columnas son DECIMAL(_, 2) con como mucho 7 dígitos: caben en un int
+            return valor == null ? SIN_VALOR
+                    : valor.setScale(2, RoundingMode.HALF_UP).unscaledValue().intValueExact();
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.dto.LecturaMuestra;
+import com.example.gardenmonitor.dto.LecturaMuestraProjection;
+import com.example.gardenmonitor.repository.LecturaJdbcRepository;
+import com.example.gardenmonitor.repository.LecturaJdbcRepository.MediaIntervalo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Muestreo de lecturas en Java para la gráfica: LTTB y M4.
+ * <p>
+ * El stride sampling de {@code LecturaRepository} se queda con una de cada k lecturas,
+ * por lo que un pico entre dos muestras (p. ej. de CO2) desaparece de la gráfica. Los
+ * algoritmos de aquí eligen las lecturas mirando los valores de un canal (sensor):
+ * </p>
+ * <ul>
+ *   <li><b>LTTB</b> (Largest-Triangle-Three-Buckets): divide el rango en intervalos de
+ *       tiempo iguales y de cada uno elige la lectura que forma el triángulo de mayor área
+ *       con la lectura elegida en el intervalo anterior y la media del siguiente. Conserva
+ *       la forma visual de la serie con exactamente un punto por intervalo.</li>
+ *   <li><b>M4</b>: de cada intervalo devuelve la primera, la última, la mínima y la máxima
+ *       lectura. Garantiza que ningún pico ni valle se pierde, con hasta 4 puntos por intervalo.</li>
+ * </ul>
+ * <p>
+ * Las lecturas se recorren con un cursor de solo avance ({@link LecturaJdbcRepository#recorrerRango}),
+ * así que la memoria usada depende del número de puntos pedido, no del número de lecturas.
+ * LTTB necesita además la media del intervalo siguiente, que se calcula antes en SQL
+ * (una fila por intervalo).
+ * </p>
+ * <p>
+ * Cada algoritmo tiene además una variante sobre una lista ya en memoria (las lecturas
+ * recientes de {@link LecturasRecientesService}), que calcula las medias en Java y no
+ * consulta la BD.
+ * </p>
+ * <p>
+ * Todos los puntos devueltos son lecturas reales, con todos sus sensores.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Service
+public class MuestreoService {
+
+    /** Algoritmo de muestreo de la gráfica. */
+    public enum Algoritmo {
+        /** Una de cada k lecturas, en SQL (por defecto). */
+        STRIDE,
+        LTTB,
+        M4
+    }
+
+    /** Sensor cuyos valores guían la selección de LTTB y M4. */
+    public enum Canal {
+        TEMPERATURA("temperatura", LecturaMuestraProjection::getTemperatura),
+        HUMEDAD_AMBIENTE("humedad_ambiente", LecturaMuestraProjection::getHumedadAmbiente),
+        HUMEDAD_SUELO("humedad_suelo", LecturaMuestraProjection::getHumedadSuelo),
+        CO2("co2", LecturaMuestraProjection::getCo2),
+        LUZ1("luz1", LecturaMuestraProjection::getLuz1),
+        LUZ2("luz2", LecturaMuestraProjection::getLuz2);
+
+        private final String columna;
+        private final Function<LecturaMuestraProjection, BigDecimal> valor;
+
+        Canal(String columna, Function<LecturaMuestraProjection, BigDecimal> valor) {
+            this.columna = columna;
+            this.valor = valor;
+        }
+
+        public String getColumna() {
+            return columna;
+        }
+
+        public BigDecimal valor(LecturaMuestraProjection lectura) {
+            return valor.apply(lectura);
+        }
+    }
+
+    private static final ZoneId ZONA = ZoneId.systemDefault();
+
+    @Autowired
+    private LecturaJdbcRepository lecturaJdbcRepository;
+
+    /**
+     * Muestrea con LTTB las lecturas de un dispositivo en un rango.
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @param desde         inicio del rango
+     * @param hasta         fin del rango
+     * @param puntos        número máximo de puntos (mínimo 3)
+     * @param canal         sensor que guía la selección
+     * @return lecturas elegidas en orden cronológico
+     */
+    public List<LecturaMuestra> lttb(Long dispositivoId, LocalDateTime desde, LocalDateTime hasta,
+                                     int puntos, Canal canal) {
+        // La primera y la última lectura se eligen siempre; el resto, una por intervalo
+        int intervalos = Math.max(1, puntos - 2);
+        double epochDesde = epoch(desde);
+        double anchoSeg = Math.max(1, (epoch(hasta) - epochDesde) / intervalos);
+        List<MediaIntervalo> medias = lecturaJdbcRepository.calcularMediasPorIntervalo(
+                dispositivoId, desde, hasta, canal.getColumna(), epochDesde, anchoSeg, intervalos);
+
+        Lttb lttb = new Lttb(canal, epochDesde, anchoSeg, intervalos, medias);
+        lecturaJdbcRepository.recorrerRango(dispositivoId, desde, hasta, lttb);
+        return lttb.resultado();
+    }
+
+    /**
+     * Muestrea con M4 las lecturas de un dispositivo en un rango.
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @param desde         inicio del rango
+     * @param hasta         fin del rango
+     * @param puntos        número máximo de puntos (se usan {@code puntos / 4} intervalos)
+     * @param canal         sensor cuyo mínimo y máximo se conservan
+     * @return lecturas elegidas en orden cronológico
+     */
+    public List<LecturaMuestra> m4(Long dispositivoId, LocalDateTime desde, LocalDateTime hasta,
+                                   int puntos, Canal canal) {
+        int intervalos = Math.max(1, puntos / 4);
+        double epochDesde = epoch(desde);
+        double anchoSeg = Math.max(1, (epoch(hasta) - epochDesde) / intervalos);
+
+        M4 m4 = new M4(canal, epochDesde, anchoSeg, intervalos);
+        lecturaJdbcRepository.recorrerRango(dispositivoId, desde, hasta, m4);
+        return m4.resultado();
+    }
+
+    /**
+     * Stride sampling sobre lecturas en memoria: la misma selección que hace en SQL
+     * {@code LecturaRepository.findMuestraByDispositivoAndRango} (una de cada
+     * {@code ceil(n / puntos)} lecturas, más la última).
+     *
+     * @param lecturas lecturas en orden cronológico
+     * @param puntos   número máximo de puntos
+     * @return lecturas elegidas en orden cronológico
+     */
+    public List<LecturaMuestra> stride(List<LecturaMuestra> lecturas, int puntos) {
+        int n = lecturas.size();
+        int paso = Math.max(1, (int) Math.ceil((double) n / puntos));
+        List<LecturaMuestra> resultado = new ArrayList<>(Math.min(n, puntos + 1));
+        for (int i = 0; i < n; i++) {
+            if (i % paso == 0 || i == n - 1) {
+                resultado.add(lecturas.get(i));
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * LTTB sobre lecturas en memoria (ver {@link #lttb(Long, LocalDateTime, LocalDateTime, int, Canal)}).
+     *
+     * @param lecturas lecturas del rango en orden cronológico
+     * @param desde    inicio del rango
+     * @param hasta    fin del rango
+     * @param puntos   número máximo de puntos (mínimo 3)
+     * @param canal    sensor que guía la selección
+     * @return lecturas elegidas en orden cronológico (todas si no hay más de {@code puntos})
+     */
+    public List<LecturaMuestra> lttb(List<LecturaMuestra> lecturas, LocalDateTime desde, LocalDateTime hasta,
+                                     int puntos, Canal canal) {
+        if (lecturas.size() <= puntos) {
+            return new ArrayList<>(lecturas);
+        }
+        int intervalos = Math.max(1, puntos - 2);
+        double epochDesde = epoch(desde);
+        double anchoSeg = Math.max(1, (epoch(hasta) - epochDesde) / intervalos);
+
+        // Primera pasada: media de tiempo y de valor por intervalo, como calcularMediasPorIntervalo
+        double[] sumaX = new double[intervalos];
+        double[] sumaY = new double[intervalos];
+        int[] cuenta = new int[intervalos];
+        for (LecturaMuestra lectura : lecturas) {
+            BigDecimal valor = canal.valor(lectura);
+            if (valor != null) {
+                double x = epoch(lectura.getTimestamp());
+                int i = intervalo(x, epochDesde, anchoSeg, intervalos);
+                sumaX[i] += x;
+                sumaY[i] += valor.doubleValue();
+                cuenta[i]++;
+            }
+        }
+        List<MediaIntervalo> medias = new ArrayList<>();
+        for (int i = 0; i < intervalos; i++) {
+            if (cuenta[i] > 0) {
+                medias.add(new MediaIntervalo(i, sumaX[i] / cuenta[i], sumaY[i] / cuenta[i]));
+            }
+        }
+
+        Lttb lttb = new Lttb(canal, epochDesde, anchoSeg, intervalos, medias);
+        lecturas.forEach(lttb);
+        return lttb.resultado();
+    }
+
+    /**
+     * M4 sobre lecturas en memoria (ver {@link #m4(Long, LocalDateTime, LocalDateTime, int, Canal)}).
+     *
+     * @param lecturas lecturas del rango en orden cronológico
+     * @param desde    inicio del rango
+     * @param hasta    fin del rango
+     * @param puntos   número máximo de puntos (se usan {@code puntos / 4} intervalos)
+     * @param canal    sensor cuyo mínimo y máximo se conservan
+     * @return lecturas elegidas en orden cronológico (todas si no hay más de {@code puntos})
+     */
+    public List<LecturaMuestra> m4(List<LecturaMuestra> lecturas, LocalDateTime desde, LocalDateTime hasta,
+                                   int puntos, Canal canal) {
+        if (lecturas.size() <= puntos) {
+            return new ArrayList<>(lecturas);
+        }
+        int intervalos = Math.max(1, puntos / 4);
+        double epochDesde = epoch(desde);
+        double anchoSeg = Math.max(1, (epoch(hasta) - epochDesde) / intervalos);
+
+        M4 m4 = new M4(canal, epochDesde, anchoSeg, intervalos);
+        lecturas.forEach(m4);
+        return m4.resultado();
+    }
+
+    static double epoch(LocalDateTime momento) {
+        return momento.atZone(ZONA).toEpochSecond() + momento.getNano() / 1e9;
+    }
+
+    private static int intervalo(double x, double epochDesde, double anchoSeg, int intervalos) {
+        int i = (int) Math.floor((x - epochDesde) / anchoSeg);
+        return Math.min(Math.max(i, 0), intervalos - 1);
+    }
+
+    /**
+     * LTTB en streaming: recibe las lecturas en orden y solo guarda la mejor candidata
+     * del intervalo actual. Va una lectura por detrás para poder tratar la última
+     * lectura del rango como punto fijo.
+     */
+    public static final class Lttb implements Consumer<LecturaMuestra> {
+
+        private final Canal canal;
+        private final double epochDesde;
+        private final double anchoSeg;
+        private final int intervalos;
+        /** Media (x, y) del siguiente intervalo con lecturas, para cada intervalo. */
+        private final double[] siguienteX;
+        private final double[] siguienteY;
+        private final List<LecturaMuestra> resultado = new ArrayList<>();
+
+        private LecturaMuestra pendiente;
+        private double ax;
+        private double ay;
+        private int actual = -1;
+        private LecturaMuestra mejor;
+        private double mejorArea;
+
+        /**
+         * @param canal      sensor que guía la selección
+         * @param epochDesde inicio del rango en segundos epoch
+         * @param anchoSeg   ancho de cada intervalo en segundos
+         * @param intervalos número de intervalos
+         * @param medias     medias de los intervalos con lecturas, ordenadas por intervalo
+         */
+        public Lttb(Canal canal, double epochDesde, double anchoSeg, int intervalos, List<MediaIntervalo> medias) {
+            this.canal = canal;
+            this.epochDesde = epochDesde;
+            this.anchoSeg = anchoSeg;
+            this.intervalos = intervalos;
+            this.siguienteX = new double[intervalos];
+            this.siguienteY = new double[intervalos];
+            Arrays.fill(siguienteX, Double.NaN);
+            // Se rellena de atrás hacia delante: cada intervalo apunta a la media del siguiente
+            // con datos; el último con datos usa su propia media (no hay siguiente)
+            int m = medias.size() - 1;
+            double x = Double.NaN;
+            double y = Double.NaN;
+            for (int i = intervalos - 1; i >= 0; i--) {
+                while (m >= 0 && medias.get(m).intervalo() > i) {
+                    x = medias.get(m).epochMedio();
+                    y = medias.get(m).valorMedio();
+                    m--;
+                }
+                if (Double.isNaN(x) && m >= 0 && medias.get(m).intervalo() == i) {
+                    siguienteX[i] = medias.get(m).epochMedio();
+                    siguienteY[i] = medias.get(m).valorMedio();
+                } else {
+                    siguienteX[i] = x;
+                    siguienteY[i] = y;
+                }
+            }
+        }
+
+        @Override
+        public void accept(LecturaMuestra lectura) {
+            if (canal.valor(lectura) == null) {
+                return;
+            }
+            if (pendiente != null) {
+                procesar(pendiente);
+            }
+            pendiente = lectura;
+        }
+
+        private void procesar(LecturaMuestra lectura) {
+            double bx = epoch(lectura.getTimestamp());
+            double by = canal.valor(lectura).doubleValue();
+            if (resultado.isEmpty()) {
+                resultado.add(lectura);
+                ax = bx;
+                ay = by;
+                return;
+            }
+            int i = intervalo(bx, epochDesde, anchoSeg, intervalos);
+            if (i != actual) {
+                emitirMejor();
+                actual = i;
+            }
+            double cx = siguienteX[i];
+            double cy = siguienteY[i];
+            if (Double.isNaN(cx)) {
+                cx = bx;
+                cy = by;
+            }
+            double area = Math.abs((ax - cx) * (by - ay) - (ax - bx) * (cy - ay));
+            if (mejor == null || area > mejorArea) {
+                mejor = lectura;
+                mejorArea = area;
+            }
+        }
+
+        private void emitirMejor() {
+            if (mejor != null) {
+                resultado.add(mejor);
+                ax = epoch(mejor.getTimestamp());
+                ay = canal.valor(mejor).doubleValue();
+                mejor = null;
+            }
+        }
+
+        /**
+         * @return lecturas elegidas en orden cronológico (incluye la primera y la última)
+         */
+        public List<LecturaMuestra> resultado() {
+            emitirMejor();
+            if (pendiente != null) {
+                resultado.add(pendiente);
+                pendiente = null;
+            }
+            return resultado;
+        }
+    }
+
+    /**
+     * M4 en streaming: por cada intervalo guarda la primera, la última, la mínima y la
+     * máxima lectura, y las emite al pasar al intervalo siguiente.
+     */
+    public static final class M4 implements Consumer<LecturaMuestra> {
+
+        private static final Comparator<LecturaMuestra> POR_TIEMPO = Comparator.comparing(LecturaMuestra::getTimestamp);
+
+        private final Canal canal;
+        private final double epochDesde;
+        private final double anchoSeg;
+        private final int intervalos;
+        private final List<LecturaMuestra> resultado = new ArrayList<>();
+
+        private int actual = -1;
+        private LecturaMuestra primera;
+        private LecturaMuestra ultima;
+        private LecturaMuestra minima;
+        private LecturaMuestra maxima;
+
+        /**
+         * @param canal      sensor cuyo mínimo y máximo se conservan
+         * @param epochDesde inicio del rango en segundos epoch
+         * @param anchoSeg   ancho de cada intervalo en segundos
+         * @param intervalos número de intervalos
+         */
+        public M4(Canal canal, double epochDesde, double anchoSeg, int intervalos) {
+            this.canal = canal;
+            this.epochDesde = epochDesde;
+            this.anchoSeg = anchoSeg;
+            this.intervalos = intervalos;
+        }
+
+        @Override
+        public void accept(LecturaMuestra lectura) {
+            int i = intervalo(epoch(lectura.getTimestamp()), epochDesde, anchoSeg, intervalos);
+            if (i != actual) {
+                emitir();
+                actual = i;
+                primera = lectura;
+            }
+            ultima = lectura;
+            BigDecimal valor = canal.valor(lectura);
+            if (valor != null) {
+                if (minima == null || valor.compareTo(canal.valor(minima)) < 0) {
+                    minima = lectura;
+                }
+                if (maxima == null || valor.compareTo(canal.valor(maxima)) > 0) {
+                    maxima = lectura;
+                }
+            }
+        }
+
+        private void emitir() {
+            if (primera == null) {
+                return;
+            }
+            List<LecturaMuestra> puntos = new ArrayList<>(4);
+            for (LecturaMuestra lectura : Arrays.asList(primera, minima, maxima, ultima)) {
+                if (lectura != null && puntos.stream().noneMatch(p -> p == lectura)) {
+                    puntos.add(lectura);
+                }
+            }
+            puntos.sort(POR_TIEMPO);
+            resultado.addAll(puntos);
+            primera = ultima = minima = maxima = null;
+        }
+
+        /**
+         * @return lecturas elegidas en orden cronológico
+         */
+        public List<LecturaMuestra> resultado() {
+            emitir();
+            return resultado;
+        }
+    }
+}
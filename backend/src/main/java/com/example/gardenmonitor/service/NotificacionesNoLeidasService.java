@@ -0,0 +1,153 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.repository.NotificacionRepository;
+import com.example.gardenmonitor.repository.UsuarioRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Contadores en memoria de notificaciones no leídas por usuario, para el contador del
+ * icono de notificaciones ({@code GET /api/notificaciones/usuario/{id}/no-leidas/count}).
+ * <p>
+ * El contador de un usuario se calcula con un {@code count} la primera vez que se pide y
+ * a partir de ahí se mantiene con cada cambio: notificaciones creadas, marcadas como
+ * leídas o no leídas y eliminadas. Quien cambia la BD lo hace dentro de {@link #escribir},
+ * que ajusta los contadores con el número exacto de filas afectadas que devuelve la sentencia.
+ * </p>
+ * <p>
+ * Si algo cambia mientras se calcula un contador, o hay una escritura en curso cuando
+ * empieza (ya confirmada en la BD pero sin ajustar aquí), el resultado se devuelve pero no
+ * se guarda: podría no incluir el cambio, o incluirlo y volver a sumarlo al ajustar. Es lo
+ * mismo que hace {@link GraficaCacheService} con las gráficas obsoletas. Los borrados en cascada (de una alerta, un dispositivo o un
+ * centro) descartan todos los contadores, que se vuelven a calcular al pedirlos.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Service
+public class NotificacionesNoLeidasService {
+
+    @Autowired
+    private NotificacionRepository notificacionRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    private final Map<Long, Long> contadores = new HashMap<>();
+    /** Avanza con cada cambio y al empezar y terminar cada escritura; protegido por el servicio. */
+    private long cambios;
+    /** Escrituras empezadas y no terminadas; protegido por el servicio. */
+    private int escriturasEnCurso;
+
+    /**
+     * @param usuarioId identificador del usuario
+     * @return notificaciones no leídas del usuario, o vacío si el usuario no existe
+     */
+    public OptionalLong contar(Long usuarioId) {
+        long cambiosAntes;
+        synchronized (this) {
+            Long contador = contadores.get(usuarioId);
+            if (contador != null) {
+                return OptionalLong.of(contador);
+            }
+            // Con una escritura en curso el count podría incluirla antes de su ajuste (-1: no se guarda)
+            cambiosAntes = escriturasEnCurso == 0 ? cambios : -1;
+        }
+        if (!usuarioRepository.existsById(usuarioId)) {
+            return OptionalLong.empty();
+        }
+        long contador = notificacionRepository.countByUsuario_IdAndLeida(usuarioId, false);
+        synchronized (this) {
+            if (cambios == cambiosAntes) {
+                contadores.put(usuarioId, contador);
+            }
+        }
+        return OptionalLong.of(contador);
+    }
+
+    /**
+     * Ejecuta una escritura de notificaciones en la BD y ajusta los contadores con su
+     * resultado. Mientras dura no se guarda ningún contador nuevo: uno calculado entre la
+     * confirmación de la escritura y el ajuste ya la incluiría.
+     *
+     * @param escritura sentencia que cambia notificaciones (se confirma al terminar)
+     * @param ajuste    ajuste de los contadores con el resultado de la escritura
+     * @param <T>       resultado de la escritura
+     * @return el resultado de la escritura
+     */
+    public <T> T escribir(Supplier<T> escritura, Consumer<T> ajuste) {
+        synchronized (this) {
+            cambios++;
+            escriturasEnCurso++;
+        }
+        try {
+            T resultado = escritura.get();
+            ajuste.accept(resultado);
+            return resultado;
+        } finally {
+            synchronized (this) {
+                escriturasEnCurso--;
+                cambios++;
+            }
+        }
+    }
+
+    /**
+     * Suma una notificación no leída a cada usuario indicado.
+     *
+     * @param usuarioIds usuario de cada notificación no leída nueva (repetido si recibe varias)
+     */
+    public synchronized void sumar(Collection<Long> usuarioIds) {
+        cambios++;
+        usuarioIds.forEach(id -> contadores.computeIfPresent(id, (k, n) -> n + 1));
+    }
+
+    /**
+     * Ajusta el contador de un usuario.
+     *
+     * @param usuarioId identificador del usuario
+     * @param delta     notificaciones no leídas de más (positivo) o de menos (negativo)
+     */
+    public synchronized void sumar(Long usuarioId, long delta) {
+        cambios++;
+        contadores.computeIfPresent(usuarioId, (k, n) -> Math.max(n + delta, 0));
+    }
+
+    /**
+     * Descarta el contador de un usuario eliminado.
+     *
+     * @param usuarioId identificador del usuario
+     */
+    public synchronized void olvidar(Long usuarioId) {
+        cambios++;
+        contadores.remove(usuarioId);
+    }
+
+    /**
+     * Descarta todos los contadores tras borrar notificaciones en cascada.
+     */
+    public synchronized void invalidarTodo() {
+        cambios++;
+        contadores.clear();
+    }
+
+    /**
+     * Descarta los contadores: las notificaciones de las alertas de los dispositivos se han
+     * borrado en cascada.
+     *
+     * @param evento dispositivos borrados
+     */
+    @EventListener
+    void alEliminarDispositivos(DispositivosEliminados evento) {
+        invalidarTodo();
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.repository.NotificacionJdbcRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reparto asíncrono de las alertas nuevas entre los usuarios de su centro.
+ * <p>
+ * Quien crea una alerta (el endpoint de {@code AlertaController}, {@link AlertasUmbralService}
+ * o {@link DesconexionService}) solo encola su id, ya guardado, y sigue sin esperar. Un único
+ * hilo vacía la cola y, por cada grupo de hasta {@code notificaciones.lote-max} alertas,
+ * crea las notificaciones de todos los usuarios asignados al centro del dispositivo con un
+ * solo INSERT ({@link NotificacionJdbcRepository}). Antes no se repartían: el cliente
+ * llamaba a {@code POST /api/notificaciones} una vez por usuario y alerta.
+ * </p>
+ * <p>
+ * Los ids repetidos dentro de un grupo se descartan y la BD ignora las notificaciones
+ * que ya existían, así que repetir un reparto (un reintento o una alerta encolada dos
+ * veces) no crea duplicados. Si la cola está llena o se agotan los reintentos, las
+ * alertas se quedan sin notificar y se registra en el log; se pueden repartir después con
+ * {@code POST /api/notificaciones/alerta/{id}}.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Service
+public class NotificacionesService {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificacionesService.class);
+
+    @Autowired
+    private NotificacionJdbcRepository notificacionJdbcRepository;
+
+    @Autowired
+    private NotificacionesNoLeidasService notificacionesNoLeidasService;
+
+    @Value("${notificaciones.capacidad:10000}")
+    private int capacidad;
+
+    @Value("${notificaciones.lote-max:500}")
+    private int loteMaximo;
+
+    @Value("${notificaciones.reintentos:3}")
+    private int reintentos;
+
+    private BlockingQueue<Long> cola;
+    private Thread hiloReparto;
+    private volatile boolean activo;
+
+    @PostConstruct
+    void iniciar() {
+        cola = new ArrayBlockingQueue<>(capacidad);
+        activo = true;
+        hiloReparto = new Thread(this::bucleReparto, "notificaciones");
+        hiloReparto.setDaemon(true);
+        hiloReparto.start();
+    }
+
+    /**
+     * Detiene el hilo de reparto tras vaciar la cola.
+     */
+    @PreDestroy
+    void detener() throws InterruptedException {
+        activo = false;
+        hiloReparto.join(TimeUnit.SECONDS.toMillis(30));
+        if (!cola.isEmpty()) {
+            log.warn("Se quedan sin notificar {} alertas al detener el reparto", cola.size());
+        }
+    }
+
+    /**
+     * Encola una alerta ya guardada para notificarla a los usuarios de su centro.
+     *
+     * @param alertaId identificador de la alerta
+     */
+    public void notificar(Long alertaId) {
+        if (!cola.offer(alertaId)) {
+            log.warn("Cola de notificaciones llena, la alerta {} se queda sin notificar", alertaId);
+        }
+    }
+
+    private void bucleReparto() {
+        while (activo || !cola.isEmpty()) {
+            try {
+                Long primera = cola.poll(1, TimeUnit.SECONDS);
+                if (primera == null) {
+                    continue;
+                }
+                List<Long> pendientes = new ArrayList<>();
+                pendientes.add(primera);
+                cola.drainTo(pendientes, loteMaximo - 1);
+                repartirConReintentos(new LinkedHashSet<>(pendientes));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Error inesperado en el hilo de reparto de notificaciones", e);
+            }
+        }
+    }
+
+    private void repartirConReintentos(Set<Long> alertaIds) throws InterruptedException {
+        for (int intento = 1; ; intento++) {
+            try {
+                List<Long> usuarios = notificacionesNoLeidasService.escribir(
+                        () -> notificacionJdbcRepository.insertarParaAlertas(alertaIds),
+                        notificacionesNoLeidasService::sumar);
+                log.debug("{} notificaciones creadas para {} alertas", usuarios.size(), alertaIds.size());
+                return;
+            } catch (DataAccessException e) {
+                if (intento > reintentos) {
+                    log.error("Se quedan sin notificar las alertas {} tras {} intentos", alertaIds, intento, e);
+                    return;
+                }
+                log.warn("Fallo al notificar {} alertas (intento {}), se reintenta", alertaIds.size(), intento, e);
+                Thread.sleep(TimeUnit.SECONDS.toMillis(intento));
+            }
+        }
+    }
+}
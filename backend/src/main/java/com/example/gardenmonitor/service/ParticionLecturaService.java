@@ -0,0 +1,70 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.repository.LecturaParticionJdbcRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+
+/**
+ * Mantiene creadas por adelantado las particiones mensuales de {@code lectura}.
+ * <p>
+ * Con particionado declarativo, una lectura cuyo mes no tiene partición acaba en
+ * {@code lectura_default}, que no se beneficia del partition pruning. Esta tarea
+ * se ejecuta al arrancar y cada día, y crea las particiones del mes actual y de los
+ * {@code lecturas.particiones.meses-adelante} meses siguientes.
+ * </p>
+ * <p>
+ * Si {@code lectura} no está particionada (p. ej. es una hypertable de TimescaleDB),
+ * la tarea no hace nada.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Service
+public class ParticionLecturaService {
+
+    private static final Logger log = LoggerFactory.getLogger(ParticionLecturaService.class);
+
+    @Autowired
+    private LecturaParticionJdbcRepository lecturaParticionJdbcRepository;
+
+    @Value("${lecturas.particiones.meses-adelante:3}")
+    private int mesesAdelante;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        crearParticionesFuturas();
+    }
+
+    /**
+     * Crea las particiones que falten desde el mes actual hasta {@code mesesAdelante} meses vista.
+     */
+    @Scheduled(cron = "${lecturas.particiones.cron:0 0 3 * * *}")
+    public void crearParticionesFuturas() {
+        try {
+            if (!lecturaParticionJdbcRepository.esTablaParticionada()) {
+                log.debug("La tabla lectura no usa particionado declarativo, no se crean particiones");
+                return;
+            }
+            YearMonth actual = YearMonth.now();
+            for (int i = 0; i <= mesesAdelante; i++) {
+                YearMonth mes = actual.plusMonths(i);
+                if (lecturaParticionJdbcRepository.crearParticionMensual(mes)) {
+                    log.info("Creada la partición {}", LecturaParticionJdbcRepository.nombreParticion(mes));
+                }
+            }
+        } catch (DataAccessException e) {
+            // Falla si lectura_default ya tiene filas de ese mes: hay que moverlas a mano
+            log.warn("No se pudieron crear las particiones de lectura", e);
+        }
+    }
+}
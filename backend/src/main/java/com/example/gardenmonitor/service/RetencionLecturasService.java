@@ -0,0 +1,233 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.repository.DispositivoEsp32Repository;
+import com.example.gardenmonitor.repository.LecturaAgregadaJdbcRepository;
+import com.example.gardenmonitor.repository.LecturaJdbcRepository;
+import com.example.gardenmonitor.repository.LecturaParticionJdbcRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Política de retención del histórico de lecturas.
+ * <p>
+ * Las lecturas crudas se conservan {@code lecturas.retencion.dias-crudas} días; las
+ * más antiguas solo quedan en las tablas agregadas ({@code lectura_hora} y
+ * {@code lectura_dia}), que son las que usa la gráfica para SEMESTRE y ANIO. La tarea
+ * se ejecuta cada noche y, para cada dispositivo:
+ * </p>
+ * <ol>
+ *   <li>Completa los agregados de los días que se van a borrar con los intervalos que
+ *       falten (los que ya existen no se tocan), para no perder datos al borrar.</li>
+ *   <li>Si {@code lectura} está particionada por mes, elimina las particiones enteras
+ *       anteriores al límite, sin esperar más de {@code lecturas.retencion.lock-timeout-ms}
+ *       por el bloqueo de cada una; si es una hypertable, sus chunks antiguos.</li>
+ *   <li>Borra el resto de lecturas anteriores al límite por tandas de
+ *       {@code lecturas.retencion.lote-borrado} filas, cada tanda en su propia transacción
+ *       y con una pausa entre tandas, para no bloquear la ingesta ni las consultas.</li>
+ * </ol>
+ * <p>
+ * Los agregados por hora se conservan {@code lecturas.retencion.dias-agregado-hora} días;
+ * los diarios no se borran nunca. Al terminar avanza la versión de las lecturas de los
+ * dispositivos afectados, para que los ETag de las consultas de lecturas no sigan
+ * respondiendo 304 con páginas que incluyen filas borradas.
+ * </p>
+ * <p>
+ * Las lecturas crudas se borran sin archivarlas, así que la exportación del histórico y
+ * las consultas por rango dejan de verlas. Por eso está desactivada por defecto
+ * ({@code lecturas.retencion.habilitada=false}): al activarla en una instalación existente,
+ * la primera ejecución borra de golpe todas las lecturas anteriores al límite.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Service
+public class RetencionLecturasService {
+
+    private static final Logger log = LoggerFactory.getLogger(RetencionLecturasService.class);
+
+    /** La gráfica de MES usa lecturas crudas: no se puede bajar de aquí. */
+    private static final int DIAS_CRUDAS_MINIMO = 31;
+
+    /** La gráfica de SEMESTRE usa los agregados por hora: no se puede bajar de aquí. */
+    private static final int DIAS_AGREGADO_HORA_MINIMO = 181;
+
+    @Autowired
+    private DispositivoEsp32Repository dispositivoEsp32Repository;
+
+    @Autowired
+    private LecturaJdbcRepository lecturaJdbcRepository;
+
+    @Autowired
+    private LecturaAgregadaJdbcRepository lecturaAgregadaJdbcRepository;
+
+    @Autowired
+    private LecturaParticionJdbcRepository lecturaParticionJdbcRepository;
+
+    @Autowired
+    private VersionDatosService versionDatosService;
+
+    @Value("${lecturas.retencion.habilitada:false}")
+    private boolean habilitada;
+
+    @Value("${lecturas.retencion.dias-crudas:90}")
+    private int diasCrudas;
+
+    @Value("${lecturas.retencion.dias-agregado-hora:400}")
+    private int diasAgregadoHora;
+
+    @Value("${lecturas.retencion.lote-borrado:5000}")
+    private int loteBorrado;
+
+    @Value("${lecturas.retencion.pausa-ms:100}")
+    private long pausaMs;
+
+    @Value("${lecturas.retencion.lock-timeout-ms:2000}")
+    private long lockTimeoutMs;
+
+    @Value("${lecturas.retencion.reintentos-particion:3}")
+    private int reintentosParticion;
+
+    /** Evita dos ejecuciones solapadas si una tanda de borrado se alarga. */
+    private final AtomicBoolean enCurso = new AtomicBoolean();
+
+    @PostConstruct
+    void validarConfiguracion() {
+        if (diasCrudas < DIAS_CRUDAS_MINIMO) {
+            log.warn("lecturas.retencion.dias-crudas={} es menor que {}, se usa {}",
+                    diasCrudas, DIAS_CRUDAS_MINIMO, DIAS_CRUDAS_MINIMO);
+            diasCrudas = DIAS_CRUDAS_MINIMO;
+        }
+        if (diasAgregadoHora < DIAS_AGREGADO_HORA_MINIMO) {
+            log.warn("lecturas.retencion.dias-agregado-hora={} es menor que {}, se usa {}",
+                    diasAgregadoHora, DIAS_AGREGADO_HORA_MINIMO, DIAS_AGREGADO_HORA_MINIMO);
+            diasAgregadoHora = DIAS_AGREGADO_HORA_MINIMO;
+        }
+    }
+
+    /**
+     * Aplica la política de retención. Se programa de noche para no competir con la ingesta.
+     */
+    @Scheduled(cron = "${lecturas.retencion.cron:0 30 3 * * *}")
+    public void aplicarRetencion() {
+        if (!habilitada || !enCurso.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            LocalDateTime limite = LocalDate.now().minusDays(diasCrudas).atStartOfDay();
+            long inicio = System.nanoTime();
+
+            for (Long dispositivoId : dispositivoEsp32Repository.findAllIds()) {
+                completarAgregados(dispositivoId, limite);
+            }
+            if (eliminarParticionesAntiguas(limite)) {
+                // Afecta a todos los dispositivos con lecturas en las particiones eliminadas
+                versionDatosService.incrementar(VersionDatosService.Ambito.LECTURAS,
+                        dispositivoEsp32Repository.findAllIds());
+            }
+            long borradas = 0;
+            for (Long dispositivoId : dispositivoEsp32Repository.findAllIds()) {
+                long delDispositivo = eliminarLecturasAntiguas(dispositivoId, limite);
+                if (delDispositivo > 0) {
+                    versionDatosService.incrementar(VersionDatosService.Ambito.LECTURAS, dispositivoId);
+                    borradas += delDispositivo;
+                }
+            }
+            int horas = lecturaAgregadaJdbcRepository.eliminarHorasAnterioresA(
+                    LocalDate.now().minusDays(diasAgregadoHora).atStartOfDay());
+
+            log.info("Retención aplicada: {} lecturas y {} agregados por hora anteriores a {} eliminados en {} ms",
+                    borradas, horas, limite, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        } catch (DataAccessException e) {
+            log.error("Error aplicando la retención de lecturas", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            enCurso.set(false);
+        }
+    }
+
+    /**
+     * Completa los agregados del dispositivo día a día, desde su lectura más antigua hasta
+     * el límite, para que cada sentencia recorra un rango acotado de lecturas.
+     */
+    private void completarAgregados(Long dispositivoId, LocalDateTime limite) {
+        LocalDateTime primera = lecturaJdbcRepository.buscarPrimeraLectura(dispositivoId);
+        if (primera == null || !primera.isBefore(limite)) {
+            return;
+        }
+        for (LocalDateTime dia = primera.toLocalDate().atStartOfDay(); dia.isBefore(limite); dia = dia.plusDays(1)) {
+            lecturaAgregadaJdbcRepository.completar(dispositivoId, dia, dia.plusDays(1));
+        }
+    }
+
+    /**
+     * @return si se ha eliminado alguna partición o chunk
+     */
+    private boolean eliminarParticionesAntiguas(LocalDateTime limite) throws InterruptedException {
+        boolean eliminadas = false;
+        if (lecturaParticionJdbcRepository.esTablaParticionada()) {
+            for (YearMonth mes : lecturaParticionJdbcRepository.buscarParticionesAnterioresA(limite)) {
+                eliminadas |= eliminarParticion(mes);
+            }
+        } else if (lecturaParticionJdbcRepository.esHypertable()) {
+            int chunks = lecturaParticionJdbcRepository.eliminarChunksAnterioresA(limite);
+            if (chunks > 0) {
+                log.info("Eliminados {} chunks de lectura anteriores a {}", chunks, limite);
+                eliminadas = true;
+            }
+        }
+        return eliminadas;
+    }
+
+    /**
+     * Elimina una partición reintentando si no consigue el bloqueo sobre {@code lectura}
+     * en {@code lecturas.retencion.lock-timeout-ms}. Si se agotan los intentos se deja para
+     * la noche siguiente: sus lecturas las borra igualmente el borrado por tandas.
+     *
+     * @return si se ha eliminado la partición
+     */
+    private boolean eliminarParticion(YearMonth mes) throws InterruptedException {
+        String nombre = LecturaParticionJdbcRepository.nombreParticion(mes);
+        for (int intento = 1; ; intento++) {
+            try {
+                lecturaParticionJdbcRepository.eliminarParticion(mes, lockTimeoutMs);
+                log.info("Eliminada la partición {}", nombre);
+                return true;
+            } catch (PessimisticLockingFailureException e) {
+                if (intento > reintentosParticion) {
+                    log.warn("No se ha podido bloquear lectura para eliminar la partición {} tras {} intentos, "
+                            + "se reintentará en la próxima ejecución", nombre, intento);
+                    return false;
+                }
+                Thread.sleep(TimeUnit.SECONDS.toMillis(intento));
+            }
+        }
+    }
+
+    private long eliminarLecturasAntiguas(Long dispositivoId, LocalDateTime limite) throws InterruptedException {
+        long total = 0;
+        int borradas;
+        do {
+            borradas = lecturaJdbcRepository.eliminarLoteAnteriorA(dispositivoId, limite, loteBorrado);
+            total += borradas;
+            if (borradas == loteBorrado && pausaMs > 0) {
+                Thread.sleep(pausaMs);
+            }
+        } while (borradas == loteBorrado);
+        return total;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.model.DispositivoEsp32;
+import com.example.gardenmonitor.repository.DispositivoEsp32JdbcRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Seguimiento en memoria de la última conexión de cada dispositivo.
+ * <p>
+ * Antes, cada lectura hacía un UPDATE completo de la fila de {@code dispositivo_esp32}
+ * solo para cambiar {@code ultima_conexion}. Ahora la ingesta registra aquí la hora
+ * de cada lectura y una tarea periódica vuelca todos los cambios acumulados con un
+ * único UPDATE. Entre volcados, los endpoints de dispositivos leen el valor en memoria
+ * con {@link #aplicar(DispositivoEsp32)} para que la fecha mostrada esté al día.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Service
+public class UltimaConexionService {
+
+    private static final Logger log = LoggerFactory.getLogger(UltimaConexionService.class);
+
+    @Autowired
+    private DispositivoEsp32JdbcRepository dispositivoEsp32JdbcRepository;
+
+    @Autowired
+    private VersionDatosService versionDatosService;
+
+    /** Última conexión conocida de cada dispositivo (para lectura). */
+    private final Map<Long, LocalDateTime> ultimas = new ConcurrentHashMap<>();
+
+    /** Conexiones pendientes de volcar a la BD. */
+    private final Map<Long, LocalDateTime> pendientes = new ConcurrentHashMap<>();
+
+    /**
+     * Registra que un dispositivo ha enviado una lectura. Solo avanza la fecha; si avanza,
+     * avanza también la versión de su conexión (cambia la respuesta de sus endpoints).
+     *
+     * @param dispositivoId identificador del dispositivo
+     * @param momento       timestamp de la lectura
+     */
+    public void registrar(Long dispositivoId, LocalDateTime momento) {
+        if (momento.equals(ultimas.merge(dispositivoId, momento, UltimaConexionService::masReciente))) {
+            versionDatosService.incrementar(VersionDatosService.Ambito.CONEXION, dispositivoId);
+        }
+        pendientes.merge(dispositivoId, momento, UltimaConexionService::masReciente);
+    }
+
+    /**
+     * Sustituye la última conexión de la entidad por el valor en memoria si es más reciente.
+     * Se aplica solo sobre las entidades que se devuelven en la respuesta.
+     *
+     * @param dispositivo dispositivo a actualizar
+     * @return el mismo dispositivo
+     */
+    public DispositivoEsp32 aplicar(DispositivoEsp32 dispositivo) {
+        LocalDateTime enMemoria = ultimas.get(dispositivo.getId());
+        if (enMemoria != null && (dispositivo.getUltimaConexion() == null
+                || enMemoria.isAfter(dispositivo.getUltimaConexion()))) {
+            dispositivo.setUltimaConexion(enMemoria);
+        }
+        return dispositivo;
+    }
+
+    /**
+     * Olvida un dispositivo eliminado para no intentar volcar su conexión.
+     *
+     * @param dispositivoId identificador del dispositivo
+     */
+    public void olvidar(Long dispositivoId) {
+        ultimas.remove(dispositivoId);
+        pendientes.remove(dispositivoId);
+    }
+
+    /**
+     * Olvida la conexión pendiente de los dispositivos borrados.
+     *
+     * @param evento dispositivos borrados
+     */
+    @EventListener
+    void alEliminarDispositivos(DispositivosEliminados evento) {
+        evento.dispositivoIds().forEach(this::olvidar);
+    }
+
+    /**
+     * Vuelca a la BD las conexiones acumuladas desde el último volcado con un único UPDATE.
+     */
+    @Scheduled(fixedDelayString = "${dispositivos.ultima-conexion.intervalo-ms:30000}")
+    public void volcar() {
+        if (pendientes.isEmpty()) {
+            return;
+        }
+        Map<Long, LocalDateTime> lote = new HashMap<>(pendientes);
+        try {
+            dispositivoEsp32JdbcRepository.actualizarUltimasConexiones(lote);
+        } catch (DataAccessException e) {
+            log.warn("No se pudo volcar la última conexión de {} dispositivos, se reintentará", lote.size(), e);
+            return;
+        }
+        // Solo se quita lo volcado: si llegó una lectura más reciente se conserva para el siguiente ciclo
+        lote.forEach(pendientes::remove);
+    }
+
+    @PreDestroy
+    void detener() {
+        volcar();
+    }
+
+    private static LocalDateTime masReciente(LocalDateTime actual, LocalDateTime nueva) {
+        return nueva.isAfter(actual) ? nueva : actual;
+    }
+}
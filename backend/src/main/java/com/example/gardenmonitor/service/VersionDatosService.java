@@ -0,0 +1,131 @@
+package com.example.gardenmonitor.service;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versión en memoria de los datos de cada dispositivo.
+ * <p>
+ * Cada vez que cambian los datos de un dispositivo en un ámbito (sus lecturas, su
+ * configuración, su última conexión o sus alertas) avanza su versión en ese ámbito y la versión global del
+ * ámbito. Lo que se calcula a partir de esos datos puede guardarse junto con la versión
+ * leída antes del cálculo: si la versión actual es otra, el resultado está obsoleto. Lo
+ * usan {@link GraficaCacheService} y los ETag de los endpoints de consulta, que así
+ * responden 304 Not Modified sin consultar la BD.
+ * </p>
+ * <p>
+ * Las versiones solo viven en memoria y empiezan en 0 al arrancar; por eso los ETag
+ * incluyen además el instante de arranque ({@link #etag}).
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@Service
+public class VersionDatosService {
+
+    /** Ámbito de los datos versionados de un dispositivo. */
+    public enum Ambito {
+        /** Lecturas del dispositivo (ingesta y borrado). */
+        LECTURAS,
+        /** Configuración del dispositivo y su centro (altas, bajas y cambios). */
+        DISPOSITIVO,
+        /** Última conexión del dispositivo, que avanza con cada lectura. */
+        CONEXION,
+        /** Alertas del dispositivo. */
+        ALERTAS
+    }
+
+    private final String arranque = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Map<Ambito, Map<Long, Long>> versiones = new EnumMap<>(Ambito.class);
+    private final Map<Ambito, AtomicLong> globales = new EnumMap<>(Ambito.class);
+
+    public VersionDatosService() {
+        for (Ambito ambito : Ambito.values()) {
+            versiones.put(ambito, new ConcurrentHashMap<>());
+            globales.put(ambito, new AtomicLong());
+        }
+    }
+
+    /**
+     * @param ambito        ámbito de los datos
+     * @param dispositivoId identificador del dispositivo
+     * @return versión actual de los datos del dispositivo en el ámbito
+     */
+    public long version(Ambito ambito, Long dispositivoId) {
+        return versiones.get(ambito).getOrDefault(dispositivoId, 0L);
+    }
+
+    /**
+     * @param ambito ámbito de los datos
+     * @return versión global del ámbito, que avanza con cualquier cambio de cualquier dispositivo
+     */
+    public long version(Ambito ambito) {
+        return globales.get(ambito).get();
+    }
+
+    /**
+     * Marca que han cambiado los datos de un dispositivo en un ámbito.
+     *
+     * @param ambito        ámbito de los datos
+     * @param dispositivoId identificador del dispositivo
+     */
+    public void incrementar(Ambito ambito, Long dispositivoId) {
+        versiones.get(ambito).merge(dispositivoId, 1L, Long::sum);
+        globales.get(ambito).incrementAndGet();
+    }
+
+    /**
+     * Marca que han cambiado los datos de varios dispositivos en un ámbito.
+     *
+     * @param ambito         ámbito de los datos
+     * @param dispositivoIds identificadores de los dispositivos (sin repetir)
+     */
+    public void incrementar(Ambito ambito, Collection<Long> dispositivoIds) {
+        dispositivoIds.forEach(id -> incrementar(ambito, id));
+    }
+
+    /**
+     * Marca que han cambiado todos los datos de un dispositivo (p. ej. al borrarlo).
+     *
+     * @param dispositivoId identificador del dispositivo
+     */
+    public void incrementarTodo(Long dispositivoId) {
+        for (Ambito ambito : Ambito.values()) {
+            incrementar(ambito, dispositivoId);
+        }
+    }
+
+    /**
+     * Invalida todo lo calculado con los datos de los dispositivos borrados (ETag, gráficas).
+     *
+     * @param evento dispositivos borrados
+     */
+    @EventListener
+    void alEliminarDispositivos(DispositivosEliminados evento) {
+        evento.dispositivoIds().forEach(this::incrementarTodo);
+    }
+
+    /**
+     * Compone un ETag con el instante de arranque y las versiones indicadas, para que
+     * no se repita tras reiniciar el servidor.
+     *
+     * @param prefijo   identifica el recurso (el ETag se compara solo dentro de la misma URL)
+     * @param versiones versiones de las que depende la respuesta
+     * @return ETag fuerte entre comillas
+     */
+    public String etag(String prefijo, long... versiones) {
+        StringBuilder etag = new StringBuilder("\"").append(prefijo).append('-').append(arranque);
+        for (long version : versiones) {
+            etag.append('-').append(Long.toString(version, 36));
+        }
+        return etag.append('"').toString();
+    }
+}
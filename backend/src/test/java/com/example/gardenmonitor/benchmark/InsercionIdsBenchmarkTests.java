@@ -0,0 +1,177 @@
+package com.example.gardenmonitor.benchmark;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Benchmark de inserción masiva con ids IDENTITY frente a SEQUENCE pooled.
+ * <p>
+ * Reproduce las sentencias que emite Hibernate en cada caso sobre tablas temporales
+ * con la forma de {@code lectura} y {@code notificacion}:
+ * </p>
+ * <ul>
+ *   <li>IDENTITY: un {@code INSERT ... RETURNING id} por fila (Hibernate necesita el id
+ *       generado y desactiva el batching).</li>
+ *   <li>SEQUENCE (allocationSize 50): un {@code nextval} cada 50 filas y los INSERT
+ *       agrupados en batches de 50 ({@code hibernate.jdbc.batch_size}).</li>
+ * </ul>
+ * <p>
+ * Necesita un PostgreSQL real, por lo que solo se ejecuta si está definida la variable
+ * {@code GARDENMONITOR_BENCH_DB_URL} (y opcionalmente {@code GARDENMONITOR_BENCH_DB_USER}
+ * y {@code GARDENMONITOR_BENCH_DB_PASSWORD}):
+ * </p>
+ * <pre>
+ * GARDENMONITOR_BENCH_DB_URL=jdbc:postgresql://localhost:5432/proyecto_arboles \
+ *   ./mvnw test -Dtest=InsercionIdsBenchmarkTests
+ * </pre>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@EnabledIfEnvironmentVariable(named = "GARDENMONITOR_BENCH_DB_URL", matches = ".+")
+class InsercionIdsBenchmarkTests {
+
+    private static final int ALLOCATION_SIZE = 50;
+    private static final int[] TAMANOS = {1_000, 10_000, 50_000};
+
+    @Test
+    void compararIdentityConSequence() throws SQLException {
+        String url = System.getenv("GARDENMONITOR_BENCH_DB_URL");
+        String separador = url.contains("?") ? "&" : "?";
+        try (Connection con = DriverManager.getConnection(url + separador + "reWriteBatchedInserts=true",
+                System.getenv("GARDENMONITOR_BENCH_DB_USER"),
+                System.getenv("GARDENMONITOR_BENCH_DB_PASSWORD"))) {
+            con.setAutoCommit(false);
+            crearTablas(con);
+
+            System.out.printf("%-14s %8s %14s %14s %8s%n", "tabla", "filas", "IDENTITY ms", "SEQUENCE ms", "mejora");
+            for (Tabla tabla : Tabla.values()) {
+                // Calentamiento del driver y del plan de ejecución
+                insertarIdentity(con, tabla, 500);
+                insertarSequence(con, tabla, 500);
+                for (int filas : TAMANOS) {
+                    long identity = insertarIdentity(con, tabla, filas);
+                    long sequence = insertarSequence(con, tabla, filas);
+                    System.out.printf("%-14s %8d %14d %14d %7.1fx%n", tabla.nombre, filas,
+                            identity, sequence, (double) identity / Math.max(sequence, 1));
+                }
+            }
+        }
+    }
+
+    private void crearTablas(Connection con) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            for (Tabla tabla : Tabla.values()) {
+                st.execute("CREATE TEMP TABLE bench_" + tabla.nombre + "_identity ("
+                        + "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " + tabla.columnas + ")");
+                st.execute("CREATE TEMP TABLE bench_" + tabla.nombre + "_sequence ("
+                        + "id BIGINT PRIMARY KEY, " + tabla.columnas + ")");
+                st.execute("CREATE TEMP SEQUENCE bench_" + tabla.nombre + "_seq INCREMENT BY " + ALLOCATION_SIZE);
+            }
+        }
+        con.commit();
+    }
+
+    private long insertarIdentity(Connection con, Tabla tabla, int filas) throws SQLException {
+        String sql = "INSERT INTO bench_" + tabla.nombre + "_identity (" + tabla.lista + ") VALUES ("
+                + tabla.marcadores + ") RETURNING id";
+        long inicio = System.nanoTime();
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            for (int i = 0; i < filas; i++) {
+                tabla.rellenar(ps, 1, i);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                }
+            }
+        }
+        con.commit();
+        return (System.nanoTime() - inicio) / 1_000_000;
+    }
+
+    private long insertarSequence(Connection con, Tabla tabla, int filas) throws SQLException {
+        String sql = "INSERT INTO bench_" + tabla.nombre + "_sequence (id, " + tabla.lista + ") VALUES (?, "
+                + tabla.marcadores + ")";
+        long inicio = System.nanoTime();
+        try (PreparedStatement nextval = con.prepareStatement("SELECT nextval('bench_" + tabla.nombre + "_seq')");
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            long siguienteId = 0;
+            long finRango = -1;
+            for (int i = 0; i < filas; i++) {
+                if (siguienteId > finRango) {
+                    try (ResultSet rs = nextval.executeQuery()) {
+                        rs.next();
+                        finRango = rs.getLong(1);
+                    }
+                    siguienteId = finRango - ALLOCATION_SIZE + 1;
+                }
+                ps.setLong(1, siguienteId++);
+                tabla.rellenar(ps, 2, i);
+                ps.addBatch();
+                if ((i + 1) % ALLOCATION_SIZE == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+        con.commit();
+        return (System.nanoTime() - inicio) / 1_000_000;
+    }
+
+    private enum Tabla {
+        LECTURA("lectura",
+                "timestamp TIMESTAMPTZ NOT NULL, dispositivo_id BIGINT NOT NULL, temperatura DECIMAL(5, 2) NOT NULL, "
+                        + "humedad_ambiente DECIMAL(5, 2) NOT NULL, humedad_suelo DECIMAL(5, 2) NOT NULL, "
+                        + "co2 DECIMAL(7, 2), luz1 DECIMAL(5, 2), luz2 DECIMAL(5, 2)",
+                "timestamp, dispositivo_id, temperatura, humedad_ambiente, humedad_suelo, co2, luz1, luz2",
+                "?, ?, ?, ?, ?, ?, ?, ?") {
+            @Override
+            void rellenar(PreparedStatement ps, int desde, int i) throws SQLException {
+                ps.setTimestamp(desde, Timestamp.valueOf(LocalDateTime.of(2025, 1, 1, 0, 0).plusSeconds(i * 30L)));
+                ps.setLong(desde + 1, i % 20 + 1);
+                ps.setBigDecimal(desde + 2, BigDecimal.valueOf(2000 + i % 500, 2));
+                ps.setBigDecimal(desde + 3, BigDecimal.valueOf(6000 + i % 300, 2));
+                ps.setBigDecimal(desde + 4, BigDecimal.valueOf(4000 + i % 200, 2));
+                ps.setBigDecimal(desde + 5, BigDecimal.valueOf(45000 + i % 1000, 2));
+                ps.setBigDecimal(desde + 6, BigDecimal.valueOf(5000, 2));
+                ps.setBigDecimal(desde + 7, BigDecimal.valueOf(5000, 2));
+            }
+        },
+        NOTIFICACION("notificacion",
+                "usuario_id BIGINT NOT NULL, alerta_id BIGINT NOT NULL, leida BOOLEAN NOT NULL DEFAULT FALSE, "
+                        + "fecha_envio TIMESTAMPTZ NOT NULL DEFAULT NOW()",
+                "usuario_id, alerta_id, leida, fecha_envio",
+                "?, ?, ?, ?") {
+            @Override
+            void rellenar(PreparedStatement ps, int desde, int i) throws SQLException {
+                ps.setLong(desde, i % 50 + 1);
+                ps.setLong(desde + 1, i / 50 + 1);
+                ps.setBoolean(desde + 2, false);
+                ps.setTimestamp(desde + 3, Timestamp.valueOf(LocalDateTime.of(2025, 1, 1, 0, 0).plusSeconds(i)));
+            }
+        };
+
+        private final String nombre;
+        private final String columnas;
+        private final String lista;
+        private final String marcadores;
+
+        Tabla(String nombre, String columnas, String lista, String marcadores) {
+            this.nombre = nombre;
+            this.columnas = columnas;
+            this.lista = lista;
+            this.marcadores = marcadores;
+        }
+
+        abstract void rellenar(PreparedStatement ps, int desde, int i) throws SQLException;
+    }
+}
@@ -0,0 +1,297 @@
+package com.example.gardenmonitor.benchmark;
+
+import com.example.gardenmonitor.dto.LecturaMuestra;
+import com.example.gardenmonitor.repository.LecturaJdbcRepository.MediaIntervalo;
+import com.example.gardenmonitor.service.MuestreoService;
+import com.example.gardenmonitor.service.MuestreoService.Canal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark del muestreo de la gráfica: stride sampling frente a LTTB y M4.
+ * <p>
+ * Tiene dos partes, cada una activada por su variable de entorno:
+ * </p>
+ * <ul>
+ *   <li>{@code GARDENMONITOR_BENCH} — en memoria: genera una serie sintética de CO2 con
+ *       picos aislados y compara el tiempo de cada algoritmo y cuántos picos conserva.
+ *       El stride se emula en Java con el mismo criterio que la query SQL.</li>
+ *   <li>{@code GARDENMONITOR_BENCH_DB_URL} (y opcionalmente {@code GARDENMONITOR_BENCH_DB_USER}
+ *       y {@code GARDENMONITOR_BENCH_DB_PASSWORD}) — sobre PostgreSQL: compara la query de
+ *       stride con ventanas frente a la media por intervalos más el recorrido con cursor de LTTB,
+ *       sobre una tabla temporal con la forma de {@code lectura}.</li>
+ * </ul>
+ * <pre>
+ * GARDENMONITOR_BENCH=1 ./mvnw test -Dtest=MuestreoBenchmarkTests
+ * </pre>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+class MuestreoBenchmarkTests {
+
+    private static final int PUNTOS = 400;
+    private static final int[] TAMANOS = {2_880, 20_160, 86_400, 500_000};
+    private static final ZoneId ZONA = ZoneId.systemDefault();
+    private static final LocalDateTime INICIO = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "GARDENMONITOR_BENCH", matches = ".+")
+    void compararEnMemoria() {
+        System.out.printf("%-8s %8s %8s %10s %8s%n", "algor.", "lecturas", "puntos", "ms", "picos");
+        for (int filas : TAMANOS) {
+            List<LecturaMuestra> serie = generarSerie(filas);
+            int picos = (int) serie.stream().filter(MuestreoBenchmarkTests::esPico).count();
+            LocalDateTime hasta = serie.get(serie.size() - 1).getTimestamp();
+
+            // Calentamiento del JIT
+            for (int i = 0; i < 3; i++) {
+                stride(serie);
+                lttb(serie, hasta);
+                m4(serie, hasta);
+            }
+
+            long inicio = System.nanoTime();
+            List<LecturaMuestra> stride = stride(serie);
+            imprimir("STRIDE", filas, stride, inicio, picos);
+
+            inicio = System.nanoTime();
+            List<LecturaMuestra> lttb = lttb(serie, hasta);
+            imprimir("LTTB", filas, lttb, inicio, picos);
+
+            inicio = System.nanoTime();
+            List<LecturaMuestra> m4 = m4(serie, hasta);
+            imprimir("M4", filas, m4, inicio, picos);
+        }
+    }
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "GARDENMONITOR_BENCH_DB_URL", matches = ".+")
+    void compararConPostgres() throws SQLException {
+        try (Connection con = DriverManager.getConnection(System.getenv("GARDENMONITOR_BENCH_DB_URL"),
+                System.getenv("GARDENMONITOR_BENCH_DB_USER"),
+                System.getenv("GARDENMONITOR_BENCH_DB_PASSWORD"))) {
+            con.setAutoCommit(false);
+            try (Statement st = con.createStatement()) {
+                st.execute("CREATE TEMP TABLE bench_lectura (id BIGINT PRIMARY KEY, timestamp TIMESTAMPTZ NOT NULL, "
+                        + "dispositivo_id BIGINT NOT NULL, temperatura DECIMAL(5, 2), humedad_ambiente DECIMAL(5, 2), "
+                        + "humedad_suelo DECIMAL(5, 2), co2 DECIMAL(7, 2), luz1 DECIMAL(5, 2), luz2 DECIMAL(5, 2))");
+                st.execute("CREATE INDEX ON bench_lectura (dispositivo_id, timestamp)");
+            }
+
+            System.out.printf("%-8s %8s %10s %10s%n", "lecturas", "", "STRIDE ms", "LTTB ms");
+            long siguienteId = 1;
+            for (int filas : TAMANOS) {
+                try (Statement st = con.createStatement()) {
+                    st.execute("TRUNCATE bench_lectura");
+                }
+                List<LecturaMuestra> serie = generarSerie(filas);
+                try (PreparedStatement ps = con.prepareStatement(
+                        "INSERT INTO bench_lectura VALUES (?, ?, 1, ?, ?, ?, ?, ?, ?)")) {
+                    for (LecturaMuestra l : serie) {
+                        ps.setLong(1, siguienteId++);
+                        ps.setTimestamp(2, Timestamp.valueOf(l.getTimestamp()));
+                        ps.setBigDecimal(3, l.getTemperatura());
+                        ps.setBigDecimal(4, l.getHumedadAmbiente());
+                        ps.setBigDecimal(5, l.getHumedadSuelo());
+                        ps.setBigDecimal(6, l.getCo2());
+                        ps.setBigDecimal(7, l.getLuz1());
+                        ps.setBigDecimal(8, l.getLuz2());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                try (Statement st = con.createStatement()) {
+                    st.execute("ANALYZE bench_lectura");
+                }
+                con.commit();
+                LocalDateTime hasta = serie.get(serie.size() - 1).getTimestamp();
+
+                strideSql(con, hasta);
+                lttbSql(con, hasta);
+                long inicio = System.nanoTime();
+                int puntosStride = strideSql(con, hasta);
+                long stride = (System.nanoTime() - inicio) / 1_000_000;
+                inicio = System.nanoTime();
+                int puntosLttb = lttbSql(con, hasta);
+                long lttb = (System.nanoTime() - inicio) / 1_000_000;
+                System.out.printf("%-8d %8s %10d %10d   (%d / %d puntos)%n", filas, "", stride, lttb,
+                        puntosStride, puntosLttb);
+            }
+        }
+    }
+
+    private int strideSql(Connection con, LocalDateTime hasta) throws SQLException {
+        String sql = """
+                WITH numbered AS (
+                    SELECT l.*, ROW_NUMBER() OVER (ORDER BY l.timestamp ASC) AS rn,
+                           COUNT(*) OVER () AS total_count
+                    FROM bench_lectura l
+                    WHERE l.dispositivo_id = 1 AND l.timestamp >= ? AND l.timestamp <= ?
+                )
+                SELECT id, timestamp, temperatura, humedad_ambiente, humedad_suelo, co2, luz1, luz2
+                FROM numbered
+                WHERE MOD(rn - 1, GREATEST(1, CEIL(total_count::float / ?)::int)) = 0 OR rn = total_count
+                ORDER BY timestamp ASC
+                """;
+        int puntos = 0;
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setTimestamp(1, Timestamp.valueOf(INICIO));
+            ps.setTimestamp(2, Timestamp.valueOf(hasta));
+            ps.setInt(3, PUNTOS);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    puntos++;
+                }
+            }
+        }
+        con.commit();
+        return puntos;
+    }
+
+    private int lttbSql(Connection con, LocalDateTime hasta) throws SQLException {
+        int intervalos = PUNTOS - 2;
+        double epochDesde = epoch(INICIO);
+        double anchoSeg = Math.max(1, (epoch(hasta) - epochDesde) / intervalos);
+        List<MediaIntervalo> medias = new ArrayList<>();
+        try (PreparedStatement ps = con.prepareStatement("""
+                SELECT LEAST(GREATEST(FLOOR((EXTRACT(EPOCH FROM timestamp) - ?) / ?)::int, 0), ?),
+                       AVG(EXTRACT(EPOCH FROM timestamp)), AVG(co2)
+                FROM bench_lectura
+                WHERE dispositivo_id = 1 AND timestamp >= ? AND timestamp <= ? AND co2 IS NOT NULL
+                GROUP BY 1 ORDER BY 1
+                """)) {
+            ps.setDouble(1, epochDesde);
+            ps.setDouble(2, anchoSeg);
+            ps.setInt(3, intervalos - 1);
+            ps.setTimestamp(4, Timestamp.valueOf(INICIO));
+            ps.setTimestamp(5, Timestamp.valueOf(hasta));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    medias.add(new MediaIntervalo(rs.getInt(1), rs.getDouble(2), rs.getDouble(3)));
+                }
+            }
+        }
+
+        MuestreoService.Lttb lttb = new MuestreoService.Lttb(Canal.CO2, epochDesde, anchoSeg, intervalos, medias);
+        try (PreparedStatement ps = con.prepareStatement("""
+                SELECT id, timestamp, temperatura, humedad_ambiente, humedad_suelo, co2, luz1, luz2
+                FROM bench_lectura
+                WHERE dispositivo_id = 1 AND timestamp >= ? AND timestamp <= ?
+                ORDER BY timestamp
+                """)) {
+            ps.setFetchSize(1000);
+            ps.setTimestamp(1, Timestamp.valueOf(INICIO));
+            ps.setTimestamp(2, Timestamp.valueOf(hasta));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lttb.accept(new LecturaMuestra(rs.getLong(1), rs.getTimestamp(2).toLocalDateTime(),
+                            rs.getBigDecimal(3), rs.getBigDecimal(4), rs.getBigDecimal(5),
+                            rs.getBigDecimal(6), rs.getBigDecimal(7), rs.getBigDecimal(8)));
+                }
+            }
+        }
+        con.commit();
+        return lttb.resultado().size();
+    }
+
+    /** Emula la query de stride sampling de {@code LecturaRepository}. */
+    private List<LecturaMuestra> stride(List<LecturaMuestra> serie) {
+        int paso = Math.max(1, (int) Math.ceil((double) serie.size() / PUNTOS));
+        List<LecturaMuestra> resultado = new ArrayList<>();
+        for (int i = 0; i < serie.size(); i++) {
+            if (i % paso == 0 || i == serie.size() - 1) {
+                resultado.add(serie.get(i));
+            }
+        }
+        return resultado;
+    }
+
+    private List<LecturaMuestra> lttb(List<LecturaMuestra> serie, LocalDateTime hasta) {
+        int intervalos = PUNTOS - 2;
+        double epochDesde = epoch(INICIO);
+        double anchoSeg = Math.max(1, (epoch(hasta) - epochDesde) / intervalos);
+        MuestreoService.Lttb lttb = new MuestreoService.Lttb(Canal.CO2, epochDesde, anchoSeg, intervalos,
+                medias(serie, epochDesde, anchoSeg, intervalos));
+        serie.forEach(lttb);
+        return lttb.resultado();
+    }
+
+    private List<LecturaMuestra> m4(List<LecturaMuestra> serie, LocalDateTime hasta) {
+        int intervalos = PUNTOS / 4;
+        double epochDesde = epoch(INICIO);
+        double anchoSeg = Math.max(1, (epoch(hasta) - epochDesde) / intervalos);
+        MuestreoService.M4 m4 = new MuestreoService.M4(Canal.CO2, epochDesde, anchoSeg, intervalos);
+        serie.forEach(m4);
+        return m4.resultado();
+    }
+
+    /** Equivalente en memoria de {@code LecturaJdbcRepository.calcularMediasPorIntervalo}. */
+    private List<MediaIntervalo> medias(List<LecturaMuestra> serie, double epochDesde, double anchoSeg, int intervalos) {
+        double[] sumaX = new double[intervalos];
+        double[] sumaY = new double[intervalos];
+        int[] num = new int[intervalos];
+        for (LecturaMuestra l : serie) {
+            double x = epoch(l.getTimestamp());
+            int i = Math.min(Math.max((int) Math.floor((x - epochDesde) / anchoSeg), 0), intervalos - 1);
+            sumaX[i] += x;
+            sumaY[i] += l.getCo2().doubleValue();
+            num[i]++;
+        }
+        List<MediaIntervalo> medias = new ArrayList<>();
+        for (int i = 0; i < intervalos; i++) {
+            if (num[i] > 0) {
+                medias.add(new MediaIntervalo(i, sumaX[i] / num[i], sumaY[i] / num[i]));
+            }
+        }
+        return medias;
+    }
+
+    /**
+     * Lecturas cada 30 s con un CO2 de fondo suave y un pico aislado de una sola lectura
+     * cada ~1000 lecturas, como el de una ventana cerrada durante una clase.
+     */
+    private List<LecturaMuestra> generarSerie(int filas) {
+        Random random = new Random(42);
+        List<LecturaMuestra> serie = new ArrayList<>(filas);
+        for (int i = 0; i < filas; i++) {
+            double co2 = 450 + 50 * Math.sin(i / 500.0) + random.nextGaussian() * 5;
+            if (i % 1000 == 617) {
+                co2 = 2500;
+            }
+            serie.add(new LecturaMuestra((long) i, INICIO.plusSeconds(i * 30L),
+                    BigDecimal.valueOf(2000 + i % 500, 2), BigDecimal.valueOf(6000, 2), BigDecimal.valueOf(4000, 2),
+                    BigDecimal.valueOf(Math.round(co2 * 100), 2), BigDecimal.valueOf(5000, 2),
+                    BigDecimal.valueOf(5000, 2)));
+        }
+        return serie;
+    }
+
+    private static boolean esPico(LecturaMuestra lectura) {
+        return lectura.getCo2().intValue() >= 2500;
+    }
+
+    private static void imprimir(String algoritmo, int filas, List<LecturaMuestra> puntos, long inicio, int picos) {
+        long picosConservados = puntos.stream().filter(MuestreoBenchmarkTests::esPico).count();
+        System.out.printf("%-8s %8d %8d %10.2f %4d/%-3d%n", algoritmo, filas, puntos.size(),
+                (System.nanoTime() - inicio) / 1e6, picosConservados, picos);
+    }
+
+    private static double epoch(LocalDateTime momento) {
+        return momento.atZone(ZONA).toEpochSecond() + momento.getNano() / 1e9;
+    }
+}
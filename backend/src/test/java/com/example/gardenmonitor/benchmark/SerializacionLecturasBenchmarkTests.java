@@ -0,0 +1,126 @@
+package com.example.gardenmonitor.benchmark;
+
+import com.example.gardenmonitor.dto.LecturaResponse;
+import com.example.gardenmonitor.model.CentroEducativo;
+import com.example.gardenmonitor.model.DispositivoEsp32;
+import com.example.gardenmonitor.model.Isla;
+import com.example.gardenmonitor.model.Lectura;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark de serialización de una página de lecturas: entidad {@link Lectura} frente
+ * al DTO plano {@link LecturaResponse}.
+ * <p>
+ * Serializa con Jackson (configurado como en la aplicación) páginas de distintos tamaños
+ * y mide los bytes por página y el tiempo medio de serialización. Con la entidad, cada
+ * fila incluye el dispositivo completo y su centro educativo.
+ * </p>
+ * <p>
+ * Solo se ejecuta si está definida la variable {@code GARDENMONITOR_BENCH}:
+ * </p>
+ * <pre>
+ * GARDENMONITOR_BENCH=1 ./mvnw test -Dtest=SerializacionLecturasBenchmarkTests
+ * </pre>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@EnabledIfEnvironmentVariable(named = "GARDENMONITOR_BENCH", matches = ".+")
+class SerializacionLecturasBenchmarkTests {
+
+    private static final int[] TAMANOS = {20, 100, 500};
+    private static final int ITERACIONES = 2_000;
+
+    private final ObjectMapper mapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    @Test
+    void compararEntidadConDto() throws JsonProcessingException {
+        DispositivoEsp32 dispositivo = crearDispositivo();
+
+        System.out.printf("%-6s %14s %14s %14s %14s%n", "filas", "entidad bytes", "DTO bytes", "entidad us", "DTO us");
+        for (int filas : TAMANOS) {
+            List<Lectura> lecturas = new ArrayList<>(filas);
+            List<LecturaResponse> respuestas = new ArrayList<>(filas);
+            for (int i = 0; i < filas; i++) {
+                Lectura lectura = crearLectura(dispositivo, i);
+                lecturas.add(lectura);
+                respuestas.add(new LecturaResponse(lectura.getId(), lectura.getTimestamp(), dispositivo.getId(),
+                        lectura.getTemperatura(), lectura.getHumedadAmbiente(), lectura.getHumedadSuelo(),
+                        lectura.getCo2(), lectura.getLuz1(), lectura.getLuz2()));
+            }
+            PageImpl<Lectura> paginaEntidad = new PageImpl<>(lecturas, PageRequest.of(0, filas), 100_000);
+            PageImpl<LecturaResponse> paginaDto = new PageImpl<>(respuestas, PageRequest.of(0, filas), 100_000);
+
+            int bytesEntidad = mapper.writeValueAsBytes(paginaEntidad).length;
+            int bytesDto = mapper.writeValueAsBytes(paginaDto).length;
+            double usEntidad = medir(paginaEntidad);
+            double usDto = medir(paginaDto);
+            System.out.printf("%-6d %14d %14d %14.1f %14.1f%n", filas, bytesEntidad, bytesDto, usEntidad, usDto);
+        }
+    }
+
+    /** Tiempo medio de serialización en microsegundos, tras calentar el JIT. */
+    private double medir(Object pagina) throws JsonProcessingException {
+        for (int i = 0; i < ITERACIONES; i++) {
+            mapper.writeValueAsBytes(pagina);
+        }
+        long inicio = System.nanoTime();
+        for (int i = 0; i < ITERACIONES; i++) {
+            mapper.writeValueAsBytes(pagina);
+        }
+        return (System.nanoTime() - inicio) / 1e3 / ITERACIONES;
+    }
+
+    private DispositivoEsp32 crearDispositivo() {
+        CentroEducativo centro = new CentroEducativo("IES El Rincón", "Calle Tomás Morales, 1",
+                new BigDecimal("28.1234567"), new BigDecimal("-15.4567890"), "Responsable del proyecto");
+        centro.setId(1L);
+        centro.setIsla(Isla.GRAN_CANARIA);
+        centro.setPoblacion("Las Palmas de Gran Canaria");
+        centro.setProvincia("Las Palmas");
+        centro.setCodigoPostal("35010");
+        centro.setTelefono("928000000");
+        centro.setEmail("centro@example.com");
+        centro.setFechaCreacion(LocalDateTime.of(2025, 1, 1, 9, 0));
+
+        DispositivoEsp32 dispositivo = new DispositivoEsp32("AA:BB:CC:DD:EE:FF", centro, true, 300);
+        dispositivo.setId(1L);
+        dispositivo.setUltimaConexion(LocalDateTime.of(2025, 6, 1, 12, 0));
+        dispositivo.setUmbralTempMin(new BigDecimal("5.00"));
+        dispositivo.setUmbralTempMax(new BigDecimal("35.00"));
+        dispositivo.setUmbralHumedadAmbienteMin(new BigDecimal("30.00"));
+        dispositivo.setUmbralHumedadAmbienteMax(new BigDecimal("80.00"));
+        dispositivo.setUmbralHumedadSueloMin(new BigDecimal("20.00"));
+        dispositivo.setUmbralCO2Max(new BigDecimal("1000.00"));
+        return dispositivo;
+    }
+
+    private Lectura crearLectura(DispositivoEsp32 dispositivo, int i) {
+        Lectura lectura = new Lectura();
+        lectura.setId((long) i + 1);
+        lectura.setTimestamp(LocalDateTime.of(2025, 6, 1, 12, 0).minusMinutes(5L * i));
+        lectura.setDispositivo(dispositivo);
+        lectura.setTemperatura(BigDecimal.valueOf(2000 + i % 500, 2));
+        lectura.setHumedadAmbiente(BigDecimal.valueOf(6000 + i % 300, 2));
+        lectura.setHumedadSuelo(BigDecimal.valueOf(4000 + i % 200, 2));
+        lectura.setCo2(BigDecimal.valueOf(45000 + i % 1000, 2));
+        lectura.setLuz1(BigDecimal.valueOf(5000, 2));
+        lectura.setLuz2(BigDecimal.valueOf(5000, 2));
+        return lectura;
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.gardenmonitor.config;
+
+import com.example.gardenmonitor.dto.LecturaMuestra;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Pruebas del formato binario de {@link SerieBinariaHttpMessageConverter}.
+ * <p>
+ * Cada serie se codifica y se vuelve a leer con {@link Decodificador}, una copia del
+ * {@code SerieBinariaDecoder} de la app Android que devuelve {@link LecturaMuestra} en
+ * lugar del DTO de la app. Si el formato cambia en un lado y no en el otro, estas
+ * pruebas fallan. Los casos pequeños comprueban además los bytes exactos.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+class SerieBinariaHttpMessageConverterTests {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Test
+    void sinLecturasSoloVanLaCabeceraYLasColumnasVacias() {
+        byte[] bytes = SerieBinariaHttpMessageConverter.codificar(List.of());
+
+        // n = 0: los 7 bitmaps tienen 0 bytes
+        assertThat(bytes).containsExactly('G', 'M', 1, 0);
+        assertThat(Decodificador.decodificar(bytes)).isEmpty();
+    }
+
+    @Test
+    void unaLecturaConColumnasNulasYValorNegativo() {
+        LecturaMuestra lectura = new LecturaMuestra(null, EPOCH, new BigDecimal("-0.01"),
+                null, null, null, null, null);
+
+        byte[] bytes = SerieBinariaHttpMessageConverter.codificar(List.of(lectura));
+
+        assertThat(bytes).containsExactly(
+                'G', 'M', 1, 1,
+                0x00,             // t0 = 0
+                0x00,             // id: bitmap sin valores
+                0x01, 0x01,       // temperatura: bit 0 presente, zigzag(-1) = 1
+                0x00, 0x00, 0x00, 0x00, 0x00);
+        assertThat(Decodificador.decodificar(bytes)).singleElement().satisfies(l -> mismaLectura(l, lectura));
+    }
+
+    @Test
+    void dosLecturasConDiferenciasNegativasYVarintsDeDosBytes() {
+        // El timestamp retrocede 1 s, el id baja y la temperatura sube 0,64 (zigzag 128: dos bytes)
+        LecturaMuestra primera = lectura(5L, EPOCH.plusSeconds(1), "0.00", "50.00");
+        LecturaMuestra segunda = lectura(4L, EPOCH, "0.64", null);
+
+        byte[] bytes = SerieBinariaHttpMessageConverter.codificar(List.of(primera, segunda));
+
+        assertThat(bytes).startsWith(
+                'G', 'M', 1, 2,
+                0x02,             // zigzag(1) = 2
+                0x01,             // zigzag(0 - 1) = 1
+                0x03, 0x0A, 0x01, // id: ambos presentes, zigzag(5) = 10, zigzag(4 - 5) = 1
+                0x03, 0x00, (byte) 0x80, 0x01);
+        List<LecturaMuestra> decodificadas = Decodificador.decodificar(bytes);
+        assertThat(decodificadas).hasSize(2);
+        mismaLectura(decodificadas.get(0), primera);
+        mismaLectura(decodificadas.get(1), segunda);
+    }
+
+    @Test
+    void elBitmapDePresenciaEmpiezaPorElBitMenosSignificativo() {
+        // 9 lecturas: la columna id ocupa 2 bytes de bitmap; solo la 1 y la 8 tienen id
+        List<LecturaMuestra> lecturas = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            Long id = i == 1 || i == 8 ? (long) i : null;
+            lecturas.add(new LecturaMuestra(id, EPOCH.plusSeconds(30L * i), null, null, null, null, null, null));
+        }
+
+        byte[] bytes = SerieBinariaHttpMessageConverter.codificar(lecturas);
+
+        // Cabecera (4), t0 (1), t1 - t0 = 30 (1), 7 diferencias de segundo orden a 0 (7)
+        int inicioId = 4 + 1 + 1 + 7;
+        assertThat(bytes[inicioId]).isEqualTo((byte) 0b0000_0010);
+        assertThat(bytes[inicioId + 1]).isEqualTo((byte) 0b0000_0001);
+        assertThat(Decodificador.decodificar(bytes)).extracting(LecturaMuestra::getId)
+                .containsExactly(null, 1L, null, null, null, null, null, null, 8L);
+    }
+
+    @Test
+    void unaSerieRealVuelveIgualSalvoLaFraccionDeSegundo() {
+        List<LecturaMuestra> lecturas = new ArrayList<>();
+        LocalDateTime inicio = LocalDateTime.of(2025, 3, 1, 10, 0);
+        for (int i = 0; i < 500; i++) {
+            // Frecuencia irregular, valores que suben y bajan (negativos incluidos) y huecos
+            LocalDateTime timestamp = inicio.plusSeconds(30L * i + (i % 7 == 0 ? 3 : 0)).plusNanos(250_000_000);
+            BigDecimal temperatura = BigDecimal.valueOf(Math.round(Math.sin(i / 10.0) * 1500), 2);
+            BigDecimal co2 = i % 11 == 0 ? null : BigDecimal.valueOf(40_000 + (i * 7919 % 2000) - 1000, 2);
+            lecturas.add(new LecturaMuestra(1000L + i * 3, timestamp, temperatura, new BigDecimal("55.10"),
+                    i % 5 == 0 ? null : new BigDecimal("40.00"), co2, BigDecimal.valueOf(i * 10L, 2), null));
+        }
+
+        List<LecturaMuestra> decodificadas = Decodificador.decodificar(SerieBinariaHttpMessageConverter.codificar(lecturas));
+
+        assertThat(decodificadas).hasSameSizeAs(lecturas);
+        for (int i = 0; i < lecturas.size(); i++) {
+            mismaLectura(decodificadas.get(i), lecturas.get(i));
+        }
+    }
+
+    @Test
+    void unaSerieTruncadaNoSeDecodifica() {
+        byte[] bytes = SerieBinariaHttpMessageConverter.codificar(List.of(lectura(1L, EPOCH, "20.00", "400.00")));
+        byte[] truncada = Arrays.copyOf(bytes, bytes.length - 1);
+
+        assertThatThrownBy(() -> Decodificador.decodificar(truncada)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static LecturaMuestra lectura(Long id, LocalDateTime timestamp, String temperatura, String co2) {
+        return new LecturaMuestra(id, timestamp, new BigDecimal(temperatura), null, null,
+                co2 != null ? new BigDecimal(co2) : null, null, null);
+    }
+
+    /** Mismo contenido, con el timestamp truncado al segundo y los sensores con escala 2. */
+    private static void mismaLectura(LecturaMuestra real, LecturaMuestra esperada) {
+        assertThat(real.getId()).isEqualTo(esperada.getId());
+        assertThat(real.getTimestamp()).isEqualTo(esperada.getTimestamp().withNano(0));
+        assertThat(real.getTemperatura()).isEqualTo(escala2(esperada.getTemperatura()));
+        assertThat(real.getHumedadAmbiente()).isEqualTo(escala2(esperada.getHumedadAmbiente()));
+        assertThat(real.getHumedadSuelo()).isEqualTo(escala2(esperada.getHumedadSuelo()));
+        assertThat(real.getCo2()).isEqualTo(escala2(esperada.getCo2()));
+        assertThat(real.getLuz1()).isEqualTo(escala2(esperada.getLuz1()));
+        assertThat(real.getLuz2()).isEqualTo(escala2(esperada.getLuz2()));
+    }
+
+    private static BigDecimal escala2(BigDecimal valor) {
+        return valor != null ? valor.setScale(2) : null;
+    }
+
+    /**
+     * Copia del {@code SerieBinariaDecoder} de la app Android: mismos pasos, pero devuelve
+     * {@link LecturaMuestra} con {@code LocalDateTime} y {@code BigDecimal}.
+     */
+    private static final class Decodificador {
+
+        private static final int COLUMNAS_SENSORES = 6;
+
+        private final byte[] datos;
+        private int pos;
+
+        private Decodificador(byte[] datos) {
+            this.datos = datos;
+        }
+
+        static List<LecturaMuestra> decodificar(byte[] datos) {
+            return new Decodificador(datos).leer();
+        }
+
+        private List<LecturaMuestra> leer() {
+            if (datos.length < 3 || datos[0] != 'G' || datos[1] != 'M' || datos[2] != 1) {
+                throw new IllegalStateException("Serie binaria no reconocida");
+            }
+            pos = 3;
+            int n = (int) leerVarint();
+
+            LocalDateTime[] timestamps = new LocalDateTime[n];
+            long t = 0;
+            long delta = 0;
+            for (int i = 0; i < n; i++) {
+                long v = zigzag(leerVarint());
+                if (i == 0) {
+                    t = v;
+                } else {
+                    delta = i == 1 ? v : delta + v;
+                    t += delta;
+                }
+                timestamps[i] = LocalDateTime.ofEpochSecond(t, 0, ZoneOffset.UTC);
+            }
+
+            long[] valores = new long[n];
+            boolean[] presentes = new boolean[n];
+            Long[] ids = new Long[n];
+            leerColumna(n, valores, presentes);
+            for (int i = 0; i < n; i++) {
+                if (presentes[i]) ids[i] = valores[i];
+            }
+            BigDecimal[][] sensores = new BigDecimal[COLUMNAS_SENSORES][n];
+            for (int c = 0; c < COLUMNAS_SENSORES; c++) {
+                leerColumna(n, valores, presentes);
+                for (int i = 0; i < n; i++) {
+                    if (presentes[i]) sensores[c][i] = BigDecimal.valueOf(valores[i], 2);
+                }
+            }
+            if (pos != datos.length) {
+                throw new IllegalStateException("Bytes de más al final de la serie");
+            }
+
+            List<LecturaMuestra> lecturas = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                lecturas.add(new LecturaMuestra(ids[i], timestamps[i], sensores[0][i], sensores[1][i],
+                        sensores[2][i], sensores[3][i], sensores[4][i], sensores[5][i]));
+            }
+            return lecturas;
+        }
+
+        private void leerColumna(int n, long[] valores, boolean[] presentes) {
+            int inicioBitmap = pos;
+            pos += (n + 7) / 8;
+            if (pos > datos.length) throw new IllegalStateException("Serie binaria truncada");
+            long anterior = 0;
+            for (int i = 0; i < n; i++) {
+                presentes[i] = (datos[inicioBitmap + i / 8] & (1 << (i % 8))) != 0;
+                if (presentes[i]) {
+                    anterior += zigzag(leerVarint());
+                    valores[i] = anterior;
+                }
+            }
+        }
+
+        private long leerVarint() {
+            long resultado = 0;
+            int desplazamiento = 0;
+            while (true) {
+                if (pos >= datos.length) throw new IllegalStateException("Serie binaria truncada");
+                byte b = datos[pos++];
+                resultado |= (long) (b & 0x7F) << desplazamiento;
+                if ((b & 0x80) == 0) return resultado;
+                desplazamiento += 7;
+            }
+        }
+
+        private static long zigzag(long v) {
+            return (v >>> 1) ^ -(v & 1);
+        }
+    }
+}
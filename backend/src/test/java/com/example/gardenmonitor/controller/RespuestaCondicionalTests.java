@@ -0,0 +1,78 @@
+package com.example.gardenmonitor.controller;
+
+import com.example.gardenmonitor.config.SerieBinariaHttpMessageConverter;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas de {@link RespuestaCondicional} con las dos representaciones de las lecturas
+ * (JSON y serie binaria) en la misma URL.
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+class RespuestaCondicionalTests {
+
+    private static final String ETAG = "\"lecturas-abc-1\"";
+    private static final String SERIE = SerieBinariaHttpMessageConverter.TIPO_CONTENIDO;
+
+    @Test
+    void enviaVaryAcceptYElEtagSinSufijoParaJson() {
+        MockHttpServletResponse respuesta = new MockHttpServletResponse();
+
+        assertThat(RespuestaCondicional.noModificado(peticion("application/json", null, respuesta), ETAG)).isFalse();
+
+        assertThat(respuesta.getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT);
+        assertThat(respuesta.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG);
+    }
+
+    @Test
+    void laSerieBinariaLlevaOtroEtag() {
+        MockHttpServletResponse respuesta = new MockHttpServletResponse();
+
+        RespuestaCondicional.noModificado(peticion(SERIE, null, respuesta), ETAG);
+
+        assertThat(respuesta.getHeader(HttpHeaders.ETAG)).isEqualTo("\"lecturas-abc-1-serie\"");
+    }
+
+    @Test
+    void elEtagDeUnaRepresentacionNoValeParaLaOtra() {
+        String etagSerie = "\"lecturas-abc-1-serie\"";
+
+        assertThat(RespuestaCondicional.noModificado(
+                peticion("application/json", etagSerie, new MockHttpServletResponse()), ETAG)).isFalse();
+        assertThat(RespuestaCondicional.noModificado(
+                peticion(SERIE, ETAG, new MockHttpServletResponse()), ETAG)).isFalse();
+        assertThat(RespuestaCondicional.noModificado(
+                peticion(SERIE, etagSerie, new MockHttpServletResponse()), ETAG)).isTrue();
+    }
+
+    @Test
+    void sigueLaPreferenciaDeAccept() {
+        assertThat(etag(SERIE + ", application/json;q=0.5")).endsWith("-serie\"");
+        assertThat(etag("application/json, " + SERIE + ";q=0.5")).isEqualTo(ETAG);
+        // Con comodines gana JSON, que va antes en la lista de conversores
+        assertThat(etag("*/*")).isEqualTo(ETAG);
+        assertThat(etag("application/*, " + SERIE + ";q=0.1")).isEqualTo(ETAG);
+    }
+
+    private static String etag(String accept) {
+        MockHttpServletResponse respuesta = new MockHttpServletResponse();
+        RespuestaCondicional.noModificado(peticion(accept, null, respuesta), ETAG);
+        return respuesta.getHeader(HttpHeaders.ETAG);
+    }
+
+    private static ServletWebRequest peticion(String accept, String ifNoneMatch, MockHttpServletResponse respuesta) {
+        MockHttpServletRequest peticion = new MockHttpServletRequest("GET", "/api/lecturas/dispositivo/1");
+        peticion.addHeader(HttpHeaders.ACCEPT, accept);
+        if (ifNoneMatch != null) {
+            peticion.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return new ServletWebRequest(peticion, respuesta);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.dto.DispositivoResumen;
+import com.example.gardenmonitor.model.DispositivoEsp32;
+import com.example.gardenmonitor.model.Lectura;
+import com.example.gardenmonitor.repository.AlertaJdbcRepository;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Entorno común de las pruebas de las alertas automáticas ({@link AlertasUmbralService} y
+ * {@link DesconexionService}): los colaboradores simulados que ambos usan y un único
+ * dispositivo de prueba con sus lecturas.
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+abstract class AlertasAutomaticasBase {
+
+    static final Long DISPOSITIVO_ID = 1L;
+    static final String MAC = "AA:BB:CC:DD:EE:01";
+
+    @Mock
+    AlertaJdbcRepository alertaJdbcRepository;
+
+    @Mock
+    DispositivoCacheService dispositivoCacheService;
+
+    @Mock
+    VersionDatosService versionDatosService;
+
+    @Mock
+    NotificacionesService notificacionesService;
+
+    /**
+     * Da de alta el dispositivo de prueba en la caché simulada, con frecuencia de 30 s.
+     *
+     * @param activo         si el dispositivo está activo
+     * @param temperaturaMin umbral de temperatura mínima, o null
+     * @param temperaturaMax umbral de temperatura máxima, o null
+     */
+    void dispositivo(boolean activo, BigDecimal temperaturaMin, BigDecimal temperaturaMax) {
+        when(dispositivoCacheService.buscarPorMac(MAC)).thenReturn(Optional.of(new DispositivoResumen(
+                DISPOSITIVO_ID, MAC, 10L, activo, 30, temperaturaMin, temperaturaMax, null, null, null, null)));
+    }
+
+    /**
+     * @param timestamp   timestamp de la lectura
+     * @param temperatura temperatura, o null
+     * @return lectura del dispositivo de prueba
+     */
+    static Lectura lectura(LocalDateTime timestamp, BigDecimal temperatura) {
+        DispositivoEsp32 dispositivo = new DispositivoEsp32();
+        dispositivo.setId(DISPOSITIVO_ID);
+        dispositivo.setMacAddress(MAC);
+        Lectura lectura = new Lectura();
+        lectura.setDispositivo(dispositivo);
+        lectura.setTimestamp(timestamp);
+        lectura.setTemperatura(temperatura);
+        return lectura;
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.model.Lectura;
+import com.example.gardenmonitor.model.TipoAlerta;
+import com.example.gardenmonitor.repository.AlertaJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pruebas de {@link AlertasUmbralService#evaluar} con {@link AlertaJdbcRepository} simulado.
+ * <p>
+ * El dispositivo tiene una temperatura máxima de 30 °C y una mínima de 5 °C (histéresis de
+ * 1 °C) y hacen falta 2 lecturas seguidas para cambiar de estado.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+class AlertasUmbralServiceTests extends AlertasAutomaticasBase {
+
+    @InjectMocks
+    private AlertasUmbralService alertasUmbralService;
+
+    private LocalDateTime momento = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+    @BeforeEach
+    void configurar() {
+        ReflectionTestUtils.setField(alertasUmbralService, "habilitadas", true);
+        ReflectionTestUtils.setField(alertasUmbralService, "lecturasConsecutivas", 2);
+        dispositivo(true, new BigDecimal("5.00"), new BigDecimal("30.00"));
+    }
+
+    @Test
+    void unaLecturaFueraDelUmbralNoAbreAlerta() {
+        evaluar("31.00");
+
+        verifyNoInteractions(alertaJdbcRepository, notificacionesService);
+    }
+
+    @Test
+    void abreLaAlertaConLasLecturasConsecutivasYLaNotifica() {
+        abrirTemperaturaAlta(7L);
+
+        verify(alertaJdbcRepository).insertar(eq(DISPOSITIVO_ID), eq(TipoAlerta.TEMPERATURA_ALTA),
+                anyString(), eq(momento));
+        verify(versionDatosService).incrementar(VersionDatosService.Ambito.ALERTAS, DISPOSITIVO_ID);
+        verify(notificacionesService).notificar(7L);
+    }
+
+    @Test
+    void unaLecturaDentroReiniciaLaCuenta() {
+        evaluar("31.00", "29.00", "31.00");
+
+        verifyNoInteractions(alertaJdbcRepository);
+    }
+
+    @Test
+    void noRepiteLaAlertaMientrasDuraLaCondicion() {
+        abrirTemperaturaAlta(7L);
+
+        evaluar("32.00", "33.00", "31.00", "35.00");
+
+        verify(alertaJdbcRepository, times(1)).insertar(any(), any(), anyString(), any());
+    }
+
+    @Test
+    void soloSeResuelveAlBajarDelUmbralMenosLaHisteresis() {
+        abrirTemperaturaAlta(7L);
+
+        // Por debajo del umbral (30) pero no de 30 - 1: sigue activa
+        evaluar("29.50", "29.01", "29.90");
+        verify(alertaJdbcRepository, never()).resolver(any(), any());
+
+        evaluar("29.00", "28.00");
+        verify(alertaJdbcRepository).resolver(eq(7L), any());
+    }
+
+    @Test
+    void unaLecturaFueraDelMargenReiniciaLaCuentaDeRecuperacion() {
+        abrirTemperaturaAlta(7L);
+
+        evaluar("29.00", "29.50", "29.00");
+
+        verify(alertaJdbcRepository, never()).resolver(any(), any());
+    }
+
+    @Test
+    void laHisteresisDeUnUmbralMinimoEsPorEncima() {
+        when(alertaJdbcRepository.insertar(any(), eq(TipoAlerta.TEMPERATURA_BAJA), anyString(), any())).thenReturn(8L);
+        evaluar("4.00", "4.50");
+        verify(alertaJdbcRepository).insertar(eq(DISPOSITIVO_ID), eq(TipoAlerta.TEMPERATURA_BAJA), anyString(), any());
+
+        evaluar("5.50", "5.99");
+        verify(alertaJdbcRepository, never()).resolver(any(), any());
+
+        evaluar("6.00", "6.00");
+        verify(alertaJdbcRepository).resolver(eq(8L), any());
+    }
+
+    @Test
+    void trasResolverALaManoNoSeReabreHastaQueLaCondicionTermine() {
+        abrirTemperaturaAlta(7L);
+        alertasUmbralService.cerrada(DISPOSITIVO_ID, TipoAlerta.TEMPERATURA_ALTA, 7L);
+
+        // La condición sigue: no se abre otra
+        evaluar("31.00", "31.00", "31.00");
+        verify(alertaJdbcRepository, times(1)).insertar(any(), any(), anyString(), any());
+
+        // Termina: no hay alerta que resolver en la BD
+        evaluar("28.00", "28.00");
+        verify(alertaJdbcRepository, never()).resolver(any(), any());
+
+        // Se repite: alerta nueva
+        when(alertaJdbcRepository.insertar(any(), any(), anyString(), any())).thenReturn(9L);
+        evaluar("31.00", "31.00");
+        verify(alertaJdbcRepository, times(2)).insertar(any(), any(), anyString(), any());
+        verify(notificacionesService).notificar(9L);
+    }
+
+    @Test
+    void cerrarOtraAlertaDelMismoTipoNoAfectaALaSeguida() {
+        abrirTemperaturaAlta(7L);
+        alertasUmbralService.cerrada(DISPOSITIVO_ID, TipoAlerta.TEMPERATURA_ALTA, 99L);
+
+        evaluar("28.00", "28.00");
+
+        verify(alertaJdbcRepository).resolver(eq(7L), any());
+    }
+
+    @Test
+    void siFallaLaBdAlAbrirSeReintentaConLaSiguienteLectura() {
+        when(alertaJdbcRepository.insertar(any(), any(), anyString(), any()))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenReturn(7L);
+
+        evaluar("31.00", "31.00");
+        verify(notificacionesService, never()).notificar(any());
+
+        evaluar("31.00");
+        verify(alertaJdbcRepository, times(2)).insertar(any(), any(), anyString(), any());
+        verify(notificacionesService).notificar(7L);
+    }
+
+    @Test
+    void sinUmbralOSinValorNoSeEvalua() {
+        Lectura sinTemperatura = siguienteLectura(null);
+        sinTemperatura.setCo2(new BigDecimal("5000.00"));
+
+        alertasUmbralService.evaluar(List.of(sinTemperatura, sinTemperatura, sinTemperatura));
+
+        verifyNoInteractions(alertaJdbcRepository);
+    }
+
+    private void abrirTemperaturaAlta(Long alertaId) {
+        when(alertaJdbcRepository.insertar(any(), eq(TipoAlerta.TEMPERATURA_ALTA), anyString(), any()))
+                .thenReturn(alertaId);
+        evaluar("31.00", "31.00");
+    }
+
+    /** Evalúa un lote con una lectura por temperatura, separadas 30 s. */
+    private void evaluar(String... temperaturas) {
+        alertasUmbralService.evaluar(Arrays.stream(temperaturas).map(t -> siguienteLectura(new BigDecimal(t))).toList());
+    }
+
+    private Lectura siguienteLectura(BigDecimal temperatura) {
+        momento = momento.plusSeconds(30);
+        return lectura(momento, temperatura);
+    }
+}
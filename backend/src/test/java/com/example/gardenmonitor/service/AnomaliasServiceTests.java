@@ -0,0 +1,106 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.dto.AnomaliaLectura;
+import com.example.gardenmonitor.model.DispositivoEsp32;
+import com.example.gardenmonitor.model.Lectura;
+import com.example.gardenmonitor.repository.LecturaAnomaliaJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Pruebas de {@link AnomaliasService#evaluar} con {@link LecturaAnomaliaJdbcRepository}
+ * simulado: qué se marca y que cada lote se guarda con una sola llamada.
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class AnomaliasServiceTests {
+
+    private static final Long DISPOSITIVO_ID = 1L;
+
+    @Mock
+    private LecturaAnomaliaJdbcRepository lecturaAnomaliaJdbcRepository;
+
+    @Captor
+    private ArgumentCaptor<List<AnomaliaLectura>> anomalias;
+
+    private AnomaliasService anomaliasService;
+
+    private long siguienteId = 1;
+
+    @BeforeEach
+    void configurar() {
+        anomaliasService = new AnomaliasService(0.05, 4.0, 20, lecturaAnomaliaJdbcRepository);
+    }
+
+    @Test
+    void unaSerieEstableNoGuardaNada() {
+        anomaliasService.evaluar(lecturas(100, 20.0));
+
+        verifyNoInteractions(lecturaAnomaliaJdbcRepository);
+    }
+
+    @Test
+    void unPicoSeGuardaConElIdDeSuLectura() {
+        anomaliasService.evaluar(lecturas(50, 20.0));
+        Lectura pico = lectura(35.0);
+        List<Lectura> lote = new ArrayList<>(lecturas(5, 20.0));
+        lote.add(2, pico);
+
+        anomaliasService.evaluar(lote);
+
+        verify(lecturaAnomaliaJdbcRepository).insertar(anomalias.capture());
+        assertThat(anomalias.getValue()).singleElement().satisfies(anomalia -> {
+            assertThat(anomalia.getLecturaId()).isEqualTo(pico.getId());
+            assertThat(anomalia.getDispositivoId()).isEqualTo(DISPOSITIVO_ID);
+            assertThat(anomalia.getCanal()).isEqualTo(MuestreoService.Canal.TEMPERATURA.name());
+            assertThat(anomalia.getValor()).isEqualTo(35.0);
+            assertThat(anomalia.getPuntuacionZ()).isGreaterThan(4.0);
+        });
+    }
+
+    @Test
+    void duranteElCalentamientoNoSeMarca() {
+        List<Lectura> lote = new ArrayList<>(lecturas(10, 20.0));
+        lote.add(lectura(35.0));
+
+        anomaliasService.evaluar(lote);
+
+        verifyNoInteractions(lecturaAnomaliaJdbcRepository);
+    }
+
+    private List<Lectura> lecturas(int n, double temperatura) {
+        List<Lectura> lecturas = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            lecturas.add(lectura(temperatura));
+        }
+        return lecturas;
+    }
+
+    private Lectura lectura(double temperatura) {
+        DispositivoEsp32 dispositivo = new DispositivoEsp32();
+        dispositivo.setId(DISPOSITIVO_ID);
+        long id = siguienteId++;
+        Lectura lectura = new Lectura();
+        lectura.setId(id);
+        lectura.setDispositivo(dispositivo);
+        lectura.setTimestamp(LocalDateTime.of(2025, 3, 1, 0, 0).plusSeconds(30 * id));
+        lectura.setTemperatura(BigDecimal.valueOf(temperatura));
+        return lectura;
+    }
+}
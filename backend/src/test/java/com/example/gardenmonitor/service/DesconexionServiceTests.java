@@ -0,0 +1,192 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.model.Lectura;
+import com.example.gardenmonitor.model.TipoAlerta;
+import com.example.gardenmonitor.repository.DispositivoEsp32JdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pruebas de la rueda de temporizadores de {@link DesconexionService} con un reloj manual.
+ * <p>
+ * La rueda tiene 8 ranuras de 1 s y el plazo es 3 veces la frecuencia de 30 s (90 s), así
+ * que cada plazo da varias vueltas a la rueda antes de vencer.
+ * </p>
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+class DesconexionServiceTests extends AlertasAutomaticasBase {
+
+    @Mock
+    private DispositivoEsp32JdbcRepository dispositivoEsp32JdbcRepository;
+
+    private final RelojManual reloj = new RelojManual(Instant.parse("2025-03-01T12:00:00Z"));
+
+    private DesconexionService desconexionService;
+
+    @BeforeEach
+    void configurar() {
+        desconexionService = new DesconexionService(alertaJdbcRepository, dispositivoEsp32JdbcRepository,
+                dispositivoCacheService, versionDatosService, notificacionesService, true, 3, 1000, 8, reloj);
+        dispositivo(true, null, null);
+    }
+
+    @Test
+    void elPlazoVenceTrasVariasVueltasDeLaRueda() {
+        desconexionService.registrar(lote());
+
+        // 89 ticks: el temporizador pasa 11 veces por su ranura descontando vueltas
+        avanzar(Duration.ofSeconds(89));
+        verifyNoInteractions(alertaJdbcRepository);
+
+        avanzar(Duration.ofSeconds(1));
+        verify(alertaJdbcRepository).insertar(eq(DISPOSITIVO_ID), eq(TipoAlerta.DISPOSITIVO_DESCONECTADO),
+                anyString(), any());
+    }
+
+    @Test
+    void cadaLoteReprogramaElPlazo() {
+        desconexionService.registrar(lote());
+        avanzar(Duration.ofSeconds(60));
+        desconexionService.registrar(lote());
+
+        avanzar(Duration.ofSeconds(89));
+        verifyNoInteractions(alertaJdbcRepository);
+
+        avanzar(Duration.ofSeconds(1));
+        verify(alertaJdbcRepository).insertar(eq(DISPOSITIVO_ID), eq(TipoAlerta.DISPOSITIVO_DESCONECTADO),
+                anyString(), any());
+    }
+
+    @Test
+    void alVencerAbreLaAlertaYLaNotificaUnaSolaVez() {
+        when(alertaJdbcRepository.insertar(any(), any(), anyString(), any())).thenReturn(5L);
+        desconexionService.registrar(lote());
+
+        avanzar(Duration.ofSeconds(90));
+        avanzar(Duration.ofMinutes(10));
+
+        verify(alertaJdbcRepository).insertar(eq(DISPOSITIVO_ID), eq(TipoAlerta.DISPOSITIVO_DESCONECTADO),
+                anyString(), eq(reloj.ahora().minusMinutes(10)));
+        verify(versionDatosService).incrementar(VersionDatosService.Ambito.ALERTAS, DISPOSITIVO_ID);
+        verify(notificacionesService).notificar(5L);
+    }
+
+    @Test
+    void alReconectarSeResuelveLaAlerta() {
+        when(alertaJdbcRepository.insertar(any(), any(), anyString(), any())).thenReturn(5L);
+        desconexionService.registrar(lote());
+        avanzar(Duration.ofSeconds(90));
+
+        desconexionService.registrar(lote());
+
+        verify(alertaJdbcRepository).resolver(5L, reloj.ahora());
+    }
+
+    @Test
+    void siLlegaUnaLecturaMientrasSeAbreLaAlertaSeResuelveEnseguida() {
+        when(alertaJdbcRepository.insertar(any(), any(), anyString(), any())).thenAnswer(invocacion -> {
+            // El hilo de volcado registra un lote entre el INSERT y la comprobación posterior
+            desconexionService.registrar(lote());
+            return 5L;
+        });
+        desconexionService.registrar(lote());
+
+        avanzar(Duration.ofSeconds(90));
+
+        verify(alertaJdbcRepository).resolver(eq(5L), any());
+    }
+
+    @Test
+    void trasCerrarLaAlertaAManoNoSeResuelveAlReconectar() {
+        when(alertaJdbcRepository.insertar(any(), any(), anyString(), any())).thenReturn(5L);
+        desconexionService.registrar(lote());
+        avanzar(Duration.ofSeconds(90));
+
+        desconexionService.cerrada(DISPOSITIVO_ID, 5L);
+        desconexionService.registrar(lote());
+
+        verify(alertaJdbcRepository, never()).resolver(any(), any());
+    }
+
+    @Test
+    void unDispositivoInactivoNoSeVigila() {
+        dispositivo(false, null, null);
+        desconexionService.registrar(lote());
+
+        avanzar(Duration.ofMinutes(10));
+
+        verifyNoInteractions(alertaJdbcRepository);
+    }
+
+    @Test
+    void unDispositivoOlvidadoNoVence() {
+        desconexionService.registrar(lote());
+        desconexionService.olvidar(DISPOSITIVO_ID);
+
+        avanzar(Duration.ofMinutes(10));
+
+        verifyNoInteractions(alertaJdbcRepository);
+    }
+
+    /** Avanza el reloj y la rueda, como el {@code @Scheduled} de cada tick. */
+    private void avanzar(Duration duracion) {
+        reloj.avanzar(duracion);
+        desconexionService.avanzar();
+    }
+
+    private List<Lectura> lote() {
+        return List.of(lectura(reloj.ahora(), null));
+    }
+
+    /** Reloj en UTC que solo avanza cuando se le pide. */
+    private static final class RelojManual extends Clock {
+
+        private Instant instante;
+
+        RelojManual(Instant instante) {
+            this.instante = instante;
+        }
+
+        void avanzar(Duration duracion) {
+            instante = instante.plus(duracion);
+        }
+
+        LocalDateTime ahora() {
+            return LocalDateTime.ofInstant(instante, ZoneOffset.UTC);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instante;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.dto.LecturaMuestra;
+import com.example.gardenmonitor.repository.LecturaJdbcRepository.MediaIntervalo;
+import com.example.gardenmonitor.service.MuestreoService.Canal;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas de los algoritmos de muestreo de {@link MuestreoService} sobre lecturas en
+ * memoria y de sus consumidores en streaming ({@link MuestreoService.Lttb} y
+ * {@link MuestreoService.M4}), que son los mismos que recorren el cursor de la BD.
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+class MuestreoServiceTests {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2025, 3, 1, 0, 0);
+    private static final int FRECUENCIA_SEG = 30;
+
+    private final MuestreoService muestreoService = new MuestreoService();
+
+    @Test
+    void conservanLaPrimeraYLaUltimaLectura() {
+        List<LecturaMuestra> lecturas = serie(1000, i -> 20 + Math.sin(i / 40.0) * 5);
+        LocalDateTime hasta = lecturas.get(lecturas.size() - 1).getTimestamp();
+
+        for (List<LecturaMuestra> muestra : List.of(
+                muestreoService.stride(lecturas, 100),
+                muestreoService.lttb(lecturas, INICIO, hasta, 100, Canal.TEMPERATURA),
+                muestreoService.m4(lecturas, INICIO, hasta, 100, Canal.TEMPERATURA))) {
+            assertThat(muestra.get(0)).isSameAs(lecturas.get(0));
+            assertThat(muestra.get(muestra.size() - 1)).isSameAs(lecturas.get(lecturas.size() - 1));
+            assertThat(muestra).isSortedAccordingTo(Comparator.comparing(LecturaMuestra::getTimestamp));
+            assertThat(muestra).doesNotHaveDuplicates();
+        }
+    }
+
+    @Test
+    void lttbDevuelveComoMaximoLosPuntosPedidos() {
+        List<LecturaMuestra> lecturas = serie(1000, i -> 20 + Math.sin(i / 40.0) * 5);
+        LocalDateTime hasta = lecturas.get(lecturas.size() - 1).getTimestamp();
+
+        assertThat(muestreoService.lttb(lecturas, INICIO, hasta, 100, Canal.TEMPERATURA)).hasSizeLessThanOrEqualTo(100);
+    }
+
+    @Test
+    void m4ConservaElMinimoYElMaximoDeCadaIntervalo() {
+        List<LecturaMuestra> lecturas = serie(1000, i -> 20 + Math.sin(i / 40.0) * 5 + (i * 7919 % 13) / 10.0);
+        LocalDateTime hasta = lecturas.get(lecturas.size() - 1).getTimestamp();
+        int puntos = 100;
+
+        List<LecturaMuestra> muestra = muestreoService.m4(lecturas, INICIO, hasta, puntos, Canal.TEMPERATURA);
+
+        assertThat(muestra).hasSizeLessThanOrEqualTo(puntos);
+        int intervalos = puntos / 4;
+        double epochDesde = MuestreoService.epoch(INICIO);
+        double anchoSeg = (MuestreoService.epoch(hasta) - epochDesde) / intervalos;
+        for (int i = 0; i < intervalos; i++) {
+            int intervalo = i;
+            List<LecturaMuestra> delIntervalo = lecturas.stream()
+                    .filter(l -> Math.min((int) ((MuestreoService.epoch(l.getTimestamp()) - epochDesde) / anchoSeg),
+                            intervalos - 1) == intervalo)
+                    .toList();
+            Comparator<LecturaMuestra> porTemperatura = Comparator.comparing(LecturaMuestra::getTemperatura);
+            BigDecimal minimo = delIntervalo.stream().min(porTemperatura).orElseThrow().getTemperatura();
+            BigDecimal maximo = delIntervalo.stream().max(porTemperatura).orElseThrow().getTemperatura();
+            assertThat(muestra).filteredOn(delIntervalo::contains)
+                    .extracting(LecturaMuestra::getTemperatura)
+                    .contains(minimo, maximo);
+        }
+    }
+
+    @Test
+    void lttbYM4ConservanUnPicoDeCo2QueStrideSePierde() {
+        int indicePico = 517;
+        List<LecturaMuestra> lecturas = serie(1000, i -> 20.0, i -> i == indicePico ? 2000.0 : 400.0 + i % 3);
+        LecturaMuestra pico = lecturas.get(indicePico);
+        LocalDateTime hasta = lecturas.get(lecturas.size() - 1).getTimestamp();
+
+        // Stride se queda con una de cada 10 lecturas: la 517 no es ninguna de ellas
+        assertThat(muestreoService.stride(lecturas, 100)).doesNotContain(pico);
+        assertThat(muestreoService.lttb(lecturas, INICIO, hasta, 100, Canal.CO2)).contains(pico);
+        assertThat(muestreoService.m4(lecturas, INICIO, hasta, 100, Canal.CO2)).contains(pico);
+    }
+
+    @Test
+    void sinLecturasDevuelvenUnaListaVacia() {
+        List<LecturaMuestra> vacia = List.of();
+        LocalDateTime hasta = INICIO.plusHours(1);
+
+        assertThat(muestreoService.stride(vacia, 100)).isEmpty();
+        assertThat(muestreoService.lttb(vacia, INICIO, hasta, 100, Canal.TEMPERATURA)).isEmpty();
+        assertThat(muestreoService.m4(vacia, INICIO, hasta, 100, Canal.TEMPERATURA)).isEmpty();
+        assertThat(lttbEnStreaming(vacia, INICIO, hasta, 100)).isEmpty();
+        assertThat(m4EnStreaming(vacia, INICIO, hasta, 100)).isEmpty();
+    }
+
+    @Test
+    void conUnaLecturaLaDevuelven() {
+        List<LecturaMuestra> una = serie(1, i -> 21.5);
+        LocalDateTime hasta = INICIO.plusHours(1);
+
+        assertThat(muestreoService.stride(una, 100)).containsExactlyElementsOf(una);
+        assertThat(muestreoService.lttb(una, INICIO, hasta, 100, Canal.TEMPERATURA)).containsExactlyElementsOf(una);
+        assertThat(muestreoService.m4(una, INICIO, hasta, 100, Canal.TEMPERATURA)).containsExactlyElementsOf(una);
+        assertThat(lttbEnStreaming(una, INICIO, hasta, 100)).containsExactlyElementsOf(una);
+        assertThat(m4EnStreaming(una, INICIO, hasta, 100)).containsExactlyElementsOf(una);
+    }
+
+    @Test
+    void conPocasLecturasEnStreamingNoRepitenNiPierdenLosExtremos() {
+        List<LecturaMuestra> lecturas = serie(2, i -> 20.0 + i);
+        LocalDateTime hasta = lecturas.get(1).getTimestamp();
+
+        assertThat(lttbEnStreaming(lecturas, INICIO, hasta, 3)).containsExactlyElementsOf(lecturas);
+        assertThat(m4EnStreaming(lecturas, INICIO, hasta, 4)).containsExactlyElementsOf(lecturas);
+    }
+
+    @Test
+    void siSePidenTantosPuntosComoLecturasSeDevuelvenTodas() {
+        List<LecturaMuestra> lecturas = serie(50, i -> 20 + (i * 31 % 7));
+        LocalDateTime hasta = lecturas.get(lecturas.size() - 1).getTimestamp();
+
+        for (int puntos : new int[]{50, 51, 1000}) {
+            assertThat(muestreoService.stride(lecturas, puntos)).containsExactlyElementsOf(lecturas);
+            assertThat(muestreoService.lttb(lecturas, INICIO, hasta, puntos, Canal.TEMPERATURA))
+                    .containsExactlyElementsOf(lecturas);
+            assertThat(muestreoService.m4(lecturas, INICIO, hasta, puntos, Canal.TEMPERATURA))
+                    .containsExactlyElementsOf(lecturas);
+        }
+    }
+
+    /** LTTB como en la ruta de la BD: medias por intervalo calculadas aparte y lecturas en streaming. */
+    private static List<LecturaMuestra> lttbEnStreaming(List<LecturaMuestra> lecturas, LocalDateTime desde,
+                                                        LocalDateTime hasta, int puntos) {
+        int intervalos = Math.max(1, puntos - 2);
+        double epochDesde = MuestreoService.epoch(desde);
+        double anchoSeg = Math.max(1, (MuestreoService.epoch(hasta) - epochDesde) / intervalos);
+        double[] sumaX = new double[intervalos];
+        double[] sumaY = new double[intervalos];
+        int[] cuenta = new int[intervalos];
+        for (LecturaMuestra lectura : lecturas) {
+            double x = MuestreoService.epoch(lectura.getTimestamp());
+            int i = Math.min((int) ((x - epochDesde) / anchoSeg), intervalos - 1);
+            sumaX[i] += x;
+            sumaY[i] += lectura.getTemperatura().doubleValue();
+            cuenta[i]++;
+        }
+        List<MediaIntervalo> medias = new ArrayList<>();
+        for (int i = 0; i < intervalos; i++) {
+            if (cuenta[i] > 0) {
+                medias.add(new MediaIntervalo(i, sumaX[i] / cuenta[i], sumaY[i] / cuenta[i]));
+            }
+        }
+        MuestreoService.Lttb lttb = new MuestreoService.Lttb(Canal.TEMPERATURA, epochDesde, anchoSeg, intervalos, medias);
+        lecturas.forEach(lttb);
+        return lttb.resultado();
+    }
+
+    private static List<LecturaMuestra> m4EnStreaming(List<LecturaMuestra> lecturas, LocalDateTime desde,
+                                                      LocalDateTime hasta, int puntos) {
+        int intervalos = Math.max(1, puntos / 4);
+        double epochDesde = MuestreoService.epoch(desde);
+        double anchoSeg = Math.max(1, (MuestreoService.epoch(hasta) - epochDesde) / intervalos);
+        MuestreoService.M4 m4 = new MuestreoService.M4(Canal.TEMPERATURA, epochDesde, anchoSeg, intervalos);
+        lecturas.forEach(m4);
+        return m4.resultado();
+    }
+
+    private static List<LecturaMuestra> serie(int n, IntToDoubleFunction temperatura) {
+        return serie(n, temperatura, i -> 400.0);
+    }
+
+    /** Lecturas cada {@value #FRECUENCIA_SEG} s desde {@link #INICIO}. */
+    private static List<LecturaMuestra> serie(int n, IntToDoubleFunction temperatura, IntToDoubleFunction co2) {
+        List<LecturaMuestra> lecturas = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            lecturas.add(new LecturaMuestra((long) i + 1, INICIO.plusSeconds((long) i * FRECUENCIA_SEG),
+                    BigDecimal.valueOf(temperatura.applyAsDouble(i)), BigDecimal.valueOf(55), BigDecimal.valueOf(40),
+                    BigDecimal.valueOf(co2.applyAsDouble(i)), BigDecimal.valueOf(300), BigDecimal.valueOf(310)));
+        }
+        return lecturas;
+    }
+}
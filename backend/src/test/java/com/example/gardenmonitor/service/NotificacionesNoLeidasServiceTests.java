@@ -0,0 +1,107 @@
+package com.example.gardenmonitor.service;
+
+import com.example.gardenmonitor.repository.NotificacionRepository;
+import com.example.gardenmonitor.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pruebas de los contadores de {@link NotificacionesNoLeidasService} cuando un
+ * {@code count} coincide con una escritura, con los repositorios simulados.
+ *
+ * @author Richard Ortiz y Enrique Pérez
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class NotificacionesNoLeidasServiceTests {
+
+    private static final Long USUARIO_ID = 3L;
+
+    @Mock
+    private NotificacionRepository notificacionRepository;
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    @InjectMocks
+    private NotificacionesNoLeidasService notificacionesNoLeidasService;
+
+    /** Notificaciones no leídas del usuario en la BD simulada. */
+    private long enBd = 2;
+
+    @BeforeEach
+    void configurar() {
+        when(usuarioRepository.existsById(USUARIO_ID)).thenReturn(true);
+        when(notificacionRepository.countByUsuario_IdAndLeida(USUARIO_ID, false)).thenAnswer(invocacion -> enBd);
+    }
+
+    @Test
+    void unContadorGuardadoSeAjustaConCadaEscritura() {
+        assertThat(contar()).isEqualTo(2);
+
+        insertar(3);
+        notificacionesNoLeidasService.escribir(() -> {
+            enBd -= 1;
+            return 1;
+        }, n -> notificacionesNoLeidasService.sumar(USUARIO_ID, -n));
+
+        assertThat(contar()).isEqualTo(4);
+        assertThat(contar()).isEqualTo(enBd);
+    }
+
+    @Test
+    void unCountHechoConUnaEscrituraConfirmadaSinAjustarNoSeGuarda() {
+        notificacionesNoLeidasService.escribir(() -> {
+            enBd += 3;
+            // Otro hilo cuenta entre la confirmación del INSERT y el ajuste: ya ve las filas nuevas
+            assertThat(contar()).isEqualTo(5);
+            return List.of(USUARIO_ID, USUARIO_ID, USUARIO_ID);
+        }, notificacionesNoLeidasService::sumar);
+
+        assertThat(contar()).isEqualTo(enBd);
+    }
+
+    @Test
+    void unCountQueEmpiezaAntesDeUnaEscrituraYTerminaDespuesNoSeGuarda() {
+        when(notificacionRepository.countByUsuario_IdAndLeida(USUARIO_ID, false)).thenAnswer(invocacion -> {
+            long contado = enBd;
+            insertar(1);
+            return contado;
+        }).thenAnswer(invocacion -> enBd);
+
+        assertThat(contar()).isEqualTo(2);
+        assertThat(contar()).isEqualTo(3);
+    }
+
+    @Test
+    void siLaEscrituraFallaLosContadoresSeVuelvenAGuardar() {
+        assertThatThrownBy(() -> notificacionesNoLeidasService.escribir(() -> {
+            throw new IllegalStateException("fallo");
+        }, r -> { })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(contar()).isEqualTo(2);
+        enBd = 10;
+        assertThat(contar()).isEqualTo(2);
+    }
+
+    private long contar() {
+        return notificacionesNoLeidasService.contar(USUARIO_ID).orElseThrow();
+    }
+
+    private void insertar(int notificaciones) {
+        notificacionesNoLeidasService.escribir(() -> {
+            enBd += notificaciones;
+            return notificaciones;
+        }, n -> notificacionesNoLeidasService.sumar(USUARIO_ID, n));
+    }
+}
@@ -3,6 +3,7 @@ import { Plus } from 'lucide-react';
 import { useParams, useNavigate, useLocation } from 'react-router-dom';
 import { getCentroById, deleteCentro, getArbolesByCentro } from '../../services/centrosService';
 import { getDispositivosByCentro, deleteDispositivo } from '../../services/dispositivosService';
+import { getUltimasLecturasByCentro } from '../../services/lecturasService';
 import Button from '../../components/common/Button';
 import Spinner from '../../components/common/Spinner';
 import Alert from '../../components/common/Alert';
@@ -28,6 +29,7 @@ function DetalleCentro() {
   const [centro, setCentro] = useState(null);
   const [arboles, setArboles] = useState([]);
   const [dispositivos, setDispositivos] = useState([]);
+  const [ultimasLecturas, setUltimasLecturas] = useState({});
   const [loading, setLoading] = useState(true);
   const [loadingDispositivos, setLoadingDispositivos] = useState(true);
   const [error, setError] = useState('');
@@ -77,8 +79,12 @@ function DetalleCentro() {
   const cargarDispositivos = async () => {
     try {
       setLoadingDispositivos(true);
-      const dispositivosData = await getDispositivosByCentro(id);
+      const [dispositivosData, lecturasData] = await Promise.all([
+        getDispositivosByCentro(id),
+        getUltimasLecturasByCentro(id).catch(() => []),
+      ]);
       setDispositivos(dispositivosData);
+      setUltimasLecturas(Object.fromEntries(lecturasData.map(l => [l.dispositivoId, l])));
     } catch (err) {
       console.error('Error cargando dispositivos:', err);
     } finally {
@@ -347,6 +353,9 @@ function DetalleCentro() {
                   <th className="px-6 py-3 text-left text-xs font-medium text-white uppercase tracking-wider">
                     Última conexión
                   </th>
+                  <th className="px-6 py-3 text-left text-xs font-medium text-white uppercase tracking-wider">
+                    Última lectura
+                  </th>
                   <th className="px-6 py-3 text-right text-xs font-medium text-white uppercase tracking-wider">
                     Acciones
                   </th>
@@ -378,6 +387,11 @@ function DetalleCentro() {
                           })
                         : 'Nunca'}
                     </td>
+                    <td className="px-6 py-4 whitespace-nowrap text-sm text-gray-500">
+                      {ultimasLecturas[dispositivo.id]
+                        ? `${ultimasLecturas[dispositivo.id].temperatura} °C · ${ultimasLecturas[dispositivo.id].humedadAmbiente} % amb. · ${ultimasLecturas[dispositivo.id].humedadSuelo} % suelo`
+                        : '—'}
+                    </td>
                     <td className="px-6 py-4 whitespace-nowrap text-sm">
                       <div className="flex gap-2 justify-end">
                         <Button
@@ -39,14 +39,58 @@ export const getLecturasParaGrafica = async (dispositivoId, periodo) => {
   }
 };
 
+/**
+ * Obtener las gráficas de varios dispositivos en una sola petición.
+ * Se indica una lista de dispositivos o un centro (todos sus dispositivos).
+ *
+ * @param {{dispositivoIds?: number[], centroId?: number}} seleccion - Dispositivos o centro
+ * @param {'DIA'|'SEMANA'|'MES'|'SEMESTRE'|'ANIO'} periodo - Periodo predefinido
+ * @returns {Promise<Object>} Objeto { [dispositivoId]: Array de puntos }
+ */
+export const getLecturasParaGraficaMultiple = async ({ dispositivoIds, centroId }, periodo) => {
+  try {
+    const response = await api.get('/lecturas/grafica', {
+      params: { dispositivoIds: dispositivoIds?.join(','), centroId, periodo },
+    });
+    return response.data;
+  } catch (error) {
+    console.error('Error obteniendo gráficas de varios dispositivos', error);
+    throw error;
+  }
+};
+
 /**
  * Obtener la lectura más reciente de un dispositivo.
+ * El backend la sirve desde memoria, sin consultar la BD.
  * @param {number} dispositivoId - ID del dispositivo
  * @returns {Promise<Object|null>} Lectura más reciente o null si no hay ninguna
  */
 export const getUltimaLectura = async (dispositivoId) => {
-  const data = await getLecturasByDispositivo(dispositivoId, 0, 1);
-  return data.content.length > 0 ? data.content[0] : null;
+  try {
+    const response = await api.get(`/lecturas/dispositivo/${dispositivoId}/ultima`);
+    return response.data;
+  } catch (error) {
+    if (error.response?.status === 404) {
+      return null;
+    }
+    console.error(`Error obteniendo la última lectura del dispositivo ${dispositivoId}`, error);
+    throw error;
+  }
+};
+
+/**
+ * Obtener la última lectura de cada dispositivo de un centro (una sola petición).
+ * @param {number} centroId - ID del centro
+ * @returns {Promise<Array>} Lista de { id, timestamp, dispositivoId, temperatura, ... }; los dispositivos sin lecturas no aparecen
+ */
+export const getUltimasLecturasByCentro = async (centroId) => {
+  try {
+    const response = await api.get(`/centros/${centroId}/lecturas/ultimas`);
+    return response.data;
+  } catch (error) {
+    console.error(`Error obteniendo las últimas lecturas del centro ${centroId}`, error);
+    throw error;
+  }
 };
 
 /**
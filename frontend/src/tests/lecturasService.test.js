@@ -10,9 +10,9 @@ describe('lecturasService', () => {
 
   describe('getUltimaLectura', () => {
     // Test 11
-    it('devuelve null cuando el array de contenido está vacío', async () => {
+    it('devuelve null cuando el dispositivo no tiene lecturas (404)', async () => {
       // Arrange
-      api.get.mockResolvedValue({ data: { content: [], totalElements: 0 } });
+      api.get.mockRejectedValue({ response: { status: 404 } });
       // Act
       const result = await getUltimaLectura(1);
       // Assert
@@ -20,13 +20,14 @@ describe('lecturasService', () => {
     });
 
     // Test 12
-    it('devuelve el primer elemento cuando existen lecturas', async () => {
+    it('devuelve la lectura cuando existen lecturas', async () => {
       // Arrange
       const lectura = { id: 1, temperatura: 22.5, timestamp: '2026-02-19T10:00:00' };
-      api.get.mockResolvedValue({ data: { content: [lectura], totalElements: 1 } });
+      api.get.mockResolvedValue({ data: lectura });
       // Act
       const result = await getUltimaLectura(1);
       // Assert
+      expect(api.get).toHaveBeenCalledWith('/lecturas/dispositivo/1/ultima');
       expect(result).toEqual(lectura);
     });
   });